@@ -0,0 +1,17 @@
+import Services.SourceStats;
+import Services.WarmUp;
+import com.google.inject.AbstractModule;
+
+/**
+ * Application bindings, loaded by Play at startup.
+ * @author Team
+ */
+public class Module extends AbstractModule {
+    @Override
+    protected void configure() {
+        // warm up at boot rather than on the first request that needs it, see /ready
+        bind(WarmUp.class).asEagerSingleton();
+        // listens to the result cache from the first result on
+        bind(SourceStats.class).asEagerSingleton();
+    }
+}
@@ -0,0 +1,208 @@
+package Services;
+
+import com.typesafe.config.Config;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool of NewsAPI keys with per-key daily quotas and rate limits.
+ * Keys have no daily quota and no rate limit unless they are configured.
+ * Each call takes the key with the most quota left that is under its rate limit; a key answered with
+ * 401 or 429 leaves the rotation until its quota resets (or until Retry-After for 429).
+ * All per-key state is kept in atomics, so concurrent requests never wait on each other.
+ * @author Team
+ */
+@Singleton
+public class ApiKeyPool {
+    /** No daily cap unless a quota is configured (the developer plan allows 100 requests per day). */
+    static final long UNLIMITED = Long.MAX_VALUE;
+    /** No rate limit unless one is configured. */
+    static final double UNLIMITED_RATE = Double.POSITIVE_INFINITY;
+
+    private final Clock clock;
+    private final List<KeyState> keys;
+    private final LongAdder exhausted;
+
+    /**
+     * Constructs the pool from {@code newsapi.keys}, or from the single {@code newsapi.key} when no list is configured.
+     * @param config App configuration.
+     * @param metrics the metrics registry.
+     * @author Team
+     */
+    @Inject
+    public ApiKeyPool(Config config, Metrics metrics) {
+        this(config, metrics, Clock.systemUTC());
+    }
+
+    /**
+     * Constructs the pool with an explicit clock (used by tests).
+     * @param config App configuration.
+     * @param metrics the metrics registry.
+     * @param clock the clock quotas and cooldowns are measured with.
+     * @author Team
+     */
+    public ApiKeyPool(Config config, Metrics metrics, Clock clock) {
+        this.clock = clock;
+        List<KeyState> configured = new ArrayList<>();
+        if (config.hasPath("newsapi.keys")) {
+            for (Config k : config.getConfigList("newsapi.keys")) {
+                configured.add(new KeyState(k.getString("key"), "key" + configured.size(),
+                        k.hasPath("quota") ? k.getLong("quota") : UNLIMITED,
+                        k.hasPath("rate") ? k.getDouble("rate") : UNLIMITED_RATE));
+            }
+        } else {
+            configured.add(new KeyState(config.getString("newsapi.key"), "key0",
+                    config.hasPath("newsapi.quota") ? config.getLong("newsapi.quota") : UNLIMITED,
+                    config.hasPath("newsapi.rate") ? config.getDouble("newsapi.rate") : UNLIMITED_RATE));
+        }
+        this.keys = Collections.unmodifiableList(configured);
+
+        this.exhausted = metrics.counter("apikeys.exhausted");
+        for (KeyState k : keys) {
+            String prefix = "apikeys." + k.label + ".";
+            metrics.gauge(prefix + "used", () -> k.used(today()));
+            metrics.gauge(prefix + "remaining", () -> k.quota == UNLIMITED ? -1 : k.remaining(today()));
+            metrics.gauge(prefix + "available", () -> k.disabledUntil <= clock.millis() ? 1 : 0);
+            k.rejected = metrics.counter(prefix + "rejected");
+        }
+    }
+
+    /**
+     * Takes a key for one upstream request, counting it against that key's quota.
+     * @return the key to use, or empty when every key is out of quota, cooling down or at its rate limit.
+     * @author Team
+     */
+    public Optional<String> acquire() {
+        long now = clock.millis();
+        long day = today();
+        List<KeyState> candidates = new ArrayList<>(keys.size());
+        for (KeyState k : keys) {
+            if (k.disabledUntil <= now && k.remaining(day) > 0) candidates.add(k);
+        }
+        candidates.sort(Comparator.comparingLong((KeyState k) -> k.remaining(day)).reversed());
+        for (KeyState k : candidates) {
+            // quota first: a key out of quota must not spend a rate token
+            if (!k.tryConsume(day)) continue;
+            if (k.tryRate(TimeUnit.MILLISECONDS.toNanos(now))) return Optional.of(k.key);
+            k.refund(day);
+        }
+        exhausted.increment();
+        return Optional.empty();
+    }
+
+    /**
+     * Reports the upstream status of a request made with a key; 401 and 429 take the key out of rotation.
+     * @param key the key returned by {@link #acquire()}.
+     * @param status the HTTP status of the response.
+     * @param retryAfter the Retry-After header, if any (seconds).
+     * @author Team
+     */
+    public void report(String key, int status, Optional<String> retryAfter) {
+        if (status != 401 && status != 429) return;
+        for (KeyState k : keys) {
+            if (!k.key.equals(key)) continue;
+            k.rejected.increment();
+            long until = nextReset();
+            if (status == 429 && retryAfter.isPresent()) {
+                try {
+                    until = clock.millis() + TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.get().trim()));
+                } catch (NumberFormatException ignored) {
+                    // HTTP-date form: keep the daily reset
+                }
+            }
+            k.disabledUntil = until;
+        }
+    }
+
+    /**
+     * Gets the number of configured keys.
+     * @return the pool size.
+     * @author Team
+     */
+    public int size() {
+        return keys.size();
+    }
+
+    private long today() {
+        return LocalDate.now(clock.withZone(ZoneOffset.UTC)).toEpochDay();
+    }
+
+    /** Quotas reset at midnight UTC. */
+    private long nextReset() {
+        return Instant.EPOCH.plusSeconds((today() + 1) * 86_400L).toEpochMilli();
+    }
+
+    /** Counters of one key; the day and count are packed in one long so a reset is a single CAS. */
+    private static final class KeyState {
+        final String key;
+        /** metric name of the key: its position in the configuration, never part of the key itself */
+        final String label;
+        final long quota;
+        final long intervalNanos;
+        final long burstNanos;
+        /** (epoch day << 32) | requests made that day */
+        final AtomicLong usage = new AtomicLong();
+        /** theoretical arrival time of the next request (GCRA rate limiter) */
+        final AtomicLong nextFree = new AtomicLong();
+        volatile long disabledUntil;
+        LongAdder rejected;
+
+        KeyState(String key, String label, long quota, double ratePerSecond) {
+            this.key = key;
+            this.label = label;
+            this.quota = quota;
+            this.intervalNanos = ratePerSecond == UNLIMITED_RATE ? 0 : (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+            this.burstNanos = intervalNanos * Math.max(1, (long) ratePerSecond);
+        }
+
+        long used(long day) {
+            long u = usage.get();
+            return (u >>> 32) == day ? (u & 0xFFFFFFFFL) : 0;
+        }
+
+        long remaining(long day) {
+            return Math.max(0, quota - used(day));
+        }
+
+        boolean tryConsume(long day) {
+            while (true) {
+                long u = usage.get();
+                long count = (u >>> 32) == day ? (u & 0xFFFFFFFFL) : 0;
+                if (count >= quota) return false;
+                if (usage.compareAndSet(u, (day << 32) | Math.min(count + 1, 0xFFFFFFFFL))) return true;
+            }
+        }
+
+        /** Gives back a request counted by {@link #tryConsume(long)} that was not made. */
+        void refund(long day) {
+            while (true) {
+                long u = usage.get();
+                if ((u >>> 32) != day || (u & 0xFFFFFFFFL) == 0) return;
+                if (usage.compareAndSet(u, u - 1)) return;
+            }
+        }
+
+        boolean tryRate(long nowNanos) {
+            if (intervalNanos == 0) return true;
+            while (true) {
+                long tat = nextFree.get();
+                long start = Math.max(tat, nowNanos);
+                if (start - nowNanos > burstNanos) return false;
+                if (nextFree.compareAndSet(tat, start + intervalNanos)) return true;
+            }
+        }
+    }
+}
@@ -1,87 +1,206 @@
 package Services;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
 import controllers.HomeController;
+import play.libs.Json;
 import play.libs.ws.*;
 import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.time.*;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 import models.Article;
+import models.NewsSource;
 
 /**
  * Service class that handles asynchronous API calls and parsing.
+ * Every parsed page is also fed to the global {@link TrendingTerms} view, and source links are resolved
+ * through the {@link SourceCatalogue}, which also gives the language of articles of unfiltered searches. Responses can be recorded to, or replayed from, an {@link UpstreamArchive}.
+ * Failed calls are reported to the {@link EventLog}.
  */
+@Singleton
 public class Client implements WSBodyReadables, WSBodyWritables {
 
     private final WSClient ws;
+    private final TrendingTerms trending;
+    private final SourceCatalogue sources;
+    private final UpstreamHedging hedging;
+    private final ApiKeyPool keys;
+    private final UpstreamArchive archive;
+    private final EventLog events;
 
     @Inject
-    public Client(WSClient ws) {
+    public Client(WSClient ws, TrendingTerms trending, SourceCatalogue sources, UpstreamHedging hedging, ApiKeyPool keys,
+                  UpstreamArchive archive, EventLog events) {
         this.ws = ws;
+        this.trending = trending;
+        this.sources = sources;
+        this.hedging = hedging;
+        this.keys = keys;
+        this.archive = archive;
+        this.events = events;
     }
 
     /**
      * Fetches and parses NewsAPI articles asynchronously.
      *
-     * @param url NewsAPI request URL
-     * @return CompletionStage<List<Article>>
+     * @param url NewsAPI request URL, without the apiKey parameter (a key is taken from the pool)
+     * @return CompletionStage<List<Article>>, at most the number shown per search
      */
     public CompletionStage<List<Article>> clientRequest(String url) {
+        return clientRequest(url, HomeController.getMaxArticlesVisible());
+    }
 
-        WSRequest request = ws.url(url).setRequestTimeout(Duration.ofSeconds(5));
+    /**
+     * Fetches and parses NewsAPI articles asynchronously, keeping up to a given number of them.
+     *
+     * @param url NewsAPI request URL, without the apiKey parameter (a key is taken from the pool)
+     * @param limit most articles kept, e.g. a whole combined page that is split per query afterwards
+     * @return CompletionStage<List<Article>>
+     */
+    public CompletionStage<List<Article>> clientRequest(String url, int limit) {
+        return clientRequest(url, limit, true);
+    }
 
-        return request.get().thenApply(response -> {
+    /**
+     * Fetches and parses NewsAPI articles asynchronously, possibly leaving them out of the trending terms.
+     *
+     * @param url NewsAPI request URL, without the apiKey parameter (a key is taken from the pool)
+     * @param limit most articles kept
+     * @param trend whether the articles count towards the {@link TrendingTerms}; the warm-up's searches don't
+     * @return CompletionStage<List<Article>>, failed when NewsAPI answers anything but 200
+     */
+    public CompletionStage<List<Article>> clientRequest(String url, int limit, boolean trend) {
+        if (archive.mode() == UpstreamArchive.Mode.REPLAY) {
+            // offline: answer from the recorded response, NewsAPI is never called
+            return CompletableFuture.completedFuture(archive.replay(url).map(this::readJson).map(json -> parse(json, url, limit, trend)).orElse(Collections.emptyList()));
+        }
+
+        // Timeout and hedging follow recent upstream latencies, see UpstreamHedging
+        StageEvent fetch = StageEvent.start("fetch");
+        CompletionStage<WSResponse> call = hedging.execute(() -> send(url, keys.size()), response -> response.getStatus() == 200);
+
+        return call.thenApply(response -> {
+            fetch.end(url, fetch.isEnabled() ? response.getBodyAsBytes().size() : 0); //body size, only read while recording
             if (response.getStatus() != 200) {
-                System.out.println("Error: " + response.getStatusText());
-                return Collections.emptyList();
+                events.event("upstream").with("url", url).with("status", response.getStatus()).failed(response.getStatusText()).emit();
+                //an error is not an empty page: callers must not take it for "no articles match"
+                throw new IllegalStateException("NewsAPI answered " + response.getStatus() + " " + response.getStatusText());
             }
+            if (archive.mode() == UpstreamArchive.Mode.RECORD) archive.record(url, response.asByteArray());
+            return parse(response.asJson(), url, limit, trend);
+        });
+    }
 
-            JsonNode json = response.asJson();
-            JsonNode articlesNode = json.get("articles");
+    /**
+     * Parses the articles of a NewsAPI response.
+     *
+     * @param json the response body
+     * @param url the request URL, for the profiler
+     * @param limit most articles kept
+     * @param trend whether the articles are recorded as trending terms
+     * @return the articles, at most {@code limit}
+     */
+    private List<Article> parse(JsonNode json, String url, int limit, boolean trend) {
+        JsonNode articlesNode = json.get("articles");
 
-            if (articlesNode == null || !articlesNode.isArray()) {
-                return Collections.emptyList();
-            }
+        if (articlesNode == null || !articlesNode.isArray()) {
+            return Collections.emptyList();
+        }
+        StageEvent stage = StageEvent.start("parse");
+        String requestedLanguage = requestedLanguage(url);
+
+        // Parse top 10 articles with Java Streams
+        List<Article> articles = StreamSupport.stream(articlesNode.spliterator(), false)
+                .limit(limit)
+                .map(articleNode -> {
+                    String title = articleNode.get("title").asText("No title");
+                    String urlToArticle = articleNode.get("url").asText("#");
+                    JsonNode sourceNode = articleNode.get("source");
+                    String sourceName = sourceNode.get("name").asText("Unknown Source");
+                    String sourceId = sourceNode.path("id").asText(null);
+                    Optional<NewsSource> source = sources.byId(sourceId).or(() -> sources.byName(sourceName));
+                    String sourceUrl = buildSourceUrl(source, sourceName);
+                    Instant publishedAt = parseInstant(articleNode.get("publishedAt").asText(null));
+                    String description = articleNode.get("description").asText("No description");
+                    int kincaidGrade = 5;
+                    int readingScore = 5;
+                    String language = requestedLanguage != null ? requestedLanguage
+                            : source.map(NewsSource::getLanguage).filter(l -> !l.isEmpty()).orElse(null);
 
-            // Parse top 10 articles with Java Streams
-            return StreamSupport.stream(articlesNode.spliterator(), false)
-                    .limit(HomeController.getMaxArticlesVisible())
-                    .map(articleNode -> {
-                        String title = articleNode.get("title").asText("No title");
-                        String urlToArticle = articleNode.get("url").asText("#");
-                        String sourceName = articleNode.get("source").get("name").asText("Unknown Source");
-                        String sourceUrl = buildSourceUrl(sourceName);
-                        String publishedAt = convertToEDT(articleNode.get("publishedAt").asText("Unknown Date"));
-                        String description = articleNode.get("description").asText("No description");
-                        int kincaidGrade = 5;
-                        int readingScore = 5;
-
-                        return new Article(title, urlToArticle, sourceName, sourceUrl, publishedAt,kincaidGrade, readingScore, description);
-                    })
-                    .collect(Collectors.toList());
+                    return new Article(title, urlToArticle, sourceName, sourceUrl, publishedAt,kincaidGrade, readingScore, description,
+                            sourceId, language);
+                })
+                .collect(Collectors.toList());
+        stage.end(url, articles.size());
+
+        if (trend) trending.record(articles); // only queues, never blocks the response
+        return articles;
+    }
+
+    /** Reads a recorded body straight from the archive's mapped file */
+    private JsonNode readJson(ByteBuffer body) {
+        try {
+            return Json.mapper().readTree(new ByteBufferBackedInputStream(body));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
+    /**
+     * Sends one request with a key from the pool, moving on to the next key when one is rejected (401/429).
+     * @param url NewsAPI request URL without the apiKey parameter
+     * @param attempts how many keys may still be tried
+     * @return the upstream response
+     */
+    private CompletionStage<WSResponse> send(String url, int attempts) {
+        Optional<String> key = keys.acquire();
+        if (key.isEmpty()) {
+            return CompletableFuture.failedFuture(new IllegalStateException("No NewsAPI key available: all keys are out of quota or rate limited"));
+        }
+        String keyedUrl = url + (url.endsWith("?") || url.endsWith("&") ? "" : url.contains("?") ? "&" : "?") + "apiKey=" + key.get();
+        return ws.url(keyedUrl).setRequestTimeout(hedging.timeout()).get().thenCompose(response -> {
+            int status = response.getStatus();
+            keys.report(key.get(), status, response.getSingleHeader("Retry-After"));
+            if ((status == 401 || status == 429) && attempts > 1) return send(url, attempts - 1);
+            return CompletableFuture.completedFuture(response);
         });
     }
 
-    /** Converts UTC date to EDT */
-    private String convertToEDT(String utcDate) {
+    /** Reads a NewsAPI (UTC, ISO-8601) date; it is only formatted for display, in the reader's zone (see DisplayTime) */
+    private static Instant parseInstant(String utcDate) {
         try {
-            Instant instant = Instant.parse(utcDate);
-            ZonedDateTime edtTime = instant.atZone(ZoneId.of("America/Toronto"));
-            return edtTime.format(DateTimeFormatter.ofPattern("yyyy-MM-dd, HH:mm:ss"));
-        } catch (Exception e) {
-            return "Unknown Date";
+            return utcDate == null ? null : Instant.parse(utcDate);
+        } catch (DateTimeException e) {
+            return null;
         }
     }
 
-    /** Builds a valid hyperlink for the source website */
-    private String buildSourceUrl(String sourceName) {
+    /** Gets the language a request was filtered on, which every article of its response is in */
+    private static String requestedLanguage(String url) {
+        if (url == null) return null;
+        int at = url.indexOf("language=");
+        if (at < 0 || (at > 0 && url.charAt(at - 1) != '?' && url.charAt(at - 1) != '&')) return null;
+        int end = url.indexOf('&', at);
+        return url.substring(at + "language=".length(), end < 0 ? url.length() : end);
+    }
+
+    /** Builds a valid hyperlink for the source website, from the sources catalogue when it knows the source */
+    private String buildSourceUrl(Optional<NewsSource> known, String sourceName) {
+        if (known.isPresent() && !known.get().getUrl().isEmpty()) return known.get().getUrl();
         if (sourceName == null || sourceName.isEmpty()) return "#";
-        String normalized = sourceName.toLowerCase().replaceAll("\\s+", "");
-        return "https://www." + normalized + ".com";
+        StringBuilder host = new StringBuilder("https://www.");
+        for (int i = 0; i < sourceName.length(); i++) {
+            char c = sourceName.charAt(i);
+            if (!Character.isWhitespace(c)) host.append(Character.toLowerCase(c));
+        }
+        return host.append(".com").toString();
     }
 }
\ No newline at end of file
@@ -0,0 +1,77 @@
+package Services;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-client rate limits in a fixed-size table, so memory stays bounded however many clients show up.
+ * Each slot holds a client hash and the theoretical arrival time of its next request (GCRA, as in
+ * {@link ApiKeyPool}). A client probes a few slots from its hash: its own, an empty one, or one whose
+ * client has been idle long enough to be forgotten. When all are busy it shares the first slot, which only
+ * makes the limit stricter for the clients involved. Everything is updated with CAS, without locks.
+ * @author Team
+ */
+public class ClientRateLimiter {
+    private static final int PROBES = 4;
+
+    private final int mask;
+    private final AtomicLongArray owners;
+    private final AtomicLongArray nextFree;
+    private final long intervalNanos;
+    private final long burstNanos;
+
+    /**
+     * Creates a limiter.
+     * @param ratePerSecond sustained requests per second allowed to one client.
+     * @param burst requests a client may make at once after being idle.
+     * @param slots number of clients tracked at once (rounded up to a power of two).
+     * @author Team
+     */
+    public ClientRateLimiter(double ratePerSecond, int burst, int slots) {
+        int size = Integer.highestOneBit(Math.max(PROBES, slots - 1)) << 1;
+        this.mask = size - 1;
+        this.owners = new AtomicLongArray(size);
+        this.nextFree = new AtomicLongArray(size);
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        this.burstNanos = intervalNanos * Math.max(0, burst - 1);
+        // nanoTime may be negative: start every slot far in the past
+        for (int i = 0; i < size; i++) nextFree.set(i, Long.MIN_VALUE / 4);
+    }
+
+    /**
+     * Takes one request from a client's allowance.
+     * @param client the client identifier (e.g. its address).
+     * @param nowNanos the current time from {@link System#nanoTime()}.
+     * @return 0 when the request is allowed, otherwise how long the client should wait, in nanoseconds.
+     * @author Team
+     */
+    public long tryAcquire(String client, long nowNanos) {
+        int slot = slot(hash(client), nowNanos);
+        while (true) {
+            long tat = nextFree.get(slot);
+            long start = Math.max(tat, nowNanos);
+            if (start - nowNanos > burstNanos) return start - nowNanos - burstNanos;
+            if (nextFree.compareAndSet(slot, tat, start + intervalNanos)) return 0;
+        }
+    }
+
+    /** Finds the client's slot, claiming a free or idle one if it has none. */
+    private int slot(long hash, long nowNanos) {
+        int first = (int) hash & mask;
+        for (int i = 0; i < PROBES; i++) {
+            int s = (first + i) & mask;
+            long owner = owners.get(s);
+            if (owner == hash) return s;
+            // a slot whose allowance is full again holds nothing worth keeping
+            boolean idle = owner == 0 || nextFree.get(s) + burstNanos <= nowNanos;
+            if (idle && owners.compareAndSet(s, owner, hash)) return s;
+        }
+        return first;
+    }
+
+    private static long hash(String client) {
+        long h = client.hashCode() * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 29;
+        return h == 0 ? 1 : h;
+    }
+}
@@ -0,0 +1,289 @@
+package Services;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigException;
+import models.QueryResult;
+import models.QueryResultCodec;
+import play.inject.ApplicationLifecycle;
+import play.libs.ws.WSClient;
+import play.libs.ws.WSRequest;
+import play.mvc.Http;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Optional cluster mode: several NotiLytics nodes share the work so each query is fetched from NewsAPI by one node.
+ * Queries are assigned to nodes with a {@link HashRing} over the configured nodes that answer health probes.
+ * A node receiving a search it does not own asks the owner for the result ({@code /cluster/result}), and when
+ * ownership moves (a node joins or leaves) the new owner first asks the previous one for its cached copy, so a
+ * membership change does not turn into a burst of upstream calls.
+ * @author Team
+ */
+@Singleton
+public class ClusterRouter {
+    /** Shared secret sent by nodes to each other. */
+    public static final String SECRET_HEADER = "X-NotiLytics-Cluster";
+    private static final int VIRTUAL_NODES = 128;
+
+    private final WSClient ws;
+    private final boolean enabled;
+    private final String self;
+    private final List<String> nodes;
+    private final String secret;
+    private final Duration timeout;
+    private final int rejoinAfter;
+    /** Consecutive successful probes per node; a node is live once it reaches rejoinAfter. */
+    private final Map<String, Integer> healthy = new ConcurrentHashMap<>();
+    private volatile Rings rings;
+
+    private final LongAdder forwarded;
+    private final LongAdder forwardFailures;
+    private final LongAdder handoffs;
+
+    /**
+     * Constructs the router used by the application and schedules health probes of the other nodes.
+     * @param ws Play WSClient for HTTP requests.
+     * @param config App configuration.
+     * @param lifecycle the Play application lifecycle.
+     * @param metrics the metrics registry.
+     * @author Team
+     */
+    @Inject
+    public ClusterRouter(WSClient ws, Config config, ApplicationLifecycle lifecycle, Metrics metrics) {
+        this(ws, config, metrics);
+        if (!enabled) return;
+        long interval = (config.hasPath("cluster.probeInterval") ? config.getDuration("cluster.probeInterval") : Duration.ofSeconds(2)).toMillis();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "cluster-probe");
+            t.setDaemon(true);
+            return t;
+        });
+        // jitter so that nodes started together don't probe in lockstep
+        scheduler.scheduleWithFixedDelay(this::probe, ThreadLocalRandom.current().nextLong(interval), interval, TimeUnit.MILLISECONDS);
+        lifecycle.addStopHook(() -> {
+            scheduler.shutdownNow();
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    /**
+     * Constructs the router without background probes (used by tests); every configured node starts live.
+     * @param ws Play WSClient for HTTP requests.
+     * @param config App configuration.
+     * @param metrics the metrics registry.
+     * @author Team
+     */
+    public ClusterRouter(WSClient ws, Config config, Metrics metrics) {
+        this.ws = ws;
+        this.enabled = config.hasPath("cluster.enabled") && config.getBoolean("cluster.enabled");
+        this.self = enabled ? trimSlash(config.getString("cluster.self")) : "";
+        Set<String> configured = new LinkedHashSet<>();
+        configured.add(self);
+        if (enabled) config.getStringList("cluster.nodes").forEach(n -> configured.add(trimSlash(n)));
+        this.nodes = List.copyOf(configured);
+        this.secret = config.hasPath("cluster.secret") ? config.getString("cluster.secret") : "";
+        // without a secret anyone could have a node search, or read its cache, on its NewsAPI keys
+        if (enabled && secret.isEmpty()) throw new ConfigException.BadValue("cluster.secret", "must be set in cluster mode");
+        this.timeout = config.hasPath("cluster.timeout") ? config.getDuration("cluster.timeout") : Duration.ofSeconds(10);
+        this.rejoinAfter = config.hasPath("cluster.rejoinAfter") ? config.getInt("cluster.rejoinAfter") : 2;
+        nodes.forEach(n -> healthy.put(n, rejoinAfter));
+        HashRing ring = new HashRing(nodes, VIRTUAL_NODES);
+        this.rings = new Rings(ring, ring);
+
+        this.forwarded = metrics.counter("cluster.forwarded");
+        this.forwardFailures = metrics.counter("cluster.forward.failures");
+        this.handoffs = metrics.counter("cluster.handoffs");
+        metrics.gauge("cluster.nodes.live", () -> rings.current.nodes().size());
+    }
+
+    /**
+     * Tells whether cluster mode is on.
+     * @return true when cluster.enabled is set.
+     * @author Team
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Finds the node owning a query when it is not this one.
+     * @param query the search query.
+     * @return the owner's base URL, empty when this node owns the query or cluster mode is off.
+     * @author Team
+     */
+    public Optional<String> remoteOwner(String query) {
+        return enabled ? remote(rings.current.owner(HashRing.normalize(query))) : Optional.empty();
+    }
+
+    /**
+     * Finds the node that owned a query before the last membership change, if it was another node.
+     * @param query the search query.
+     * @return the previous owner's base URL, empty when it is this node or ownership did not move.
+     * @author Team
+     */
+    public Optional<String> previousOwner(String query) {
+        if (!enabled) return Optional.empty();
+        Rings r = rings;
+        String key = HashRing.normalize(query);
+        String before = r.previous.owner(key);
+        return before.equals(r.current.owner(key)) ? Optional.empty() : remote(before);
+    }
+
+    /**
+     * Asks another node for the result of a search; the node answers from its cache or fetches it.
+     * Only the search is sent: the node builds the NewsAPI request from it with its own configuration.
+     * A node that cannot be reached is taken out of the ring until it answers probes again; a node that answers
+     * with an error status stays in it, and the call fails with a {@link NodeError}.
+     * @param node the node's base URL.
+     * @param query the search query.
+     * @param key the canonical search, whose filter and sort order are sent along.
+     * @param cachedOnly true to only read the node's cached copy, never fetching from NewsAPI.
+     * @return the result, or null when cachedOnly is set and the node has none.
+     * @author Team
+     */
+    public CompletionStage<QueryResult> fetch(String node, String query, QueryKey key, boolean cachedOnly) {
+        String url = node + "/cluster/result?q=" + encode(query) + "&filter=" + encode(key.filter()) + "&sort=" + encode(key.sort())
+                + (cachedOnly ? "&cachedOnly=true" : "");
+        (cachedOnly ? handoffs : forwarded).increment();
+        return ws.url(url).addHeader(SECRET_HEADER, secret).setRequestTimeout(timeout).get()
+                .whenComplete((response, ex) -> {
+                    if (ex != null) markDown(node); //unreachable or timed out; any answer at all means it is up
+                })
+                .thenApply(response -> {
+                    if (cachedOnly && response.getStatus() == 404) return (QueryResult) null;
+                    if (response.getStatus() != 200) throw new NodeError(node, response.getStatus());
+                    return QueryResultCodec.decode(ByteBuffer.wrap(response.asByteArray()));
+                })
+                .whenComplete((r, ex) -> {
+                    if (ex != null) forwardFailures.increment();
+                });
+    }
+
+    /**
+     * Checks that a request to a cluster route comes from another node.
+     * @param request the request header.
+     * @return true when cluster mode is on and the shared secret matches.
+     * @author Team
+     */
+    public boolean isAuthorized(Http.RequestHeader request) {
+        return enabled && request.header(SECRET_HEADER)
+                .map(sent -> MessageDigest.isEqual(sent.getBytes(StandardCharsets.UTF_8), secret.getBytes(StandardCharsets.UTF_8)))
+                .orElse(false);
+    }
+
+    /**
+     * Gets the nodes currently on the ring.
+     * @return the live nodes' base URLs.
+     * @author Team
+     */
+    public List<String> liveNodes() {
+        return rings.current.nodes();
+    }
+
+    /**
+     * Takes a node out of the ring until it passes probes again.
+     * @param node the node's base URL.
+     * @author Team
+     */
+    public void markDown(String node) {
+        if (node.equals(self)) return;
+        healthy.put(node, 0);
+        rebuild();
+    }
+
+    /**
+     * Records the outcome of a health probe; a node rejoins after {@code cluster.rejoinAfter} successes in a row.
+     * @param node the node's base URL.
+     * @param up whether the node answered.
+     * @author Team
+     */
+    public void probed(String node, boolean up) {
+        if (!up) {
+            markDown(node);
+            return;
+        }
+        int count = healthy.merge(node, 1, (a, b) -> Math.min(a + b, rejoinAfter));
+        if (count == rejoinAfter) rebuild();
+    }
+
+    private void probe() {
+        for (String node : nodes) {
+            if (node.equals(self)) continue;
+            WSRequest request = ws.url(node + "/cluster/ping").addHeader(SECRET_HEADER, secret).setRequestTimeout(Duration.ofSeconds(1));
+            request.get().whenComplete((response, ex) -> probed(node, ex == null && response.getStatus() == 200));
+        }
+    }
+
+    private synchronized void rebuild() {
+        Set<String> live = new TreeSet<>();
+        for (String n : nodes) {
+            if (healthy.getOrDefault(n, 0) >= rejoinAfter) live.add(n);
+        }
+        if (new ArrayList<>(live).equals(rings.current.nodes())) return;
+        rings = new Rings(new HashRing(live, VIRTUAL_NODES), rings.current);
+    }
+
+    private Optional<String> remote(String node) {
+        return node == null || node.equals(self) ? Optional.empty() : Optional.of(node);
+    }
+
+    private static String trimSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    private static String encode(String s) {
+        return URLEncoder.encode(s, StandardCharsets.UTF_8);
+    }
+
+    /** A node that was reached but answered a cluster call with an error status (e.g. its NewsAPI call failed). */
+    public static final class NodeError extends IllegalStateException {
+        private static final long serialVersionUID = 1L;
+        private final int status;
+
+        NodeError(String node, int status) {
+            super("Cluster node " + node + " answered " + status);
+            this.status = status;
+        }
+
+        /**
+         * Gets the HTTP status the node answered with.
+         * @return the status.
+         * @author Team
+         */
+        public int getStatus() {
+            return status;
+        }
+    }
+
+    /** The current ring and the one before the last membership change, swapped together. */
+    private static final class Rings {
+        final HashRing current;
+        final HashRing previous;
+
+        Rings(HashRing current, HashRing previous) {
+            this.current = current;
+            this.previous = previous;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package Services;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Adaptive limit on requests in flight (additive increase, multiplicative decrease).
+ * Each request that completes within the latency target raises the limit by 1/limit, so roughly by one per
+ * full window of requests; a slow or failed one cuts it by a fixed factor, at most once per target interval so
+ * that a burst of slow responses counts as one signal. All state is in atomics.
+ * @author Team
+ */
+public class ConcurrencyLimit {
+    private static final double BACKOFF = 0.9;
+
+    private final int min;
+    private final int max;
+    private final long targetNanos;
+    private final AtomicInteger inflight = new AtomicInteger();
+    /** The current limit, as the bits of a double. */
+    private final AtomicLong limit;
+    private final AtomicLong lastDecrease = new AtomicLong(Long.MIN_VALUE / 4);
+
+    /**
+     * Creates a limit.
+     * @param initial starting limit.
+     * @param min lowest the limit may go.
+     * @param max highest the limit may go.
+     * @param targetNanos latency above which a request counts as a sign of overload.
+     * @author Team
+     */
+    public ConcurrencyLimit(int initial, int min, int max, long targetNanos) {
+        this.min = Math.max(1, min);
+        this.max = Math.max(this.min, max);
+        this.targetNanos = targetNanos;
+        this.limit = new AtomicLong(Double.doubleToLongBits(Math.min(this.max, Math.max(this.min, initial))));
+    }
+
+    /**
+     * Admits a request if fewer than limit + headroom are in flight.
+     * @param headroom extra slots this request may use above the limit (for cheap, high-priority requests).
+     * @return true when admitted; {@link #release(long, boolean, long)} must then be called once.
+     * @author Team
+     */
+    public boolean tryAcquire(int headroom) {
+        while (true) {
+            int current = inflight.get();
+            if (current >= limit() + headroom) return false;
+            if (inflight.compareAndSet(current, current + 1)) return true;
+        }
+    }
+
+    /**
+     * Records the outcome of an admitted request and adjusts the limit.
+     * @param latencyNanos how long the request took.
+     * @param failed true when the request failed on the server side.
+     * @param nowNanos the current time from {@link System#nanoTime()}.
+     * @author Team
+     */
+    public void release(long latencyNanos, boolean failed, long nowNanos) {
+        inflight.decrementAndGet();
+        if (failed || latencyNanos > targetNanos) {
+            long last = lastDecrease.get();
+            if (nowNanos - last < targetNanos || !lastDecrease.compareAndSet(last, nowNanos)) return;
+            update(l -> Math.max(min, l * BACKOFF));
+        } else {
+            update(l -> Math.min(max, l + 1.0 / l));
+        }
+    }
+
+    /**
+     * Gets the current limit.
+     * @return requests allowed in flight.
+     * @author Team
+     */
+    public int limit() {
+        return (int) Double.longBitsToDouble(limit.get());
+    }
+
+    /**
+     * Gets the number of requests in flight.
+     * @return admitted requests not yet released.
+     * @author Team
+     */
+    public int inflight() {
+        return inflight.get();
+    }
+
+    private void update(DoubleUnaryOperator f) {
+        limit.getAndUpdate(bits -> Double.doubleToLongBits(f.applyAsDouble(Double.longBitsToDouble(bits))));
+    }
+}
@@ -0,0 +1,78 @@
+package Services;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size Count-Min Sketch over String keys.
+ * Memory is depth * width ints no matter how many distinct keys are added, and estimates never undercount.
+ * Each row's index comes from the key's 64-bit hash mixed with that row's own seed, so keys colliding in one row
+ * rarely collide in the others.
+ * Not thread-safe: callers confine updates to a single writer thread.
+ * @author Team
+ */
+public class CountMinSketch {
+    private static final long[] SEEDS = {0x9E3779B97F4A7C15L, 0x85EBCA77C2B2AE63L, 0xC2B2AE3D27D4EB4FL, 0x27D4EB2F165667C5L,
+            0x165667B19E3779F9L, 0xD3A2646C8A3F0E3BL, 0xFD7046C5EF9E6B2DL, 0xB55A4F090DE3B7A1L};
+
+    private final int depth;
+    private final int mask;
+    private final int[][] table;
+
+    /**
+     * Constructs an empty sketch.
+     * @param depth number of hash rows (at most 8).
+     * @param width number of counters per row, rounded up to a power of two.
+     * @author Team
+     */
+    public CountMinSketch(int depth, int width) {
+        if (depth < 1 || depth > SEEDS.length) throw new IllegalArgumentException("depth must be between 1 and " + SEEDS.length);
+        int w = Integer.highestOneBit(Math.max(2, width - 1)) << 1;
+        this.depth = depth;
+        this.mask = w - 1;
+        this.table = new int[depth][w];
+    }
+
+    /**
+     * Adds a number of occurrences of a key (a negative count removes them again).
+     * @param key the key to count.
+     * @param count the number of occurrences.
+     * @author Team
+     */
+    public void add(String key, int count) {
+        long h = Hashing.hash64(key);
+        for (int row = 0; row < depth; row++) {
+            table[row][index(h, row)] += count;
+        }
+    }
+
+    /**
+     * Estimates the number of occurrences of a key.
+     * @param key the key to look up.
+     * @return the smallest counter the key hashes to.
+     * @author Team
+     */
+    public int estimate(String key) {
+        long h = Hashing.hash64(key);
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, table[row][index(h, row)]);
+        }
+        return min;
+    }
+
+    /**
+     * Resets every counter to zero, keeping the allocated table.
+     * @author Team
+     */
+    public void clear() {
+        for (int[] row : table) Arrays.fill(row, 0);
+    }
+
+    private int index(long hash, int row) {
+        long h = hash ^ SEEDS[row];
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 29;
+        return (int) h & mask;
+    }
+}
@@ -0,0 +1,93 @@
+package Services;
+
+import models.Article;
+import models.SimHash;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Groups near-duplicate articles (syndicated wire stories) by their SimHash fingerprints.
+ * Candidates are found with banded LSH: the 64 bits are cut into 4 bands of 16, and two fingerprints within
+ * {@link #MAX_DISTANCE} bits must agree exactly on at least one band. Cost is linear in the number of articles.
+ * Articles without words to fingerprint (fingerprint 0) are never duplicates of anything.
+ * @author Team
+ */
+public final class DuplicateDetector {
+    /** Largest Hamming distance between fingerprints of two articles considered duplicates. */
+    public static final int MAX_DISTANCE = 3;
+
+    private static final int BANDS = 4;
+    private static final int BAND_BITS = 64 / BANDS;
+
+    private DuplicateDetector() {
+    }
+
+    /**
+     * Clusters articles into groups of near-duplicates.
+     * @param articles the articles to cluster.
+     * @return the clusters in order of first appearance, each keeping the original article order.
+     * @author Team
+     */
+    public static List<List<Article>> cluster(List<Article> articles) {
+        int n = articles.size();
+        int[] parent = new int[n];
+        for (int i = 0; i < n; i++) parent[i] = i;
+
+        // Each bucket keeps only articles that matched nobody already in it, so a bucket full of copies of
+        // one story still costs a single comparison per article.
+        Map<Long, List<Integer>> buckets = new HashMap<>(n * BANDS * 2);
+        for (int i = 0; i < n; i++) {
+            long fp = articles.get(i).getFingerprint();
+            if (fp == 0L) continue; // nothing to compare: stays a cluster of its own
+            for (int band = 0; band < BANDS; band++) {
+                long key = ((long) band << BAND_BITS) | ((fp >>> (band * BAND_BITS)) & 0xFFFFL);
+                List<Integer> members = buckets.computeIfAbsent(key, k -> new ArrayList<>(1));
+                boolean matched = false;
+                for (int other : members) {
+                    if (articles.get(other).getFingerprint() != 0L && SimHash.distance(fp, articles.get(other).getFingerprint()) <= MAX_DISTANCE) {
+                        union(parent, other, i);
+                        matched = true;
+                    }
+                }
+                if (!matched) members.add(i);
+            }
+        }
+
+        Map<Integer, List<Article>> clusters = new LinkedHashMap<>();
+        for (int i = 0; i < n; i++) {
+            clusters.computeIfAbsent(find(parent, i), k -> new ArrayList<>()).add(articles.get(i));
+        }
+        return new ArrayList<>(clusters.values());
+    }
+
+    /**
+     * Keeps one article (the first one) per cluster of near-duplicates.
+     * @param articles the articles to collapse.
+     * @return the representatives in original order.
+     * @author Team
+     */
+    public static List<Article> collapse(List<Article> articles) {
+        List<Article> representatives = new ArrayList<>();
+        for (List<Article> cluster : cluster(articles)) representatives.add(cluster.get(0));
+        return representatives;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        int ra = find(parent, a);
+        int rb = find(parent, b);
+        if (ra < rb) parent[rb] = ra;
+        else if (rb < ra) parent[ra] = rb;
+    }
+}
@@ -0,0 +1,369 @@
+package Services;
+
+import com.typesafe.config.Config;
+import play.inject.ApplicationLifecycle;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Structured event log: one JSON line per event (a search, an upstream error, ...) in {@code events.log}, rotated
+ * past {@code eventlog.maxFileSize} with {@code eventlog.maxFiles} old files kept ({@code events.log.1} newest).
+ * Request threads never touch the file: a finished event is put in a preallocated ring of slots with a CAS on
+ * the tail sequence (each slot carries the sequence it is ready for, so producers never lock), and a single
+ * background thread drains the ring to disk. When the ring is three-quarters full only one in
+ * {@value #SAMPLE_RATE} events is kept (failures always are), and when it is full events are dropped; both are
+ * counted in the metrics.
+ * @author Team
+ */
+@Singleton
+public class EventLog {
+    /** Events kept, one in this many, while the ring is nearly full. */
+    static final int SAMPLE_RATE = 8;
+    static final String FILE = "events.log";
+
+    private final boolean enabled;
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final String[] lines;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    private final Path directory;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private OutputStream out;
+    private long fileBytes;
+    private volatile boolean running;
+    private Thread writer;
+
+    private final LongAdder written;
+    private final LongAdder sampled;
+    private final LongAdder dropped;
+    private final LongAdder rotations;
+    private final LongAdder errors;
+
+    /**
+     * Constructs the event log used by the application and starts its writer thread.
+     * @param config App configuration.
+     * @param metrics the metrics registry.
+     * @param lifecycle the Play application lifecycle; the log is flushed and closed on stop.
+     * @author Team
+     */
+    @Inject
+    public EventLog(Config config, Metrics metrics, ApplicationLifecycle lifecycle) {
+        this(!config.hasPath("eventlog.enabled") || config.getBoolean("eventlog.enabled"),
+                config.hasPath("eventlog.capacity") ? config.getInt("eventlog.capacity") : 8192,
+                Paths.get(config.hasPath("eventlog.path") ? config.getString("eventlog.path") : "logs"),
+                config.hasPath("eventlog.maxFileSize") ? config.getBytes("eventlog.maxFileSize") : 10L << 20,
+                config.hasPath("eventlog.maxFiles") ? config.getInt("eventlog.maxFiles") : 5,
+                metrics);
+        start();
+        lifecycle.addStopHook(() -> {
+            close();
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    /**
+     * Constructs a disabled event log (used by tests): events are built and thrown away.
+     * @author Team
+     */
+    public EventLog() {
+        this(false, 2, Paths.get("logs"), 0, 0, new Metrics());
+    }
+
+    /**
+     * Constructs an event log without a writer thread (used by tests): call {@link #drain()} to write.
+     * @param enabled whether events are kept at all.
+     * @param capacity ring size, rounded up to a power of two.
+     * @param directory where the log files are written.
+     * @param maxFileBytes size past which the file is rotated.
+     * @param maxFiles number of rotated files kept.
+     * @param metrics the metrics registry.
+     * @author Team
+     */
+    public EventLog(boolean enabled, int capacity, Path directory, long maxFileBytes, int maxFiles, Metrics metrics) {
+        this.enabled = enabled;
+        int size = Integer.highestOneBit(Math.max(2, capacity * 2 - 1));
+        this.mask = size - 1;
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) sequences.set(i, i);
+        this.lines = new String[size];
+        this.directory = directory;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = maxFiles;
+        this.written = metrics.counter("eventlog.written");
+        this.sampled = metrics.counter("eventlog.sampled");
+        this.dropped = metrics.counter("eventlog.dropped");
+        this.rotations = metrics.counter("eventlog.rotations");
+        this.errors = metrics.counter("eventlog.errors");
+        metrics.gauge("eventlog.pending", () -> tail.get() - head);
+    }
+
+    /**
+     * Starts an event; fill it in and {@link Event#emit()} it once.
+     * @param type the kind of event, e.g. "search".
+     * @return the event, timed from now.
+     * @author Team
+     */
+    public Event event(String type) {
+        return new Event(enabled ? this : null, type);
+    }
+
+    /**
+     * Queues a finished line for the writer. Never blocks.
+     * @param line the JSON line.
+     * @param failure whether the event reports a failure, kept even while sampling.
+     * @return true when queued.
+     */
+    boolean offer(String line, boolean failure) {
+        long pos = tail.get();
+        if (!failure && pos - head > (mask + 1) * 3L / 4 && ThreadLocalRandom.current().nextInt(SAMPLE_RATE) != 0) {
+            sampled.increment();
+            return false;
+        }
+        while (true) {
+            int slot = (int) pos & mask;
+            long ready = sequences.get(slot);
+            if (ready == pos) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    lines[slot] = line;
+                    sequences.set(slot, pos + 1); // publishes the line
+                    return true;
+                }
+            } else if (ready < pos) {
+                dropped.increment(); // the writer has not freed this slot yet: full
+                return false;
+            }
+            pos = tail.get();
+        }
+    }
+
+    /**
+     * Writes every queued event to the file (writer thread, or tests).
+     * @return the number of events written.
+     * @author Team
+     */
+    public synchronized int drain() {
+        int count = 0;
+        long pos = head;
+        while (true) {
+            int slot = (int) pos & mask;
+            if (sequences.get(slot) != pos + 1) break; // not published yet
+            String line = lines[slot];
+            lines[slot] = null;
+            sequences.set(slot, pos + mask + 1); // free for the producer one lap ahead
+            head = ++pos;
+            write(line);
+            count++;
+        }
+        if (count > 0) written.add(count);
+        return count;
+    }
+
+    private void write(String line) {
+        byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+        try {
+            if (out != null && fileBytes + bytes.length > maxFileBytes) rotate();
+            if (out == null) open();
+            out.write(bytes);
+            fileBytes += bytes.length;
+        } catch (IOException e) {
+            errors.increment();
+            closeQuietly();
+        }
+    }
+
+    private void open() throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve(FILE);
+        out = new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND), 64 * 1024);
+        fileBytes = Files.size(file);
+    }
+
+    private void rotate() throws IOException {
+        out.close();
+        out = null;
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            Path older = directory.resolve(FILE + "." + i);
+            if (Files.exists(older)) Files.move(older, directory.resolve(FILE + "." + (i + 1)), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Path current = directory.resolve(FILE);
+        if (maxFiles > 0) Files.move(current, directory.resolve(FILE + ".1"), StandardCopyOption.REPLACE_EXISTING);
+        else Files.delete(current);
+        rotations.increment();
+    }
+
+    /**
+     * Writes out the buffered bytes.
+     * @author Team
+     */
+    public synchronized void flush() {
+        if (out == null) return;
+        try {
+            out.flush();
+        } catch (IOException e) {
+            errors.increment();
+            closeQuietly();
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            if (out != null) out.close();
+        } catch (IOException ignored) {
+            // already counted
+        }
+        out = null;
+    }
+
+    private void start() {
+        if (!enabled) return;
+        running = true;
+        writer = new Thread(() -> {
+            while (running) {
+                if (drain() == 0) {
+                    flush(); // idle: make the events visible
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+                }
+            }
+        }, "event-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Stops the writer thread, writes the remaining events and closes the file.
+     * @author Team
+     */
+    public void close() {
+        running = false;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            drain();
+            flush();
+            closeQuietly();
+        }
+    }
+
+    /**
+     * One event being filled in, as a JSON object with the time, the type and the fields in the order they are set.
+     * Not thread-safe, but may be passed along the stages of a request.
+     */
+    public static final class Event {
+        private final EventLog log;
+        private final StringBuilder json;
+        private final long startNanos = System.nanoTime();
+        private boolean failure;
+
+        private Event(EventLog log, String type) {
+            this.log = log;
+            this.json = log == null ? null : new StringBuilder(256).append("{\"time\":\"").append(Instant.now()).append('"');
+            with("event", type);
+        }
+
+        /**
+         * Sets a text field.
+         * @param name the field name.
+         * @param value the value (null is written as null).
+         * @return this event.
+         * @author Team
+         */
+        public Event with(String name, String value) {
+            if (json == null) return this;
+            json.append(",\"").append(name).append("\":");
+            if (value == null) {
+                json.append("null");
+                return this;
+            }
+            json.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') json.append('\\').append(c);
+                else if (c < 0x20) json.append(String.format("\\u%04x", (int) c));
+                else json.append(c);
+            }
+            json.append('"');
+            return this;
+        }
+
+        /**
+         * Sets a number field.
+         * @param name the field name.
+         * @param value the value.
+         * @return this event.
+         * @author Team
+         */
+        public Event with(String name, long value) {
+            if (json != null) json.append(",\"").append(name).append("\":").append(value);
+            return this;
+        }
+
+        /**
+         * Sets a duration field in milliseconds, microsecond precision.
+         * @param name the field name, e.g. "resolveMs".
+         * @param nanos the duration in nanoseconds.
+         * @return this event.
+         * @author Team
+         */
+        public Event millis(String name, long nanos) {
+            if (json != null) json.append(",\"").append(name).append("\":").append(nanos / 1000 / 1000.0);
+            return this;
+        }
+
+        /**
+         * Gets the time elapsed since the event was started.
+         * @return nanoseconds.
+         * @author Team
+         */
+        public long elapsedNanos() {
+            return System.nanoTime() - startNanos;
+        }
+
+        /**
+         * Marks the event as a failure, kept even while the log is sampling.
+         * @param message what went wrong.
+         * @return this event.
+         * @author Team
+         */
+        public Event failed(String message) {
+            failure = true;
+            return with("error", message);
+        }
+
+        /**
+         * Queues the event, with its total time ("totalMs"). Never blocks.
+         * @author Team
+         */
+        public void emit() {
+            if (log == null) return;
+            millis("totalMs", elapsedNanos());
+            log.offer(json.append('}').toString(), failure);
+        }
+    }
+}
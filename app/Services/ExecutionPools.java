@@ -0,0 +1,204 @@
+package Services;
+
+import com.typesafe.config.Config;
+import play.inject.ApplicationLifecycle;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The application's own thread pools, kept apart from Play's request-handling threads.
+ * <ul>
+ *     <li>{@link #analysis()}: a ForkJoin pool sized to the CPUs for text analysis (readability, statistics,
+ *     rendering), so a burst of statistics requests queues here instead of starving request handling.</li>
+ *     <li>{@link #blocking()}: virtual threads for work that waits on I/O such as writing logs or recordings,
+ *     limited to a maximum number of concurrent tasks. Before Java 21, a pool of at most that many platform
+ *     threads with a bounded queue.</li>
+ * </ul>
+ * Each pool reports its queue depth, running tasks and saturation (running / capacity) under {@code pools.<name>}.
+ * @author Team
+ */
+@Singleton
+public class ExecutionPools {
+    /** Executors.newVirtualThreadPerTaskExecutor(), null before Java 21. */
+    private static final Method VIRTUAL_THREADS = virtualThreadFactory();
+
+    private final Pool analysis;
+    private final Pool blocking;
+
+    /**
+     * Constructs the pools used by the application and shuts them down with it.
+     * @param config App configuration.
+     * @param metrics the metrics registry.
+     * @param lifecycle the Play application lifecycle.
+     * @author Team
+     */
+    @Inject
+    public ExecutionPools(Config config, Metrics metrics, ApplicationLifecycle lifecycle) {
+        this(config, metrics);
+        lifecycle.addStopHook(() -> {
+            shutdown();
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    /**
+     * Constructs the pools without lifecycle hooks (used by tests).
+     * @param config App configuration.
+     * @param metrics the metrics registry.
+     * @author Team
+     */
+    public ExecutionPools(Config config, Metrics metrics) {
+        int parallelism = config.hasPath("pools.analysis.parallelism")
+                ? config.getInt("pools.analysis.parallelism") : Runtime.getRuntime().availableProcessors();
+        int maxBlocking = config.hasPath("pools.blocking.maxConcurrency") ? config.getInt("pools.blocking.maxConcurrency") : 256;
+        int maxQueued = config.hasPath("pools.blocking.maxQueued") ? config.getInt("pools.blocking.maxQueued") : 10_000;
+
+        AtomicInteger analysisThreads = new AtomicInteger();
+        ForkJoinPool forkJoin = new ForkJoinPool(Math.max(1, parallelism), pool -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            t.setName("analysis-" + analysisThreads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }, null, true);
+        this.analysis = new Pool("analysis", forkJoin, forkJoin.getParallelism(), metrics);
+
+        Semaphore permits = new Semaphore(Math.max(1, maxBlocking));
+        this.blocking = new Pool("blocking", blockingThreads(Math.max(1, maxBlocking), Math.max(1, maxQueued)), Math.max(1, maxBlocking), metrics) {
+            @Override
+            Runnable wrap(Runnable task) {
+                Runnable counted = super.wrap(task);
+                if (delegate instanceof ThreadPoolExecutor) return counted; // platform threads: the pool itself runs at most maxBlocking
+                return () -> {
+                    // waiting for a permit still counts as queued
+                    permits.acquireUninterruptibly();
+                    try {
+                        counted.run();
+                    } finally {
+                        permits.release();
+                    }
+                };
+            }
+        };
+        boolean virtual = !(blocking.delegate instanceof ThreadPoolExecutor);
+        metrics.gauge("pools.blocking.virtual", () -> virtual ? 1 : 0);
+    }
+
+    /**
+     * Gets the CPU-bound pool for text analysis and rendering.
+     * @return the analysis executor.
+     * @author Team
+     */
+    public Executor analysis() {
+        return analysis;
+    }
+
+    /**
+     * Gets the pool for tasks that block on I/O.
+     * @return the blocking executor.
+     * @author Team
+     */
+    public Executor blocking() {
+        return blocking;
+    }
+
+    /**
+     * Stops both pools; queued tasks are dropped.
+     * @author Team
+     */
+    public void shutdown() {
+        analysis.delegate.shutdownNow();
+        blocking.delegate.shutdownNow();
+    }
+
+    private static Method virtualThreadFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * One virtual thread per task when the JDK has them. Otherwise a pool of at most {@code maxThreads} daemon
+     * threads (idle ones stop after a minute) queuing at most {@code maxQueued} tasks; further tasks are rejected.
+     */
+    private static ExecutorService blockingThreads(int maxThreads, int maxQueued) {
+        if (VIRTUAL_THREADS != null) {
+            try {
+                return (ExecutorService) VIRTUAL_THREADS.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                // fall back to platform threads
+            }
+        }
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(maxQueued), r -> {
+            Thread t = new Thread(r, "blocking-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /** An executor that counts what is waiting and running on it. */
+    private static class Pool implements Executor {
+        final ExecutorService delegate;
+        final int capacity;
+        final AtomicInteger queued = new AtomicInteger();
+        final AtomicInteger running = new AtomicInteger();
+        final LongAdder completed;
+        final LongAdder rejected;
+
+        Pool(String name, ExecutorService delegate, int capacity, Metrics metrics) {
+            this.delegate = delegate;
+            this.capacity = capacity;
+            this.completed = metrics.counter("pools." + name + ".completed");
+            this.rejected = metrics.counter("pools." + name + ".rejected");
+            metrics.gauge("pools." + name + ".capacity", () -> capacity);
+            metrics.gauge("pools." + name + ".queue.depth", queued::get);
+            metrics.gauge("pools." + name + ".active", running::get);
+            metrics.gauge("pools." + name + ".saturation", () -> (double) running.get() / capacity);
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            queued.incrementAndGet();
+            try {
+                delegate.execute(wrap(task));
+            } catch (RejectedExecutionException e) {
+                queued.decrementAndGet();
+                rejected.increment();
+                throw e;
+            }
+        }
+
+        Runnable wrap(Runnable task) {
+            return () -> {
+                queued.decrementAndGet();
+                running.incrementAndGet();
+                try {
+                    task.run();
+                } finally {
+                    running.decrementAndGet();
+                    completed.increment();
+                }
+            };
+        }
+    }
+}
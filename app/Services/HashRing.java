@@ -0,0 +1,75 @@
+package Services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+
+/**
+ * Immutable consistent-hash ring mapping keys to nodes.
+ * Every node is placed at many points ("virtual nodes") so keys spread evenly, and adding or removing a node
+ * only moves the keys between it and its neighbours, about 1/N of them.
+ * @author Team
+ */
+public final class HashRing {
+    private final long[] points;
+    private final String[] owners;
+    private final List<String> nodes;
+
+    /**
+     * Builds a ring.
+     * @param nodes the node identifiers (base URLs).
+     * @param virtualNodes points per node on the ring.
+     * @author Team
+     */
+    public HashRing(Collection<String> nodes, int virtualNodes) {
+        List<String> sorted = new ArrayList<>(new TreeSet<>(nodes));
+        long[][] entries = new long[sorted.size() * virtualNodes][];
+        int n = 0;
+        for (int i = 0; i < sorted.size(); i++) {
+            for (int v = 0; v < virtualNodes; v++) entries[n++] = new long[]{Hashing.hash64(sorted.get(i) + "#" + v), i};
+        }
+        Arrays.sort(entries, (a, b) -> Long.compare(a[0], b[0]));
+        this.points = new long[entries.length];
+        this.owners = new String[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            points[i] = entries[i][0];
+            owners[i] = sorted.get((int) entries[i][1]);
+        }
+        this.nodes = List.copyOf(sorted);
+    }
+
+    /**
+     * Finds the node owning a key: the first point at or after the key's hash, wrapping around.
+     * @param key the key.
+     * @return the owner, or null when the ring is empty.
+     * @author Team
+     */
+    public String owner(String key) {
+        if (points.length == 0) return null;
+        int i = Arrays.binarySearch(points, Hashing.hash64(key));
+        if (i < 0) i = -i - 1;
+        return owners[i == points.length ? 0 : i];
+    }
+
+    /**
+     * Gets the nodes on the ring.
+     * @return the sorted node identifiers.
+     * @author Team
+     */
+    public List<String> nodes() {
+        return nodes;
+    }
+
+    /**
+     * Normalizes a search query so spellings of the same search share an owner.
+     * @param query the raw query.
+     * @return the lower-cased query with single spaces.
+     * @author Team
+     */
+    public static String normalize(String query) {
+        return query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
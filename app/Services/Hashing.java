@@ -0,0 +1,31 @@
+package Services;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * String hashing shared by the services that need a hash stable across JVMs and nodes (unlike
+ * {@link String#hashCode()}, it uses all 64 bits and is well mixed).
+ * @author Team
+ */
+final class Hashing {
+    private Hashing() {
+    }
+
+    /**
+     * Hashes a string with 64-bit FNV-1a over its UTF-8 bytes, followed by a final mix.
+     * @param s the string.
+     * @return the 64-bit hash.
+     * @author Team
+     */
+    static long hash64(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : s.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
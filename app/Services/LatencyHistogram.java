@@ -0,0 +1,79 @@
+package Services;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Rolling record of the most recent call latencies, with cached percentiles.
+ * Recording is lock-free; percentiles are recomputed from the ring every few samples, so reading them is a
+ * volatile read.
+ * @author Team
+ */
+public class LatencyHistogram {
+    private static final int RECOMPUTE_EVERY = 16;
+
+    private final AtomicLongArray samples;
+    private final AtomicLong recorded = new AtomicLong();
+    private final int minSamples;
+    private volatile long p95 = -1;
+    private volatile long p99 = -1;
+
+    /**
+     * Constructs an empty histogram.
+     * @param capacity number of recent samples kept.
+     * @param minSamples samples required before percentiles are reported.
+     * @author Team
+     */
+    public LatencyHistogram(int capacity, int minSamples) {
+        this.samples = new AtomicLongArray(capacity);
+        this.minSamples = Math.min(minSamples, capacity);
+    }
+
+    /**
+     * Records one latency.
+     * @param millis the observed latency in milliseconds.
+     * @author Team
+     */
+    public void record(long millis) {
+        long n = recorded.getAndIncrement();
+        samples.set((int) (n % samples.length()), millis);
+        if (n + 1 == minSamples || (n + 1 > minSamples && (n + 1) % RECOMPUTE_EVERY == 0)) recompute(n + 1);
+    }
+
+    /**
+     * Gets the 95th percentile of recent latencies.
+     * @return milliseconds, or -1 while there are too few samples.
+     * @author Team
+     */
+    public long p95() {
+        return p95;
+    }
+
+    /**
+     * Gets the 99th percentile of recent latencies.
+     * @return milliseconds, or -1 while there are too few samples.
+     * @author Team
+     */
+    public long p99() {
+        return p99;
+    }
+
+    /**
+     * Gets the number of latencies recorded so far.
+     * @return the sample count.
+     * @author Team
+     */
+    public long count() {
+        return recorded.get();
+    }
+
+    private void recompute(long total) {
+        int n = (int) Math.min(total, samples.length());
+        long[] copy = new long[n];
+        for (int i = 0; i < n; i++) copy[i] = samples.get(i);
+        Arrays.sort(copy);
+        p95 = copy[Math.min(n - 1, (int) Math.ceil(n * 0.95) - 1)];
+        p99 = copy[Math.min(n - 1, (int) Math.ceil(n * 0.99) - 1)];
+    }
+}
@@ -0,0 +1,51 @@
+package Services;
+
+import javax.inject.Singleton;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Application-wide registry of named counters and gauges, served as plain text by the metrics route.
+ * Counters are {@link LongAdder}s so hot paths can increment them without contention.
+ * @author Team
+ */
+@Singleton
+public class Metrics {
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, Supplier<? extends Number>> gauges = new ConcurrentHashMap<>();
+
+    /**
+     * Gets (creating it on first use) the counter with the given name.
+     * @param name dotted metric name, e.g. "upstream.requests".
+     * @return the counter.
+     * @author Team
+     */
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    /**
+     * Registers (or replaces) a gauge read each time metrics are listed.
+     * @param name dotted metric name.
+     * @param value supplies the current value.
+     * @author Team
+     */
+    public void gauge(String name, Supplier<? extends Number> value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * Reads every counter and gauge.
+     * @return metric name to current value, sorted by name.
+     * @author Team
+     */
+    public Map<String, Number> snapshot() {
+        Map<String, Number> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.sum()));
+        gauges.forEach((name, gauge) -> values.put(name, gauge.get()));
+        return values;
+    }
+}
@@ -0,0 +1,146 @@
+package Services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable prefix index answering "most popular queries starting with ..." without searching.
+ * It is a path-compressed trie laid out in flat arrays: every node covers a contiguous range of the sorted
+ * queries, its children are stored next to each other, and each node keeps its own top-K queries, so a lookup
+ * only walks down the prefix and copies an already sorted list. Build a new index to change it.
+ * @author Team
+ */
+public final class PrefixIndex {
+    /** An index with no queries. */
+    public static final PrefixIndex EMPTY = new PrefixIndex(Map.of(), 1);
+
+    private final String[] queries;
+    private final double[] scores;
+    // per node: queries[start, end) share the first depth characters; children are nodes [childFrom, childTo)
+    private final int[] start;
+    private final int[] end;
+    private final int[] depth;
+    private final int[] childFrom;
+    private final int[] childTo;
+    // per node: its best queries are top[topFrom[n], topFrom[n + 1]), indexes into queries, best first
+    private final int[] topFrom;
+    private final int[] top;
+
+    /**
+     * Builds an index.
+     * @param scored the queries (already normalized) and their popularity.
+     * @param k how many queries each prefix keeps.
+     * @author Team
+     */
+    public PrefixIndex(Map<String, Double> scored, int k) {
+        this.queries = scored.keySet().stream().filter(q -> !q.isEmpty()).sorted().toArray(String[]::new);
+        this.scores = new double[queries.length];
+        for (int i = 0; i < queries.length; i++) scores[i] = scored.get(queries[i]);
+
+        // breadth first, so that the children of a node get consecutive numbers
+        List<int[]> nodes = new ArrayList<>(); // {start, end, depth, childFrom, childTo}
+        if (queries.length > 0) nodes.add(new int[]{0, queries.length, 0, 0, 0});
+        for (int n = 0; n < nodes.size(); n++) {
+            int[] node = nodes.get(n);
+            int lcp = commonPrefix(queries[node[0]], queries[node[1] - 1]);
+            node[2] = lcp;
+            node[3] = nodes.size();
+            int i = node[0];
+            while (i < node[1] && queries[i].length() == lcp) i++; // queries ending here sort first
+            while (i < node[1]) {
+                char c = queries[i].charAt(lcp);
+                int j = i + 1;
+                while (j < node[1] && queries[j].charAt(lcp) == c) j++;
+                nodes.add(new int[]{i, j, lcp + 1, 0, 0});
+                i = j;
+            }
+            node[4] = nodes.size();
+        }
+
+        int count = nodes.size();
+        start = new int[count];
+        end = new int[count];
+        depth = new int[count];
+        childFrom = new int[count];
+        childTo = new int[count];
+        for (int n = 0; n < count; n++) {
+            int[] node = nodes.get(n);
+            start[n] = node[0];
+            end[n] = node[1];
+            depth[n] = node[2];
+            childFrom[n] = node[3];
+            childTo[n] = node[4];
+        }
+
+        // children have higher numbers than their parent: compute the top lists bottom up
+        int[][] tops = new int[count][];
+        for (int n = count - 1; n >= 0; n--) {
+            List<Integer> candidates = new ArrayList<>();
+            for (int i = start[n]; i < end[n] && queries[i].length() == depth[n]; i++) candidates.add(i);
+            for (int c = childFrom[n]; c < childTo[n]; c++) {
+                for (int i : tops[c]) candidates.add(i);
+            }
+            candidates.sort((a, b) -> scores[a] != scores[b] ? Double.compare(scores[b], scores[a]) : queries[a].compareTo(queries[b]));
+            tops[n] = candidates.stream().limit(k).mapToInt(Integer::intValue).toArray();
+        }
+        topFrom = new int[count + 1];
+        for (int n = 0; n < count; n++) topFrom[n + 1] = topFrom[n] + tops[n].length;
+        top = new int[topFrom[count]];
+        for (int n = 0; n < count; n++) System.arraycopy(tops[n], 0, top, topFrom[n], tops[n].length);
+    }
+
+    /**
+     * Gets the most popular queries starting with a prefix.
+     * @param prefix the normalized prefix; empty for the most popular queries overall.
+     * @param limit maximum number of queries (at most k).
+     * @return the queries, most popular first.
+     * @author Team
+     */
+    public List<String> lookup(String prefix, int limit) {
+        if (queries.length == 0) return Collections.emptyList();
+        int n = 0;
+        while (prefix.length() > depth[n]) {
+            if (!queries[start[n]].regionMatches(0, prefix, 0, depth[n])) return Collections.emptyList();
+            n = child(n, prefix.charAt(depth[n]));
+            if (n < 0) return Collections.emptyList();
+        }
+        if (!queries[start[n]].startsWith(prefix)) return Collections.emptyList();
+        int to = Math.min(topFrom[n + 1], topFrom[n] + limit);
+        List<String> result = new ArrayList<>(to - topFrom[n]);
+        for (int i = topFrom[n]; i < to; i++) result.add(queries[top[i]]);
+        return result;
+    }
+
+    /**
+     * Gets the number of indexed queries.
+     * @return the query count.
+     * @author Team
+     */
+    public int size() {
+        return queries.length;
+    }
+
+    /** Finds the child of a node whose queries have a given character after the node's prefix, or -1. */
+    private int child(int n, char c) {
+        int lo = childFrom[n];
+        int hi = childTo[n] - 1;
+        int at = depth[n];
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            char m = queries[start[mid]].charAt(at);
+            if (m < c) lo = mid + 1;
+            else if (m > c) hi = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    private static int commonPrefix(String a, String b) {
+        int n = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < n && a.charAt(i) == b.charAt(i)) i++;
+        return i;
+    }
+}
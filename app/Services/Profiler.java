@@ -0,0 +1,215 @@
+package Services;
+
+import com.typesafe.config.Config;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import play.inject.ApplicationLifecycle;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * On-demand Java Flight Recorder recordings of the running application, for when latency spikes in production and
+ * no external profiler may be attached. One time-boxed recording runs at a time, with the JDK's
+ * {@code profiling.settings} ("default", low overhead, or "profile") plus every {@link StageEvent}. The last
+ * recording is kept on disk until the next one, to be downloaded or summarized per stage.
+ * @author Team
+ */
+@Singleton
+public class Profiler {
+    private final String settings;
+    private final Duration maxDuration;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "profiler");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean recording = new AtomicBoolean();
+    private volatile Path last;
+
+    /**
+     * Constructs the profiler used by the application.
+     * @param config App configuration.
+     * @param lifecycle the Play application lifecycle; the last recording is deleted on stop.
+     * @author Team
+     */
+    @Inject
+    public Profiler(Config config, ApplicationLifecycle lifecycle) {
+        this(config.hasPath("profiling.settings") ? config.getString("profiling.settings") : "default",
+                config.hasPath("profiling.maxDuration") ? config.getDuration("profiling.maxDuration") : Duration.ofMinutes(5));
+        lifecycle.addStopHook(() -> {
+            close();
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    /**
+     * Constructs a profiler.
+     * @param settings the JDK recording settings: "default" or "profile".
+     * @param maxDuration the longest recording allowed.
+     * @author Team
+     */
+    public Profiler(String settings, Duration maxDuration) {
+        this.settings = settings;
+        this.maxDuration = maxDuration;
+    }
+
+    /**
+     * Gets the longest recording allowed.
+     * @return the duration.
+     * @author Team
+     */
+    public Duration maxDuration() {
+        return maxDuration;
+    }
+
+    /**
+     * Records for a while, without blocking the caller.
+     * @param duration how long to record, at most {@link #maxDuration()}.
+     * @return the recording file, once written; fails with IllegalStateException when a recording is already running.
+     * @author Team
+     */
+    public CompletionStage<Path> record(Duration duration) {
+        if (!recording.compareAndSet(false, true)) {
+            return CompletableFuture.failedFuture(new IllegalStateException("A recording is already running"));
+        }
+        Recording r;
+        try {
+            r = new Recording(Configuration.getConfiguration(settings));
+        } catch (IOException | ParseException e) {
+            recording.set(false);
+            return CompletableFuture.failedFuture(e);
+        }
+        r.setName("notilytics");
+        r.enable(StageEvent.class).withThreshold(Duration.ZERO);
+        r.start();
+        CompletableFuture<Path> done = new CompletableFuture<>();
+        long millis = Math.min(duration.toMillis(), maxDuration.toMillis());
+        scheduler.schedule(() -> {
+            try {
+                Path file = Files.createTempFile("notilytics-", ".jfr");
+                r.stop();
+                r.dump(file);
+                Path previous = last;
+                last = file;
+                if (previous != null) Files.deleteIfExists(previous);
+                done.complete(file);
+            } catch (IOException | RuntimeException e) {
+                done.completeExceptionally(e);
+            } finally {
+                r.close();
+                recording.set(false);
+            }
+        }, millis, TimeUnit.MILLISECONDS);
+        return done;
+    }
+
+    /**
+     * Gets the last recording.
+     * @return the file, empty before the first recording ends.
+     * @author Team
+     */
+    public Optional<Path> lastRecording() {
+        return Optional.ofNullable(last);
+    }
+
+    /**
+     * Summarizes the stage events of the last recording.
+     * @return per stage (in order of total time) its count and durations in milliseconds, empty when there is no recording.
+     * @author Team
+     */
+    public Optional<Map<String, StageSummary>> summary() {
+        Path file = last;
+        return file == null ? Optional.empty() : Optional.of(summarize(file));
+    }
+
+    /**
+     * Summarizes the stage events of a recording.
+     * @param file the recording.
+     * @return per stage (in order of total time) its count and durations in milliseconds.
+     * @author Team
+     */
+    public static Map<String, StageSummary> summarize(Path file) {
+        Map<String, List<Double>> durations = new HashMap<>();
+        try (RecordingFile recording = new RecordingFile(file)) {
+            while (recording.hasMoreEvents()) {
+                RecordedEvent event = recording.readEvent();
+                if (!event.getEventType().getName().equals(StageEvent.NAME)) continue;
+                durations.computeIfAbsent(event.getString("stage"), s -> new ArrayList<>())
+                        .add(event.getDuration().toNanos() / 1e6);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        List<StageSummary> stages = new ArrayList<>();
+        durations.forEach((stage, ms) -> stages.add(new StageSummary(stage, ms)));
+        stages.sort(Comparator.comparingDouble((StageSummary s) -> s.totalMs).reversed());
+        Map<String, StageSummary> summary = new LinkedHashMap<>();
+        stages.forEach(s -> summary.put(s.stage, s));
+        return summary;
+    }
+
+    /**
+     * Stops the scheduler and deletes the last recording.
+     * @author Team
+     */
+    public void close() {
+        scheduler.shutdownNow();
+        Path file = last;
+        last = null;
+        try {
+            if (file != null) Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // a temp file left behind
+        }
+    }
+
+    /** Count and durations of one stage in a recording. */
+    public static final class StageSummary {
+        final String stage;
+        /** Number of events. */
+        public final int count;
+        /** Durations in milliseconds. */
+        public final double totalMs;
+        public final double meanMs;
+        public final double p50Ms;
+        public final double p99Ms;
+        public final double maxMs;
+
+        StageSummary(String stage, List<Double> ms) {
+            this.stage = stage;
+            ms.sort(null);
+            this.count = ms.size();
+            this.totalMs = ms.stream().mapToDouble(Double::doubleValue).sum();
+            this.meanMs = totalMs / count;
+            this.p50Ms = percentile(ms, 0.50);
+            this.p99Ms = percentile(ms, 0.99);
+            this.maxMs = ms.get(count - 1);
+        }
+
+        private static double percentile(List<Double> sorted, double p) {
+            return sorted.get(Math.min(sorted.size() - 1, (int) Math.ceil(p * sorted.size()) - 1));
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package Services;
+
+import com.typesafe.config.Config;
+import models.Article;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Optional micro-batching of {@code everything} searches.
+ * Distinct simple queries arriving within a few milliseconds for the same endpoint and filters are sent as one
+ * {@code q=(a) OR (b) OR ...} request, and the combined page is split back per query by matching every query
+ * term against the article title and description.
+ * @author Team
+ */
+@Singleton
+public class QueryBatcher {
+    /** NewsAPI rejects q values longer than this. */
+    static final int MAX_Q_LENGTH = 500;
+    /** Largest page NewsAPI returns, used for combined requests. */
+    static final int BATCH_PAGE_SIZE = 100;
+
+    /** Only plain words are batched; quotes, +/- prefixes and boolean operators go straight upstream. */
+    private static final Pattern SIMPLE_QUERY = Pattern.compile("[\\p{L}\\p{N}]+(\\s+[\\p{L}\\p{N}]+)*");
+    private static final Pattern OPERATOR = Pattern.compile("(?i)\\b(AND|OR|NOT)\\b");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    private final Client client;
+    private final boolean enabled;
+    private final long windowMillis;
+    private final int resultsPerQuery;
+    private final Map<String, Group> pending = new ConcurrentHashMap<>();
+
+    private final LongAdder queries;
+    private final LongAdder upstreamCalls;
+
+    /**
+     * Constructs the batcher.
+     * @param client Shared NewsAPI client.
+     * @param config App configuration.
+     * @param metrics the metrics registry.
+     * @author Team
+     */
+    @Inject
+    public QueryBatcher(Client client, Config config, Metrics metrics) {
+        this.client = client;
+        this.enabled = config.hasPath("newsapi.batching.enabled") && config.getBoolean("newsapi.batching.enabled");
+        this.windowMillis = (config.hasPath("newsapi.batching.window") ? config.getDuration("newsapi.batching.window") : Duration.ofMillis(5)).toMillis();
+        this.resultsPerQuery = config.hasPath("newsapi.batching.resultsPerQuery") ? config.getInt("newsapi.batching.resultsPerQuery") : 50;
+        this.queries = metrics.counter("batching.queries");
+        this.upstreamCalls = metrics.counter("batching.upstream.calls");
+        metrics.gauge("batching.upstream.calls.saved", () -> queries.sum() - upstreamCalls.sum());
+    }
+
+    /**
+     * Searches the {@code everything} endpoint, possibly sharing the upstream call with concurrent searches.
+     * @param baseUrl the request URL with every parameter except {@code q} (ends with a parameter, not "?").
+     * @param query the user's search terms.
+     * @return the articles for this query, in upstream order.
+     * @author Team
+     */
+    public CompletionStage<List<Article>> search(String baseUrl, String query) {
+        String normalized = SPACES.matcher(query.trim()).replaceAll(" ");
+        if (!enabled || !isBatchable(normalized)) {
+            return client.clientRequest(baseUrl + "&q=" + encode(normalized));
+        }
+        queries.increment();
+        while (true) {
+            Group group = pending.computeIfAbsent(baseUrl, url -> {
+                Group g = new Group();
+                CompletableFuture.delayedExecutor(windowMillis, TimeUnit.MILLISECONDS).execute(() -> flush(url, g));
+                return g;
+            });
+            CompletableFuture<List<Article>> result = group.join(normalized);
+            if (result != null) return result;
+            // the group was flushed between lookup and join: start a new one
+            pending.remove(baseUrl, group);
+        }
+    }
+
+    /**
+     * Tells whether a search may be sent in a combined request, its articles then picked out of the response.
+     * @param query the query.
+     * @return true when batching is enabled and the query is plain words.
+     * @author Team
+     */
+    public boolean batches(String query) {
+        return enabled && isBatchable(SPACES.matcher(query.trim()).replaceAll(" "));
+    }
+
+    /**
+     * Tells whether a query can be answered by matching its terms locally.
+     * @param query the normalized query.
+     * @return true for plain words without operators.
+     * @author Team
+     */
+    static boolean isBatchable(String query) {
+        return query.length() <= MAX_Q_LENGTH && SIMPLE_QUERY.matcher(query).matches() && !OPERATOR.matcher(query).find();
+    }
+
+    /**
+     * Builds the combined q value of a batch.
+     * @param queries the batched queries.
+     * @return e.g. "(climate change) OR (bitcoin)".
+     * @author Team
+     */
+    static String combine(List<String> queries) {
+        return queries.stream().map(q -> "(" + q + ")").collect(Collectors.joining(" OR "));
+    }
+
+    /**
+     * Keeps the articles of a combined page that contain every term of one query as a whole word.
+     * @param query the query to extract.
+     * @param articles the combined page.
+     * @param limit maximum number of articles to keep.
+     * @return the matching articles in upstream order.
+     * @author Team
+     */
+    static List<Article> demultiplex(String query, List<Article> articles, int limit) {
+        List<String> terms = Arrays.asList(query.toLowerCase(Locale.ROOT).split(" "));
+        List<Article> matching = new ArrayList<>();
+        for (Article a : articles) {
+            if (matching.size() >= limit) break;
+            Set<String> words = words(a.getTitle());
+            words.addAll(words(a.getDescription()));
+            if (words.containsAll(terms)) matching.add(a);
+        }
+        return matching;
+    }
+
+    /**
+     * Splits a text into lower-case words: runs of letters and digits, as batchable queries are made of.
+     * @param text the text, may be null.
+     * @return the distinct words.
+     * @author Team
+     */
+    static Set<String> words(String text) {
+        Set<String> words = new HashSet<>();
+        if (text == null) return words;
+        int start = -1;
+        for (int i = 0; i <= text.length(); ) {
+            int c = i < text.length() ? text.codePointAt(i) : ' ';
+            boolean word = Character.isLetterOrDigit(c);
+            if (word && start < 0) start = i;
+            if (!word && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+            i += i < text.length() ? Character.charCount(c) : 1;
+        }
+        return words;
+    }
+
+    private void flush(String baseUrl, Group group) {
+        pending.remove(baseUrl, group);
+        Map<String, CompletableFuture<List<Article>>> waiting = group.close();
+
+        // split into batches that fit in NewsAPI's q length limit
+        List<List<String>> batches = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        for (String q : waiting.keySet()) {
+            List<String> candidate = new ArrayList<>(current);
+            candidate.add(q);
+            if (!current.isEmpty() && combine(candidate).length() > MAX_Q_LENGTH) {
+                batches.add(current);
+                current = new ArrayList<>();
+            }
+            current.add(q);
+        }
+        if (!current.isEmpty()) batches.add(current);
+
+        for (List<String> batch : batches) {
+            upstreamCalls.increment();
+            if (batch.size() == 1) {
+                String q = batch.get(0);
+                client.clientRequest(baseUrl + "&q=" + encode(q)).whenComplete((articles, ex) -> settle(waiting.get(q), articles, ex));
+                continue;
+            }
+            String url = baseUrl.replaceAll("([?&])pageSize=\\d+", "$1pageSize=" + BATCH_PAGE_SIZE) + "&q=" + encode(combine(batch));
+            client.clientRequest(url, BATCH_PAGE_SIZE).whenComplete((articles, ex) -> {
+                for (String q : batch) {
+                    settle(waiting.get(q), ex == null ? demultiplex(q, articles, resultsPerQuery) : null, ex);
+                }
+            });
+        }
+    }
+
+    private static void settle(CompletableFuture<List<Article>> future, List<Article> articles, Throwable ex) {
+        if (ex != null) future.completeExceptionally(ex);
+        else future.complete(articles);
+    }
+
+    private static String encode(String q) {
+        return URLEncoder.encode(q, StandardCharsets.UTF_8);
+    }
+
+    /** Queries gathered during one window; identical queries share one future. */
+    private static final class Group {
+        private final Map<String, CompletableFuture<List<Article>>> queries = new LinkedHashMap<>();
+        private boolean closed;
+
+        synchronized CompletableFuture<List<Article>> join(String query) {
+            if (closed) return null;
+            return queries.computeIfAbsent(query, q -> new CompletableFuture<>());
+        }
+
+        synchronized Map<String, CompletableFuture<List<Article>>> close() {
+            closed = true;
+            return queries;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package Services;
+
+import models.Article;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * Canonical form of a search, used as the result cache key.
+ * Plain word queries are case-folded, stripped of punctuation and reduced to their sorted set of terms (NewsAPI
+ * requires every word), so "Climate Change", "climate,  change" and "change climate" are the same search.
+ * Queries with quotes, +/- prefixes, parentheses or AND/OR/NOT keep their text and only have whitespace collapsed.
+ * The filter and the sort order are part of the key.
+ * @author Team
+ */
+public final class QueryKey {
+    /** Plain queries with more terms than this are not matched against broader cached queries. */
+    static final int MAX_SUBSUMPTION_TERMS = 6;
+    /** The NewsAPI sortBy values. */
+    static final List<String> SORTS = List.of("publishedAt", "relevancy", "popularity");
+
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+    private static final Pattern PUNCTUATION = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern SYNTAX = Pattern.compile("[\"()]|(^|\\s)[+-]|\\b(AND|OR|NOT)\\b");
+
+    private final String text;
+    private final List<String> terms;
+    private final String filter;
+    private final String sort;
+    private final String key;
+
+    private QueryKey(String text, List<String> terms, String filter, String sort) {
+        this.text = text;
+        this.terms = terms;
+        this.filter = filter;
+        this.sort = sort;
+        this.key = Long.toHexString(Hashing.hash64(text + "\n" + filter + "\n" + sort));
+    }
+
+    /**
+     * Builds the canonical form of a search.
+     * @param searchInput the query as typed.
+     * @param filterValue the filter ("country:us", ...), or null.
+     * @param sortBy the sort order, or null for publishedAt.
+     * @return the canonical search.
+     * @author Team
+     */
+    public static QueryKey of(String searchInput, String filterValue, String sortBy) {
+        String query = SPACES.matcher(Normalizer.normalize(searchInput, Normalizer.Form.NFKC).trim()).replaceAll(" ");
+        String filter = filterValue == null ? "" : filterValue.trim().toLowerCase(Locale.ROOT);
+        String sort = sortBy == null || sortBy.isEmpty() ? "publishedAt" : sortBy;
+        if (SYNTAX.matcher(query).find()) return new QueryKey(query, List.of(), filter, sort);
+
+        TreeSet<String> terms = new TreeSet<>();
+        for (String t : PUNCTUATION.split(query.toLowerCase(Locale.ROOT))) {
+            if (!t.isEmpty()) terms.add(t);
+        }
+        return new QueryKey(String.join(" ", terms), List.copyOf(terms), filter, sort);
+    }
+
+    /**
+     * Gets the cache key: a hash of the canonical query, filter and sort order.
+     * @return 16 hex digits at most.
+     * @author Team
+     */
+    public String key() {
+        return key;
+    }
+
+    /**
+     * Gets the canonical query text, without filter and sort order.
+     * @return the sorted terms of a plain query, else the whitespace-normalized query.
+     * @author Team
+     */
+    public String text() {
+        return text;
+    }
+
+    /**
+     * Gets the filter of the search.
+     * @return the lower-cased filter value, empty when there is none.
+     * @author Team
+     */
+    public String filter() {
+        return filter;
+    }
+
+    /**
+     * Gets the sort order of the search.
+     * @return the NewsAPI sortBy value.
+     * @author Team
+     */
+    public String sort() {
+        return sort;
+    }
+
+    /**
+     * Gets the language the search is filtered on.
+     * @return the ISO 639-1 code, or null when the filter is not a language.
+     * @author Team
+     */
+    public String language() {
+        return filter.startsWith("language:") ? filter.substring("language:".length()) : null;
+    }
+
+    /**
+     * Lists the same query with another sort order, or without its language filter: searches of the same
+     * NewsAPI endpoint whose complete results hold this one's articles.
+     * @return the sibling searches, same filter first; empty for country and category filters (top headlines).
+     * @author Team
+     */
+    public List<QueryKey> siblings() {
+        List<QueryKey> siblings = new ArrayList<>();
+        if (!filter.isEmpty() && language() == null) return siblings;
+        List<String> filters = filter.isEmpty() ? List.of(filter) : List.of(filter, "");
+        for (String f : filters) {
+            for (String s : SORTS) {
+                if (!(f.equals(filter) && s.equals(sort))) siblings.add(new QueryKey(text, terms, f, s));
+            }
+        }
+        return siblings;
+    }
+
+    /**
+     * Tells whether the query is plain words, whose results can be narrowed locally.
+     * @return true when the query has no operators.
+     * @author Team
+     */
+    public boolean isPlain() {
+        return !terms.isEmpty();
+    }
+
+    /**
+     * Lists the broader searches whose results contain this one's: same filter and sort order, a subset of the terms.
+     * @return the broader searches, those with the most terms first; empty for non-plain or single-term queries.
+     * @author Team
+     */
+    public List<QueryKey> broader() {
+        List<QueryKey> broader = new ArrayList<>();
+        int n = terms.size();
+        if (n < 2 || n > MAX_SUBSUMPTION_TERMS) return broader;
+        for (int size = n - 1; size >= 1; size--) {
+            for (int mask = 1; mask < (1 << n) - 1; mask++) {
+                if (Integer.bitCount(mask) != size) continue;
+                List<String> subset = new ArrayList<>();
+                for (int i = 0; i < n; i++) {
+                    if ((mask & (1 << i)) != 0) subset.add(terms.get(i));
+                }
+                broader.add(new QueryKey(String.join(" ", subset), List.copyOf(subset), filter, sort));
+            }
+        }
+        return broader;
+    }
+
+    /**
+     * Keeps the articles of a broader search that match every term of this one.
+     * @param articles the articles of a broader search.
+     * @param limit maximum number of articles to keep.
+     * @return the matching articles, in the same order.
+     * @author Team
+     */
+    public List<Article> narrow(List<Article> articles, int limit) {
+        return QueryBatcher.demultiplex(text, articles, limit);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof QueryKey)) return false;
+        QueryKey other = (QueryKey) o;
+        return text.equals(other.text) && filter.equals(other.filter) && sort.equals(other.sort);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(text, filter, sort);
+    }
+
+    @Override
+    public String toString() {
+        return text + (filter.isEmpty() ? "" : " [" + filter + "]") + " by " + sort;
+    }
+}
@@ -0,0 +1,191 @@
+package Services;
+
+import com.typesafe.config.Config;
+import play.inject.ApplicationLifecycle;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Typeahead suggestions: the most popular recent searches starting with what the user has typed.
+ * Searches are only queued when recorded; a background thread folds them into exponentially decayed counts
+ * (a search loses half its weight every {@code suggest.halfLife}), keeps the {@code suggest.capacity} most
+ * popular queries and periodically builds a new {@link PrefixIndex}, published with a volatile write so lookups
+ * never lock.
+ * A query is only suggested once it has been searched {@code suggest.minSearches} times.
+ * @author Team
+ */
+@Singleton
+public class QuerySuggestions {
+    /** Queries kept per prefix. */
+    public static final int TOP_K = 10;
+    private static final int MAX_PENDING = 10_000;
+    private static final int MAX_QUERY_LENGTH = 100;
+
+    private final LongSupplier clock;
+    private final int capacity;
+    private final int minSearches;
+    private final double halfLifeMillis;
+
+    private final ConcurrentLinkedQueue<Recorded> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingSize = new AtomicInteger();
+    /** Counts as of the last rebuild (epoch); rebuild thread only. */
+    private final Map<String, Count> counts = new HashMap<>();
+    private long epoch;
+    private volatile PrefixIndex index = PrefixIndex.EMPTY;
+
+    private final LongAdder lookups;
+    private final LongAdder rebuilds;
+    private final LongAdder dropped;
+
+    /**
+     * Constructs the service used by the application and schedules index rebuilds.
+     * @param config App configuration.
+     * @param metrics the metrics registry.
+     * @param lifecycle the Play application lifecycle.
+     * @author Team
+     */
+    @Inject
+    public QuerySuggestions(Config config, Metrics metrics, ApplicationLifecycle lifecycle) {
+        this(config.hasPath("suggest.capacity") ? config.getInt("suggest.capacity") : 10_000,
+                config.hasPath("suggest.minSearches") ? config.getInt("suggest.minSearches") : 2,
+                config.hasPath("suggest.halfLife") ? config.getDuration("suggest.halfLife") : Duration.ofHours(6),
+                System::currentTimeMillis, metrics);
+        long interval = (config.hasPath("suggest.rebuildInterval") ? config.getDuration("suggest.rebuildInterval") : Duration.ofSeconds(10)).toMillis();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "query-suggestions");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::rebuild, interval, interval, TimeUnit.MILLISECONDS);
+        lifecycle.addStopHook(() -> {
+            scheduler.shutdownNow();
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    /**
+     * Constructs the service without a background thread (used by tests): call {@link #rebuild()} to publish.
+     * @param capacity maximum number of distinct queries tracked.
+     * @param minSearches number of searches before a query is suggested.
+     * @param halfLife time for a search to lose half its weight.
+     * @param clock supplies the current time in epoch milliseconds.
+     * @param metrics the metrics registry.
+     * @author Team
+     */
+    public QuerySuggestions(int capacity, int minSearches, Duration halfLife, LongSupplier clock, Metrics metrics) {
+        this.capacity = capacity;
+        this.halfLifeMillis = halfLife.toMillis();
+        this.clock = clock;
+        this.epoch = clock.getAsLong();
+        this.minSearches = minSearches;
+        this.lookups = metrics.counter("suggest.lookups");
+        this.rebuilds = metrics.counter("suggest.rebuilds");
+        this.dropped = metrics.counter("suggest.dropped");
+        metrics.gauge("suggest.queries", () -> index.size());
+    }
+
+    /**
+     * Normalizes a query or prefix: trimmed, lower-cased, single spaces.
+     * @param query the text typed.
+     * @return the normalized text.
+     * @author Team
+     */
+    public static String normalize(String query) {
+        return query.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Counts a search. Never blocks: when the rebuild thread falls behind the search is not counted.
+     * @param query the query as typed.
+     * @author Team
+     */
+    public void record(String query) {
+        String normalized = normalize(query);
+        if (normalized.isEmpty() || normalized.length() > MAX_QUERY_LENGTH) return;
+        if (pendingSize.incrementAndGet() > MAX_PENDING) {
+            pendingSize.decrementAndGet();
+            dropped.increment();
+            return;
+        }
+        pending.add(new Recorded(normalized, clock.getAsLong()));
+    }
+
+    /**
+     * Gets the most popular queries starting with a prefix, from the last published index.
+     * @param prefix the text typed so far.
+     * @param limit maximum number of suggestions (at most {@link #TOP_K}).
+     * @return the suggested queries, most popular first.
+     * @author Team
+     */
+    public List<String> suggest(String prefix, int limit) {
+        lookups.increment();
+        return index.lookup(normalize(prefix), limit);
+    }
+
+    /**
+     * Folds the queued searches into the counts and publishes a new index. Runs on one thread at a time.
+     * @author Team
+     */
+    public synchronized void rebuild() {
+        long now = clock.getAsLong();
+        double decay = Math.pow(0.5, (now - epoch) / halfLifeMillis);
+        counts.values().forEach(c -> c.score *= decay);
+        epoch = now;
+        Recorded r;
+        while ((r = pending.poll()) != null) {
+            pendingSize.decrementAndGet();
+            Count c = counts.computeIfAbsent(r.query, q -> new Count());
+            c.score += Math.pow(0.5, (now - r.time) / halfLifeMillis);
+            c.searches++;
+        }
+        counts.values().removeIf(c -> c.score < 0.01); // forgotten
+        if (counts.size() > capacity) {
+            List<String> evicted = counts.entrySet().stream()
+                    .sorted(Comparator.comparingDouble(e -> e.getValue().score))
+                    .limit(counts.size() - capacity)
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
+            evicted.forEach(counts::remove);
+        }
+
+        Map<String, Double> popular = new HashMap<>();
+        counts.forEach((q, c) -> {
+            if (c.searches >= minSearches) popular.put(q, c.score);
+        });
+        index = new PrefixIndex(popular, TOP_K);
+        rebuilds.increment();
+    }
+
+    /** Decayed and total number of searches of a query. */
+    private static final class Count {
+        double score;
+        int searches;
+    }
+
+    /** A search and the time it was made. */
+    private static final class Recorded {
+        final String query;
+        final long time;
+
+        Recorded(String query, long time) {
+            this.query = query;
+            this.time = time;
+        }
+    }
+}
@@ -0,0 +1,409 @@
+package Services;
+
+import com.typesafe.config.Config;
+import models.Article;
+import models.StopWords;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * "Related coverage": the cached articles most similar to a given one, by cosine similarity of TF-IDF vectors
+ * over titles and descriptions, without any call to NewsAPI.
+ * Every article of a served result is indexed once (by URL) as a sparse vector, term ids and log term frequencies
+ * in parallel primitive arrays, and added to an inverted index (document ids and weights, also in parallel arrays). Document frequencies are kept up to date as
+ * articles come and go; the oldest article is evicted past {@code related.capacity}.
+ * A lookup only walks the postings of the article's own terms into a score accumulator, and skips terms so common
+ * that they would touch a large part of the corpus for little weight. The norms of the documents it touches are
+ * computed then, with the current document frequencies, like their scores.
+ * Lookups share a read lock; indexing takes the write lock.
+ * @author Team
+ */
+@Singleton
+public class RelatedArticles {
+    /** Most related articles returned by a lookup. */
+    public static final int MAX_RESULTS = 20;
+    /** Lowest cosine similarity reported as related. */
+    static final float MIN_SIMILARITY = 0.05f;
+    /** Terms in more documents than this (and than 5% of the corpus) are not used to find candidates. */
+    private static final int COMMON_TERM_DF = 200;
+
+    private final int capacity;
+    private final StopWords stopWords;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // terms, by id
+    private Map<String, Integer> termIds = new HashMap<>();
+    private int[] df = new int[1024];
+    private int[][] postings = new int[1024][];
+    private float[][] postingWeights = new float[1024][];
+    private int[] postingSizes = new int[1024];
+    private int terms;
+
+    // documents, by id; ids only grow and are renumbered when the arrays are full
+    private final Map<String, Integer> docByUrl = new HashMap<>();
+    private final Article[] docs;
+    private final int[][] docTerms;
+    private final float[][] docWeights;
+    private int nextDoc;
+    private int oldestDoc;
+    private int live;
+
+    private final ThreadLocal<Accumulator> accumulators;
+
+    private final LongAdder lookups;
+    private final LongAdder indexed;
+    private final LongAdder evicted;
+
+    /**
+     * Constructs the index used by the application.
+     * @param config App configuration.
+     * @param metrics the metrics registry.
+     * @author Team
+     */
+    @Inject
+    public RelatedArticles(Config config, Metrics metrics) {
+        this(config.hasPath("related.capacity") ? config.getInt("related.capacity") : 100_000,
+                config.hasPath("statistics.stopWords")
+                        ? StopWords.load(Paths.get(config.getString("statistics.stopWords"))) : StopWords.loadResource("stopwords.txt"),
+                metrics);
+    }
+
+    /**
+     * Constructs an index.
+     * @param capacity most articles kept.
+     * @param stopWords words left out of the vectors.
+     * @param metrics the metrics registry.
+     * @author Team
+     */
+    public RelatedArticles(int capacity, StopWords stopWords, Metrics metrics) {
+        this.capacity = capacity;
+        this.stopWords = stopWords;
+        // room for as many dead documents as live ones before renumbering
+        docs = new Article[capacity * 2];
+        docTerms = new int[capacity * 2][];
+        docWeights = new float[capacity * 2][];
+        accumulators = ThreadLocal.withInitial(() -> new Accumulator(docs.length));
+        this.lookups = metrics.counter("related.lookups");
+        this.indexed = metrics.counter("related.indexed");
+        this.evicted = metrics.counter("related.evicted");
+        metrics.gauge("related.articles", this::size);
+    }
+
+    /**
+     * Indexes articles not indexed yet (by URL).
+     * @param articles the articles, e.g. of a result just served.
+     * @author Team
+     */
+    public void add(List<Article> articles) {
+        lock.writeLock().lock();
+        try {
+            for (Article a : articles) {
+                if (a.getUrl() == null || docByUrl.containsKey(a.getUrl())) continue;
+                Vector v = vector(a, true);
+                if (v.terms.length == 0) continue;
+                if (live == capacity) evictOldest();
+                if (nextDoc == docs.length) renumber();
+                int doc = nextDoc++;
+                docs[doc] = a;
+                docTerms[doc] = v.terms;
+                docWeights[doc] = v.weights;
+                for (int i = 0; i < v.terms.length; i++) {
+                    df[v.terms[i]]++;
+                    addPosting(v.terms[i], doc, v.weights[i]);
+                }
+                docByUrl.put(a.getUrl(), doc);
+                live++;
+                indexed.increment();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the indexed articles most related to an indexed article.
+     * @param url the article's URL.
+     * @param n maximum number of articles, at most {@link #MAX_RESULTS}.
+     * @return the related articles, most similar first, or null when the URL is not indexed.
+     * @author Team
+     */
+    public List<Article> related(String url, int n) {
+        lock.readLock().lock();
+        try {
+            Integer doc = docByUrl.get(url);
+            if (doc == null) return null;
+            return related(docs[doc], docTerms[doc], docWeights[doc], n);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the indexed articles most related to an article, indexed or not.
+     * @param article the article (title and description are read).
+     * @param n maximum number of articles, at most {@link #MAX_RESULTS}.
+     * @return the related articles, most similar first.
+     * @author Team
+     */
+    public List<Article> related(Article article, int n) {
+        lock.readLock().lock();
+        try {
+            Vector v = vector(article, false);
+            return related(article, v.terms, v.weights, n);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of articles indexed.
+     * @return the size.
+     * @author Team
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return live;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Article> related(Article article, int[] queryTerms, float[] queryWeights, int n) {
+        lookups.increment();
+        n = Math.min(n, MAX_RESULTS);
+        if (n <= 0 || live == 0) return List.of();
+        Accumulator acc = accumulators.get();
+        int common = Math.max(COMMON_TERM_DF, live / 20);
+        float queryNorm = 0;
+        for (int i = 0; i < queryTerms.length; i++) {
+            int t = queryTerms[i];
+            if (df[t] == 0) continue;
+            float idf = idf(t);
+            queryNorm += queryWeights[i] * idf * queryWeights[i] * idf;
+            if (df[t] > common) continue;
+            float w = queryWeights[i] * idf * idf;
+            int[] list = postings[t];
+            float[] weights = postingWeights[t];
+            for (int p = 0, size = postingSizes[t]; p < size; p++) {
+                int doc = list[p];
+                if (docs[doc] == null) continue; // evicted, purged at the next renumbering
+                acc.add(doc, w * weights[p]);
+            }
+        }
+        queryNorm = (float) Math.sqrt(queryNorm);
+
+        // best n, worst first
+        int[] best = new int[n];
+        float[] bestScores = new float[n];
+        int found = 0;
+        for (int i = 0; i < acc.touchedCount; i++) {
+            int doc = acc.touched[i];
+            float score = acc.scores[doc] / (queryNorm * norm(docTerms[doc], docWeights[doc]));
+            acc.scores[doc] = 0;
+            Article candidate = docs[doc];
+            if (score < MIN_SIMILARITY || candidate.getUrl().equals(article.getUrl())
+                    || Long.bitCount(candidate.getFingerprint() ^ article.getFingerprint()) <= DuplicateDetector.MAX_DISTANCE) {
+                continue; // the article itself, or a syndicated copy of it
+            }
+            if (found == n && score <= bestScores[0]) continue;
+            int j = found == n ? 0 : found++;
+            // sift the new entry up to its place
+            while (j + 1 < found && bestScores[j + 1] < score) {
+                best[j] = best[j + 1];
+                bestScores[j] = bestScores[j + 1];
+                j++;
+            }
+            while (j > 0 && bestScores[j - 1] > score) {
+                best[j] = best[j - 1];
+                bestScores[j] = bestScores[j - 1];
+                j--;
+            }
+            best[j] = doc;
+            bestScores[j] = score;
+        }
+        acc.touchedCount = 0;
+
+        List<Article> related = new ArrayList<>(found);
+        for (int i = found - 1; i >= 0; i--) related.add(docs[best[i]]);
+        return related;
+    }
+
+    private float idf(int term) {
+        return (float) Math.log(1 + (double) live / df[term]);
+    }
+
+    private float norm(int[] terms, float[] weights) {
+        float sum = 0;
+        for (int i = 0; i < terms.length; i++) {
+            float w = weights[i] * idf(terms[i]);
+            sum += w * w;
+        }
+        return (float) Math.sqrt(sum);
+    }
+
+    /**
+     * Reads an article's words (letters only, lower case, longer than two letters, not stop words) into a vector
+     * of term ids, sorted, and weights 1 + ln(count).
+     * @param create whether unknown words get a term id; when false they are left out, matching nothing.
+     */
+    private Vector vector(Article article, boolean create) {
+        Map<String, Integer> counts = new HashMap<>();
+        countWords(article.getTitle(), counts);
+        countWords(article.getDescription(), counts);
+        long[] packed = new long[counts.size()];
+        int size = 0;
+        for (Map.Entry<String, Integer> e : counts.entrySet()) {
+            Integer id = termIds.get(e.getKey());
+            if (id == null) {
+                if (!create) continue;
+                id = newTerm(e.getKey());
+            }
+            packed[size++] = (long) id << 32 | e.getValue(); // the count rides along with the id when sorting
+        }
+        Arrays.sort(packed, 0, size);
+        int[] ids = new int[size];
+        float[] weights = new float[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = (int) (packed[i] >>> 32);
+            weights[i] = (float) (1 + Math.log((int) packed[i]));
+        }
+        return new Vector(ids, weights);
+    }
+
+    private void countWords(String text, Map<String, Integer> counts) {
+        if (text == null) return;
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetter(c)) {
+                word.append(c);
+            } else if (Character.isWhitespace(c) || c == '-' || c == '/') {
+                if (word.length() > 2) {
+                    String w = word.toString().toLowerCase(Locale.ROOT);
+                    if (!stopWords.contains(w)) counts.merge(w, 1, Integer::sum);
+                }
+                word.setLength(0);
+            } // other characters (apostrophes, digits, punctuation) are dropped from the word
+        }
+    }
+
+    private int newTerm(String word) {
+        if (terms == df.length) {
+            df = Arrays.copyOf(df, terms * 2);
+            postings = Arrays.copyOf(postings, terms * 2);
+            postingWeights = Arrays.copyOf(postingWeights, terms * 2);
+            postingSizes = Arrays.copyOf(postingSizes, terms * 2);
+        }
+        termIds.put(word, terms);
+        return terms++;
+    }
+
+    private void addPosting(int term, int doc, float weight) {
+        int[] list = postings[term];
+        if (list == null) {
+            postings[term] = new int[4];
+            postingWeights[term] = new float[4];
+        } else if (postingSizes[term] == list.length) {
+            postings[term] = Arrays.copyOf(list, list.length * 2);
+            postingWeights[term] = Arrays.copyOf(postingWeights[term], list.length * 2);
+        }
+        postings[term][postingSizes[term]] = doc;
+        postingWeights[term][postingSizes[term]++] = weight;
+    }
+
+    private void evictOldest() {
+        while (docs[oldestDoc] == null) oldestDoc++;
+        int doc = oldestDoc++;
+        for (int t : docTerms[doc]) df[t]--;
+        docByUrl.remove(docs[doc].getUrl());
+        docs[doc] = null;
+        docTerms[doc] = null;
+        docWeights[doc] = null;
+        live--;
+        evicted.increment();
+    }
+
+    /**
+     * Renumbers the live documents from 0, in order, rebuilding the postings without the evicted documents and the
+     * terms no longer used.
+     */
+    private void renumber() {
+        Map<String, Integer> oldIds = termIds;
+        String[] words = new String[terms];
+        oldIds.forEach((w, id) -> words[id] = w);
+        int[] renamed = new int[terms];
+        termIds = new HashMap<>();
+        int[] oldDf = df;
+        int oldTerms = terms;
+        terms = 0;
+        df = new int[Math.max(1024, Integer.highestOneBit(Math.max(1, oldTerms)) * 2)];
+        postings = new int[df.length][];
+        postingWeights = new float[df.length][];
+        postingSizes = new int[df.length];
+        for (int t = 0; t < oldTerms; t++) {
+            if (oldDf[t] == 0) {
+                renamed[t] = -1;
+            } else {
+                renamed[t] = newTerm(words[t]);
+                df[renamed[t]] = oldDf[t];
+            }
+        }
+
+        int to = 0;
+        for (int from = oldestDoc; from < nextDoc; from++) {
+            if (docs[from] == null) continue;
+            int[] ts = docTerms[from];
+            for (int i = 0; i < ts.length; i++) ts[i] = renamed[ts[i]]; // renaming keeps the order
+            docs[to] = docs[from];
+            docTerms[to] = ts;
+            docWeights[to] = docWeights[from];
+            docByUrl.put(docs[to].getUrl(), to);
+            for (int i = 0; i < ts.length; i++) addPosting(ts[i], to, docWeights[to][i]);
+            to++;
+        }
+        Arrays.fill(docs, to, nextDoc, null);
+        Arrays.fill(docTerms, to, nextDoc, null);
+        Arrays.fill(docWeights, to, nextDoc, null);
+        nextDoc = to;
+        oldestDoc = 0;
+    }
+
+    /** A sparse vector: sorted term ids and their weights. */
+    private static final class Vector {
+        final int[] terms;
+        final float[] weights;
+
+        Vector(int[] terms, float[] weights) {
+            this.terms = terms;
+            this.weights = weights;
+        }
+    }
+
+    /** Per-thread scores of the documents touched by a lookup, cleared as they are read. */
+    private static final class Accumulator {
+        final float[] scores;
+        final int[] touched;
+        int touchedCount;
+
+        Accumulator(int documents) {
+            scores = new float[documents];
+            touched = new int[documents];
+        }
+
+        void add(int doc, float score) {
+            if (scores[doc] == 0) touched[touchedCount++] = doc;
+            scores[doc] += score;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package Services;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Off-heap memory carved into fixed-size chunks.
+ * Direct buffers ("slabs") are allocated lazily up to a capacity; each slab is split into chunks of one
+ * power-of-two size class the first time that class needs room, and freed chunks go back to their class. A slab
+ * whose chunks are all free again goes back to the shared pool of whole slabs, for any class to split.
+ * Chunks are addressed by a packed {@code slab << 32 | offset} handle. Not thread-safe.
+ * @author Team
+ */
+final class SlabAllocator {
+    /** Smallest chunk size. */
+    static final int MIN_CHUNK = 512;
+
+    private final int slabSize;
+    private final int maxSlabs;
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private final LongStack[] free;
+    /** Chunks handed out per slab. */
+    private int[] liveChunks = new int[16];
+    private long usedBytes;
+
+    /**
+     * Creates an allocator.
+     * @param capacityBytes total off-heap memory it may allocate.
+     * @param slabSize size of one slab, also the largest chunk (a power of two, at least {@link #MIN_CHUNK}).
+     * @author Team
+     */
+    SlabAllocator(long capacityBytes, int slabSize) {
+        if (slabSize < MIN_CHUNK || Integer.bitCount(slabSize) != 1) {
+            throw new IllegalArgumentException("slab size must be a power of two >= " + MIN_CHUNK);
+        }
+        this.slabSize = slabSize;
+        this.maxSlabs = (int) Math.min(Integer.MAX_VALUE, capacityBytes / slabSize);
+        this.free = new LongStack[sizeClass(slabSize) + 1];
+        for (int i = 0; i < free.length; i++) free[i] = new LongStack();
+    }
+
+    /**
+     * Gets the size class able to hold some bytes.
+     * @param bytes the number of bytes.
+     * @return the class index, chunk size {@code MIN_CHUNK << class}.
+     * @author Team
+     */
+    static int sizeClass(int bytes) {
+        if (bytes <= MIN_CHUNK) return 0;
+        return 32 - Integer.numberOfLeadingZeros(bytes - 1) - Integer.numberOfTrailingZeros(MIN_CHUNK);
+    }
+
+    /**
+     * Reserves a chunk.
+     * @param bytes the number of bytes needed.
+     * @return the chunk handle, or -1 when the class has no free chunk and no slab is left.
+     * @author Team
+     */
+    long allocate(int bytes) {
+        if (bytes > slabSize) return -1;
+        int cls = sizeClass(bytes);
+        LongStack stack = free[cls];
+        if (stack.isEmpty()) {
+            // split a whole free slab (left by clear()) or a new one into chunks of this class
+            LongStack whole = free[free.length - 1];
+            int slab;
+            if (stack != whole && !whole.isEmpty()) {
+                slab = slab(whole.pop());
+            } else if (slabs.size() < maxSlabs) {
+                slab = slabs.size();
+                slabs.add(ByteBuffer.allocateDirect(slabSize));
+            } else {
+                return -1;
+            }
+            int chunk = MIN_CHUNK << cls;
+            for (int offset = slabSize - chunk; offset >= 0; offset -= chunk) stack.push(handle(slab, offset));
+        }
+        usedBytes += MIN_CHUNK << cls;
+        long handle = stack.pop();
+        if (slab(handle) >= liveChunks.length) liveChunks = Arrays.copyOf(liveChunks, Math.max(slabs.size(), liveChunks.length * 2));
+        liveChunks[slab(handle)]++;
+        return handle;
+    }
+
+    /**
+     * Returns a chunk to its size class.
+     * @param handle the chunk handle.
+     * @param bytes the size it was allocated with.
+     * @author Team
+     */
+    void free(long handle, int bytes) {
+        int cls = sizeClass(bytes);
+        usedBytes -= MIN_CHUNK << cls;
+        int slab = slab(handle);
+        if (--liveChunks[slab] == 0 && cls != free.length - 1) {
+            // the slab is empty: take its chunks out of the class and give it back whole
+            free[cls].removeSlab(slab);
+            free[free.length - 1].push(handle(slab, 0));
+        } else {
+            free[cls].push(handle);
+        }
+    }
+
+    /**
+     * Copies bytes into a chunk.
+     * @param handle the chunk handle.
+     * @param bytes the bytes to store.
+     * @author Team
+     */
+    void write(long handle, byte[] bytes) {
+        slabs.get(slab(handle)).put(offset(handle), bytes);
+    }
+
+    /**
+     * Gives a read-only view of a chunk's first bytes.
+     * @param handle the chunk handle.
+     * @param length how many bytes were stored.
+     * @return a buffer positioned at the start of the chunk.
+     * @author Team
+     */
+    ByteBuffer read(long handle, int length) {
+        return slabs.get(slab(handle)).asReadOnlyBuffer().position(offset(handle)).limit(offset(handle) + length).slice();
+    }
+
+    /**
+     * Gets the bytes held by allocated chunks (rounded up to their size class).
+     * @return the used bytes.
+     * @author Team
+     */
+    long usedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Gets the bytes of slabs allocated so far.
+     * @return the reserved off-heap bytes.
+     * @author Team
+     */
+    long reservedBytes() {
+        return (long) slabs.size() * slabSize;
+    }
+
+    /**
+     * Forgets every chunk; slabs already allocated are kept for reuse.
+     * @author Team
+     */
+    void clear() {
+        for (LongStack s : free) s.clear();
+        for (int slab = 0; slab < slabs.size(); slab++) {
+            // give every slab back as whole-slab chunks; they are split again on demand
+            free[free.length - 1].push(handle(slab, 0));
+        }
+        Arrays.fill(liveChunks, 0);
+        usedBytes = 0;
+    }
+
+    private static long handle(int slab, int offset) {
+        return (long) slab << 32 | offset;
+    }
+
+    private static int slab(long handle) {
+        return (int) (handle >>> 32);
+    }
+
+    private static int offset(long handle) {
+        return (int) handle;
+    }
+
+    /** Minimal stack of primitive longs. */
+    private static final class LongStack {
+        private long[] items = new long[16];
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void push(long value) {
+            if (size == items.length) items = Arrays.copyOf(items, size * 2);
+            items[size++] = value;
+        }
+
+        long pop() {
+            return items[--size];
+        }
+
+        /** Drops the chunks of one slab, keeping the others in order. */
+        void removeSlab(int slab) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (slab(items[i]) != slab) items[kept++] = items[i];
+            }
+            size = kept;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package Services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.typesafe.config.Config;
+import models.NewsSource;
+import play.inject.ApplicationLifecycle;
+import play.libs.ws.WSClient;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory copy of the NewsAPI sources catalogue ({@code /v2/top-headlines/sources}).
+ * Loaded once at startup and refreshed in the background; each load builds immutable maps indexed by id,
+ * normalized name and domain, published with a single volatile write so lookups never lock.
+ * @author Team
+ */
+@Singleton
+public class SourceCatalogue {
+    private static final String DEFAULT_URL = "https://newsapi.org/v2/top-headlines/sources";
+    private static final Duration DEFAULT_REFRESH = Duration.ofHours(6);
+
+    private volatile Index index = new Index(List.of());
+
+    /**
+     * Constructs the catalogue used by the application and schedules its background refresh.
+     * @param ws Play WSClient for HTTP requests.
+     * @param config App configuration.
+     * @param lifecycle the Play application lifecycle.
+     * @param keys the NewsAPI key pool.
+     * @author Team
+     */
+    @Inject
+    public SourceCatalogue(WSClient ws, Config config, ApplicationLifecycle lifecycle, ApiKeyPool keys) {
+        String url = config.hasPath("newsapi.sources.url") ? config.getString("newsapi.sources.url") : DEFAULT_URL;
+        Duration refresh = config.hasPath("newsapi.sources.refresh") ? config.getDuration("newsapi.sources.refresh") : DEFAULT_REFRESH;
+        String requestUrl = url + (url.contains("?") ? "&" : "?") + "apiKey=";
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "source-catalogue-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> keys.acquire().ifPresent(key -> load(ws, requestUrl + key, keys, key)), 0, refresh.toMillis(), TimeUnit.MILLISECONDS);
+        lifecycle.addStopHook(() -> {
+            scheduler.shutdownNow();
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    /**
+     * Constructs an empty catalogue that is only filled through {@link #replace(List)} (used by tests).
+     * @author Team
+     */
+    public SourceCatalogue() {
+    }
+
+    /**
+     * Looks a source up by NewsAPI id.
+     * @param id the source id, e.g. "bbc-news".
+     * @return the source, if known.
+     * @author Team
+     */
+    public Optional<NewsSource> byId(String id) {
+        return id == null ? Optional.empty() : Optional.ofNullable(index.byId.get(id));
+    }
+
+    /**
+     * Looks a source up by display name, ignoring case, spacing and punctuation.
+     * @param name the source name, e.g. "BBC News".
+     * @return the source, if known.
+     * @author Team
+     */
+    public Optional<NewsSource> byName(String name) {
+        return name == null ? Optional.empty() : Optional.ofNullable(index.byName.get(normalizeName(name)));
+    }
+
+    /**
+     * Looks a source up by web domain or URL.
+     * @param domain a domain such as "bbc.co.uk" or a full URL.
+     * @return the source, if known.
+     * @author Team
+     */
+    public Optional<NewsSource> byDomain(String domain) {
+        return domain == null ? Optional.empty() : Optional.ofNullable(index.byDomain.get(normalizeDomain(domain)));
+    }
+
+    /**
+     * Resolves a free-form reference to a source, trying id, then domain, then name.
+     * @param reference an id, domain or display name.
+     * @return the source, if known.
+     * @author Team
+     */
+    public Optional<NewsSource> resolve(String reference) {
+        if (reference == null || reference.isBlank()) return Optional.empty();
+        String trimmed = reference.trim();
+        Optional<NewsSource> found = byId(trimmed.toLowerCase(Locale.ROOT));
+        if (found.isEmpty()) found = byDomain(trimmed);
+        if (found.isEmpty()) found = byName(trimmed);
+        return found;
+    }
+
+    /**
+     * Gets the number of catalogued sources.
+     * @return the catalogue size.
+     * @author Team
+     */
+    public int size() {
+        return index.byId.size();
+    }
+
+    /**
+     * Atomically replaces the whole catalogue.
+     * @param sources the new list of sources.
+     * @author Team
+     */
+    public void replace(List<NewsSource> sources) {
+        this.index = new Index(sources);
+    }
+
+    /**
+     * Parses a {@code /v2/sources} response body.
+     * @param json the response body.
+     * @return the listed sources, empty when the body has none.
+     * @author Team
+     */
+    public static List<NewsSource> parse(JsonNode json) {
+        List<NewsSource> sources = new ArrayList<>();
+        JsonNode node = json == null ? null : json.get("sources");
+        if (node == null || !node.isArray()) return sources;
+        for (JsonNode s : node) {
+            if (!s.hasNonNull("id")) continue;
+            sources.add(new NewsSource(s.get("id").asText(), s.path("name").asText(""), s.path("description").asText(""),
+                    s.path("url").asText(""), s.path("category").asText(""), s.path("language").asText(""), s.path("country").asText("")));
+        }
+        return sources;
+    }
+
+    /** Fetches the catalogue; a failed refresh keeps serving the previous one. */
+    private CompletionStage<Void> load(WSClient ws, String requestUrl, ApiKeyPool keys, String key) {
+        return ws.url(requestUrl).setRequestTimeout(Duration.ofSeconds(10)).get()
+                .thenAccept(response -> {
+                    keys.report(key, response.getStatus(), response.getSingleHeader("Retry-After"));
+                    if (response.getStatus() != 200) return;
+                    List<NewsSource> sources = parse(response.asJson());
+                    if (!sources.isEmpty()) replace(sources);
+                })
+                .exceptionally(ex -> null);
+    }
+
+    /** Letters and numbers only, lower-cased; a plain loop rather than a regex, since it runs for every parsed article. */
+    static String normalizeName(String name) {
+        StringBuilder normalized = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); ) {
+            int c = name.codePointAt(i);
+            int type = Character.getType(c);
+            if (Character.isLetter(c) || type == Character.DECIMAL_DIGIT_NUMBER || type == Character.LETTER_NUMBER
+                    || type == Character.OTHER_NUMBER) {
+                normalized.appendCodePoint(c);
+            }
+            i += Character.charCount(c);
+        }
+        return normalized.toString().toLowerCase(Locale.ROOT);
+    }
+
+    static String normalizeDomain(String domain) {
+        String host = domain.trim().toLowerCase(Locale.ROOT);
+        if (host.contains("://")) {
+            try {
+                String parsed = URI.create(host).getHost();
+                if (parsed != null) host = parsed;
+            } catch (IllegalArgumentException ignored) {
+                // not a URL, use as is
+            }
+        }
+        int slash = host.indexOf('/');
+        if (slash >= 0) host = host.substring(0, slash);
+        return host.startsWith("www.") ? host.substring(4) : host;
+    }
+
+    /** Immutable lookup tables for one version of the catalogue. */
+    private static final class Index {
+        final Map<String, NewsSource> byId;
+        final Map<String, NewsSource> byName;
+        final Map<String, NewsSource> byDomain;
+
+        Index(List<NewsSource> sources) {
+            Map<String, NewsSource> ids = new HashMap<>();
+            Map<String, NewsSource> names = new HashMap<>();
+            Map<String, NewsSource> domains = new HashMap<>();
+            for (NewsSource s : sources) {
+                ids.put(s.getId(), s);
+                if (!s.getName().isEmpty()) names.putIfAbsent(normalizeName(s.getName()), s);
+                if (!s.getUrl().isEmpty()) domains.putIfAbsent(normalizeDomain(s.getUrl()), s);
+            }
+            this.byId = Map.copyOf(ids);
+            this.byName = Map.copyOf(names);
+            this.byDomain = Map.copyOf(domains);
+        }
+    }
+}
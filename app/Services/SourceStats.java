@@ -0,0 +1,388 @@
+package Services;
+
+import controllers.ReadabilityCalculator;
+import models.Article;
+import models.QueryResult;
+import models.Statistics;
+import play.inject.ApplicationLifecycle;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-source aggregates over every article in the search result cache: article count, average readability,
+ * publication rate and top terms, for the source profile pages and the source leaderboard.
+ * The cache tells this service about every result stored and every result that leaves it (see
+ * {@link TieredQueryCache.Listener}); that only appends to a lock-free queue. A single writer thread applies the
+ * changes in order: an article counts once however many cached results hold it (by URL), and its contribution
+ * (sums, a day bucket and its word counts) is added when it first comes in and subtracted when its last result
+ * leaves, so nothing is ever recounted. Readers get immutable summaries published after each batch.
+ * @author Team
+ */
+@Singleton
+public class SourceStats implements TieredQueryCache.Listener {
+    /** Most terms kept in a summary. */
+    public static final int TOP_TERMS = 10;
+    /** Days of publication times the rate is taken over. */
+    static final int RATE_DAYS = 7;
+    private static final long DAY_MILLIS = 24 * 60 * 60_000L;
+
+    private final LongSupplier clock;
+    private final Executor writer;
+
+    private final ConcurrentLinkedQueue<Change> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    // writer only
+    private final Map<String, String[]> urlsByKey = new HashMap<>();
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Map<String, Source> sources = new HashMap<>();
+
+    private volatile Map<String, Summary> summaries = Collections.emptyMap();
+    private volatile List<Summary> ranking = Collections.emptyList();
+    private volatile long summaryDay = Long.MIN_VALUE;
+
+    private final LongAdder added;
+    private final LongAdder removed;
+
+    /**
+     * Constructs the service used by the application, listening to the result cache, with its writer thread
+     * stopped on shutdown.
+     * @param cache the search result cache.
+     * @param metrics the metrics registry.
+     * @param lifecycle the Play application lifecycle.
+     * @author Team
+     */
+    @Inject
+    public SourceStats(TieredQueryCache cache, Metrics metrics, ApplicationLifecycle lifecycle) {
+        this(System::currentTimeMillis, Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "source-stats-writer");
+            t.setDaemon(true);
+            return t;
+        }), metrics);
+        cache.addListener(this);
+        lifecycle.addStopHook(() -> {
+            ((ExecutorService) writer).shutdownNow();
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    /**
+     * Constructs an instance with an explicit clock and writer (used by tests).
+     * @param clock supplies the current time in epoch milliseconds.
+     * @param writer executes drain tasks; must not run two tasks concurrently.
+     * @param metrics the metrics registry.
+     * @author Team
+     */
+    public SourceStats(LongSupplier clock, Executor writer, Metrics metrics) {
+        this.clock = clock;
+        this.writer = writer;
+        this.added = metrics.counter("sources.stats.articles.added");
+        this.removed = metrics.counter("sources.stats.articles.removed");
+        metrics.gauge("sources.stats.sources", () -> ranking.size());
+    }
+
+    @Override
+    public void stored(String key, QueryResult result) {
+        pending.add(new Change(key, result.getArticles()));
+        scheduleDrain();
+    }
+
+    @Override
+    public void removed(String key) {
+        pending.add(new Change(key, null));
+        scheduleDrain();
+    }
+
+    /**
+     * Gets the summary of a source. Reads a published snapshot, never recomputes.
+     * @param source the source's id or name (any case).
+     * @return the summary, or null when no cached article is from that source.
+     * @author Team
+     */
+    public Summary summary(String source) {
+        if (source == null) return null;
+        republishOnNewDay();
+        return summaries.get(sourceKey(source));
+    }
+
+    /**
+     * Gets the sources with the most cached articles.
+     * @param n the maximum number of sources.
+     * @return their summaries, most articles first (ties by name).
+     * @author Team
+     */
+    public List<Summary> leaderboard(int n) {
+        republishOnNewDay();
+        List<Summary> all = ranking;
+        return all.subList(0, Math.max(0, Math.min(n, all.size())));
+    }
+
+    private void republishOnNewDay() {
+        if (summaryDay != Long.MIN_VALUE && summaryDay != clock.getAsLong() / DAY_MILLIS) {
+            pending.add(new Change(null, null)); // the rates moved on: republish everything
+            scheduleDrain();
+        }
+    }
+
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            writer.execute(this::drain);
+        }
+    }
+
+    /** Runs on the writer only: applies pending changes and republishes the summaries of the sources they touched. */
+    private void drain() {
+        try {
+            Set<Source> touched = new HashSet<>();
+            boolean all = false;
+            Change change;
+            while ((change = pending.poll()) != null) {
+                if (change.key == null) {
+                    all = true;
+                    continue;
+                }
+                String[] previous = urlsByKey.remove(change.key);
+                if (change.articles != null) {
+                    // take the new articles first, so that the ones the key keeps are not removed and added again
+                    Set<String> urls = new LinkedHashSet<>();
+                    for (Article a : change.articles) {
+                        if (a.getUrl() == null || a.getSourceName() == null || !urls.add(a.getUrl())) continue;
+                        retain(a, touched);
+                    }
+                    urlsByKey.put(change.key, urls.toArray(new String[0]));
+                }
+                if (previous != null) {
+                    for (String url : previous) release(url, touched);
+                }
+            }
+            publish(all ? new ArrayList<>(sources.values()) : touched);
+        } finally {
+            draining.set(false);
+        }
+        if (!pending.isEmpty()) scheduleDrain();
+    }
+
+    private void retain(Article a, Set<Source> touched) {
+        Entry e = entries.get(a.getUrl());
+        if (e != null) {
+            e.refs++;
+            return;
+        }
+        String key = sourceKey(a.getSourceName());
+        Source s = sources.computeIfAbsent(key, k -> new Source(a.getSourceName()));
+        if (a.getSourceId() != null && !a.getSourceId().isEmpty()) s.id = a.getSourceId();
+        e = new Entry(key, a);
+        entries.put(a.getUrl(), e);
+        s.add(e, 1);
+        touched.add(s);
+        added.increment();
+    }
+
+    private void release(String url, Set<Source> touched) {
+        Entry e = entries.get(url);
+        if (--e.refs > 0) return;
+        entries.remove(url);
+        Source s = sources.get(e.source);
+        s.add(e, -1);
+        touched.add(s);
+        removed.increment();
+    }
+
+    private void publish(Iterable<Source> changed) {
+        Map<String, Summary> next = new HashMap<>(summaries);
+        long today = clock.getAsLong() / DAY_MILLIS;
+        for (Source s : changed) {
+            String key = sourceKey(s.name);
+            if (s.articles == 0) {
+                sources.remove(key);
+                next.remove(key);
+                if (s.id != null) next.remove(sourceKey(s.id));
+                continue;
+            }
+            Summary summary = s.summary(today);
+            next.put(key, summary);
+            if (s.id != null) next.put(sourceKey(s.id), summary);
+        }
+        List<Summary> ranked = new ArrayList<>(sources.size());
+        for (Source s : sources.values()) ranked.add(next.get(sourceKey(s.name)));
+        ranked.sort(Comparator.comparingLong(Summary::getArticles).reversed().thenComparing(Summary::getSourceName));
+        summaries = Collections.unmodifiableMap(next);
+        ranking = Collections.unmodifiableList(ranked);
+        summaryDay = today;
+    }
+
+    private static String sourceKey(String source) {
+        return source.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /** A cached result stored (with its articles) or removed (no articles); no key asks for a full republish. */
+    private static final class Change {
+        final String key;
+        final List<Article> articles;
+
+        Change(String key, List<Article> articles) {
+            this.key = key;
+            this.articles = articles;
+        }
+    }
+
+    /** What one cached article adds to its source, and how many cached results hold it. */
+    private static final class Entry {
+        final String source;
+        final double grade;
+        final double score;
+        final long day;
+        final String[] terms;
+        final long[] counts;
+        int refs = 1;
+
+        Entry(String source, Article a) {
+            this.source = source;
+            String title = a.getTitle() != null ? a.getTitle() : "";
+            this.grade = ReadabilityCalculator.calculateFleschKincaidGrade(title);
+            this.score = ReadabilityCalculator.calculateFleschReadingScore(title);
+            this.day = a.getPublishedAt() == null ? Long.MIN_VALUE : Math.floorDiv(a.getPublishedEpochMillis(), DAY_MILLIS);
+            Map<String, Long> counter = Statistics.getArticleCounter(a);
+            this.terms = new String[counter.size()];
+            this.counts = new long[counter.size()];
+            int i = 0;
+            for (Map.Entry<String, Long> c : counter.entrySet()) {
+                terms[i] = c.getKey();
+                counts[i++] = c.getValue();
+            }
+        }
+    }
+
+    /** Running sums of one source's cached articles; entries are added with sign 1 and removed with sign -1. */
+    private static final class Source {
+        final String name;
+        String id;
+        long articles;
+        double gradeSum;
+        double scoreSum;
+        final Map<Long, Integer> perDay = new HashMap<>();
+        final Map<String, Long> termCounts = new HashMap<>();
+
+        Source(String name) {
+            this.name = name;
+        }
+
+        void add(Entry e, int sign) {
+            articles += sign;
+            gradeSum += sign * e.grade;
+            scoreSum += sign * e.score;
+            if (e.day != Long.MIN_VALUE) perDay.merge(e.day, sign, (a, b) -> a + b == 0 ? null : a + b);
+            for (int i = 0; i < e.terms.length; i++) {
+                termCounts.merge(e.terms[i], sign * e.counts[i], (a, b) -> a + b == 0 ? null : a + b);
+            }
+        }
+
+        Summary summary(long today) {
+            long recent = 0;
+            for (Map.Entry<Long, Integer> d : perDay.entrySet()) {
+                if (d.getKey() > today - RATE_DAYS && d.getKey() <= today) recent += d.getValue();
+            }
+            Map<String, Long> top = new LinkedHashMap<>();
+            termCounts.entrySet().stream()
+                    .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                    .limit(TOP_TERMS)
+                    .forEach(t -> top.put(t.getKey(), t.getValue()));
+            return new Summary(name, articles, gradeSum / articles, scoreSum / articles, (double) recent / RATE_DAYS,
+                    Collections.unmodifiableMap(top));
+        }
+    }
+
+    /** Aggregates of one source over the cached articles, as published. */
+    public static final class Summary {
+        private final String sourceName;
+        private final long articles;
+        private final double averageGrade;
+        private final double averageReadingScore;
+        private final double articlesPerDay;
+        private final Map<String, Long> topTerms;
+
+        Summary(String sourceName, long articles, double averageGrade, double averageReadingScore, double articlesPerDay,
+                Map<String, Long> topTerms) {
+            this.sourceName = sourceName;
+            this.articles = articles;
+            this.averageGrade = averageGrade;
+            this.averageReadingScore = averageReadingScore;
+            this.articlesPerDay = articlesPerDay;
+            this.topTerms = topTerms;
+        }
+
+        /**
+         * Gets the source's name, as its articles give it.
+         * @return the name.
+         * @author Team
+         */
+        public String getSourceName() {
+            return sourceName;
+        }
+
+        /**
+         * Gets the number of distinct cached articles (by URL) of the source.
+         * @return the count.
+         * @author Team
+         */
+        public long getArticles() {
+            return articles;
+        }
+
+        /**
+         * Gets the average Flesch-Kincaid grade of the article titles.
+         * @return the average grade.
+         * @author Team
+         */
+        public double getAverageGrade() {
+            return averageGrade;
+        }
+
+        /**
+         * Gets the average Flesch reading score of the article titles.
+         * @return the average score.
+         * @author Team
+         */
+        public double getAverageReadingScore() {
+            return averageReadingScore;
+        }
+
+        /**
+         * Gets the publication rate: cached articles published over the last 7 days, per day.
+         * @return articles per day.
+         * @author Team
+         */
+        public double getArticlesPerDay() {
+            return articlesPerDay;
+        }
+
+        /**
+         * Gets the most frequent words of the titles and descriptions (as on the statistics page).
+         * @return an ordered map of word to count, most frequent first.
+         * @author Team
+         */
+        public Map<String, Long> getTopTerms() {
+            return topTerms;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package Services;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Space-Saving heavy-hitter summary keeping at most {@code capacity} candidate keys.
+ * Any key whose true count exceeds total / capacity is guaranteed to be among the candidates.
+ * Not thread-safe: callers confine updates to a single writer thread.
+ * @author Team
+ */
+public class SpaceSaving {
+    private final int capacity;
+    private final Map<String, Long> counters;
+
+    /**
+     * Constructs an empty summary.
+     * @param capacity the maximum number of tracked keys.
+     * @author Team
+     */
+    public SpaceSaving(int capacity) {
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    /**
+     * Counts occurrences of a key, evicting the current minimum when the summary is full.
+     * @param key the key to count.
+     * @param count the number of occurrences.
+     * @author Team
+     */
+    public void add(String key, long count) {
+        Long current = counters.get(key);
+        if (current != null) {
+            counters.put(key, current + count);
+            return;
+        }
+        if (counters.size() < capacity) {
+            counters.put(key, count);
+            return;
+        }
+        String minKey = null;
+        long min = Long.MAX_VALUE;
+        for (Map.Entry<String, Long> e : counters.entrySet()) {
+            if (e.getValue() < min) {
+                min = e.getValue();
+                minKey = e.getKey();
+            }
+        }
+        counters.remove(minKey);
+        counters.put(key, min + count);
+    }
+
+    /**
+     * Gets the tracked candidate keys.
+     * @return an unmodifiable view of the candidates.
+     * @author Team
+     */
+    public Set<String> candidates() {
+        return Collections.unmodifiableSet(counters.keySet());
+    }
+
+    /**
+     * Gets the tracked keys with their (over-)estimated counts, highest first.
+     * @param k the maximum number of entries to return.
+     * @return an ordered map of key to count.
+     * @author Team
+     */
+    public Map<String, Long> top(int k) {
+        Map<String, Long> top = new LinkedHashMap<>();
+        counters.entrySet().stream()
+                .sorted((e1, e2) -> e2.getValue().compareTo(e1.getValue()))
+                .limit(k)
+                .forEach(e -> top.put(e.getKey(), e.getValue()));
+        return top;
+    }
+
+    /**
+     * Forgets every tracked key.
+     * @author Team
+     */
+    public void clear() {
+        counters.clear();
+    }
+}
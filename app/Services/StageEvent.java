@@ -0,0 +1,68 @@
+package Services;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder event timing one stage of a search (NewsAPI fetch, JSON parse, readability, word
+ * statistics, page render). Recorded by {@link Profiler}; when no recording is running, {@link #end(String, int)}
+ * sets nothing and the JIT removes the event altogether.
+ * <pre>
+ * StageEvent stage = StageEvent.start("parse");
+ * ...
+ * stage.end(query, articles.size());
+ * </pre>
+ * @author Team
+ */
+@Name(StageEvent.NAME)
+@Label("Search stage")
+@Category("NotiLytics")
+@Description("Time spent in one stage of a search")
+@StackTrace(false)
+public final class StageEvent extends Event {
+    /** Event type name, as found in recordings. */
+    public static final String NAME = "notilytics.Stage";
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Query")
+    @Description("Search query or cache key")
+    String query;
+
+    @Label("Size")
+    @Description("Number of items handled (articles, response bytes, ...)")
+    int size;
+
+    /**
+     * Starts timing a stage.
+     * @param stage the stage name, e.g. "fetch".
+     * @return the event, to end when the stage is done.
+     * @author Team
+     */
+    public static StageEvent start(String stage) {
+        StageEvent event = new StageEvent();
+        event.stage = stage;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends the stage and commits the event when a recording wants it.
+     * @param query the search query or cache key.
+     * @param size the number of items handled.
+     * @author Team
+     */
+    public void end(String query, int size) {
+        end();
+        if (shouldCommit()) {
+            this.query = query;
+            this.size = size;
+            commit();
+        }
+    }
+}
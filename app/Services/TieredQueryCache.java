@@ -0,0 +1,411 @@
+package Services;
+
+import com.typesafe.config.Config;
+import models.QueryResult;
+import models.QueryResultCodec;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Two-tier cache of search results keyed by query.
+ * The hot tier holds a few live {@link QueryResult}s on the heap. Results pushed out of it are serialized with
+ * {@link QueryResultCodec} into off-heap slabs (the cold tier), where each one costs the heap only a small index
+ * entry. A cold hit is decoded, and is promoted back when it has been used more often than the hot tier's
+ * least recently used entry, which is demoted in its place. Access counts are halved periodically so old
+ * popularity fades. Results are serialized and decoded outside the cache's lock; the lock only guards the maps and
+ * the copies to and from the slabs. {@link Listener}s are told when results come in and when they leave the cache
+ * altogether, under the lock so that they see changes in order.
+ * @author Team
+ */
+@Singleton
+public class TieredQueryCache extends AbstractMap<String, QueryResult> {
+    private static final int DEFAULT_HOT_ENTRIES = 32;
+    private static final long DEFAULT_COLD_BYTES = 64L << 20;
+    private static final int DEFAULT_SLAB_BYTES = 1 << 20;
+
+    private final int hotEntries;
+    private final SlabAllocator slabs;
+    /** Both maps are in access order: the first entry is the least recently used. */
+    private final LinkedHashMap<String, Hot> hot = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Cold> cold = new LinkedHashMap<>(16, 0.75f, true);
+    /** Results out of the hot tier while they are serialized, outside the lock; still served from here. */
+    private final Map<String, Hot> demoting = new HashMap<>();
+    private int accessesSinceAging;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private final LongAdder hotHits;
+    private final LongAdder coldHits;
+    private final LongAdder misses;
+    private final LongAdder promotions;
+    private final LongAdder demotions;
+    private final LongAdder coldEvictions;
+    private final LongAdder coldRejected;
+
+    /**
+     * Constructs the cache used by the application.
+     * @param config App configuration.
+     * @param metrics the metrics registry.
+     * @author Team
+     */
+    @Inject
+    public TieredQueryCache(Config config, Metrics metrics) {
+        this(config.hasPath("newsapi.cache.hotEntries") ? config.getInt("newsapi.cache.hotEntries") : DEFAULT_HOT_ENTRIES,
+                config.hasPath("newsapi.cache.coldSize") ? config.getBytes("newsapi.cache.coldSize") : DEFAULT_COLD_BYTES,
+                config.hasPath("newsapi.cache.slabSize") ? config.getBytes("newsapi.cache.slabSize").intValue() : DEFAULT_SLAB_BYTES,
+                metrics);
+    }
+
+    /**
+     * Constructs a cache with explicit sizes.
+     * @param hotEntries number of results kept as live objects.
+     * @param coldBytes off-heap bytes for serialized results.
+     * @param slabBytes size of one off-heap slab (a power of two), also the largest result the cold tier takes.
+     * @param metrics the metrics registry.
+     * @author Team
+     */
+    public TieredQueryCache(int hotEntries, long coldBytes, int slabBytes, Metrics metrics) {
+        this.hotEntries = Math.max(1, hotEntries);
+        this.slabs = new SlabAllocator(coldBytes, slabBytes);
+        this.hotHits = metrics.counter("cache.hot.hits");
+        this.coldHits = metrics.counter("cache.cold.hits");
+        this.misses = metrics.counter("cache.misses");
+        this.promotions = metrics.counter("cache.promotions");
+        this.demotions = metrics.counter("cache.demotions");
+        this.coldEvictions = metrics.counter("cache.cold.evictions");
+        this.coldRejected = metrics.counter("cache.cold.rejected");
+        metrics.gauge("cache.hot.entries", this::hotSize);
+        metrics.gauge("cache.cold.entries", this::coldSize);
+        metrics.gauge("cache.cold.bytes.used", this::coldBytesUsed);
+        metrics.gauge("cache.cold.bytes.reserved", this::coldBytesReserved);
+    }
+
+    /**
+     * Told about the results stored in the cache and the ones that leave it (removed, cleared or evicted from
+     * the cold tier). Called under the cache's lock, in order: must be quick and must not use the cache.
+     * @author Team
+     */
+    public interface Listener {
+        /**
+         * A result was stored, replacing any previous result of that key.
+         * @param key the cache key.
+         * @param result the result.
+         */
+        void stored(String key, QueryResult result);
+
+        /**
+         * The result of a key left the cache.
+         * @param key the cache key.
+         */
+        void removed(String key);
+    }
+
+    /**
+     * Registers a listener.
+     * @param listener told about later changes only.
+     * @author Team
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public QueryResult get(Object key) {
+        Cold c;
+        byte[] bytes;
+        synchronized (this) {
+            age();
+            Hot h = hot.get(key);
+            if (h == null) h = demoting.get(key);
+            if (h != null) {
+                h.uses++;
+                hotHits.increment();
+                return h.result;
+            }
+            c = cold.get(key);
+            if (c == null) {
+                misses.increment();
+                return null;
+            }
+            c.uses++;
+            coldHits.increment();
+            bytes = copy(c);
+        }
+        QueryResult result = QueryResultCodec.decode(ByteBuffer.wrap(bytes));
+        List<Map.Entry<String, Hot>> demoted;
+        synchronized (this) {
+            // still the same cold entry, and more popular than the coldest live entry: swap them
+            if (cold.get(key) != c || (hot.size() >= hotEntries && c.uses <= eldestHot().getValue().uses)) return result;
+            removeCold((String) key, c);
+            hot.put((String) key, new Hot(result, c.uses));
+            promotions.increment();
+            demoted = trimHot();
+        }
+        demote(demoted);
+        return result;
+    }
+
+    /**
+     * Stores a result.
+     * @param key the cache key.
+     * @param value the result.
+     * @return the previous live result of the key, or null when there was none or it was serialized (it is not decoded).
+     * @author Team
+     */
+    @Override
+    public QueryResult put(String key, QueryResult value) {
+        QueryResult previous;
+        List<Map.Entry<String, Hot>> demoted;
+        synchronized (this) {
+            Hot previousHot = hot.get(key);
+            if (previousHot == null) previousHot = demoting.remove(key);
+            Cold previousCold = cold.get(key);
+            previous = previousHot != null ? previousHot.result : null;
+            int uses = previousHot != null ? previousHot.uses : previousCold != null ? previousCold.uses : 0;
+            if (previousCold != null) removeCold(key, previousCold);
+            hot.put(key, new Hot(value, uses + 1));
+            for (Listener l : listeners) l.stored(key, value);
+            demoted = trimHot();
+        }
+        demote(demoted);
+        return previous;
+    }
+
+    @Override
+    public QueryResult remove(Object key) {
+        byte[] bytes;
+        synchronized (this) {
+            Hot h = hot.remove(key);
+            if (h == null) h = demoting.remove(key);
+            if (h != null) {
+                removed((String) key);
+                return h.result;
+            }
+            Cold c = cold.get(key);
+            if (c == null) return null;
+            bytes = copy(c);
+            removeCold((String) key, c);
+            removed((String) key);
+        }
+        return QueryResultCodec.decode(ByteBuffer.wrap(bytes));
+    }
+
+    @Override
+    public synchronized boolean containsKey(Object key) {
+        return hot.containsKey(key) || demoting.containsKey(key) || cold.containsKey(key);
+    }
+
+    @Override
+    public synchronized int size() {
+        return hot.size() + demoting.size() + cold.size();
+    }
+
+    @Override
+    public synchronized void clear() {
+        if (!listeners.isEmpty()) {
+            List<String> keys = new ArrayList<>(hot.keySet());
+            keys.addAll(demoting.keySet());
+            keys.addAll(cold.keySet());
+            keys.forEach(this::removed);
+        }
+        hot.clear();
+        demoting.clear();
+        cold.clear();
+        slabs.clear();
+    }
+
+    /**
+     * Gets a snapshot of the keys, without decoding anything. Changes to the returned set do not affect the cache.
+     * @return the keys of the cached results.
+     * @author Team
+     */
+    @Override
+    public synchronized Set<String> keySet() {
+        Set<String> keys = new LinkedHashSet<>(hot.keySet());
+        keys.addAll(demoting.keySet());
+        keys.addAll(cold.keySet());
+        return keys;
+    }
+
+    /**
+     * Gets a snapshot of every entry, decoding the cold ones (hot entries first). Changes to the returned set
+     * do not affect the cache.
+     * @return the entries.
+     * @author Team
+     */
+    @Override
+    public Set<Map.Entry<String, QueryResult>> entrySet() {
+        Set<Map.Entry<String, QueryResult>> entries = new LinkedHashSet<>();
+        Map<String, byte[]> serialized = new LinkedHashMap<>();
+        synchronized (this) {
+            hot.forEach((key, h) -> entries.add(new SimpleImmutableEntry<>(key, h.result)));
+            demoting.forEach((key, h) -> entries.add(new SimpleImmutableEntry<>(key, h.result)));
+            cold.forEach((key, c) -> serialized.put(key, copy(c)));
+        }
+        serialized.forEach((key, bytes) -> entries.add(new SimpleImmutableEntry<>(key, QueryResultCodec.decode(ByteBuffer.wrap(bytes)))));
+        return entries;
+    }
+
+    /**
+     * Gets the number of live results.
+     * @return the hot tier size.
+     * @author Team
+     */
+    public synchronized int hotSize() {
+        return hot.size();
+    }
+
+    /**
+     * Gets the number of serialized results.
+     * @return the cold tier size.
+     * @author Team
+     */
+    public synchronized int coldSize() {
+        return cold.size();
+    }
+
+    /**
+     * Gets the off-heap bytes taken by serialized results (rounded up to their chunk size).
+     * @return the used bytes.
+     * @author Team
+     */
+    public synchronized long coldBytesUsed() {
+        return slabs.usedBytes();
+    }
+
+    /**
+     * Gets the off-heap bytes allocated so far.
+     * @return the reserved bytes.
+     * @author Team
+     */
+    public synchronized long coldBytesReserved() {
+        return slabs.reservedBytes();
+    }
+
+    private Map.Entry<String, Hot> eldestHot() {
+        return hot.entrySet().iterator().next();
+    }
+
+    /** Takes least recently used live results out of the hot tier until it fits; they are demoted after the lock is released. */
+    private List<Map.Entry<String, Hot>> trimHot() {
+        List<Map.Entry<String, Hot>> demoted = new ArrayList<>();
+        while (hot.size() > hotEntries) {
+            Map.Entry<String, Hot> eldest = eldestHot();
+            hot.remove(eldest.getKey());
+            demoting.put(eldest.getKey(), eldest.getValue());
+            demoted.add(eldest);
+        }
+        return demoted;
+    }
+
+    /** Serializes results taken out of the hot tier, outside the lock, then moves them to the cold tier. */
+    private void demote(List<Map.Entry<String, Hot>> demoted) {
+        for (Map.Entry<String, Hot> e : demoted) {
+            byte[] bytes = QueryResultCodec.encode(e.getValue().result);
+            synchronized (this) {
+                store(e.getKey(), e.getValue(), bytes);
+            }
+        }
+    }
+
+    private void store(String key, Hot h, byte[] bytes) {
+        if (demoting.get(key) != h) return; // stored again or removed while it was being serialized
+        demoting.remove(key);
+        long chunk = slabs.allocate(bytes.length);
+        if (chunk < 0) {
+            // make room by evicting older results of the same size class
+            int cls = SlabAllocator.sizeClass(bytes.length);
+            chunk = evict(bytes.length, c -> SlabAllocator.sizeClass(c.length) == cls);
+        }
+        if (chunk < 0) {
+            // result sizes have shifted: evict the oldest of any size until one of their slabs is empty again
+            chunk = evict(bytes.length, c -> true);
+        }
+        if (chunk < 0) {
+            coldRejected.increment();
+            removed(key);
+            return;
+        }
+        slabs.write(chunk, bytes);
+        cold.put(key, new Cold(chunk, bytes.length, h.uses));
+        demotions.increment();
+    }
+
+    /** Evicts matching cold results, least recently used first, until a chunk of the given size can be allocated. */
+    private long evict(int length, Predicate<Cold> victims) {
+        long chunk = -1;
+        Iterator<Map.Entry<String, Cold>> it = cold.entrySet().iterator();
+        while (chunk < 0 && it.hasNext()) {
+            Map.Entry<String, Cold> e = it.next();
+            Cold victim = e.getValue();
+            if (!victims.test(victim)) continue;
+            it.remove();
+            slabs.free(victim.chunk, victim.length);
+            coldEvictions.increment();
+            removed(e.getKey());
+            chunk = slabs.allocate(length);
+        }
+        return chunk;
+    }
+
+    /** Copies a serialized result to the heap, so that it can be decoded without holding the lock. */
+    private byte[] copy(Cold c) {
+        byte[] bytes = new byte[c.length];
+        slabs.read(c.chunk, c.length).get(bytes);
+        return bytes;
+    }
+
+    private void removed(String key) {
+        for (Listener l : listeners) l.removed(key);
+    }
+
+    private void removeCold(String key, Cold c) {
+        cold.remove(key);
+        slabs.free(c.chunk, c.length);
+    }
+
+    /** Halves every access count once per pass over the cache's capacity. */
+    private void age() {
+        if (++accessesSinceAging < 8 * (hotEntries + cold.size())) return;
+        accessesSinceAging = 0;
+        hot.values().forEach(h -> h.uses >>= 1);
+        cold.values().forEach(c -> c.uses >>= 1);
+    }
+
+    /** A live result and how often it was used. */
+    private static final class Hot {
+        final QueryResult result;
+        int uses;
+
+        Hot(QueryResult result, int uses) {
+            this.result = result;
+            this.uses = uses;
+        }
+    }
+
+    /** Where a serialized result lives off-heap and how often it was used. */
+    private static final class Cold {
+        final long chunk;
+        final int length;
+        int uses;
+
+        Cold(long chunk, int length, int uses) {
+            this.chunk = chunk;
+            this.length = length;
+            this.uses = uses;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package Services;
+
+import models.Article;
+import models.Statistics;
+import play.inject.ApplicationLifecycle;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Global "trending now" view over every article fetched by every user.
+ * Each sliding window is a ring of time buckets holding a Count-Min Sketch and a Space-Saving summary,
+ * so memory stays fixed whatever the vocabulary size.
+ * Ingest only appends to a lock-free queue; a single writer thread folds batches into the sketches and
+ * publishes immutable top-K snapshots that readers pick up with a volatile read.
+ * @author Team
+ */
+@Singleton
+public class TrendingTerms {
+    /** Window names accepted by {@link #top(String)}, shortest first. */
+    public static final List<String> WINDOWS = List.of("15m", "1h", "24h");
+
+    private static final int SKETCH_DEPTH = 4;
+    private static final int SKETCH_WIDTH = 1024;
+    private static final int CANDIDATES_PER_BUCKET = 64;
+    private static final int TOP_K = 20;
+    private static final int MAX_PENDING = 10_000;
+
+    private final LongSupplier clock;
+    private final Executor writer;
+    private final Window[] windows = {
+            new Window("15m", 60_000L, 15),
+            new Window("1h", 5 * 60_000L, 12),
+            new Window("24h", 60 * 60_000L, 24)
+    };
+
+    private final ConcurrentLinkedQueue<Batch> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingSize = new AtomicInteger();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private volatile Map<String, Map<String, Long>> snapshot = Collections.emptyMap();
+    private volatile long snapshotMinute = -1;
+
+    /**
+     * Constructs the service used by the application, with its writer thread stopped on shutdown.
+     * @param lifecycle the Play application lifecycle.
+     * @author Team
+     */
+    @Inject
+    public TrendingTerms(ApplicationLifecycle lifecycle) {
+        this();
+        lifecycle.addStopHook(() -> {
+            ((ExecutorService) writer).shutdownNow();
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    /**
+     * Constructs a standalone instance with its own writer thread and the system clock.
+     * @author Team
+     */
+    public TrendingTerms() {
+        this(System::currentTimeMillis, Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "trending-terms-writer");
+            t.setDaemon(true);
+            return t;
+        }));
+    }
+
+    /**
+     * Constructs an instance with an explicit clock and writer (used by tests).
+     * @param clock supplies the current time in epoch milliseconds.
+     * @param writer executes drain tasks; must not run two tasks concurrently.
+     * @author Team
+     */
+    public TrendingTerms(LongSupplier clock, Executor writer) {
+        this.clock = clock;
+        this.writer = writer;
+    }
+
+    /**
+     * Queues fetched articles for counting. Never blocks: when the writer falls behind the batch is dropped.
+     * @param articles the articles returned by an upstream call.
+     * @author Team
+     */
+    public void record(List<Article> articles) {
+        if (articles == null || articles.isEmpty()) return;
+        if (pendingSize.incrementAndGet() > MAX_PENDING) {
+            pendingSize.decrementAndGet();
+            dropped.incrementAndGet();
+            return;
+        }
+        pending.add(new Batch(clock.getAsLong(), articles));
+        scheduleDrain();
+    }
+
+    /**
+     * Gets the current top terms of a window.
+     * @param window one of {@link #WINDOWS}.
+     * @return an ordered map of term to estimated count, or null for an unknown window.
+     * @author Team
+     */
+    public Map<String, Long> top(String window) {
+        if (!WINDOWS.contains(window)) return null;
+        if (snapshotMinute != clock.getAsLong() / 60_000L) scheduleDrain(); // buckets rolled over, republish
+        return snapshot.getOrDefault(window, Collections.emptyMap());
+    }
+
+    /**
+     * Gets the number of article batches dropped because the writer was behind.
+     * @return the dropped batch count.
+     * @author Team
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            writer.execute(this::drain);
+        }
+    }
+
+    /** Runs on the writer only: folds pending batches into every window and republishes the snapshot. */
+    private void drain() {
+        try {
+            Batch batch;
+            while ((batch = pending.poll()) != null) {
+                pendingSize.decrementAndGet();
+                List<String> words = Statistics.filtering(Statistics.getWords(texts(batch.articles)));
+                for (Window w : windows) w.add(batch.time, words);
+            }
+            long now = clock.getAsLong();
+            Map<String, Map<String, Long>> next = new LinkedHashMap<>();
+            for (Window w : windows) next.put(w.name, Collections.unmodifiableMap(w.top(now, TOP_K)));
+            snapshot = Collections.unmodifiableMap(next);
+            snapshotMinute = now / 60_000L;
+        } finally {
+            draining.set(false);
+        }
+        if (!pending.isEmpty()) scheduleDrain();
+    }
+
+    private static List<String> texts(List<Article> articles) {
+        List<String> texts = new ArrayList<>(articles.size() * 2);
+        for (Article a : articles) {
+            if (a.getTitle() != null) texts.add(a.getTitle());
+            if (a.getDescription() != null) texts.add(a.getDescription());
+        }
+        return texts;
+    }
+
+    /** An ingested group of articles and the time it was fetched. */
+    private static final class Batch {
+        final long time;
+        final List<Article> articles;
+
+        Batch(long time, List<Article> articles) {
+            this.time = time;
+            this.articles = articles;
+        }
+    }
+
+    /** A sliding window made of a fixed ring of time buckets. */
+    private static final class Window {
+        final String name;
+        final long bucketMillis;
+        final Bucket[] ring;
+
+        Window(String name, long bucketMillis, int buckets) {
+            this.name = name;
+            this.bucketMillis = bucketMillis;
+            this.ring = new Bucket[buckets];
+            for (int i = 0; i < buckets; i++) ring[i] = new Bucket();
+        }
+
+        void add(long time, List<String> words) {
+            long epoch = time / bucketMillis;
+            Bucket b = ring[(int) (epoch % ring.length)];
+            if (b.epoch != epoch) {
+                if (b.epoch > epoch) return; // older than the window
+                b.reset(epoch);
+            }
+            for (String word : words) {
+                b.sketch.add(word, 1);
+                b.heavy.add(word, 1);
+            }
+        }
+
+        Map<String, Long> top(long now, int k) {
+            long current = now / bucketMillis;
+            List<Bucket> live = new ArrayList<>(ring.length);
+            Set<String> candidates = new HashSet<>();
+            for (Bucket b : ring) {
+                if (b.epoch > current - ring.length && b.epoch <= current) {
+                    live.add(b);
+                    candidates.addAll(b.heavy.candidates());
+                }
+            }
+            SpaceSaving merged = new SpaceSaving(Math.max(k, candidates.size()));
+            for (String term : candidates) {
+                long estimate = 0;
+                for (Bucket b : live) estimate += b.sketch.estimate(term);
+                merged.add(term, estimate);
+            }
+            return merged.top(k);
+        }
+    }
+
+    /** One time slice of a window. */
+    private static final class Bucket {
+        long epoch = Long.MIN_VALUE;
+        final CountMinSketch sketch = new CountMinSketch(SKETCH_DEPTH, SKETCH_WIDTH);
+        final SpaceSaving heavy = new SpaceSaving(CANDIDATES_PER_BUCKET);
+
+        void reset(long epoch) {
+            this.epoch = epoch;
+            sketch.clear();
+            heavy.clear();
+        }
+    }
+}
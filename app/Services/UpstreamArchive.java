@@ -0,0 +1,315 @@
+package Services;
+
+import com.typesafe.config.Config;
+import play.inject.ApplicationLifecycle;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * On-disk archive of raw NewsAPI response bodies, keyed by the request URL without its API key.
+ * <ul>
+ *     <li>{@code record}: every successful upstream response is appended to the archive.</li>
+ *     <li>{@code replay}: responses are served from the archive and NewsAPI is never called (a request that was
+ *     not recorded gets no articles), for deterministic performance tests, offline demos and cache priming.
+ *     A directory without an archive replays as an empty one.</li>
+ * </ul>
+ * The archive is two append-only files: {@code responses.dat} holds the records ({@code magic, key, body}) and
+ * {@code responses.idx} the offset of each record, so opening it only reads the index. Records found after the
+ * last indexed one (the app stopped between the two writes) are indexed again, and a record cut short is dropped.
+ * Replayed bodies are read straight from a read-only mapping of the data file, without copying them: in replay mode
+ * the file is mapped once, in segments, and each body is a slice of its segment. Refreshes that only ask for articles
+ * newer than a date ({@code from=}) are not recorded, their URL never comes back.
+ * @author Team
+ */
+@Singleton
+public class UpstreamArchive {
+    /** What the archive does. */
+    public enum Mode { OFF, RECORD, REPLAY }
+
+    private static final int MAGIC = 0x4E4C5231; // "NLR1"
+    /** Distance between the starts of two mapped segments; each maps up to 2GB, so a body up to 1GB fits in one. */
+    private static final long SEGMENT = 1L << 30;
+
+    private final Mode mode;
+    private final Executor writer;
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+    private FileChannel data;
+    private FileChannel indexFile;
+    /** The data file mapped in replay mode, segment i starting at i * SEGMENT. */
+    private ByteBuffer[] segments = new ByteBuffer[0];
+    private final LongAdder recorded;
+    private final LongAdder recordedBytes;
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    /**
+     * Constructs the archive used by the application; recordings are written on the blocking pool.
+     * @param config App configuration ({@code newsapi.archive.mode} and {@code newsapi.archive.path}).
+     * @param metrics the metrics registry.
+     * @param pools the application thread pools.
+     * @param lifecycle the Play application lifecycle.
+     * @author Team
+     */
+    @Inject
+    public UpstreamArchive(Config config, Metrics metrics, ExecutionPools pools, ApplicationLifecycle lifecycle) {
+        this(config.hasPath("newsapi.archive.mode") ? Mode.valueOf(config.getString("newsapi.archive.mode").toUpperCase(Locale.ROOT)) : Mode.OFF,
+                Paths.get(config.hasPath("newsapi.archive.path") ? config.getString("newsapi.archive.path") : "archive"),
+                metrics, pools.blocking());
+        lifecycle.addStopHook(() -> {
+            close();
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    /**
+     * Constructs an archive in the given mode.
+     * @param mode what the archive does.
+     * @param directory where the archive files are kept (created when recording).
+     * @param metrics the metrics registry.
+     * @param writer runs the appends of recorded responses.
+     * @author Team
+     */
+    public UpstreamArchive(Mode mode, Path directory, Metrics metrics, Executor writer) {
+        this.mode = mode;
+        this.writer = writer;
+        this.recorded = metrics.counter("archive.recorded");
+        this.recordedBytes = metrics.counter("archive.recorded.bytes");
+        this.hits = metrics.counter("archive.replay.hits");
+        this.misses = metrics.counter("archive.replay.misses");
+        metrics.gauge("archive.entries", index::size);
+        if (mode != Mode.OFF) open(directory);
+    }
+
+    /**
+     * Constructs a disabled archive (used by tests).
+     * @author Team
+     */
+    public UpstreamArchive() {
+        this(Mode.OFF, null, new Metrics(), Runnable::run);
+    }
+
+    /**
+     * Gets the archive mode.
+     * @return off, record or replay.
+     * @author Team
+     */
+    public Mode mode() {
+        return mode;
+    }
+
+    /**
+     * Normalizes a request URL into an archive key: the API key is dropped and the parameters sorted.
+     * @param url a NewsAPI request URL.
+     * @return the key.
+     * @author Team
+     */
+    public static String key(String url) {
+        int q = url.indexOf('?');
+        String base = (q < 0 ? url : url.substring(0, q)).toLowerCase(Locale.ROOT);
+        if (q < 0) return base;
+        String[] params = Arrays.stream(url.substring(q + 1).split("&"))
+                .filter(p -> !p.isEmpty() && !p.startsWith("apiKey="))
+                .sorted()
+                .toArray(String[]::new);
+        return base + "?" + String.join("&", params);
+    }
+
+    /**
+     * Appends a response body to the archive, in the background; later recordings of a URL replace earlier ones.
+     * @param url the request URL.
+     * @param body the raw response body.
+     * @author Team
+     */
+    public void record(String url, byte[] body) {
+        if (mode != Mode.RECORD || isDelta(url)) return;
+        String key = key(url);
+        writer.execute(() -> append(key, body));
+    }
+
+    /**
+     * Reads a recorded response body without copying it.
+     * @param url the request URL.
+     * @return a read-only buffer over the recorded body, empty when the URL was not recorded.
+     * @author Team
+     */
+    public Optional<ByteBuffer> replay(String url) {
+        Entry e = index.get(key(url));
+        if (e == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        int segment = (int) (e.bodyOffset / SEGMENT);
+        if (segment < segments.length) {
+            ByteBuffer body = segments[segment].duplicate();
+            int start = (int) (e.bodyOffset - segment * SEGMENT);
+            if (start + e.bodyLength <= body.capacity()) {
+                body.position(start).limit(start + e.bodyLength);
+                return Optional.of(body.slice());
+            }
+        }
+        try {
+            // recording, or a body too large for one segment
+            return Optional.of(data.map(FileChannel.MapMode.READ_ONLY, e.bodyOffset, e.bodyLength));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Gets the keys of every recorded response.
+     * @return the recorded keys.
+     * @author Team
+     */
+    public Set<String> keys() {
+        return index.keySet();
+    }
+
+    /**
+     * Closes the archive files.
+     * @author Team
+     */
+    public synchronized void close() {
+        try {
+            if (data != null) data.close();
+            if (indexFile != null) indexFile.close();
+        } catch (IOException e) {
+            // closing on shutdown, nothing left to do
+        }
+    }
+
+    private synchronized void append(String key, byte[] body) {
+        try {
+            byte[] k = key.getBytes(StandardCharsets.UTF_8);
+            long offset = data.size();
+            ByteBuffer record = ByteBuffer.allocate(12 + k.length + body.length);
+            record.putInt(MAGIC).putInt(k.length).put(k).putInt(body.length).put(body).flip();
+            while (record.hasRemaining()) data.write(record, offset + record.position());
+            ByteBuffer entry = ByteBuffer.allocate(12).putLong(offset).putInt(record.limit()).flip();
+            while (entry.hasRemaining()) indexFile.write(entry, indexFile.size());
+            index.put(key, new Entry(offset + 12 + k.length, body.length));
+            recorded.increment();
+            recordedBytes.add(body.length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private synchronized void open(Path directory) {
+        try {
+            if (mode == Mode.RECORD) Files.createDirectories(directory);
+            List<StandardOpenOption> options = mode == Mode.RECORD
+                    ? List.of(StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                    : List.of(StandardOpenOption.READ);
+            Path dataPath = directory.resolve("responses.dat");
+            Path indexPath = directory.resolve("responses.idx");
+            if (mode == Mode.REPLAY && !Files.exists(dataPath)) return; // nothing recorded: every request misses
+            data = FileChannel.open(dataPath, options.toArray(StandardOpenOption[]::new));
+            indexFile = Files.exists(indexPath) || mode == Mode.RECORD ? FileChannel.open(indexPath, options.toArray(StandardOpenOption[]::new)) : null;
+            load();
+            if (mode == Mode.REPLAY) segments = map();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Reads the index, then indexes (or drops) whatever the data file holds after the last indexed record. */
+    private void load() throws IOException {
+        long next = 0;
+        if (indexFile != null) {
+            long entries = indexFile.size() / 12;
+            ByteBuffer all = indexFile.map(FileChannel.MapMode.READ_ONLY, 0, entries * 12);
+            for (long i = 0; i < entries; i++) {
+                long offset = all.getLong();
+                int length = all.getInt();
+                if (offset + length > data.size()) break;
+                readRecord(offset);
+                next = offset + length;
+            }
+            if (mode == Mode.RECORD) indexFile.truncate((indexFile.size() / 12) * 12);
+        }
+        long size = data.size();
+        while (next < size) {
+            long length = readRecord(next);
+            if (length < 0) {
+                if (mode == Mode.RECORD) data.truncate(next); // cut short by a crash
+                break;
+            }
+            if (mode == Mode.RECORD) {
+                ByteBuffer entry = ByteBuffer.allocate(12).putLong(next).putInt((int) length).flip();
+                indexFile.write(entry, indexFile.size());
+            }
+            next += length;
+        }
+    }
+
+    /** Maps the whole data file, read-only, for replay. */
+    private ByteBuffer[] map() throws IOException {
+        long size = data.size();
+        ByteBuffer[] mapped = new ByteBuffer[(int) ((size + SEGMENT - 1) / SEGMENT)];
+        for (int i = 0; i < mapped.length; i++) {
+            long start = i * SEGMENT;
+            mapped[i] = data.map(FileChannel.MapMode.READ_ONLY, start, Math.min(size - start, Integer.MAX_VALUE));
+        }
+        return mapped;
+    }
+
+    /** Tells whether a request only asks for articles newer than a date, see HomeController. */
+    private static boolean isDelta(String url) {
+        int q = url.indexOf('?');
+        return q >= 0 && ("&" + url.substring(q + 1)).contains("&from=");
+    }
+
+    /** Indexes the record at an offset; returns its length, or -1 when it is incomplete or corrupt. */
+    private long readRecord(long offset) throws IOException {
+        long size = data.size();
+        if (offset + 8 > size) return -1;
+        ByteBuffer header = ByteBuffer.allocate(8);
+        data.read(header, offset);
+        header.flip();
+        if (header.getInt() != MAGIC) return -1;
+        int keyLength = header.getInt();
+        if (keyLength < 0 || offset + 12 + keyLength > size) return -1;
+        ByteBuffer key = ByteBuffer.allocate(keyLength + 4);
+        data.read(key, offset + 8);
+        key.flip();
+        byte[] k = new byte[keyLength];
+        key.get(k);
+        int bodyLength = key.getInt();
+        long bodyOffset = offset + 12 + keyLength;
+        if (bodyLength < 0 || bodyOffset + bodyLength > size) return -1;
+        index.put(new String(k, StandardCharsets.UTF_8), new Entry(bodyOffset, bodyLength));
+        return 12L + keyLength + bodyLength;
+    }
+
+    /** Where a recorded body is in the data file. */
+    private static final class Entry {
+        final long bodyOffset;
+        final int bodyLength;
+
+        Entry(long bodyOffset, int bodyLength) {
+            this.bodyOffset = bodyOffset;
+            this.bodyLength = bodyLength;
+        }
+    }
+}
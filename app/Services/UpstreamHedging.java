@@ -0,0 +1,189 @@
+package Services;
+
+import com.typesafe.config.Config;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Latency-aware policy for upstream NewsAPI calls.
+ * Timeouts follow the p99 of a rolling latency histogram instead of a fixed value, and when a call is still
+ * running after the p95 a second (hedged) request is fired; the first successful response wins. The other
+ * attempt cannot be aborted: it runs to its own end and its response is dropped. Hedges are paid for from a global budget so they never exceed a fraction of all requests.
+ * @author Team
+ */
+@Singleton
+public class UpstreamHedging {
+    private static final long BUDGET_UNIT = 1_000L; // one hedge, in milli-tokens
+    private static final long BUDGET_CAP = 10 * BUDGET_UNIT;
+
+    private final LatencyHistogram latencies = new LatencyHistogram(512, 20);
+    private final boolean enabled;
+    private final long minTimeoutMillis;
+    private final long maxTimeoutMillis;
+    private final long budgetPerRequest;
+    private final AtomicLong budget = new AtomicLong();
+
+    private final LongAdder requests;
+    private final LongAdder hedges;
+    private final LongAdder hedgeWins;
+    private final LongAdder primaryWins;
+    private final LongAdder denied;
+
+    /**
+     * Constructs the policy from configuration.
+     * @param config App configuration.
+     * @param metrics the metrics registry.
+     * @author Team
+     */
+    @Inject
+    public UpstreamHedging(Config config, Metrics metrics) {
+        this.enabled = !config.hasPath("newsapi.hedging.enabled") || config.getBoolean("newsapi.hedging.enabled");
+        this.minTimeoutMillis = millis(config, "newsapi.timeout.min", Duration.ofMillis(500));
+        this.maxTimeoutMillis = millis(config, "newsapi.timeout.max", Duration.ofSeconds(5));
+        double ratio = config.hasPath("newsapi.hedging.budget") ? config.getDouble("newsapi.hedging.budget") : 0.05;
+        this.budgetPerRequest = Math.round(ratio * BUDGET_UNIT);
+
+        this.requests = metrics.counter("upstream.requests");
+        this.hedges = metrics.counter("upstream.hedges");
+        this.hedgeWins = metrics.counter("upstream.hedges.won");
+        this.primaryWins = metrics.counter("upstream.hedges.lost");
+        this.denied = metrics.counter("upstream.hedges.denied");
+        metrics.gauge("upstream.latency.p95.ms", latencies::p95);
+        metrics.gauge("upstream.latency.p99.ms", latencies::p99);
+        metrics.gauge("upstream.timeout.ms", () -> timeout().toMillis());
+    }
+
+    /**
+     * Gets the request timeout to use now: twice the recent p99, within the configured bounds.
+     * @return the timeout (the configured maximum until enough latencies are known).
+     * @author Team
+     */
+    public Duration timeout() {
+        long p99 = latencies.p99();
+        if (p99 < 0) return Duration.ofMillis(maxTimeoutMillis);
+        return Duration.ofMillis(Math.max(minTimeoutMillis, Math.min(maxTimeoutMillis, 2 * p99)));
+    }
+
+    /**
+     * Runs an upstream call, hedging it once the recent p95 latency is exceeded.
+     * @param call starts one attempt of the call; invoked a second time for the hedge.
+     * @param <T> the response type.
+     * @return the first successful attempt, or the last failure when every attempt fails.
+     * @author Team
+     */
+    public <T> CompletionStage<T> execute(Supplier<CompletionStage<T>> call) {
+        return execute(call, value -> true);
+    }
+
+    /**
+     * Runs an upstream call, hedging it once the recent p95 latency is exceeded. Responses that are not usable
+     * (e.g. 429 or 5xx) never win: they count as failed attempts, and are only returned when no attempt succeeds.
+     * @param call starts one attempt of the call; invoked a second time for the hedge.
+     * @param usable tells whether a response is a success.
+     * @param <T> the response type.
+     * @return the first usable response, else the last unusable one, else the last failure.
+     * @author Team
+     */
+    public <T> CompletionStage<T> execute(Supplier<CompletionStage<T>> call, Predicate<T> usable) {
+        requests.increment();
+        budget.accumulateAndGet(budgetPerRequest, (current, add) -> Math.min(BUDGET_CAP, current + add));
+
+        CompletableFuture<T> primary = timed(call);
+        long delay = latencies.p95();
+        if (!enabled || delay < 0 || primary.isDone()) return primary;
+
+        Attempts<T> attempts = new Attempts<>(usable);
+        primary.whenComplete(settle(attempts, false));
+
+        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() -> {
+            if (attempts.result.isDone()) return;
+            if (!tryAcquireHedge()) {
+                denied.increment();
+                return;
+            }
+            // Only hedge while the primary is still running: once it has won or failed, the call is settled
+            if (attempts.state.getAndUpdate(n -> n > 0 ? (n + 1) | Attempts.HEDGED : n) == 0) return;
+            hedges.increment();
+            timed(call).whenComplete(settle(attempts, true));
+        });
+        return attempts.result;
+    }
+
+    private <T> BiConsumer<T, Throwable> settle(Attempts<T> attempts, boolean isHedge) {
+        return (value, ex) -> {
+            if (ex == null && attempts.usable.test(value)) {
+                // exactly one attempt wins, even when both finish together, and no hedge starts after it
+                int before = attempts.state.getAndSet(0);
+                if (before == 0) return;
+                if ((before & Attempts.HEDGED) != 0) (isHedge ? hedgeWins : primaryWins).increment(); // counted before callers see the result
+                attempts.result.complete(value);
+                return;
+            }
+            if (ex == null) attempts.unusable.set(value);
+            if ((attempts.state.updateAndGet(n -> n == 0 ? 0 : n - 1) & ~Attempts.HEDGED) > 0) return;
+            T fallback = attempts.unusable.get();
+            if (fallback != null) attempts.result.complete(fallback);
+            else attempts.result.completeExceptionally(ex);
+        };
+    }
+
+    private <T> CompletableFuture<T> timed(Supplier<CompletionStage<T>> call) {
+        long start = System.nanoTime();
+        long timeout = timeout().toMillis();
+        CompletableFuture<T> attempt = call.get().toCompletableFuture();
+        attempt.whenComplete((value, ex) -> {
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            // failures count too: a timed-out attempt took at least the timeout, so the timeout can grow back
+            latencies.record(isTimeout(ex) ? Math.max(elapsed, timeout) : elapsed);
+        });
+        return attempt;
+    }
+
+    private static boolean isTimeout(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TimeoutException) return true;
+        }
+        return false;
+    }
+
+    private boolean tryAcquireHedge() {
+        long current;
+        do {
+            current = budget.get();
+            if (current < BUDGET_UNIT) return false;
+        } while (!budget.compareAndSet(current, current - BUDGET_UNIT));
+        return true;
+    }
+
+    private static long millis(Config config, String path, Duration fallback) {
+        return (config.hasPath(path) ? config.getDuration(path) : fallback).toMillis();
+    }
+
+    /** The state shared by the attempts of one hedged call. */
+    private static final class Attempts<T> {
+        final Predicate<T> usable;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        /** Set in {@link #state} once the hedge is sent, in the same update as its attempt is counted. */
+        static final int HEDGED = 1 << 16;
+        /** Attempts still running, plus {@link #HEDGED}; 0 once one has won. */
+        final AtomicInteger state = new AtomicInteger(1);
+        final AtomicReference<T> unusable = new AtomicReference<>();
+
+        Attempts(Predicate<T> usable) {
+            this.usable = usable;
+        }
+    }
+}
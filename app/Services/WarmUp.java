@@ -0,0 +1,246 @@
+package Services;
+
+import com.typesafe.config.Config;
+import controllers.HomeController;
+import models.Article;
+import models.DisplayTime;
+import models.PhraseStatistics;
+import models.QueryResult;
+import models.QueryResultCodec;
+import models.Statistics;
+import models.StopWords;
+import play.inject.ApplicationLifecycle;
+import play.mvc.Http;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Warms a new instance up before it reports ready (see {@code /ready}), so the load balancer does not send traffic
+ * to an empty cache and interpreted code. At boot, on a background thread:
+ * <ol>
+ *     <li>the {@code warmup.queries} and the most popular searches saved by the previous run (in
+ *     {@code warmup.snapshot}) are searched, filling the cache; these searches are marked
+ *     ({@link HomeController#WARM_UP}) so they are not suggested, logged or counted as trending terms;</li>
+ *     <li>the analysis and render paths (readability, word and phrase statistics, duplicate collapsing, cache
+ *     encoding, the results page) run on fixture articles, round after round, until the JIT compiler has had
+ *     nothing left to compile for {@value #SETTLED_ROUNDS} rounds or {@code warmup.maxDuration} is up.</li>
+ * </ol>
+ * Progress (0 to 1), duration and readiness are published as {@code warmup.*} metrics.
+ * @author Team
+ */
+@Singleton
+public class WarmUp {
+    /** Rounds in a row with (almost) no JIT compilation after which compilation is considered settled. */
+    static final int SETTLED_ROUNDS = 3;
+    private static final int MIN_ROUNDS = 5;
+    private static final long SETTLED_COMPILE_MILLIS = 5;
+    private static final int ITERATIONS_PER_ROUND = 50;
+
+    private final List<String> queries;
+    private final Function<String, CompletionStage<Boolean>> search;
+    private final Duration queryTimeout;
+    private final Duration maxDuration;
+    private final List<Article> fixture = fixture(40);
+
+    private volatile boolean ready;
+    private volatile double progress;
+    private volatile long durationMillis;
+    private final AtomicInteger rounds = new AtomicInteger();
+    private final LongAdder searched;
+    private final LongAdder failed;
+
+    /**
+     * Constructs the warm-up used by the application and starts it (bound eagerly, see {@code Module}).
+     * @param config App configuration.
+     * @param metrics the metrics registry.
+     * @param lifecycle the Play application lifecycle; the popular searches are saved on stop.
+     * @param controller the search controller, warmed through its real search path.
+     * @param suggestions the popular searches, saved for the next start.
+     * @author Team
+     */
+    @Inject
+    public WarmUp(Config config, Metrics metrics, ApplicationLifecycle lifecycle, HomeController controller, QuerySuggestions suggestions) {
+        this(queries(config), query -> controller.search(new Http.RequestBuilder()
+                        .uri("/search?SearchInput=" + URLEncoder.encode(query, StandardCharsets.UTF_8))
+                        .attr(HomeController.WARM_UP, true).build())
+                        .thenApply(result -> result.status() == 200),
+                config.hasPath("warmup.queryTimeout") ? config.getDuration("warmup.queryTimeout") : Duration.ofSeconds(10),
+                config.hasPath("warmup.maxDuration") ? config.getDuration("warmup.maxDuration") : Duration.ofSeconds(30),
+                metrics);
+        Path snapshot = snapshot(config);
+        lifecycle.addStopHook(() -> {
+            try {
+                Files.write(snapshot, suggestions.suggest("", QuerySuggestions.TOP_K));
+            } catch (IOException ignored) {
+                // the next start only warms the configured queries
+            }
+            return CompletableFuture.completedFuture(null);
+        });
+        if (!config.hasPath("warmup.enabled") || config.getBoolean("warmup.enabled")) {
+            Thread t = new Thread(this::run, "warm-up");
+            t.setDaemon(true);
+            t.start();
+        } else {
+            ready = true;
+            progress = 1;
+        }
+    }
+
+    /**
+     * Constructs a warm-up that does not start by itself (used by tests): call {@link #run()}.
+     * @param queries the searches to make.
+     * @param search makes one search, completing with whether it succeeded.
+     * @param queryTimeout how long to wait for one search.
+     * @param maxDuration the longest the analysis and render warm-up may run.
+     * @param metrics the metrics registry.
+     * @author Team
+     */
+    public WarmUp(List<String> queries, Function<String, CompletionStage<Boolean>> search, Duration queryTimeout, Duration maxDuration,
+                  Metrics metrics) {
+        this.queries = queries;
+        this.search = search;
+        this.queryTimeout = queryTimeout;
+        this.maxDuration = maxDuration;
+        this.searched = metrics.counter("warmup.queries.searched");
+        this.failed = metrics.counter("warmup.queries.failed");
+        metrics.gauge("warmup.ready", () -> ready ? 1 : 0);
+        metrics.gauge("warmup.progress", () -> progress);
+        metrics.gauge("warmup.durationMs", () -> durationMillis);
+        metrics.gauge("warmup.rounds", rounds::get);
+    }
+
+    private static List<String> queries(Config config) {
+        Set<String> queries = new LinkedHashSet<>();
+        if (config.hasPath("warmup.queries")) queries.addAll(config.getStringList("warmup.queries"));
+        Path snapshot = snapshot(config);
+        try {
+            if (Files.exists(snapshot)) {
+                Files.readAllLines(snapshot).stream().map(String::strip).filter(q -> !q.isEmpty()).forEach(queries::add);
+            }
+        } catch (IOException ignored) {
+            // no previous snapshot
+        }
+        return new ArrayList<>(queries);
+    }
+
+    private static Path snapshot(Config config) {
+        return Paths.get(config.hasPath("warmup.snapshot") ? config.getString("warmup.snapshot") : "warmup-queries.txt");
+    }
+
+    /**
+     * Runs the warm-up, then reports ready. Failed or slow searches are counted and skipped.
+     * @author Team
+     */
+    public void run() {
+        long start = System.nanoTime();
+        int steps = queries.size() + 1; // the searches, then the analysis rounds as one step
+        for (int i = 0; i < queries.size(); i++) {
+            try {
+                boolean ok = search.apply(queries.get(i)).toCompletableFuture().get(queryTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                (ok ? searched : failed).increment();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return; // shutting down
+            } catch (Exception e) {
+                failed.increment();
+            }
+            progress = (double) (i + 1) / steps;
+        }
+
+        CompilationMXBean jit = ManagementFactory.getCompilationMXBean();
+        boolean timed = jit != null && jit.isCompilationTimeMonitoringSupported();
+        long deadline = System.nanoTime() + maxDuration.toNanos();
+        long compiled = timed ? jit.getTotalCompilationTime() : 0;
+        int settled = 0;
+        while (System.nanoTime() < deadline && (rounds.get() < MIN_ROUNDS || settled < SETTLED_ROUNDS)) {
+            for (int i = 0; i < ITERATIONS_PER_ROUND; i++) exercise();
+            rounds.incrementAndGet();
+            if (timed) {
+                long now = jit.getTotalCompilationTime();
+                settled = now - compiled < SETTLED_COMPILE_MILLIS ? settled + 1 : 0;
+                compiled = now;
+            } else {
+                settled++; // no way to tell: run the minimum rounds
+            }
+        }
+        durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        progress = 1;
+        ready = true;
+    }
+
+    /** One pass over the analysis and render paths of a search and its statistics. */
+    private void exercise() {
+        QueryResult result = QueryResult.analysed("warm up", null, fixture);
+        result.merge(fixture.subList(0, 5), HomeController.getMaxArticlesVisible());
+        QueryResultCodec.decode(ByteBuffer.wrap(QueryResultCodec.encode(result)));
+        Statistics.getString(result.getWordCounts());
+        PhraseStatistics.count(fixture, StopWords.NONE).top(2, 20, 2);
+        DuplicateDetector.collapse(fixture);
+        QueryKey.of("Warm, up the cache", null, "publishedAt").broader();
+        Map<String, QueryResult> page = new LinkedHashMap<>();
+        page.put("warm up", result);
+        views.html.index.render("Search Results for: warm up", page, true, "", false, DisplayTime.DEFAULT_ZONE).body();
+    }
+
+    /**
+     * Tells whether the warm-up is over.
+     * @return true once ready for traffic.
+     * @author Team
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Gets the warm-up progress.
+     * @return from 0 to 1.
+     * @author Team
+     */
+    public double progress() {
+        return progress;
+    }
+
+    /** Builds deterministic articles that look like news, from a small vocabulary so that phrases repeat. */
+    private static List<Article> fixture(int size) {
+        String[] words = ("government announces new climate policy markets react interest rates inflation central bank "
+                + "election results candidate campaign technology company launches product shares rise fall storm "
+                + "floods coastal residents evacuate football team wins championship final city council approves "
+                + "budget schools hospitals workers strike union agreement energy prices oil supply research study "
+                + "finds health experts warn").split(" ");
+        Random random = new Random(42);
+        List<Article> articles = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            StringBuilder title = new StringBuilder();
+            StringBuilder description = new StringBuilder();
+            for (int w = 0; w < 8; w++) title.append(words[random.nextInt(words.length)]).append(' ');
+            for (int w = 0; w < 25; w++) description.append(words[random.nextInt(words.length)]).append(w % 9 == 8 ? ". " : " ");
+            articles.add(new Article(title.toString().strip(), "https://example.com/warmup/" + i, "Source " + (i % 7),
+                    "https://example.com", "2025-11-04, 12:00:00", 5, 5, description.toString().strip()));
+        }
+        return articles;
+    }
+}
@@ -1,37 +1,90 @@
 package controllers;
 
 import models.Article;
+import models.DisplayTime;
 import models.QueryResult;
+import models.QueryResultCodec;
 import controllers.ReadabilityCalculator;
+import models.PhraseStatistics;
 import models.Statistics;
+import models.StopWords;
+import play.libs.typedmap.TypedKey;
 import play.mvc.*;
 import play.libs.ws.*;
 import com.typesafe.config.Config;
 import javax.inject.Inject;
+import javax.inject.Singleton;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.stream.Collectors;
 import Services.Client;
+import Services.ClusterRouter;
+import Services.DuplicateDetector;
+import Services.EventLog;
+import Services.ExecutionPools;
+import Services.Metrics;
+import Services.QueryBatcher;
+import Services.QueryKey;
+import Services.QuerySuggestions;
+import Services.RelatedArticles;
+import Services.StageEvent;
+import Services.TieredQueryCache;
 
 /**
  * Main controller for NotiLytics web application.
  * Handles search, session management, and result rendering.
  * @author Team
  */
+@Singleton
 public class HomeController extends Controller {
-    private final WSClient ws;
-    private final Executor executor;
-    private final String Key;
+    private final Client client;
+    private final QueryBatcher batcher;
+    private final Executor analysis;
+    private final ClusterRouter cluster;
+    private final QuerySuggestions suggestions;
+    private final RelatedArticles related;
+    private final EventLog events;
     private final String url;
     private final String topHeadlinesUrl;
+    private final LongAdder fullRefreshes;
+    private final LongAdder deltaRefreshes;
+    private final LongAdder deltaArticles;
+    private final LongAdder cacheHits;
+    private final LongAdder canonicalHits;
+    private final LongAdder subsumedHits;
+    private final LongAdder localHits;
+    private final LongAdder cacheMisses;
+    private final long subsumptionMaxAgeNanos;
+    private final StopWords stopWords;
+    private final int topPhrases;
     //We have to move to an in memory cache because if not we recall every single past query with the new filters applied.
     //Or else this maxes out calls toq the API for country or category, as it uses a different link "top headlines" (see application.conf)
-    Map<String, QueryResult> cache = new LinkedHashMap<>();
+    //Only the most used results stay on the heap, the rest are kept serialized off-heap (see TieredQueryCache)
+    Map<String, QueryResult> cache;
+    //Searches being fetched, so that concurrent identical searches wait for the same result
+    private final Map<String, CompletableFuture<QueryResult>> inFlight = new ConcurrentHashMap<>();
+    //The cache is keyed by canonical search (see QueryKey): latest key of each query as typed, for history and statistics
+    private final Map<String, String> keysByQuery = lru(MAX_TRACKED);
+    //When each cached result last came from NewsAPI, only fresh ones may answer narrower searches
+    private final Map<String, Long> fetchedAt = lru(MAX_TRACKED);
+
+    /** Marks the searches of the warm-up: they fill the cache but are not suggested, logged or counted as trending. */
+    public static final TypedKey<Boolean> WARM_UP = TypedKey.create("warmUp");
 
     private static final String SESSION_KEY = "queries";
     private static final int maxArticlesVisible = 50;
+    private static final int MAX_TRACKED = 4096;
 
     /**
      * Fetches the cache field
@@ -109,16 +162,48 @@ public class HomeController extends Controller {
 
     /**
      * Constructs the HomeController with dependencies.
-     * @param ws Play WSClient for HTTP requests.
-     * @param executor Executor for async tasks.
+     * @param client Shared NewsAPI client.
+     * @param batcher Batches concurrent everything searches.
+     * @param pools Thread pools; analysis and rendering run on the analysis pool.
      * @param config App configuration.
+     * @param metrics Metrics registry.
+     * @param cache Result cache shared by all requests.
+     * @param cluster Routes queries to their owning node in cluster mode.
+     * @param suggestions Typeahead suggestions, fed with every search that found articles.
+     * @param related Related-articles index, fed with the articles of every result served.
+     * @param events Event log, with one event per search.
      * @author Team
      */
     @Inject
-    public HomeController(WSClient ws, Executor executor, Config config) {
-        this.ws = ws;
-        this.executor = executor;
-        this.Key = config.getString("newsapi.key");
+    public HomeController(Client client, QueryBatcher batcher, ExecutionPools pools, Config config, Metrics metrics, TieredQueryCache cache,
+                          ClusterRouter cluster, QuerySuggestions suggestions, RelatedArticles related,
+                          EventLog events) {
+        this.client = client;
+        this.cluster = cluster;
+        this.suggestions = suggestions;
+        this.related = related;
+        this.events = events;
+        this.cache = cache;
+        this.batcher = batcher;
+        this.analysis = pools.analysis();
+        this.fullRefreshes = metrics.counter("search.refresh.full");
+        this.deltaRefreshes = metrics.counter("search.refresh.delta");
+        this.deltaArticles = metrics.counter("search.refresh.delta.articles");
+        this.cacheHits = metrics.counter("search.cache.hits");
+        this.canonicalHits = metrics.counter("search.cache.hits.canonical");
+        this.subsumedHits = metrics.counter("search.cache.hits.subsumed");
+        this.localHits = metrics.counter("search.cache.hits.local");
+        this.cacheMisses = metrics.counter("search.cache.misses");
+        metrics.gauge("search.cache.hitRatio", () -> {
+            long hits = cacheHits.sum() + subsumedHits.sum() + localHits.sum();
+            long total = hits + cacheMisses.sum();
+            return total == 0 ? 0.0 : (double) hits / total;
+        });
+        this.subsumptionMaxAgeNanos = (config.hasPath("newsapi.cache.subsumption.maxAge")
+                ? config.getDuration("newsapi.cache.subsumption.maxAge") : Duration.ofMinutes(2)).toNanos();
+        this.stopWords = config.hasPath("statistics.stopWords")
+                ? StopWords.load(Paths.get(config.getString("statistics.stopWords"))) : StopWords.loadResource("stopwords.txt");
+        this.topPhrases = config.hasPath("statistics.ngrams.top") ? config.getInt("statistics.ngrams.top") : 20;
         this.url = config.getString("newsapi.url");
         this.topHeadlinesUrl = config.getString("newsapi.topheadlines.url");
     }
@@ -132,7 +217,7 @@ public class HomeController extends Controller {
     public CompletionStage<Result> index(Http.Request request) {
         // show welcome page with no results
         Map<String, QueryResult> empty = new LinkedHashMap<>();
-        return CompletableFuture.completedFuture(ok(views.html.index.render("Welcome to NotiLytics! Enter your search terms below.", empty, true, "")));
+        return CompletableFuture.completedFuture(ok(views.html.index.render("Welcome to NotiLytics! Enter your search terms below.", empty, true, "", false, zone(request))));
     }
 
     /**
@@ -149,30 +234,15 @@ public class HomeController extends Controller {
         //New checks to show whether we display sources or not
         String showSourcesParam = request.getQueryString("showSources");
         boolean showSources = showSourcesParam != null && showSourcesParam.equals("true");
+        boolean collapse = isCollapse(request);
 
-        //Read filter parameter and parse it through the drop down menus
         String filterValue = request.getQueryString("filterValue");
-        final String filterType;
-        final String filterCode;
-
-        if (filterValue != null && !filterValue.isEmpty()) {
-            String[] parts = filterValue.split(":");
-            if (parts.length == 2) {
-                filterType = parts[0];  // "country", "category", or "language"
-                filterCode = parts[1];   // "us", "sports", "en", etc.
-            } else {
-                filterType = null;
-                filterCode = null;
-            }
-        } else {
-            filterType = null;
-            filterCode = null;
-        }
+        boolean warmUp = request.attrs().getOptional(WARM_UP).orElse(false);
 
         if (searchInput == null || searchInput.trim().isEmpty()) {
             // No search provided - render the index page (don't return badRequest text)
             Map<String, QueryResult> empty = new LinkedHashMap<>();
-            return CompletableFuture.completedFuture(ok(views.html.index.render("Please enter a search term.", empty, true, "")));
+            return CompletableFuture.completedFuture(ok(views.html.index.render("Please enter a search term.", empty, true, "", false, zone(request))));
         }
 
         // Update session with new query
@@ -180,12 +250,72 @@ public class HomeController extends Controller {
         List<String> queries = getPreviousQueries(updatedSession);
 
         // Create async requests for all stored queries to display each search separately
-        String encodedQuery = searchInput.trim().replaceAll("\\s+", "+"); //This normalizes query spacing for API URL, or else we get bad API calls
+        //Equivalent spellings of a search (case, punctuation, word order) share one cached result, see QueryKey;
+        //NewsAPI is still sent the query as typed, its canonical form may not mean the same to it
+        QueryKey key = QueryKey.of(searchInput, filterValue, sortBy);
+        Upstream upstream = upstream(searchInput.trim(), filterValue, sortBy, warmUp);
+
+        EventLog.Event event = events.event("search").with("query", searchInput).with("key", key.key())
+                .with("filter", filterValue).with("sort", sortBy);
+        return resolve(key, searchInput, upstream, event).thenApplyAsync(qr -> {
+            long resolved = event.elapsedNanos();
+            event.millis("resolveMs", resolved).with("articles", qr.getArticles().size());
+            keysByQuery.put(searchInput, key.key());
+            if (!warmUp && !qr.getArticles().isEmpty()) suggestions.record(searchInput); //only suggest searches that find something
+            related.add(qr.getArticles()); //articles already indexed are skipped by URL
+            //This is to rebuild visible history strictly from cached entries (no re-requests), so that we keep the functionality given prior
+            Map<String, QueryResult> resultsByQuery = new LinkedHashMap<>();
+            int count = 0; //to use with maxArticlesVisible
+            for (String q : queries) {
+                if (count >= maxArticlesVisible) break;
+                QueryResult r = q.equals(searchInput) ? qr : lookup(q);
+                if (r != null) resultsByQuery.put(q, collapse ? collapsed(r) : r); //Ensures no NullPointerException if we get a bad call when testing for example
+                count++;
+            }
+
+            StageEvent render = StageEvent.start("render");
+            Result page = ok(views.html.index.render("Search Results for: " + searchInput, resultsByQuery, showSources, filterValue != null ? filterValue : "", collapse,
+                    zone(request)))
+                    .withSession(updatedSession);
+            render.end(key.key(), resultsByQuery.size());
+            event.millis("renderMs", event.elapsedNanos() - resolved);
+            if (!warmUp) event.emit();
+            return page;
+
+        }, analysis).exceptionally(ex -> {
+            event.failed(ex.getMessage());
+            if (!warmUp) event.emit();
+            return internalServerError("Error fetching results: " + ex.getMessage());
+        });
+    }
+
+    /**
+     * Builds the NewsAPI request of a search from this node's configuration.
+     * @param upstreamQuery The query sent to NewsAPI.
+     * @param filterValue The filter ("country:us", "category:sports", "language:en"), or null.
+     * @param sortBy The sort order.
+     * @param warmUp Whether the search is made by the warm-up, whose articles do not count as trending.
+     * @return The request URL (without API key) and how it may be sent.
+     * @author Team
+     */
+    private Upstream upstream(String upstreamQuery, String filterValue, String sortBy, boolean warmUp) {
+        //Read filter parameter and parse it through the drop down menus
+        String filterType = null;
+        String filterCode = null;
+        if (filterValue != null && !filterValue.isEmpty()) {
+            String[] parts = filterValue.split(":");
+            if (parts.length == 2) {
+                filterType = parts[0];  // "country", "category", or "language"
+                filterCode = parts[1];   // "us", "sports", "en", etc.
+            }
+        }
+        String encodedQuery = URLEncoder.encode(upstreamQuery.replaceAll("\\s+", " "), StandardCharsets.UTF_8); //This normalizes query spacing for API URL, or else we get bad API calls
 
         boolean countryOrCategory = filterType != null && (filterType.equals("country") || filterType.equals("category"));
         boolean languageFilter = filterType != null && filterType.equals("language");
 
         String requestUrl = "";
+        String everythingBase = null; //everything URL without q, for QueryBatcher
         if (countryOrCategory) {
             // top-headlines: only country/category
             String th = this.topHeadlinesUrl;
@@ -200,68 +330,335 @@ public class HomeController extends Controller {
             // everything: language allowed, country/category not allowed
             String ev = this.url;
             if (!(ev.endsWith("?") || ev.endsWith("&"))) ev += "?";
-            requestUrl = ev + "q=" + encodedQuery;
+            everythingBase = ev + "sortBy=" + sortBy;
+            everythingBase += "&pageSize=" + getMaxArticlesVisible();
 
-            if (languageFilter) requestUrl += "&language=" + filterCode;
+            if (languageFilter) everythingBase += "&language=" + filterCode;
 
-            requestUrl += "&sortBy=" + sortBy;
-            requestUrl += "&pageSize=" + getMaxArticlesVisible();
+            requestUrl = everythingBase + "&q=" + encodedQuery;
         }
 
-        requestUrl += "&apiKey=" + this.Key;
+        //Only the newest query goes upstream; past ones are rebuilt from the cache below.
+        //top-headlines has no "from" parameter, and only a date-sorted list can be merged by date, see resolveLocally
+        boolean deltaAllowed = !countryOrCategory && sortBy.equals("publishedAt");
+        return new Upstream(requestUrl, everythingBase, deltaAllowed, warmUp);
+    }
+
+    /**
+     * Gets the result of a search: from the node owning the query in cluster mode, else locally.
+     * @param key The canonical search, which keys the cache.
+     * @param searchInput The search query.
+     * @param upstream The NewsAPI request of the search, used when this node fetches it.
+     * @param event The search event, told where the result came from.
+     * @return The result, also stored in the cache (a copy, on non-owner nodes, for history and statistics).
+     * @author Team
+     */
+    private CompletionStage<QueryResult> resolve(QueryKey key, String searchInput, Upstream upstream, EventLog.Event event) {
+        Optional<String> owner = cluster.remoteOwner(key.text());
+        if (owner.isEmpty()) return resolveLocally(key, searchInput, upstream, event);
+        event.with("owner", owner.get());
+        return cluster.fetch(owner.get(), searchInput, key, false)
+                .thenApply(qr -> {
+                    event.with("cache", "remote");
+                    cache.put(key.key(), qr);
+                    return qr;
+                })
+                .exceptionallyCompose(ex -> {
+                    event.with("ownerError", ex.getMessage());
+                    //the owner answered with an error (e.g. NewsAPI failed for it): asking NewsAPI from here would not help
+                    Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+                    if (cause instanceof ClusterRouter.NodeError) return CompletableFuture.failedFuture(cause);
+                    //owner unreachable: it is out of the ring now, serve this one ourselves
+                    return resolveLocally(key, searchInput, upstream, event);
+                });
+    }
+
+    /**
+     * Gets the result of a search from the cache and NewsAPI. Concurrent calls for the same search share one fetch.
+     * When the same request is already cached (here, or on the node that owned the query before the last
+     * cluster change) only articles published since its newest one are asked for. A search that is not cached
+     * may be answered without NewsAPI from a fresh cached broader search (fewer terms), keeping the matching articles,
+     * or from a fresh complete result of the same query in another order or without the language filter.
+     * @param key The canonical search, which keys the cache.
+     * @param searchInput The search query.
+     * @param upstream The NewsAPI request of the search.
+     * @param event The event of the request, told about the cache and NewsAPI.
+     * @return The result, stored in the cache.
+     * @author Team
+     */
+    private CompletionStage<QueryResult> resolveLocally(QueryKey key, String searchInput, Upstream upstream, EventLog.Event event) {
+        String fetchUrl = upstream.requestUrl;
+        String everythingBase = upstream.everythingBase;
+        boolean deltaAllowed = upstream.deltaAllowed;
+        String flightKey = key.key() + "\n" + fetchUrl;
+        CompletableFuture<QueryResult> mine = new CompletableFuture<>();
+        CompletableFuture<QueryResult> running = inFlight.putIfAbsent(flightKey, mine);
+        if (running != null) {
+            event.with("cache", "coalesced");
+            return running;
+        }
 
-        //We have to create a new Client initialization to prepare tne API requests for the newest query only, and not all past ones too
-        Client client = new Client(this.ws);
-        CompletionStage<List<Article>> response = client.clientRequest(requestUrl);
+        QueryResult cached = cache.get(key.key());
+        if (cached != null) {
+            cacheHits.increment();
+            boolean canonical = !cached.getQuery().equals(searchInput);
+            if (canonical) canonicalHits.increment(); //only found thanks to canonicalization
+            event.with("cache", canonical ? "canonical" : "hit");
+        } else {
+            QueryResult narrowed = narrowed(key, searchInput, fetchUrl);
+            if (narrowed != null) {
+                event.with("cache", "subsumed");
+                subsumedHits.increment();
+                cache.put(key.key(), narrowed);
+                inFlight.remove(flightKey, mine);
+                mine.complete(narrowed);
+                return mine;
+            }
+            QueryResult reordered = reordered(key, searchInput, fetchUrl);
+            if (reordered != null) {
+                event.with("cache", "local");
+                localHits.increment();
+                cache.put(key.key(), reordered);
+                inFlight.remove(flightKey, mine);
+                mine.complete(reordered);
+                return mine;
+            }
+            cacheMisses.increment();
+            event.with("cache", "miss");
+        }
+        Optional<String> previousOwner = cached == null ? cluster.previousOwner(key.text()) : Optional.empty();
+        previousOwner.ifPresent(node -> event.with("previousOwner", node));
+        CompletionStage<QueryResult> known = previousOwner.isPresent()
+                ? cluster.fetch(previousOwner.get(), searchInput, key, true).exceptionally(ex -> null)
+                : CompletableFuture.completedFuture(cached);
+
+        known.thenCompose(previous -> {
+            //the cached result may come from another spelling of the search: its newer articles are asked for as typed now
+            boolean delta = deltaAllowed && previous != null && previous.getRequestUrl() != null && previous.getNewestPublishedAt() != null;
+            boolean batched = !delta && everythingBase != null && !upstream.warmUp;
+            CompletionStage<List<Article>> response;
+            if (delta) {
+                response = client.clientRequest(fetchUrl + "&from=" + DateTimeFormatter.ISO_INSTANT.format(previous.getNewestPublishedAt()),
+                        getMaxArticlesVisible(), !upstream.warmUp);
+            } else if (batched) {
+                response = batcher.search(everythingBase, searchInput); //may share one upstream call with concurrent searches
+            } else {
+                response = client.clientRequest(fetchUrl, getMaxArticlesVisible(), !upstream.warmUp);
+            }
+            (delta ? deltaRefreshes : fullRefreshes).increment();
+            event.with("upstream", delta ? "delta" : batched ? "batched" : "full");
+            long sent = System.nanoTime();
+
+            return response.thenApplyAsync(articles -> {
+                event.millis("upstreamMs", System.nanoTime() - sent).with("upstreamArticles", articles.size());
+                QueryResult qr;
+                if (delta) {
+                    deltaArticles.add(articles.size());
+                    qr = previous.merge(articles, getMaxArticlesVisible());
+                } else {
+                    //less than a page in a 200, straight from NewsAPI: every match, which other orders and languages can be answered from
+                    //(an upstream error fails the response, it is never an empty page)
+                    boolean complete = articles.size() < getMaxArticlesVisible()
+                            && (!batched || !batcher.batches(searchInput));
+                    qr = QueryResult.analysed(searchInput, fetchUrl, articles, complete);
+                }
+                // store in cache
+                cache.put(key.key(), qr);
+                fetchedAt.put(key.key(), System.nanoTime());
+                return qr;
+            }, analysis);
+        }).whenComplete((qr, ex) -> {
+            inFlight.remove(flightKey, mine);
+            if (ex != null) mine.completeExceptionally(ex);
+            else mine.complete(qr);
+        });
+        return mine;
+    }
 
-        return response.thenApplyAsync(articles -> {
-            List<String> descriptions = articles.stream()
-                    .map(a -> a.getTitle() != null ? a.getTitle() : "")
-                    .collect(Collectors.toList());
-            double avgGrade = ReadabilityCalculator.averageGrade(descriptions);
-            double avgScore = ReadabilityCalculator.averageScore(descriptions);
-            QueryResult qr = new QueryResult(searchInput, articles, avgGrade, avgScore);
+    /**
+     * Answers a search from a fresh complete cached broader search, keeping the articles that have every term as a
+     * whole word. Only a complete result (every match NewsAPI had) holds all of this search's articles, so the
+     * narrowed one is complete too and later searches may refresh it with only newer articles.
+     * @param key The canonical search.
+     * @param searchInput The search query.
+     * @param fetchUrl The upstream URL of the search, recorded so later searches refresh it normally.
+     * @return The narrowed result, or null when no fresh complete broader search has matching articles.
+     * @author Team
+     */
+    private QueryResult narrowed(QueryKey key, String searchInput, String fetchUrl) {
+        long now = System.nanoTime();
+        for (QueryKey broader : key.broader()) {
+            Long fetched = fetchedAt.get(broader.key());
+            if (fetched == null || now - fetched > subsumptionMaxAgeNanos) continue;
+            QueryResult result = cache.get(broader.key());
+            if (result == null || !result.isComplete()) continue; //a page of the broader search misses older matches
+            List<Article> matching = key.narrow(result.getArticles(), getMaxArticlesVisible());
+            if (!matching.isEmpty()) return QueryResult.analysed(searchInput, fetchUrl, matching, true);
+        }
+        return null;
+    }
 
-            // store in cache
-            cache.put(searchInput, qr);
+    /**
+     * Answers a search locally from a fresh complete cached result of the same query with another sort order or
+     * without the language filter: re-sorted by date and/or narrowed to the language of the articles.
+     * @param key The canonical search.
+     * @param searchInput The search query.
+     * @param fetchUrl The upstream URL of the search, recorded so later searches refresh it normally.
+     * @return The result, or null when no cached result can answer exactly.
+     * @author Team
+     */
+    private QueryResult reordered(QueryKey key, String searchInput, String fetchUrl) {
+        long now = System.nanoTime();
+        for (QueryKey sibling : key.siblings()) {
+            Long fetched = fetchedAt.get(sibling.key());
+            if (fetched == null || now - fetched > subsumptionMaxAgeNanos) continue;
+            QueryResult result = cache.get(sibling.key());
+            if (result == null || !result.isComplete()) continue;
+            boolean byDate = !sibling.sort().equals(key.sort());
+            if (byDate && !key.sort().equals("publishedAt")) continue; //relevancy and popularity orders only come from NewsAPI
+            String language = sibling.filter().equals(key.filter()) ? null : key.language();
+            List<Article> selected = result.select(byDate, language);
+            if (selected != null) return QueryResult.analysed(searchInput, fetchUrl, selected, true);
+        }
+        return null;
+    }
 
+    /**
+     * Finds the cached result shown for a query as typed (the latest of its searches), or stored under that key.
+     * @param queryOrKey The query as typed, or a cache key.
+     * @return The cached result, or null.
+     * @author Team
+     */
+    private QueryResult lookup(String queryOrKey) {
+        return cache.get(keysByQuery.getOrDefault(queryOrKey, queryOrKey));
+    }
 
-            //This is to rebuild visible history strictly from cached entries (no re-requests), so that we keep the functionality given prior
-            Map<String, QueryResult> resultsByQuery = new LinkedHashMap<>();
-            int count = 0; //to use with maxArticlesVisible
-            for (String q : queries) {
-                if (count >= maxArticlesVisible) break;
-                QueryResult r = cache.get(q);
-                if (r != null) resultsByQuery.put(q, r); //Ensures no NullPointerException if we get a bad call when testing for example
-                count++;
+    private static <V> Map<String, V> lru(int capacity) {
+        return Collections.synchronizedMap(new LinkedHashMap<String, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > capacity;
             }
+        });
+    }
 
-            return ok(views.html.index.render("Search Results for: " + searchInput, resultsByQuery, showSources, filterValue != null ? filterValue : ""))
-                    .withSession(updatedSession);
+    /**
+     * Serves a search to another cluster node, as an encoded {@link QueryResult}. The NewsAPI request is built
+     * here from the search, never taken from the caller.
+     * @param request The HTTP request (q, filter, sort and cachedOnly parameters).
+     * @return The encoded result; 404 when only the cached copy was asked for and there is none.
+     * @author Team
+     */
+    public CompletionStage<Result> clusterResult(Http.Request request) {
+        if (!cluster.isAuthorized(request)) return CompletableFuture.completedFuture(forbidden());
+        String query = request.getQueryString("q");
+        if (query == null || query.trim().isEmpty()) return CompletableFuture.completedFuture(badRequest("q is required"));
+        QueryKey key = QueryKey.of(query, request.getQueryString("filter"), request.getQueryString("sort"));
+        if ("true".equals(request.getQueryString("cachedOnly"))) {
+            QueryResult cached = cache.get(key.key());
+            return CompletableFuture.completedFuture(cached == null ? notFound() : encoded(cached));
+        }
+        EventLog.Event event = events.event("cluster.result").with("query", query).with("key", key.key());
+        return resolveLocally(key, query, upstream(query.trim(), key.filter(), key.sort(), false), event)
+                .whenComplete((qr, ex) -> {
+                    if (ex != null) event.failed(ex.getMessage());
+                    event.emit();
+                })
+                .thenApply(HomeController::encoded);
+    }
 
-        }, executor).exceptionally(ex -> {
-            System.err.println("Error fetching results: " + ex.getMessage());
-            return internalServerError("Error fetching results: " + ex.getMessage());
-        });
+    /**
+     * Answers cluster health probes.
+     * @param request The HTTP request.
+     * @return 200 for other nodes of the cluster.
+     * @author Team
+     */
+    public Result clusterPing(Http.Request request) {
+        return cluster.isAuthorized(request) ? ok("pong") : forbidden();
+    }
+
+    private static Result encoded(QueryResult result) {
+        return ok(QueryResultCodec.encode(result)).as("application/octet-stream");
+    }
+
+    /** The NewsAPI request of a search, see {@link HomeController#upstream}. */
+    private static final class Upstream {
+        /** Request URL, without API key. */
+        final String requestUrl;
+        /** The everything URL without q (for QueryBatcher), null for top-headlines. */
+        final String everythingBase;
+        /** Whether a cached result may be refreshed with only newer articles. */
+        final boolean deltaAllowed;
+        /** Whether the warm-up makes the search: it is sent alone and its articles are not trending terms. */
+        final boolean warmUp;
+
+        Upstream(String requestUrl, String everythingBase, boolean deltaAllowed, boolean warmUp) {
+            this.requestUrl = requestUrl;
+            this.everythingBase = everythingBase;
+            this.deltaAllowed = deltaAllowed;
+            this.warmUp = warmUp;
+        }
+    }
+
+    /**
+     * Keeps one article per group of near-duplicates (syndicated copies) and recomputes the averages.
+     * @param result The cached result.
+     * @return The collapsed result.
+     * @author Team
+     */
+    private static QueryResult collapsed(QueryResult result) {
+        return QueryResult.analysed(result.getQuery(), result.getRequestUrl(), DuplicateDetector.collapse(result.getArticles()));
+    }
+
+    /**
+     * Reads the reader's time zone, which publication times are shown in.
+     * @param request The HTTP request.
+     * @return the zone from the browser's cookie, or the default one.
+     * @author Team
+     */
+    private static ZoneId zone(Http.Request request) {
+        return DisplayTime.zone(request.cookie(DisplayTime.ZONE_COOKIE).map(Http.Cookie::value).orElse(null));
     }
 
     /**
-     * Handles the calculation of the word statistics for the articles.
+     * Reads the "collapse duplicates" flag of a request.
      * @param request The HTTP request.
-     * @param key the statistics button clicked
+     * @return true when near-duplicate articles should be collapsed.
+     * @author Team
+     */
+    private static boolean isCollapse(Http.Request request) {
+        return "true".equals(request.getQueryString("collapse"));
+    }
+
+    /**
+     * Handles the calculation of the word statistics for the articles, on the analysis pool.
+     * @param request The HTTP request.
+     * @param key the statistics button clicked: the query as typed, or a cache key (add ?collapse=true to ignore syndicated copies,
+     *            ?ngrams=true for the most frequent words and phrases without stop words)
      * @return The rendered result.
      * @author Karim BG
      */
-    public Result stats(Http.Request request, String key) {
-        Statistics s = new Statistics(cache.get(key));
-        int numberOfArticles = cache.get(key).getArticles().size();
-        List<String> TitlesAndDescription = new ArrayList<>(s.getTitles());
-        TitlesAndDescription.addAll(s.getDescriptions());
-        String counter = Statistics.getString(
-                Statistics.getCounter(
-                        Statistics.filtering(
-                            Statistics.getWords(
-                                    TitlesAndDescription))));
-        return ok("More Statistics:\n" + numberOfArticles +" articles have been taken into account.\n"+counter);
+    public CompletionStage<Result> stats(Http.Request request, String key) {
+        boolean collapse = isCollapse(request);
+        boolean ngrams = "true".equals(request.getQueryString("ngrams"));
+        return CompletableFuture.supplyAsync(() -> {
+            QueryResult cached = collapse ? collapsed(lookup(key)) : lookup(key);
+            int numberOfArticles = cached.getArticles().size();
+            if (ngrams) {
+                StageEvent stage = StageEvent.start("phrases");
+                PhraseStatistics phrases = PhraseStatistics.count(cached.getArticles(), stopWords);
+                stage.end(key, numberOfArticles);
+                StringBuilder body = new StringBuilder("More Statistics:\n" + numberOfArticles + " articles have been taken into account.\n");
+                for (int n = 1; n <= PhraseStatistics.MAX_N; n++) {
+                    body.append(n == 1 ? "Words:\n" : "Phrases of " + n + " words:\n");
+                    //a phrase seen once is just a sentence
+                    phrases.top(n, topPhrases, n == 1 ? 1 : 2).forEach((phrase, count) -> body.append(phrase).append(':').append(count).append('\n'));
+                }
+                return ok(body.toString());
+            }
+            //Word counts are kept up to date in the QueryResult itself (see QueryResult.merge), no need to recount
+            String counter = Statistics.getString(cached.getWordCounts());
+            return ok("More Statistics:\n" + numberOfArticles +" articles have been taken into account.\n"+counter);
+        }, analysis);
     }
 }
\ No newline at end of file
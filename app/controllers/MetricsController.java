@@ -0,0 +1,37 @@
+package controllers;
+
+import Services.Metrics;
+import play.mvc.Controller;
+import play.mvc.Result;
+
+import javax.inject.Inject;
+import java.util.stream.Collectors;
+
+/**
+ * Lists the application counters and gauges, one "name value" pair per line.
+ * @author Team
+ */
+public class MetricsController extends Controller {
+    private final Metrics metrics;
+
+    /**
+     * Constructs the MetricsController.
+     * @param metrics the metrics registry.
+     * @author Team
+     */
+    @Inject
+    public MetricsController(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Renders every metric as plain text.
+     * @return the rendered result.
+     * @author Team
+     */
+    public Result metrics() {
+        return ok(metrics.snapshot().entrySet().stream()
+                .map(e -> e.getKey() + " " + e.getValue())
+                .collect(Collectors.joining("\n")));
+    }
+}
@@ -0,0 +1,78 @@
+package controllers;
+
+import Services.Profiler;
+import com.typesafe.config.Config;
+import play.libs.Json;
+import play.mvc.Controller;
+import play.mvc.Http;
+import play.mvc.Result;
+
+import javax.inject.Inject;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Admin routes starting a Java Flight Recorder recording and summarizing the search stages it timed.
+ * Only answered when {@code profiling.secret} is set and sent in the {@value #SECRET_HEADER} header.
+ * @author Team
+ */
+public class ProfilingController extends Controller {
+    /** Header carrying the profiling secret. */
+    public static final String SECRET_HEADER = "X-Profiling-Secret";
+
+    private final Profiler profiler;
+    private final String secret;
+
+    /**
+     * Constructs the ProfilingController.
+     * @param profiler the shared profiler.
+     * @param config App configuration.
+     * @author Team
+     */
+    @Inject
+    public ProfilingController(Profiler profiler, Config config) {
+        this.profiler = profiler;
+        this.secret = config.hasPath("profiling.secret") ? config.getString("profiling.secret") : "";
+    }
+
+    /**
+     * Records for a while and returns the recording.
+     * @param request The HTTP request.
+     * @param seconds how long to record, at most {@code profiling.maxDuration}.
+     * @return the .jfr file, 409 when a recording is already running, or 403 without the secret.
+     * @author Team
+     */
+    public CompletionStage<Result> record(Http.Request request, int seconds) {
+        if (!isAuthorized(request)) return CompletableFuture.completedFuture(forbidden());
+        if (seconds <= 0) return CompletableFuture.completedFuture(badRequest("seconds must be positive"));
+        return profiler.record(Duration.ofSeconds(seconds))
+                .thenApply(file -> ok(file.toFile(), false, Optional.of("notilytics-" + file.getFileName().toString().replaceAll("\\D", "") + ".jfr"))
+                        .as("application/octet-stream"))
+                .exceptionally(ex -> ex.getCause() instanceof IllegalStateException
+                        ? status(CONFLICT, ex.getCause().getMessage())
+                        : internalServerError("Recording failed: " + ex.getMessage()));
+    }
+
+    /**
+     * Summarizes the stages timed by the last recording as JSON.
+     * @param request The HTTP request.
+     * @return per stage its count and durations in milliseconds, 404 before any recording, or 403 without the secret.
+     * @author Team
+     */
+    public Result summary(Http.Request request) {
+        if (!isAuthorized(request)) return forbidden();
+        return profiler.summary()
+                .map(summary -> ok(Json.toJson(summary)))
+                .orElseGet(() -> notFound("No recording yet, see /admin/profile"));
+    }
+
+    private boolean isAuthorized(Http.RequestHeader request) {
+        return !secret.isEmpty() && request.header(SECRET_HEADER)
+                .map(sent -> MessageDigest.isEqual(sent.getBytes(StandardCharsets.UTF_8), secret.getBytes(StandardCharsets.UTF_8)))
+                .orElse(false);
+    }
+}
@@ -1,11 +1,14 @@
 package controllers;
 
+import models.TextScan;
+
 import java.util.List;
 import java.util.regex.Pattern;
 
 /**
  * Utility class for calculating readability metrics (Flesch-Kincaid Grade Level and Flesch Reading Score)
  * for article descriptions using Java 8 Streams.
+ * Sentences, words and syllables are counted in one pass by {@link TextScan}, exactly as the patterns below match them.
  * @author Santhosh
  */
 public class ReadabilityCalculator {
@@ -25,11 +28,9 @@ public class ReadabilityCalculator {
      * @author Santhosh
      */
     public static double calculateFleschKincaidGrade(String text) {
-        int sentences = countSentences(text);
-        int words = countWords(text);
-        int syllables = countSyllables(text);
-        if (sentences == 0 || words == 0) return 0.0;
-        return 0.39 * ((double) words / sentences) + 11.8 * ((double) syllables / words) - 15.59;
+        TextScan.Counts counts = TextScan.readability(text);
+        if (counts.sentences == 0 || counts.words == 0) return 0.0;
+        return 0.39 * ((double) counts.words / counts.sentences) + 11.8 * ((double) counts.syllables / counts.words) - 15.59;
     }
 
     /**
@@ -39,11 +40,9 @@ public class ReadabilityCalculator {
      * @author Santhosh
      */
     public static double calculateFleschReadingScore(String text) {
-        int sentences = countSentences(text);
-        int words = countWords(text);
-        int syllables = countSyllables(text);
-        if (sentences == 0 || words == 0) return 0.0;
-        return 206.835 - 1.015 * ((double) words / sentences) - 84.6 * ((double) syllables / words);
+        TextScan.Counts counts = TextScan.readability(text);
+        if (counts.sentences == 0 || counts.words == 0) return 0.0;
+        return 206.835 - 1.015 * ((double) counts.words / counts.sentences) - 84.6 * ((double) counts.syllables / counts.words);
     }
 
     /**
@@ -79,9 +78,7 @@ public class ReadabilityCalculator {
      * @author Santhosh
      */
     public static int countSentences(String text) {
-        if (text == null || text.trim().isEmpty()) return 0;
-        String[] sentences = SENTENCE_PATTERN.split(text.trim());
-        return sentences.length;
+        return TextScan.readability(text).sentences;
     }
 
     /**
@@ -91,8 +88,7 @@ public class ReadabilityCalculator {
      * @author Santhosh
      */
     public static int countWords(String text) {
-        if (text == null || text.trim().isEmpty()) return 0;
-        return (int) WORD_PATTERN.matcher(text).results().count();
+        return TextScan.readability(text).words;
     }
 
     /**
@@ -102,12 +98,7 @@ public class ReadabilityCalculator {
      * @author Santhosh
      */
     public static int countSyllables(String text) {
-        if (text == null || text.trim().isEmpty()) return 0;
-        return WORD_PATTERN.matcher(text)
-                .results()
-                .map(match -> match.group())
-                .mapToInt(ReadabilityCalculator::countSyllablesInWord)
-                .sum();
+        return TextScan.readability(text).syllables;
     }
 
     /**
@@ -0,0 +1,35 @@
+package controllers;
+
+import Services.WarmUp;
+import play.mvc.Controller;
+import play.mvc.Result;
+
+import javax.inject.Inject;
+
+/**
+ * Readiness probe for the load balancer: healthy only once the instance is warmed up.
+ * @author Team
+ */
+public class ReadinessController extends Controller {
+    private final WarmUp warmUp;
+
+    /**
+     * Constructs the ReadinessController.
+     * @param warmUp the startup warm-up.
+     * @author Team
+     */
+    @Inject
+    public ReadinessController(WarmUp warmUp) {
+        this.warmUp = warmUp;
+    }
+
+    /**
+     * Tells whether the instance is ready for traffic.
+     * @return 200 once warmed up, else 503 with the progress.
+     * @author Team
+     */
+    public Result ready() {
+        if (warmUp.isReady()) return ok("ready");
+        return status(SERVICE_UNAVAILABLE, String.format("warming up: %.0f%%", warmUp.progress() * 100));
+    }
+}
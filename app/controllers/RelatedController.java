@@ -0,0 +1,56 @@
+package controllers;
+
+import Services.RelatedArticles;
+import models.Article;
+import play.libs.Json;
+import play.mvc.Controller;
+import play.mvc.Result;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Related coverage of an article, drawn from the articles already cached.
+ * @author Team
+ */
+public class RelatedController extends Controller {
+    private final RelatedArticles related;
+
+    /**
+     * Constructs the RelatedController.
+     * @param related the shared related-articles index.
+     * @author Team
+     */
+    @Inject
+    public RelatedController(RelatedArticles related) {
+        this.related = related;
+    }
+
+    /**
+     * Returns the cached articles most similar to a cached article as JSON. Never calls NewsAPI.
+     * @param url the article's URL.
+     * @param limit maximum number of articles, from 1 to 20.
+     * @return the rendered result, or 404 when the article is not cached.
+     * @author Team
+     */
+    public Result related(String url, int limit) {
+        List<Article> articles = related.related(url, Math.max(1, Math.min(limit, RelatedArticles.MAX_RESULTS)));
+        if (articles == null) return notFound("No cached article with URL " + url);
+        List<Map<String, String>> list = new ArrayList<>();
+        for (Article a : articles) {
+            Map<String, String> item = new LinkedHashMap<>();
+            item.put("title", a.getTitle());
+            item.put("url", a.getUrl());
+            item.put("sourceName", a.getSourceName());
+            item.put("publishedAt", a.getPublishedAt() == null ? null : a.getPublishedAt().toString());
+            list.add(item);
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("url", url);
+        body.put("related", list);
+        return ok(Json.toJson(body));
+    }
+}
@@ -1,79 +1,168 @@
 package controllers;
 
 import Services.Client;
+import Services.ExecutionPools;
+import Services.SourceCatalogue;
+import Services.SourceStats;
 import com.typesafe.config.Config;
 import models.Article;
+import models.DisplayTime;
+import models.NewsSource;
 import models.SourceProfile;
-import play.libs.ws.WSClient;
+import play.libs.Json;
+import play.mvc.Http;
 import play.mvc.Result;
 
 import javax.inject.Inject;
+import java.time.Duration;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.Executor;
 
+import static play.mvc.Results.badRequest;
 import static play.mvc.Results.ok;
 
 public class SourceController {
-    private final WSClient ws;
-    private final Executor executor;
-    private final String Key;
+    private final Client client;
+    private final Executor analysis;
     private final String url;
+    private final SourceCatalogue sources;
+    private final SourceStats stats;
+    private final long profileTtlMillis;
+    //Profile pages per source, so that repeated visits don't call the API every time; the least recently visited go first
+    private final Map<String, CachedProfile> profiles = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedProfile> eldest) {
+            return size() > MAX_PROFILES;
+        }
+    });
+    private static final int MAX_PROFILES = 1024;
 
     @Inject
-    public SourceController(WSClient ws, Executor executor, Config config) {
-        this.ws = ws;
-        this.executor = executor;
-        this.Key = config.getString("newsapi.key");
+    public SourceController(Client client, ExecutionPools pools, Config config, SourceCatalogue sources, SourceStats stats) {
+        this.client = client;
+        this.stats = stats;
+        this.analysis = pools.analysis();
         this.url = config.getString("newsapi.url");
+        this.sources = sources;
+        this.profileTtlMillis = (config.hasPath("newsapi.sources.profileTtl")
+                ? config.getDuration("newsapi.sources.profileTtl") : Duration.ofMinutes(10)).toMillis();
     }
 
     /**
      * Handles retrieving the last 10 articles of a source for its Profile Page.
+     * The source is resolved through the catalogue (id, domain or name) and the page is cached per source.
+     * Its aggregates over every cached article (see {@link SourceStats}) are read as they are, without fetching more.
+     * @param request The HTTP request, whose time zone cookie publication times are shown in.
      * @param sourceName the name of the selected source.
      * @return the rendered result.
      * @author Team
      */
-    public CompletionStage<Result> profile(String sourceName) {
-
-        String encodedSource = sourceName.trim().toLowerCase();
-        String searchTerm = "domains=";
-
-        if(!encodedSource.contains(".com")) {
-            encodedSource = encodedSource.replaceAll(" ", "-");
-            searchTerm = "sources=";
-
+    public CompletionStage<Result> profile(Http.Request request, String sourceName) {
+        ZoneId zone = DisplayTime.zone(request.cookie(DisplayTime.ZONE_COOKIE).map(Http.Cookie::value).orElse(null));
+        Optional<NewsSource> known = sources.resolve(sourceName);
+        String cacheKey = known.map(NewsSource::getId).orElse(sourceName.trim().toLowerCase(Locale.ROOT));
+        SourceStats.Summary summary = summary(sourceName, known);
+
+        CachedProfile cached = profiles.get(cacheKey);
+        if (cached != null && cached.expiresAt <= System.currentTimeMillis()) {
+            profiles.remove(cacheKey, cached);
+            cached = null;
+        }
+        if (cached != null) {
+            return CompletableFuture.completedFuture(ok(views.html.sourceProfile.render(cached.profile, cached.articles, summary, zone)));
         }
 
-        String requestUrl = this.url + searchTerm + encodedSource + "&apiKey=" + this.Key;
-
-        Client client = new Client(this.ws);
-
-//        return CompletableFuture.failedFuture(new InternalError(requestUrl));
+        String requestUrl = this.url + lookupParameter(sourceName, known);
 
-        CompletionStage<List<Article>> response = client.clientRequest(requestUrl);
+        //an upstream error gets the "try again later" page, and is not cached
+        CompletionStage<List<Article>> response = client.clientRequest(requestUrl).exceptionally(ex -> Collections.emptyList());
 
-        return response.thenApply(articles -> {
+        return response.thenApplyAsync(articles -> {
 
             if (articles == null || articles.isEmpty()) {
                 return ok(views.html.sourceProfile.render(
-                        new SourceProfile(sourceName, "", "No Articles Found for this source at this time. Please try again later!"),
-                        new ArrayList<>()
+                        new SourceProfile(sourceName, known.map(NewsSource::getUrl).orElse(""), "No Articles Found for this source at this time. Please try again later!"),
+                        new ArrayList<>(),
+                        summary,
+                        zone
                 ));
             }
 
             List<Article> last10 = articles.stream().limit(HomeController.getMaxArticlesVisible()).toList();
 
-            SourceProfile profile = new SourceProfile(
-                    sourceName,
-                    last10.get(0).getSourceUrl(),
-                    "Listing Articles from " + sourceName + "."
-            );
+            SourceProfile profile = known
+                    .map(s -> new SourceProfile(s.getName(), s.getUrl(), s.getDescription()))
+                    .orElseGet(() -> new SourceProfile(
+                            sourceName,
+                            last10.get(0).getSourceUrl(),
+                            "Listing Articles from " + sourceName + "."
+                    ));
+
+            profiles.put(cacheKey, new CachedProfile(profile, last10, System.currentTimeMillis() + profileTtlMillis));
+            return ok(views.html.sourceProfile.render(profile, last10, summary, zone));
+        }, analysis);
+    }
+
+    /**
+     * Returns the sources with the most cached articles, with their aggregates, as JSON. Reads published summaries only.
+     * @param limit the maximum number of sources, from 1 to 100.
+     * @return the rendered result, or 400 for a limit out of range.
+     * @author Team
+     */
+    public Result leaderboard(int limit) {
+        if (limit < 1 || limit > 100) return badRequest("limit must be between 1 and 100");
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("sources", stats.leaderboard(limit));
+        return ok(Json.toJson(body));
+    }
+
+    /**
+     * Finds the aggregates of a source, by id when catalogued (cached articles may come without it), else by name.
+     * @param sourceName the name of the selected source.
+     * @param known the catalogue entry, if the source is catalogued.
+     * @return the summary, or null when no cached article is from the source.
+     * @author Team
+     */
+    private SourceStats.Summary summary(String sourceName, Optional<NewsSource> known) {
+        SourceStats.Summary byId = known.map(s -> stats.summary(s.getId())).orElse(null);
+        return byId != null ? byId : stats.summary(known.map(NewsSource::getName).orElse(sourceName));
+    }
 
-            return ok(views.html.sourceProfile.render(profile,last10));
-        });
+    /**
+     * Builds the "sources=" or "domains=" parameter for a source.
+     * @param sourceName the name of the selected source.
+     * @param known the catalogue entry, if the source is catalogued.
+     * @return the query parameter.
+     * @author Team
+     */
+    private static String lookupParameter(String sourceName, Optional<NewsSource> known) {
+        if (known.isPresent()) return "sources=" + known.get().getId();
+
+        //Not catalogued: fall back to guessing a domain or an id from the name
+        String encodedSource = sourceName.trim().toLowerCase(Locale.ROOT);
+        if (encodedSource.contains(".")) return "domains=" + encodedSource;
+        return "sources=" + encodedSource.replaceAll(" ", "-");
     }
 
+    /** A rendered profile and when it stops being fresh. */
+    private static final class CachedProfile {
+        final SourceProfile profile;
+        final List<Article> articles;
+        final long expiresAt;
 
+        CachedProfile(SourceProfile profile, List<Article> articles, long expiresAt) {
+            this.profile = profile;
+            this.articles = articles;
+            this.expiresAt = expiresAt;
+        }
+    }
 }
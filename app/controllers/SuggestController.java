@@ -0,0 +1,42 @@
+package controllers;
+
+import Services.QuerySuggestions;
+import play.libs.Json;
+import play.mvc.Controller;
+import play.mvc.Result;
+
+import javax.inject.Inject;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Typeahead suggestions for the search box, from the most popular recent searches.
+ * @author Team
+ */
+public class SuggestController extends Controller {
+    private final QuerySuggestions suggestions;
+
+    /**
+     * Constructs the SuggestController.
+     * @param suggestions the shared query suggestions service.
+     * @author Team
+     */
+    @Inject
+    public SuggestController(QuerySuggestions suggestions) {
+        this.suggestions = suggestions;
+    }
+
+    /**
+     * Returns the most popular queries starting with a prefix as JSON. Reads a published index, never recomputes.
+     * @param prefix the text typed so far.
+     * @param limit maximum number of suggestions, from 1 to 10.
+     * @return the rendered result.
+     * @author Team
+     */
+    public Result suggest(String prefix, int limit) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("prefix", prefix);
+        body.put("suggestions", suggestions.suggest(prefix, Math.max(1, Math.min(limit, QuerySuggestions.TOP_K))));
+        return ok(Json.toJson(body));
+    }
+}
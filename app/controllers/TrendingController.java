@@ -0,0 +1,45 @@
+package controllers;
+
+import Services.TrendingTerms;
+import play.libs.Json;
+import play.mvc.Controller;
+import play.mvc.Result;
+
+import javax.inject.Inject;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exposes the global trending terms computed over every fetched article.
+ * @author Team
+ */
+public class TrendingController extends Controller {
+    private final TrendingTerms trending;
+
+    /**
+     * Constructs the TrendingController.
+     * @param trending the shared trending terms service.
+     * @author Team
+     */
+    @Inject
+    public TrendingController(TrendingTerms trending) {
+        this.trending = trending;
+    }
+
+    /**
+     * Returns the top terms of a sliding window as JSON. Reads a published snapshot, never recomputes.
+     * @param window one of "15m", "1h" or "24h".
+     * @return the rendered result, or 400 for an unknown window.
+     * @author Team
+     */
+    public Result trending(String window) {
+        Map<String, Long> top = trending.top(window);
+        if (top == null) {
+            return badRequest("Unknown window '" + window + "', expected one of " + TrendingTerms.WINDOWS);
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("window", window);
+        body.put("terms", top);
+        return ok(Json.toJson(body));
+    }
+}
@@ -0,0 +1,146 @@
+package filters;
+
+import Services.ClientRateLimiter;
+import Services.ConcurrencyLimit;
+import Services.Metrics;
+import Services.QueryKey;
+import Services.TieredQueryCache;
+import com.typesafe.config.Config;
+import models.QueryResult;
+import org.apache.pekko.stream.Materializer;
+import play.mvc.Filter;
+import play.mvc.Http;
+import play.mvc.Result;
+import play.mvc.Results;
+
+import javax.inject.Inject;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Admission control for inbound requests.
+ * A request is first charged to its client's rate limit (429 when over it), then admitted only while the
+ * number of requests in flight is under an adaptive limit driven by observed latency (503 otherwise).
+ * Requests that can be answered from the result cache may go a little over the limit, so they keep working
+ * when uncached searches are being shed. Rejections are immediate and carry Retry-After; nothing is queued.
+ * @author Team
+ */
+public class AdmissionFilter extends Filter {
+    /** Static files, monitoring, typeahead (answered from memory), calls between cluster nodes and admin routes (long profiling recordings) are never limited. */
+    private static final List<String> EXEMPT = List.of("/assets/", "/metrics", "/ready", "/suggest", "/cluster/", "/admin/");
+
+    private final boolean enabled;
+    private final ClientRateLimiter clients;
+    private final ConcurrencyLimit concurrency;
+    /** Keys of the cached searches, kept up to date by the cache, so admission never waits on the cache's lock. */
+    private final Set<String> cachedKeys = ConcurrentHashMap.newKeySet();
+    private final LongAdder admitted;
+    private final LongAdder rateLimited;
+    private final LongAdder shed;
+
+    /**
+     * Constructs the filter.
+     * @param mat the stream materializer.
+     * @param config App configuration.
+     * @param metrics the metrics registry.
+     * @param cache the search result cache, used to recognise cheap requests.
+     * @author Team
+     */
+    @Inject
+    public AdmissionFilter(Materializer mat, Config config, Metrics metrics, TieredQueryCache cache) {
+        super(mat);
+        this.enabled = !config.hasPath("admission.enabled") || config.getBoolean("admission.enabled");
+        this.clients = new ClientRateLimiter(
+                config.hasPath("admission.client.rate") ? config.getDouble("admission.client.rate") : 5.0,
+                config.hasPath("admission.client.burst") ? config.getInt("admission.client.burst") : 20,
+                config.hasPath("admission.client.slots") ? config.getInt("admission.client.slots") : 4096);
+        Duration target = config.hasPath("admission.latencyTarget") ? config.getDuration("admission.latencyTarget") : Duration.ofSeconds(2);
+        this.concurrency = new ConcurrencyLimit(
+                config.hasPath("admission.limit.initial") ? config.getInt("admission.limit.initial") : 32,
+                config.hasPath("admission.limit.min") ? config.getInt("admission.limit.min") : 4,
+                config.hasPath("admission.limit.max") ? config.getInt("admission.limit.max") : 256,
+                target.toNanos());
+        TieredQueryCache.Listener tracker = new TieredQueryCache.Listener() {
+            @Override
+            public void stored(String key, QueryResult result) {
+                cachedKeys.add(key);
+            }
+
+            @Override
+            public void removed(String key) {
+                cachedKeys.remove(key);
+            }
+        };
+        synchronized (cache) { // no change slips in between the keys cached so far and the ones the listener is told about
+            cache.addListener(tracker);
+            cachedKeys.addAll(cache.keySet());
+        }
+        this.admitted = metrics.counter("admission.admitted");
+        this.rateLimited = metrics.counter("admission.rejected.ratelimited");
+        this.shed = metrics.counter("admission.rejected.overload");
+        metrics.gauge("admission.limit", concurrency::limit);
+        metrics.gauge("admission.inflight", concurrency::inflight);
+    }
+
+    @Override
+    public CompletionStage<Result> apply(Function<Http.RequestHeader, CompletionStage<Result>> next, Http.RequestHeader rh) {
+        if (!enabled || EXEMPT.stream().anyMatch(rh.path()::startsWith)) return next.apply(rh);
+
+        long start = System.nanoTime();
+        // behind a proxy or load balancer, Play resolves the client's address from X-Forwarded-For / Forwarded
+        // when the proxy is listed in play.http.forwarded.trustedProxies
+        long wait = clients.tryAcquire(rh.remoteAddress(), start);
+        if (wait > 0) {
+            rateLimited.increment();
+            return reject(Http.Status.TOO_MANY_REQUESTS, "Too many requests, slow down.", TimeUnit.NANOSECONDS.toSeconds(wait) + 1);
+        }
+
+        // cache hits are cheap: let them use up to half the limit again on top of it
+        int headroom = isCacheHit(rh) ? Math.max(1, concurrency.limit() / 2) : 0;
+        if (!concurrency.tryAcquire(headroom)) {
+            shed.increment();
+            return reject(Http.Status.SERVICE_UNAVAILABLE, "NotiLytics is busy, please try again shortly.", 1);
+        }
+        admitted.increment();
+
+        CompletionStage<Result> result;
+        try {
+            result = next.apply(rh);
+        } catch (RuntimeException e) {
+            concurrency.release(System.nanoTime() - start, true, System.nanoTime());
+            throw e;
+        }
+        return result.whenComplete((r, ex) -> {
+            long now = System.nanoTime();
+            concurrency.release(now - start, ex != null || (r != null && r.status() >= 500), now);
+        });
+    }
+
+    /**
+     * Tells whether a request will be served from cached results.
+     * @param rh the request header.
+     * @return true for statistics and for searches of a cached query.
+     * @author Team
+     */
+    private boolean isCacheHit(Http.RequestHeader rh) {
+        if (rh.path().startsWith("/statistics/")) return true;
+        if (!rh.path().equals("/search")) return false;
+        String query = rh.queryString("SearchInput").orElse(null);
+        if (query == null || query.trim().isEmpty()) return false;
+        // searches are cached under their canonical key, see HomeController
+        String filterValue = rh.queryString("filterValue").orElse(null);
+        String sortBy = rh.queryString("sortBy").orElse(null);
+        return cachedKeys.contains(QueryKey.of(query, filterValue, sortBy).key());
+    }
+
+    private static CompletionStage<Result> reject(int status, String message, long retryAfterSeconds) {
+        return CompletableFuture.completedFuture(Results.status(status, message).withHeader("Retry-After", String.valueOf(retryAfterSeconds)));
+    }
+}
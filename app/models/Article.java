@@ -1,11 +1,16 @@
 package models;
 
+import java.time.Instant;
+
 /**
  * Represents a single news article.
  * Group Part – NotiLytics
  * @author Santhosh
  */
 public class Article {
+    /** {@link #getPublishedEpochMillis()} of an article whose date could not be read. */
+    public static final long UNKNOWN_TIME = Long.MIN_VALUE;
+
     /** Title of the article. */
     private final String title;
     /** URL of the article. */
@@ -14,14 +19,20 @@ public class Article {
     private final String sourceName;
     /** URL of the source. */
     private final String sourceUrl;
-    /** Published date of the article. */
-    private final String publishedAt;
+    /** Publication time in epoch milliseconds, {@link #UNKNOWN_TIME} when unknown; formatted only when displayed (see {@link DisplayTime}). */
+    private final long publishedEpochMillis;
     /** Flesch-Kincaid Grade Level. */
     private final int kincaidGrade;
     /** Flesch Reading Score. */
     private final int readingScore;
     /** Article description**/
     private final String description; //added for stats
+    /** SimHash of the title and description, used to spot syndicated copies. */
+    private final long fingerprint;
+    /** NewsAPI id of the source, null when NewsAPI has none. */
+    private final String sourceId;
+    /** ISO 639-1 language of the article, null when unknown; used to filter cached results. */
+    private final String language;
 
     /**
      * Constructs an Article object.
@@ -29,20 +40,59 @@ public class Article {
      * @param url URL of the article.
      * @param sourceName Name of the source.
      * @param sourceUrl URL of the source.
-     * @param publishedAt Published date.
+     * @param publishedAt Published date, as displayed in {@link DisplayTime#DEFAULT_ZONE}.
      * @param kincaidGrade Flesch-Kincaid Grade Level.
      * @param readingScore Flesch Reading Score.
      * @author Santhosh
      */
     public Article(String title, String url, String sourceName, String sourceUrl, String publishedAt,int kincaidGrade, int readingScore, String description) {
+        this(title, url, sourceName, sourceUrl, DisplayTime.parse(publishedAt), kincaidGrade, readingScore, description, null, null);
+    }
+
+    /**
+     * Constructs an Article with the typed metadata NewsAPI gave for it.
+     * @param title Title of the article.
+     * @param url URL of the article.
+     * @param sourceName Name of the source.
+     * @param sourceUrl URL of the source.
+     * @param publishedAt Publication time, or null when unknown.
+     * @param kincaidGrade Flesch-Kincaid Grade Level.
+     * @param readingScore Flesch Reading Score.
+     * @param description Description of the article.
+     * @param sourceId NewsAPI id of the source, or null.
+     * @param language ISO 639-1 language of the article, or null when unknown.
+     * @author Team
+     */
+    public Article(String title, String url, String sourceName, String sourceUrl, Instant publishedAt, int kincaidGrade, int readingScore,
+                   String description, String sourceId, String language) {
+        this(title, url, sourceName, sourceUrl, publishedAt == null ? UNKNOWN_TIME : publishedAt.toEpochMilli(), kincaidGrade, readingScore,
+                description, SimHash.fingerprint(fingerprintText(title, description)), sourceId, language);
+    }
+
+    /** Title and description, leaving out missing ones (they would read as the word "null"). */
+    private static String fingerprintText(String title, String description) {
+        if (title == null) return description;
+        if (description == null) return title;
+        return title + " " + description;
+    }
+
+    /**
+     * Rebuilds an Article whose fingerprint is already known (see {@link QueryResultCodec}).
+     * @author Team
+     */
+    Article(String title, String url, String sourceName, String sourceUrl, long publishedEpochMillis, int kincaidGrade, int readingScore,
+            String description, long fingerprint, String sourceId, String language) {
         this.title = title;
         this.url = url;
         this.sourceName = sourceName;
         this.sourceUrl = sourceUrl;
-        this.publishedAt = publishedAt;
+        this.publishedEpochMillis = publishedEpochMillis;
         this.kincaidGrade = kincaidGrade;
         this.readingScore = readingScore;
         this.description = description;
+        this.fingerprint = fingerprint;
+        this.sourceId = sourceId;
+        this.language = language;
     }
 
     /**
@@ -82,12 +132,12 @@ public class Article {
     }
 
     /**
-     * Gets the published date.
-     * @return Published date.
+     * Gets the publication time.
+     * @return Published time, or null when unknown; see {@link DisplayTime#format} to show it.
      * @author Santhosh
      */
-    public String getPublishedAt() {
-        return publishedAt;
+    public Instant getPublishedAt() {
+        return publishedEpochMillis == UNKNOWN_TIME ? null : Instant.ofEpochMilli(publishedEpochMillis);
     }
 
     /**
@@ -116,4 +166,40 @@ public class Article {
     public String getDescription() {
         return description;
     }
+
+    /**
+     * Gets the SimHash fingerprint of the title and description, computed once at construction.
+     * @return A 64-bit fingerprint.
+     * @author Team
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Gets the publication time, cheap to compare.
+     * @return Epoch milliseconds, or {@link #UNKNOWN_TIME}.
+     * @author Team
+     */
+    public long getPublishedEpochMillis() {
+        return publishedEpochMillis;
+    }
+
+    /**
+     * Gets the NewsAPI id of the source.
+     * @return The source id, or null when NewsAPI has none.
+     * @author Team
+     */
+    public String getSourceId() {
+        return sourceId;
+    }
+
+    /**
+     * Gets the language of the article.
+     * @return The ISO 639-1 code, or null when unknown.
+     * @author Team
+     */
+    public String getLanguage() {
+        return language;
+    }
 }
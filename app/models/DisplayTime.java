@@ -0,0 +1,83 @@
+package models;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Formats publication times for display, at render time, in the reader's time zone.
+ * Articles only keep their {@link Instant}; one formatter per region zone ("Europe/Paris") is built on first use and
+ * shared after that. Other zones (fixed offsets such as "+05:30", which a cookie can spell in countless ways) get a
+ * formatter of their own each time.
+ * The browser reports its zone in the {@value #ZONE_COOKIE} cookie (see {@code public/javascripts/main.js}).
+ * @author Team
+ */
+public final class DisplayTime {
+    /** Cookie holding the reader's time zone id, e.g. "Europe/Paris". */
+    public static final String ZONE_COOKIE = "tz";
+    /** Zone used when the reader's is unknown or invalid. */
+    public static final ZoneId DEFAULT_ZONE = ZoneId.of("America/Toronto");
+    /** Shown for articles without a readable date. */
+    public static final String UNKNOWN = "Unknown Date";
+    private static final String PATTERN = "yyyy-MM-dd, HH:mm:ss";
+
+    /** The region ids the JDK knows: a few hundred, so the formatters cached for them stay few. */
+    private static final Set<String> REGIONS = Set.copyOf(ZoneId.getAvailableZoneIds());
+    private static final ConcurrentMap<ZoneId, DateTimeFormatter> FORMATTERS = new ConcurrentHashMap<>();
+
+    private DisplayTime() {
+    }
+
+    /**
+     * Formats a publication time.
+     * @param time the time, or null when unknown.
+     * @param zone the reader's time zone.
+     * @return "yyyy-MM-dd, HH:mm:ss" in that zone, or {@value #UNKNOWN}.
+     * @author Team
+     */
+    public static String format(Instant time, ZoneId zone) {
+        if (time == null) return UNKNOWN;
+        if (!REGIONS.contains(zone.getId())) return DateTimeFormatter.ofPattern(PATTERN).withZone(zone).format(time);
+        return FORMATTERS.computeIfAbsent(zone, z -> DateTimeFormatter.ofPattern(PATTERN).withZone(z)).format(time);
+    }
+
+    /** Gets the number of cached formatters (used by tests). */
+    static int cachedFormatters() {
+        return FORMATTERS.size();
+    }
+
+    /**
+     * Reads the reader's time zone.
+     * @param id the zone id, as sent by the browser, or null.
+     * @return the zone, or {@link #DEFAULT_ZONE} when missing or invalid.
+     * @author Team
+     */
+    public static ZoneId zone(String id) {
+        if (id == null || id.isEmpty()) return DEFAULT_ZONE;
+        try {
+            return ZoneId.of(id);
+        } catch (DateTimeException e) {
+            return DEFAULT_ZONE;
+        }
+    }
+
+    /**
+     * Reads a displayed time back, as formatted in {@link #DEFAULT_ZONE}.
+     * @param displayed "yyyy-MM-dd, HH:mm:ss".
+     * @return the time, or null when it cannot be read.
+     * @author Team
+     */
+    public static Instant parse(String displayed) {
+        try {
+            return LocalDateTime.parse(displayed, DateTimeFormatter.ofPattern(PATTERN)).atZone(DEFAULT_ZONE).toInstant();
+        } catch (DateTimeParseException | NullPointerException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package models;
+
+/**
+ * Open-addressing hash map from long keys to int values, without boxing.
+ * Used to count hashed n-grams and as a set of hashed stop words. Not thread-safe.
+ * @author Team
+ */
+public final class LongIntMap {
+    /** Receives the entries of a map. */
+    public interface EntryConsumer {
+        /**
+         * Accepts one entry.
+         * @param key the key.
+         * @param value its value.
+         */
+        void accept(long key, int value);
+    }
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    // key 0 marks an empty slot, so its value is kept aside
+    private boolean hasZero;
+    private int zeroValue;
+
+    /**
+     * Constructs an empty map.
+     * @param expected number of entries expected, to size the table.
+     * @author Team
+     */
+    public LongIntMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(4, expected * 2 - 1)) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Adds to the value of a key (absent keys count as 0).
+     * @param key the key.
+     * @param delta the amount to add.
+     * @return the new value.
+     * @author Team
+     */
+    public int add(long key, int delta) {
+        if (key == 0) {
+            if (!hasZero) size++;
+            hasZero = true;
+            return zeroValue += delta;
+        }
+        int i = slot(key);
+        if (keys[i] == 0) {
+            keys[i] = key;
+            values[i] = delta;
+            if (++size * 3 > keys.length * 2) grow();
+            return delta;
+        }
+        return values[i] += delta;
+    }
+
+    /**
+     * Sets the value of a key unless it already has one.
+     * @param key the key.
+     * @param value the value for a new key.
+     * @return true when the key was added.
+     * @author Team
+     */
+    public boolean putIfAbsent(long key, int value) {
+        if (containsKey(key)) return false;
+        add(key, value);
+        return true;
+    }
+
+    /**
+     * Gets the value of a key.
+     * @param key the key.
+     * @return its value, 0 when absent.
+     * @author Team
+     */
+    public int get(long key) {
+        if (key == 0) return zeroValue;
+        int i = slot(key);
+        return keys[i] == 0 ? 0 : values[i];
+    }
+
+    /**
+     * Tells whether a key is present.
+     * @param key the key.
+     * @return true when present.
+     * @author Team
+     */
+    public boolean containsKey(long key) {
+        return key == 0 ? hasZero : keys[slot(key)] != 0;
+    }
+
+    /**
+     * Gets the number of keys.
+     * @return the size.
+     * @author Team
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Visits every entry, in no particular order.
+     * @param consumer receives each key and value.
+     * @author Team
+     */
+    public void forEach(EntryConsumer consumer) {
+        if (hasZero) consumer.accept(0, zeroValue);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) consumer.accept(keys[i], values[i]);
+        }
+    }
+
+    private int slot(long key) {
+        int i = (int) (key ^ (key >>> 32)) * 0x9E3779B9 & mask;
+        while (keys[i] != 0 && keys[i] != key) i = (i + 1) & mask;
+        return i;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int j = slot(oldKeys[i]);
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+}
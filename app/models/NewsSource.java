@@ -0,0 +1,106 @@
+package models;
+
+/**
+ * Represents one entry of the NewsAPI sources catalogue.
+ * @author Team
+ */
+public class NewsSource {
+    /** NewsAPI identifier of the source, e.g. "bbc-news". */
+    private final String id;
+    /** Display name of the source. */
+    private final String name;
+    /** Short description of the source. */
+    private final String description;
+    /** Home page of the source. */
+    private final String url;
+    /** Category the source mostly covers. */
+    private final String category;
+    /** Two-letter language code. */
+    private final String language;
+    /** Two-letter country code. */
+    private final String country;
+
+    /**
+     * Constructs a NewsSource.
+     * @param id NewsAPI identifier.
+     * @param name Display name.
+     * @param description Short description.
+     * @param url Home page URL.
+     * @param category Category.
+     * @param language Language code.
+     * @param country Country code.
+     * @author Team
+     */
+    public NewsSource(String id, String name, String description, String url, String category, String language, String country) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.url = url;
+        this.category = category;
+        this.language = language;
+        this.country = country;
+    }
+
+    /**
+     * Gets the NewsAPI identifier.
+     * @return Source id.
+     * @author Team
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Gets the display name.
+     * @return Source name.
+     * @author Team
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the short description.
+     * @return Source description.
+     * @author Team
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Gets the home page URL.
+     * @return Source URL.
+     * @author Team
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Gets the category.
+     * @return Source category.
+     * @author Team
+     */
+    public String getCategory() {
+        return category;
+    }
+
+    /**
+     * Gets the language code.
+     * @return Source language.
+     * @author Team
+     */
+    public String getLanguage() {
+        return language;
+    }
+
+    /**
+     * Gets the country code.
+     * @return Source country.
+     * @author Team
+     */
+    public String getCountry() {
+        return country;
+    }
+}
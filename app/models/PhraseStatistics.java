@@ -0,0 +1,193 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Counts the words and the two- and three-word phrases of a result's titles and descriptions in one pass.
+ * Words are read like {@link Statistics#getWords(List)} (split on spaces, letters only, lower case). Words of two
+ * letters or fewer and stop words are not counted and end a phrase, as do sentence punctuation and tokens without
+ * letters, so "rate of inflation" is not counted as "rate inflation".
+ * Each n-gram is only a 64-bit hash chained from its words' hashes, counted in a primitive map; the text is
+ * read back from where the n-gram first occurred only for the n-grams reported.
+ * @author Team
+ */
+public final class PhraseStatistics {
+    /** Longest phrases counted. */
+    public static final int MAX_N = 3;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long CHAIN = 0x9E3779B97F4A7C15L;
+
+    private final List<String> texts = new ArrayList<>();
+    private final LongIntMap[] counts = new LongIntMap[MAX_N];
+    /** Per n-gram, the index of its first occurrence in the occurrence arrays. */
+    private final LongIntMap[] firstSeen = new LongIntMap[MAX_N];
+    private int[] occurrenceText = new int[256];
+    private int[] occurrenceStart = new int[256];
+    private int[] occurrenceEnd = new int[256];
+    private int occurrences;
+
+    private PhraseStatistics() {
+        for (int n = 0; n < MAX_N; n++) {
+            counts[n] = new LongIntMap(1024);
+            firstSeen[n] = new LongIntMap(1024);
+        }
+    }
+
+    /**
+     * Counts the n-grams of articles.
+     * @param articles the articles (title and description are read).
+     * @param stopWords words never counted.
+     * @return the counts.
+     * @author Team
+     */
+    public static PhraseStatistics count(List<Article> articles, StopWords stopWords) {
+        PhraseStatistics stats = new PhraseStatistics();
+        for (Article a : articles) {
+            if (a.getTitle() != null) stats.scan(a.getTitle(), stopWords);
+            if (a.getDescription() != null) stats.scan(a.getDescription(), stopWords);
+        }
+        return stats;
+    }
+
+    /**
+     * Hashes a word the way the scanner does: letters only, lower case.
+     * @param word the word.
+     * @return its hash before mixing, as looked up in {@link StopWords}.
+     * @author Team
+     */
+    static long hashWord(CharSequence word) {
+        long h = FNV_OFFSET;
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (Character.isLetter(c)) {
+                h ^= Character.toLowerCase(c);
+                h *= FNV_PRIME;
+            }
+        }
+        return h;
+    }
+
+    private void scan(String text, StopWords stopWords) {
+        int textIndex = texts.size();
+        texts.add(text);
+        long previous = 0;        // hash of the previous word
+        long previous2 = 0;       // and of the one before
+        int previousStart = 0;
+        int previous2Start = 0;
+        int run = 0;              // consecutive words counted since the last phrase break
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && Character.isWhitespace(text.charAt(i))) i++;
+            if (i == length) break;
+            int start = i;
+            long h = FNV_OFFSET;
+            int letters = 0;
+            for (; i < length && !Character.isWhitespace(text.charAt(i)); i++) {
+                char c = text.charAt(i);
+                if (Character.isLetter(c)) {
+                    h ^= Character.toLowerCase(c);
+                    h *= FNV_PRIME;
+                    letters++;
+                }
+            }
+            int end = i;
+            boolean breakAfter = ".,;:!?()\"".indexOf(text.charAt(end - 1)) >= 0;
+            if (letters <= 2 || stopWords.contains(h)) {
+                run = 0;
+                continue;
+            }
+
+            long word = mix(h);
+            record(0, word, textIndex, start, end);
+            if (run >= 1) record(1, mix(previous * CHAIN + word), textIndex, previousStart, end);
+            if (run >= 2) record(2, mix((previous2 * CHAIN + previous) * CHAIN + word), textIndex, previous2Start, end);
+            previous2 = previous;
+            previous2Start = previousStart;
+            previous = word;
+            previousStart = start;
+            run = breakAfter ? 0 : run + 1;
+        }
+    }
+
+    private void record(int n, long key, int textIndex, int start, int end) {
+        if (counts[n].add(key, 1) > 1) return;
+        if (occurrences == occurrenceText.length) {
+            occurrenceText = Arrays.copyOf(occurrenceText, occurrences * 2);
+            occurrenceStart = Arrays.copyOf(occurrenceStart, occurrences * 2);
+            occurrenceEnd = Arrays.copyOf(occurrenceEnd, occurrences * 2);
+        }
+        occurrenceText[occurrences] = textIndex;
+        occurrenceStart[occurrences] = start;
+        occurrenceEnd[occurrences] = end;
+        firstSeen[n].add(key, occurrences++);
+    }
+
+    /**
+     * Gets the most frequent n-grams of one length.
+     * @param n the number of words, 1 to {@link #MAX_N}.
+     * @param k the maximum number of n-grams.
+     * @param minCount the fewest occurrences reported.
+     * @return the n-grams and their counts, most frequent first (ties in order of appearance).
+     * @author Team
+     */
+    public Map<String, Integer> top(int n, int k, int minCount) {
+        // {count, first occurrence}: the heap keeps the k best, worst on top
+        Comparator<int[]> better = Comparator.<int[]>comparingInt(e -> e[0]).thenComparingInt(e -> -e[1]);
+        PriorityQueue<int[]> heap = new PriorityQueue<>(k + 1, better);
+        LongIntMap seen = firstSeen[n - 1];
+        counts[n - 1].forEach((key, count) -> {
+            if (count < minCount) return;
+            heap.add(new int[]{count, seen.get(key)});
+            if (heap.size() > k) heap.poll();
+        });
+        List<int[]> best = new ArrayList<>(heap);
+        best.sort(better.reversed());
+        Map<String, Integer> top = new LinkedHashMap<>();
+        for (int[] e : best) top.put(decode(e[1]), e[0]);
+        return top;
+    }
+
+    /**
+     * Gets the number of distinct n-grams of one length.
+     * @param n the number of words, 1 to {@link #MAX_N}.
+     * @return the distinct count.
+     * @author Team
+     */
+    public int distinct(int n) {
+        return counts[n - 1].size();
+    }
+
+    /** Reads an occurrence back as words: letters only, lower case, single spaces. */
+    private String decode(int occurrence) {
+        String text = texts.get(occurrenceText[occurrence]);
+        StringBuilder phrase = new StringBuilder();
+        boolean space = false;
+        for (int i = occurrenceStart[occurrence]; i < occurrenceEnd[occurrence]; i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = phrase.length() > 0;
+            } else if (Character.isLetter(c)) {
+                if (space) phrase.append(' ');
+                space = false;
+                phrase.append(Character.toLowerCase(c));
+            }
+        }
+        return phrase.toString();
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -1,9 +1,24 @@
 package models;
 
+import Services.StageEvent;
+import controllers.ReadabilityCalculator;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Represents the result of a news search query, including articles and readability averages.
+ * Results built with {@link #analysed(String, String, List)} keep running sums and word counts so that
+ * {@link #merge(List, int)} can fold newer articles in without re-analysing the whole window.
+ * A result known to hold every article matching its request can answer the same search sorted by date or narrowed
+ * to one language locally, see {@link #select(boolean, String)}.
  * @author Santhosh
  */
 public class QueryResult {
@@ -11,6 +26,19 @@ public class QueryResult {
     private final List<Article> articles;
     private final double avgGrade;
     private final double avgScore;
+    /** Upstream URL (without API key) the articles were fetched with, null when unknown. */
+    private final String requestUrl;
+    /** Sum of the per-article grades and scores the averages are derived from. */
+    private final double sumGrade;
+    private final double sumScore;
+    /** Newest publication time among the articles, null when none could be read. */
+    private final Instant newestPublishedAt;
+    /** Whether the articles are every match of the request, not just its first page. */
+    private final boolean complete;
+    /** Article indexes, newest first (undated articles last), computed once for local re-sorting. */
+    private final int[] newestFirst;
+    /** Word counts used by the statistics page, built on first use when not carried over by a merge. */
+    private volatile Map<String, Long> wordCounts;
 
     /**
      * Constructs a QueryResult for a search query.
@@ -21,10 +49,102 @@ public class QueryResult {
      * @author Santhosh
      */
     public QueryResult(String query, List<Article> articles, double avgGrade, double avgScore) {
+        this(query, articles, null, avgGrade, avgScore, avgGrade * articles.size(), avgScore * articles.size(), newest(articles, null), null, false);
+    }
+
+    QueryResult(String query, List<Article> articles, String requestUrl, double avgGrade, double avgScore,
+                        double sumGrade, double sumScore, Instant newestPublishedAt, Map<String, Long> wordCounts, boolean complete) {
         this.query = query;
         this.articles = articles;
+        this.requestUrl = requestUrl;
         this.avgGrade = avgGrade;
         this.avgScore = avgScore;
+        this.sumGrade = sumGrade;
+        this.sumScore = sumScore;
+        this.newestPublishedAt = newestPublishedAt;
+        this.wordCounts = wordCounts;
+        this.complete = complete;
+        this.newestFirst = newestFirst(articles);
+    }
+
+    /**
+     * Analyses freshly fetched articles: readability of the titles and word counts.
+     * @param query The search query string.
+     * @param requestUrl The upstream URL the articles came from (without API key).
+     * @param articles The fetched articles.
+     * @return The analysed result.
+     * @author Team
+     */
+    public static QueryResult analysed(String query, String requestUrl, List<Article> articles) {
+        return analysed(query, requestUrl, articles, false);
+    }
+
+    /**
+     * Analyses freshly fetched articles: readability of the titles and word counts.
+     * @param query The search query string.
+     * @param requestUrl The upstream URL the articles came from (without API key).
+     * @param articles The fetched articles.
+     * @param complete Whether the articles are every match of the request (NewsAPI sent less than a full page).
+     * @return The analysed result.
+     * @author Team
+     */
+    public static QueryResult analysed(String query, String requestUrl, List<Article> articles, boolean complete) {
+        double sumGrade = 0;
+        double sumScore = 0;
+        StageEvent readability = StageEvent.start("readability");
+        for (Article a : articles) {
+            sumGrade += grade(a);
+            sumScore += score(a);
+        }
+        readability.end(query, articles.size());
+        StageEvent statistics = StageEvent.start("statistics");
+        Map<String, Long> counts = new HashMap<>();
+        for (Article a : articles) addCounts(counts, a, 1);
+        statistics.end(query, articles.size());
+        return new QueryResult(query, articles, requestUrl, average(sumGrade, articles.size()), average(sumScore, articles.size()),
+                sumGrade, sumScore, newest(articles, null), Collections.unmodifiableMap(counts), complete);
+    }
+
+    /**
+     * Folds newer articles into this result: new URLs go on top, the list is trimmed to the window, and the
+     * averages and word counts are adjusted only for the articles that came in or fell out. The merged result is
+     * complete when this one was, fewer than a window of newer articles came and none fell out.
+     * @param newer Articles fetched since {@link #getNewestPublishedAt()}, newest first.
+     * @param window Maximum number of articles to keep.
+     * @return The merged result (this one when nothing new arrived).
+     * @author Team
+     */
+    public QueryResult merge(List<Article> newer, int window) {
+        Set<String> known = new HashSet<>();
+        for (Article a : articles) known.add(a.getUrl());
+        List<Article> fresh = new ArrayList<>();
+        for (Article a : newer) {
+            if (known.add(a.getUrl())) fresh.add(a);
+        }
+        if (fresh.isEmpty()) return this;
+
+        List<Article> merged = new ArrayList<>(Math.min(window, fresh.size() + articles.size()));
+        for (int i = 0; i < fresh.size() && merged.size() < window; i++) merged.add(fresh.get(i));
+        int keptFresh = merged.size();
+        int keptOld = Math.min(articles.size(), window - keptFresh);
+        merged.addAll(articles.subList(0, keptOld));
+
+        double grade = sumGrade;
+        double score = sumScore;
+        Map<String, Long> counts = new HashMap<>(getWordCounts());
+        for (Article a : fresh.subList(0, keptFresh)) {
+            grade += grade(a);
+            score += score(a);
+            addCounts(counts, a, 1);
+        }
+        for (Article a : articles.subList(keptOld, articles.size())) {
+            grade -= grade(a);
+            score -= score(a);
+            addCounts(counts, a, -1);
+        }
+        return new QueryResult(query, Collections.unmodifiableList(merged), requestUrl, average(grade, merged.size()), average(score, merged.size()),
+                grade, score, newest(fresh, newestPublishedAt), Collections.unmodifiableMap(counts),
+                complete && newer.size() < window && keptFresh == fresh.size() && keptOld == articles.size());
     }
 
     /**
@@ -62,4 +182,119 @@ public class QueryResult {
     public double getAvgScore() {
         return avgScore;
     }
+
+    /**
+     * Gets the upstream URL (without API key) the articles were fetched with.
+     * @return The request URL, or null when unknown.
+     * @author Team
+     */
+    public String getRequestUrl() {
+        return requestUrl;
+    }
+
+    /**
+     * Gets the newest publication time among the articles.
+     * @return The newest time, or null when no article date could be read.
+     * @author Team
+     */
+    public Instant getNewestPublishedAt() {
+        return newestPublishedAt;
+    }
+
+    /**
+     * Tells whether the articles are every match of the request, so that the same search in another order, or
+     * narrowed to one language, can be answered from them.
+     * @return true when NewsAPI had no more articles for the request.
+     * @author Team
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Re-sorts and filters the articles locally, with the order computed at construction.
+     * @param byDate true for the newest first, false to keep the upstream order.
+     * @param language the ISO 639-1 language to keep, or null for every article.
+     * @return the selected articles, or null when a date or language it depends on is unknown.
+     * @author Team
+     */
+    public List<Article> select(boolean byDate, String language) {
+        List<Article> selected = new ArrayList<>(articles.size());
+        for (int i = 0; i < articles.size(); i++) {
+            Article a = articles.get(byDate ? newestFirst[i] : i);
+            if (byDate && a.getPublishedEpochMillis() == Article.UNKNOWN_TIME) return null;
+            if (language == null) {
+                selected.add(a);
+            } else if (a.getLanguage() == null) {
+                return null;
+            } else if (a.getLanguage().equals(language)) {
+                selected.add(a);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Gets the word counts shown on the statistics page (same words as {@link Statistics} counts).
+     * @return An unmodifiable map of word to occurrences.
+     * @author Team
+     */
+    public Map<String, Long> getWordCounts() {
+        Map<String, Long> counts = wordCounts;
+        if (counts == null) {
+            Map<String, Long> built = new HashMap<>();
+            for (Article a : articles) addCounts(built, a, 1);
+            counts = Collections.unmodifiableMap(built);
+            wordCounts = counts;
+        }
+        return counts;
+    }
+
+    double getSumGrade() {
+        return sumGrade;
+    }
+
+    double getSumScore() {
+        return sumScore;
+    }
+
+    private static double average(double sum, int count) {
+        return count == 0 ? 0.0 : sum / count;
+    }
+
+    private static double grade(Article a) {
+        return ReadabilityCalculator.calculateFleschKincaidGrade(a.getTitle() != null ? a.getTitle() : "");
+    }
+
+    private static double score(Article a) {
+        return ReadabilityCalculator.calculateFleschReadingScore(a.getTitle() != null ? a.getTitle() : "");
+    }
+
+    private static void addCounts(Map<String, Long> counts, Article a, long sign) {
+        Statistics.getArticleCounter(a).forEach((word, n) -> {
+            long updated = counts.getOrDefault(word, 0L) + sign * n;
+            if (updated > 0) counts.put(word, updated);
+            else counts.remove(word);
+        });
+    }
+
+    private static Instant newest(List<Article> articles, Instant current) {
+        Instant newest = current;
+        for (Article a : articles) {
+            if (a.getPublishedEpochMillis() == Article.UNKNOWN_TIME) continue;
+            Instant t = Instant.ofEpochMilli(a.getPublishedEpochMillis());
+            if (newest == null || t.isAfter(newest)) newest = t;
+        }
+        return newest;
+    }
+
+    /** Stable, so articles published at the same second keep their upstream order. */
+    private static int[] newestFirst(List<Article> articles) {
+        Integer[] order = new Integer[articles.size()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (x, y) -> Long.compare(articles.get(y).getPublishedEpochMillis(), articles.get(x).getPublishedEpochMillis()));
+        int[] indexes = new int[order.length];
+        for (int i = 0; i < order.length; i++) indexes[i] = order[i];
+        return indexes;
+    }
 }
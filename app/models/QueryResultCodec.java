@@ -0,0 +1,155 @@
+package models;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary form of a {@link QueryResult}, used to keep results outside the Java heap.
+ * Every field is written, including the running sums, word counts, article fingerprints and metadata, so a decoded
+ * result behaves exactly like the original without re-analysing anything.
+ * @author Team
+ */
+public final class QueryResultCodec {
+    /** Bumped whenever the layout changes. */
+    private static final byte VERSION = 3;
+
+    private QueryResultCodec() {
+    }
+
+    /**
+     * Serializes a result.
+     * @param result the result to write.
+     * @return the encoded bytes.
+     * @author Team
+     */
+    public static byte[] encode(QueryResult result) {
+        Writer out = new Writer();
+        out.buffer.put(VERSION);
+        out.string(result.getQuery());
+        out.string(result.getRequestUrl());
+        out.ensure(32);
+        out.buffer.putDouble(result.getAvgGrade()).putDouble(result.getAvgScore())
+                .putDouble(result.getSumGrade()).putDouble(result.getSumScore());
+        Instant newest = result.getNewestPublishedAt();
+        out.ensure(14);
+        out.buffer.put((byte) (result.isComplete() ? 1 : 0));
+        out.buffer.put((byte) (newest == null ? 0 : 1));
+        if (newest != null) out.buffer.putLong(newest.getEpochSecond()).putInt(newest.getNano());
+
+        List<Article> articles = result.getArticles();
+        out.ensure(4);
+        out.buffer.putInt(articles.size());
+        for (Article a : articles) {
+            out.string(a.getTitle());
+            out.string(a.getUrl());
+            out.string(a.getSourceName());
+            out.string(a.getSourceUrl());
+            out.string(a.getDescription());
+            out.string(a.getSourceId());
+            out.string(a.getLanguage());
+            out.ensure(24);
+            out.buffer.putLong(a.getPublishedEpochMillis()).putInt(a.getKincaidGrade()).putInt(a.getReadingScore()).putLong(a.getFingerprint());
+        }
+
+        Map<String, Long> counts = result.getWordCounts();
+        out.ensure(4);
+        out.buffer.putInt(counts.size());
+        for (Map.Entry<String, Long> e : counts.entrySet()) {
+            out.string(e.getKey());
+            out.ensure(8);
+            out.buffer.putLong(e.getValue());
+        }
+        return out.toBytes();
+    }
+
+    /**
+     * Deserializes a result written by {@link #encode(QueryResult)}, reading from the buffer's position.
+     * @param in the encoded bytes.
+     * @return the decoded result.
+     * @throws IllegalArgumentException when the bytes are not an encoded result.
+     * @author Team
+     */
+    public static QueryResult decode(ByteBuffer in) {
+        try {
+            if (in.get() != VERSION) throw new IllegalArgumentException("Unknown QueryResult encoding");
+            String query = string(in);
+            String requestUrl = string(in);
+            double avgGrade = in.getDouble();
+            double avgScore = in.getDouble();
+            double sumGrade = in.getDouble();
+            double sumScore = in.getDouble();
+            boolean complete = in.get() != 0;
+            Instant newest = in.get() == 0 ? null : Instant.ofEpochSecond(in.getLong(), in.getInt());
+
+            int size = in.getInt();
+            List<Article> articles = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                String title = string(in);
+                String url = string(in);
+                String sourceName = string(in);
+                String sourceUrl = string(in);
+                String description = string(in);
+                String sourceId = string(in);
+                String language = string(in);
+                articles.add(new Article(title, url, sourceName, sourceUrl, in.getLong(), in.getInt(), in.getInt(), description,
+                        in.getLong(), sourceId, language));
+            }
+
+            int words = in.getInt();
+            Map<String, Long> counts = new HashMap<>(words * 4 / 3 + 1);
+            for (int i = 0; i < words; i++) counts.put(string(in), in.getLong());
+
+            return new QueryResult(query, Collections.unmodifiableList(articles), requestUrl, avgGrade, avgScore,
+                    sumGrade, sumScore, newest, Collections.unmodifiableMap(counts), complete);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated QueryResult encoding", e);
+        }
+    }
+
+    /** Strings are a length (-1 for null) followed by UTF-8 bytes. */
+    private static String string(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Growable heap buffer for encoding. */
+    private static final class Writer {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+
+        void ensure(int bytes) {
+            if (buffer.remaining() >= bytes) return;
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+            buffer.flip();
+            bigger.put(buffer);
+            buffer = bigger;
+        }
+
+        void string(String s) {
+            if (s == null) {
+                ensure(4);
+                buffer.putInt(-1);
+                return;
+            }
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            ensure(4 + bytes.length);
+            buffer.putInt(bytes.length).put(bytes);
+        }
+
+        byte[] toBytes() {
+            byte[] bytes = new byte[buffer.position()];
+            buffer.flip();
+            buffer.get(bytes);
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package models;
+
+import java.util.Locale;
+
+/**
+ * 64-bit SimHash fingerprints of short texts.
+ * Texts sharing most of their words get fingerprints that differ in only a few bits.
+ * @author Team
+ */
+public final class SimHash {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private SimHash() {
+    }
+
+    /**
+     * Computes the fingerprint of a text, weighting every word occurrence equally.
+     * @param text the text to fingerprint (null is treated as empty).
+     * @return the 64-bit fingerprint, 0 for a text without words.
+     * @author Team
+     */
+    public static long fingerprint(String text) {
+        if (text == null || text.isEmpty()) return 0L;
+        int[] votes = new int[64];
+        int words = 0;
+        long h = FNV_OFFSET;
+        boolean inWord = false;
+        String lower = text.toLowerCase(Locale.ROOT);
+        for (int i = 0, n = lower.length(); i <= n; i++) {
+            char c = i < n ? lower.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                h = (h ^ c) * FNV_PRIME;
+                inWord = true;
+            } else if (inWord) {
+                vote(votes, mix(h));
+                words++;
+                h = FNV_OFFSET;
+                inWord = false;
+            }
+        }
+        if (words == 0) return 0L;
+        long fingerprint = 0L;
+        for (int bit = 0; bit < 64; bit++) {
+            if (votes[bit] > 0) fingerprint |= 1L << bit;
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Counts the differing bits of two fingerprints.
+     * @param a the first fingerprint.
+     * @param b the second fingerprint.
+     * @return the Hamming distance.
+     * @author Team
+     */
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    private static void vote(int[] votes, long hash) {
+        for (int bit = 0; bit < 64; bit++) {
+            votes[bit] += ((hash >>> bit) & 1L) != 0 ? 1 : -1;
+        }
+    }
+
+    /** Finalizer from MurmurHash3 so that similar words spread over all 64 bits. */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
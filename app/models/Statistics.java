@@ -1,6 +1,6 @@
 package models;
 
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -45,16 +45,25 @@ public class Statistics {
     }
 
     /**
-     * Gets the words in a given List<String> of sentences.
+     * Gets the words in a given List<String> of sentences: split on spaces, letters only, lower case (see {@link TextScan#words(List)}).
      * @return A List<String> of the words.
      * @author Karim BG
      */
     public static List<String> getWords(List<String> text){
-        return text.stream()
-                .flatMap(sentence-> Arrays.stream(sentence.split(" ")))
-                .map(word -> word.replaceAll("[^\\p{L}]", "").toLowerCase())
-                //.reduce("", (a,b)->(a+b+" "));
-                .collect(Collectors.toList());
+        return TextScan.words(text);
+    }
+
+    /**
+     * Gets the word counter of a single article, counting the same words as the statistics page does.
+     * Lets cached results add or remove one article's words without recounting the others.
+     * @return A Map linking each String word with the number of occurrences in the article.
+     * @author Team
+     */
+    public static Map<String, Long> getArticleCounter(Article article){
+        Statistics single = new Statistics(new QueryResult("", List.of(article), 0.0, 0.0));
+        List<String> text = new ArrayList<>(single.getTitles());
+        text.addAll(single.getDescriptions());
+        return getCounter(filtering(getWords(text)));
     }
 
     /**
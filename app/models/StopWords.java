@@ -0,0 +1,110 @@
+package models;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Words left out of phrase statistics ("the", "and", ...), kept as a set of word hashes so that the
+ * scanner checks a word without building its String.
+ * @author Team
+ */
+public final class StopWords {
+    /** No stop words. */
+    public static final StopWords NONE = new StopWords(List.of());
+
+    private final LongIntMap hashes;
+
+    private StopWords(Collection<String> words) {
+        hashes = new LongIntMap(words.size());
+        for (String w : words) {
+            if (!w.isBlank()) hashes.add(PhraseStatistics.hashWord(w), 1);
+        }
+    }
+
+    /**
+     * Builds a stop-word set.
+     * @param words the stop words (letters only count, case is ignored).
+     * @return the set.
+     * @author Team
+     */
+    public static StopWords of(Collection<String> words) {
+        return new StopWords(words);
+    }
+
+    /**
+     * Reads a stop-word file: one word per line, blank lines and lines starting with # are skipped.
+     * @param file the file.
+     * @return the set.
+     * @author Team
+     */
+    public static StopWords load(Path file) {
+        try (InputStream in = Files.newInputStream(file)) {
+            return read(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads a stop-word file from the classpath, like {@link #load(Path)}.
+     * @param resource the resource name.
+     * @return the set, empty when there is no such resource.
+     * @author Team
+     */
+    public static StopWords loadResource(String resource) {
+        try (InputStream in = StopWords.class.getClassLoader().getResourceAsStream(resource)) {
+            return in == null ? NONE : read(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static StopWords read(InputStream in) throws IOException {
+        List<String> words = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.strip();
+            if (!line.isEmpty() && !line.startsWith("#")) words.add(line);
+        }
+        return new StopWords(words);
+    }
+
+    /**
+     * Tells whether a word is a stop word.
+     * @param word the word.
+     * @return true for a stop word.
+     * @author Team
+     */
+    public boolean contains(String word) {
+        return contains(PhraseStatistics.hashWord(word));
+    }
+
+    /**
+     * Tells whether a word hash (see {@link PhraseStatistics}) is a stop word's.
+     * @param hash the word hash.
+     * @return true for a stop word.
+     * @author Team
+     */
+    boolean contains(long hash) {
+        return hashes.containsKey(hash);
+    }
+
+    /**
+     * Gets the number of stop words.
+     * @return the size.
+     * @author Team
+     */
+    public int size() {
+        return hashes.size();
+    }
+}
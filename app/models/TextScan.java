@@ -0,0 +1,350 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Single-pass text scanning behind the readability metrics and the statistics words.
+ * The characters of a text are first classified into bit masks, one bit per char (ASCII letters, vowels, sentence
+ * terminators, whitespace, spaces); words, sentences and vowel groups are then read off the masks with bit
+ * operations instead of regular expressions. Classification runs in a scalar loop, or on the Vector API
+ * ({@code jdk.incubator.vector}, see {@link VectorClassifier}) when {@code -Dnotilytics.vector=true} is set and the
+ * module is loaded; both give the same masks. The vector kernel is opt-in because on JDK 17 packing lane masks into
+ * longs is not yet cheap enough for it to beat the scalar loop. Results are exactly those of the
+ * regular expressions of {@code ReadabilityCalculator} and {@code Statistics.getWords}.
+ * @author Team
+ */
+public final class TextScan {
+    /** Classifies chars into masks: bit {@code i % 64} of word {@code i / 64} is set when char {@code i} is of that kind. */
+    interface Classifier {
+        /**
+         * Classifies the chars; every mask word covering {@code length} chars is overwritten.
+         * @param chars the text, zero-padded to a multiple of 64 chars.
+         * @param length the number of chars of the text.
+         */
+        void classify(char[] chars, int length, long[] letters, long[] vowels, long[] terminators, long[] whitespace, long[] spaces);
+    }
+
+    /** Scalar classification, always available. */
+    static final Classifier SCALAR = TextScan::classifyScalar;
+    /** Vector classification, or null when the incubator module is not loaded. */
+    static final Classifier VECTOR = loadVector();
+    /** Whether texts are classified by {@link #VECTOR}. */
+    private static final boolean USE_VECTOR = VECTOR != null && Boolean.getBoolean("notilytics.vector");
+    /** Shorter texts are classified by the scalar loop: setting vectors up costs more than it saves. */
+    static final int VECTOR_MIN_LENGTH = 128;
+
+    private static final ThreadLocal<TextScan> LOCAL = ThreadLocal.withInitial(TextScan::new);
+
+    private char[] chars = new char[256];
+    private long[] letters = new long[4];
+    private long[] vowels = new long[4];
+    private long[] terminators = new long[4];
+    private long[] whitespace = new long[4];
+    private long[] spaces = new long[4];
+    private long[] vowelStarts = new long[4];
+    private int length;
+
+    private TextScan() {
+    }
+
+    /** Sentence, word and syllable counts of a text. */
+    public static final class Counts {
+        /** Sentences, as split on runs of ".!?" followed by whitespace. */
+        public final int sentences;
+        /** Words: ASCII letters, with at most one inner apostrophe. */
+        public final int words;
+        /** Syllables: vowel groups of each word, less a silent final "e". */
+        public final int syllables;
+
+        Counts(int sentences, int words, int syllables) {
+            this.sentences = sentences;
+            this.words = words;
+            this.syllables = syllables;
+        }
+    }
+
+    /**
+     * Tells whether classification runs on the Vector API.
+     * @return true when {@code -Dnotilytics.vector=true} is set and {@code jdk.incubator.vector} is loaded.
+     * @author Team
+     */
+    public static boolean isVectorized() {
+        return USE_VECTOR;
+    }
+
+    /**
+     * Counts the sentences, words and syllables of a text in one pass.
+     * @param text the text, may be null.
+     * @return the counts, all 0 for a blank text.
+     * @author Team
+     */
+    public static Counts readability(String text) {
+        return readability(text, null);
+    }
+
+    /** Same, with the given classifier; null picks one by text length. */
+    static Counts readability(String text, Classifier classifier) {
+        if (text == null) return new Counts(0, 0, 0);
+        TextScan scan = LOCAL.get();
+        scan.load(text, classifier != null ? classifier : classifier(text));
+        return scan.counts();
+    }
+
+    /**
+     * Splits texts into words like {@code Statistics.getWords}: on single spaces, keeping only the letters of each
+     * token, lower-cased. Trailing empty tokens of a text are dropped, as {@code String.split} does.
+     * @param texts the texts.
+     * @return the words, in order.
+     * @author Team
+     */
+    public static List<String> words(List<String> texts) {
+        return words(texts, null);
+    }
+
+    /** Same, with the given classifier; null picks one by text length. */
+    static List<String> words(List<String> texts, Classifier classifier) {
+        List<String> words = new ArrayList<>();
+        TextScan scan = LOCAL.get();
+        for (String text : texts) {
+            scan.load(text, classifier != null ? classifier : classifier(text));
+            scan.addWords(text, words);
+        }
+        return words;
+    }
+
+    private static Classifier classifier(String text) {
+        return USE_VECTOR && text != null && text.length() >= VECTOR_MIN_LENGTH ? VECTOR : SCALAR;
+    }
+
+    private static Classifier loadVector() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) return null;
+        try {
+            return (Classifier) Class.forName("models.VectorClassifier").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null; // module present but unusable: stay scalar
+        }
+    }
+
+    /** Copies the text, zero-padded to whole mask words, and classifies it. */
+    private void load(String text, Classifier classifier) {
+        length = text.length();
+        int words = (length + 63) >>> 6;
+        if (chars.length < words << 6) {
+            int capacity = Math.max(chars.length * 2, words << 6);
+            chars = new char[capacity];
+            letters = new long[capacity >>> 6];
+            vowels = new long[capacity >>> 6];
+            terminators = new long[capacity >>> 6];
+            whitespace = new long[capacity >>> 6];
+            spaces = new long[capacity >>> 6];
+            vowelStarts = new long[capacity >>> 6];
+        }
+        text.getChars(0, length, chars, 0);
+        for (int i = length; i < words << 6; i++) chars[i] = 0;
+        classifier.classify(chars, length, letters, vowels, terminators, whitespace, spaces);
+    }
+
+    private static void classifyScalar(char[] chars, int length, long[] letters, long[] vowels, long[] terminators, long[] whitespace, long[] spaces) {
+        for (int w = 0, base = 0; base < length; w++, base += 64) {
+            long l = 0, v = 0, t = 0, ws = 0, sp = 0;
+            int end = Math.min(64, length - base);
+            for (int j = 0; j < end; j++) {
+                char c = chars[base + j];
+                long bit = 1L << j;
+                char lower = (char) (c | 0x20);
+                if (lower >= 'a' && lower <= 'z') {
+                    l |= bit;
+                    if (isVowel(lower)) v |= bit;
+                } else if (c == '.' || c == '!' || c == '?') {
+                    t |= bit;
+                } else if (c == ' ') {
+                    sp |= bit;
+                    ws |= bit;
+                } else if (c >= '\t' && c <= '\r') {
+                    ws |= bit;
+                }
+            }
+            letters[w] = l;
+            vowels[w] = v;
+            terminators[w] = t;
+            whitespace[w] = ws;
+            spaces[w] = sp;
+        }
+    }
+
+    private static boolean isVowel(char lower) {
+        return lower == 'a' || lower == 'e' || lower == 'i' || lower == 'o' || lower == 'u' || lower == 'y';
+    }
+
+    private Counts counts() {
+        int lo = 0;
+        int hi = length;
+        while (lo < hi && chars[lo] <= ' ') lo++; // String.trim()
+        while (hi > lo && chars[hi - 1] <= ' ') hi--;
+        if (lo == hi) return new Counts(0, 0, 0);
+        return wordsAndSyllables(sentences(lo, hi));
+    }
+
+    /**
+     * Sentences of the trimmed text [lo, hi), as {@code "[.!?]+\\s*"} splits it: every run of terminators starts a
+     * separator, and trailing empty pieces are dropped, so the count is one more than the runs starting before the
+     * last char that is neither a terminator nor whitespace (0 when there is none).
+     */
+    private int sentences(int lo, int hi) {
+        int last = -1;
+        for (int w = (hi - 1) >>> 6; w >= lo >>> 6 && last < 0; w--) {
+            long other = ~(terminators[w] | whitespace[w]) & range(w, lo, hi);
+            if (other != 0) last = (w << 6) + 63 - Long.numberOfLeadingZeros(other);
+        }
+        if (last < 0) return 0;
+        int runs = 0;
+        for (int w = lo >>> 6; w <= last >>> 6; w++) {
+            // the char before lo is trimmed whitespace, never a terminator
+            long starts = terminators[w] & ~previous(terminators, w);
+            runs += Long.bitCount(starts & range(w, lo, last));
+        }
+        return runs + 1;
+    }
+
+    /**
+     * Words and syllables, as {@code "[A-Za-z]+(?:'[A-Za-z]+)?"} finds words: runs of letters, two of them joined when
+     * a single apostrophe separates them and the first did not already end a joined word.
+     */
+    private Counts wordsAndSyllables(int sentences) {
+        int maskWords = (length + 63) >>> 6;
+        for (int w = 0; w < maskWords; w++) vowelStarts[w] = vowels[w] & ~previous(vowels, w);
+        int words = 0;
+        int syllables = 0;
+        int pendingStart = -1;
+        int pendingEnd = -1;
+        int pendingGroups = 0;
+        for (int w = 0; w < maskWords; w++) {
+            long starts = letters[w] & ~previous(letters, w);
+            while (starts != 0) {
+                int s = (w << 6) + Long.numberOfTrailingZeros(starts);
+                starts &= starts - 1;
+                int e = runEnd(s);
+                int groups = count(vowelStarts, s, e + 1);
+                if (pendingStart >= 0 && s == pendingEnd + 2 && chars[s - 1] == '\'') {
+                    // the apostrophe goes: vowels on both sides of it make one group
+                    if (isSet(vowels, pendingEnd) && isSet(vowels, s)) groups--;
+                    words++;
+                    syllables += syllables(pendingGroups + groups, pendingStart, pendingEnd, s, e);
+                    pendingStart = -1;
+                } else {
+                    if (pendingStart >= 0) {
+                        words++;
+                        syllables += syllables(pendingGroups, -1, -1, pendingStart, pendingEnd);
+                    }
+                    pendingStart = s;
+                    pendingEnd = e;
+                    pendingGroups = groups;
+                }
+            }
+        }
+        if (pendingStart >= 0) {
+            words++;
+            syllables += syllables(pendingGroups, -1, -1, pendingStart, pendingEnd);
+        }
+        return new Counts(sentences, words, syllables);
+    }
+
+    /** Syllables of a word made of the letters [s1, e1] (when s1 >= 0) and [s2, e2], like countSyllablesInWord. */
+    private int syllables(int groups, int s1, int e1, int s2, int e2) {
+        int count = groups;
+        int second = e2 - s2 + 1;
+        int letterCount = second + (s1 >= 0 ? e1 - s1 + 1 : 0);
+        if (lowerLetter(0, s1, e1, s2, e2) == 'e' && count > 1) {
+            boolean consonantPlusLe = letterCount >= 3 && lowerLetter(1, s1, e1, s2, e2) == 'l'
+                    && !isVowel(lowerLetter(2, s1, e1, s2, e2));
+            if (!consonantPlusLe) count--;
+        }
+        return Math.max(count, 1);
+    }
+
+    /** The k-th letter from the end of a (possibly joined) word, lower-cased. */
+    private char lowerLetter(int k, int s1, int e1, int s2, int e2) {
+        int second = e2 - s2 + 1;
+        char c = k < second ? chars[e2 - k] : chars[e1 - (k - second)];
+        return (char) (c | 0x20);
+    }
+
+    /** Adds the words of the loaded text, see {@link #words(List)}. */
+    private void addWords(String text, List<String> out) {
+        int maskWords = (length + 63) >>> 6;
+        int first = out.size();
+        int kept = first; // out size without the trailing empty tokens
+        int from = 0;
+        boolean split = false;
+        for (int w = 0; w < maskWords; w++) {
+            long bits = spaces[w];
+            while (bits != 0) {
+                int at = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                out.add(word(text, from, at));
+                if (at > from) kept = out.size();
+                from = at + 1;
+                split = true;
+            }
+        }
+        if (!split) { // no space: the whole text, even when empty
+            out.add(word(text, 0, length));
+            return;
+        }
+        out.add(word(text, from, length));
+        if (length > from) kept = out.size();
+        out.subList(kept, out.size()).clear();
+    }
+
+    /** The letters of [from, to), lower-cased in the root locale: as replaceAll("[^\\p{L}]", "").toLowerCase(Locale.ROOT). */
+    private String word(String text, int from, int to) {
+        if (from == to) return "";
+        if (count(letters, from, to) == to - from) return text.substring(from, to).toLowerCase(Locale.ROOT); // ASCII letters only
+        StringBuilder kept = new StringBuilder(to - from);
+        for (int i = from; i < to; ) {
+            int cp = text.codePointAt(i);
+            if (Character.isLetter(cp)) kept.appendCodePoint(cp);
+            i += Character.charCount(cp);
+        }
+        return kept.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /** Last index of the letter run starting at s. */
+    private int runEnd(int s) {
+        int w = s >>> 6;
+        long gaps = ~letters[w] & (-1L << s);
+        int maskWords = (length + 63) >>> 6;
+        while (gaps == 0) {
+            if (++w == maskWords) return length - 1;
+            gaps = ~letters[w];
+        }
+        return (w << 6) + Long.numberOfTrailingZeros(gaps) - 1;
+    }
+
+    /** Mask of word w shifted by one char: bit i set when char i - 1 is set. */
+    private static long previous(long[] mask, int w) {
+        return (mask[w] << 1) | (w > 0 ? mask[w - 1] >>> 63 : 0);
+    }
+
+    /** Bits of word w within [from, to). */
+    private static long range(int w, int from, int to) {
+        int base = w << 6;
+        long low = from <= base ? -1L : from >= base + 64 ? 0 : -1L << (from - base);
+        long high = to >= base + 64 ? -1L : to <= base ? 0 : (1L << (to - base)) - 1;
+        return low & high;
+    }
+
+    /** Set bits within [from, to). */
+    private static int count(long[] mask, int from, int to) {
+        if (from >= to) return 0;
+        int n = 0;
+        for (int w = from >>> 6; w <= (to - 1) >>> 6; w++) n += Long.bitCount(mask[w] & range(w, from, to));
+        return n;
+    }
+
+    private static boolean isSet(long[] mask, int i) {
+        return (mask[i >>> 6] & (1L << i)) != 0;
+    }
+}
@@ -0,0 +1,46 @@
+package models;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Classifies chars for {@link TextScan} in wide lanes with the Vector API: each vector of chars is compared against
+ * the letter, vowel, terminator and whitespace ranges at once and the lane masks are packed into the 64-bit mask words.
+ * Only loaded (by reflection) when {@code jdk.incubator.vector} is in the boot layer, so nothing else depends on it.
+ * @author Team
+ */
+final class VectorClassifier implements TextScan.Classifier {
+    /** The preferred width, unless its lanes would not fit one mask word. */
+    private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED.length() <= 64
+            ? ShortVector.SPECIES_PREFERRED : ShortVector.SPECIES_512;
+
+    @Override
+    public void classify(char[] chars, int length, long[] letters, long[] vowels, long[] terminators, long[] whitespace, long[] spaces) {
+        int lanes = SPECIES.length();
+        for (int w = 0, base = 0; base < length; w++, base += 64) {
+            long l = 0, v = 0, t = 0, ws = 0, sp = 0;
+            for (int j = 0; j < 64; j += lanes) { // chars are zero-padded to whole mask words
+                ShortVector c = ShortVector.fromCharArray(SPECIES, chars, base + j);
+                ShortVector lower = c.or((short) 0x20);
+                VectorMask<Short> letter = lower.compare(VectorOperators.GE, (short) 'a').and(lower.compare(VectorOperators.LE, (short) 'z'));
+                VectorMask<Short> vowel = lower.eq((short) 'a').or(lower.eq((short) 'e')).or(lower.eq((short) 'i'))
+                        .or(lower.eq((short) 'o')).or(lower.eq((short) 'u')).or(lower.eq((short) 'y'));
+                VectorMask<Short> terminator = c.eq((short) '.').or(c.eq((short) '!')).or(c.eq((short) '?'));
+                VectorMask<Short> space = c.eq((short) ' ');
+                VectorMask<Short> white = space.or(c.sub((short) '\t').compare(VectorOperators.UNSIGNED_LE, (short) ('\r' - '\t')));
+                l |= letter.toLong() << j;
+                v |= vowel.toLong() << j;
+                t |= terminator.toLong() << j;
+                ws |= white.toLong() << j;
+                sp |= space.toLong() << j;
+            }
+            letters[w] = l;
+            vowels[w] = v;
+            terminators[w] = t;
+            whitespace[w] = ws;
+            spaces[w] = sp;
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import controllers.ReadabilityCalculator;
+import models.Statistics;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Collectors;
+
+/**
+ * Offline readability and word statistics over archived NewsAPI responses, without the web application.
+ * Input files are newline-delimited JSON, one NewsAPI response ({@code {"articles": [...]}}) or one article per line.
+ * Files are memory-mapped and split at line boundaries into chunks analysed in parallel on a ForkJoin pool; each
+ * chunk builds its own partial totals, merged pairwise as the tasks join, so threads never share mutable state.
+ * Writes {@code sources.csv} and {@code days.csv} (articles, average grade and score, most frequent words).
+ * <pre>
+ * sbt "runMain tools.BatchAnalytics [--parallelism N] [--top K] output-dir dump.ndjson..."
+ * </pre>
+ * @author Team
+ */
+public final class BatchAnalytics {
+    /** Chunks smaller than this are not split further. */
+    static final long LEAF_BYTES = 4L << 20;
+    /** Largest part of a file mapped at once (a mapping is limited to 2GB). */
+    static final long SEGMENT_BYTES = 1L << 30;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private BatchAnalytics() {
+    }
+
+    /**
+     * Command-line entry point.
+     * @param args options, the output directory, then the input files.
+     * @throws IOException when a file cannot be read or written.
+     * @author Team
+     */
+    public static void main(String[] args) throws IOException {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        int top = 10;
+        List<String> rest = new ArrayList<>(Arrays.asList(args));
+        while (!rest.isEmpty() && rest.get(0).startsWith("--")) {
+            String option = rest.remove(0);
+            if (rest.isEmpty()) usage();
+            if (option.equals("--parallelism")) parallelism = Integer.parseInt(rest.remove(0));
+            else if (option.equals("--top")) top = Integer.parseInt(rest.remove(0));
+            else usage();
+        }
+        if (rest.size() < 2) usage();
+
+        Path output = Paths.get(rest.get(0));
+        List<Path> inputs = rest.subList(1, rest.size()).stream().map(Paths::get).collect(Collectors.toList());
+        long bytes = 0;
+        for (Path p : inputs) bytes += Files.size(p);
+
+        long start = System.nanoTime();
+        Totals totals = analyse(inputs, parallelism, LEAF_BYTES);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        write(totals, output, top);
+
+        System.out.printf("%d articles (%d malformed lines) from %.1f MB in %.2f s: %.0f articles/s, %.1f MB/s on %d threads%n",
+                totals.articles, totals.malformed, bytes / 1e6, seconds, totals.articles / seconds, bytes / 1e6 / seconds, parallelism);
+        System.out.println("Wrote " + output.resolve("sources.csv") + " and " + output.resolve("days.csv"));
+    }
+
+    private static void usage() {
+        System.err.println("usage: BatchAnalytics [--parallelism N] [--top K] output-dir dump.ndjson...");
+        System.exit(2);
+    }
+
+    /**
+     * Analyses dump files.
+     * @param inputs the newline-delimited JSON files.
+     * @param parallelism number of worker threads.
+     * @param leafBytes chunk size below which a task stops splitting.
+     * @return the merged totals.
+     * @throws IOException when a file cannot be read.
+     * @author Team
+     */
+    static Totals analyse(List<Path> inputs, int parallelism, long leafBytes) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        List<FileChannel> channels = new ArrayList<>();
+        try {
+            List<ForkJoinTask<Totals>> tasks = new ArrayList<>();
+            for (Path input : inputs) {
+                FileChannel channel = FileChannel.open(input, StandardOpenOption.READ);
+                channels.add(channel);
+                long size = channel.size();
+                for (long from = 0; from < size; ) {
+                    long to = from + SEGMENT_BYTES >= size ? size : nextLine(channel, from + SEGMENT_BYTES);
+                    MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+                    tasks.add(pool.submit(new Chunk(segment, 0, (int) (to - from), leafBytes)));
+                    from = to;
+                }
+            }
+            Totals totals = new Totals();
+            for (ForkJoinTask<Totals> task : tasks) totals.merge(task.join());
+            return totals;
+        } finally {
+            pool.shutdown();
+            for (FileChannel c : channels) c.close();
+        }
+    }
+
+    /**
+     * Writes the per-source and per-day summaries as CSV.
+     * @param totals the analysed totals.
+     * @param output the output directory.
+     * @param top number of most frequent words listed per row.
+     * @throws IOException when a file cannot be written.
+     * @author Team
+     */
+    static void write(Totals totals, Path output, int top) throws IOException {
+        Files.createDirectories(output);
+        writeCsv(output.resolve("sources.csv"), "source", new TreeMap<>(totals.bySource), top);
+        writeCsv(output.resolve("days.csv"), "day", new TreeMap<>(totals.byDay), top);
+    }
+
+    private static void writeCsv(Path file, String keyColumn, Map<String, Group> groups, int top) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write(keyColumn + ",articles,avg_grade,avg_score,top_words\n");
+            for (Map.Entry<String, Group> e : groups.entrySet()) {
+                Group g = e.getValue();
+                String words = g.words.entrySet().stream()
+                        .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                        .limit(top)
+                        .map(w -> w.getKey() + ":" + w.getValue())
+                        .collect(Collectors.joining(" "));
+                out.write(csv(e.getKey()) + "," + g.articles + "," + String.format("%.2f", g.sumGrade / g.articles) + ","
+                        + String.format("%.2f", g.sumScore / g.articles) + "," + csv(words) + "\n");
+            }
+        }
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /** Finds the offset just after the first newline at or after a position (or the end of the file). */
+    private static long nextLine(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(64 << 10);
+        long size = channel.size();
+        while (position < size) {
+            buffer.clear();
+            int n = channel.read(buffer, position);
+            for (int i = 0; i < n; i++) {
+                if (buffer.get(i) == '\n') return position + i + 1;
+            }
+            position += n;
+        }
+        return size;
+    }
+
+    /** A byte range of a mapped segment, split in two at a line boundary until small enough. */
+    private static final class Chunk extends RecursiveTask<Totals> {
+        private static final long serialVersionUID = 1L;
+        private final ByteBuffer segment;
+        private final int from;
+        private final int to;
+        private final long leafBytes;
+
+        Chunk(ByteBuffer segment, int from, int to, long leafBytes) {
+            this.segment = segment;
+            this.from = from;
+            this.to = to;
+            this.leafBytes = leafBytes;
+        }
+
+        @Override
+        protected Totals compute() {
+            if (to - from > leafBytes) {
+                int mid = from + (to - from) / 2;
+                while (mid < to && segment.get(mid - 1) != '\n') mid++;
+                if (mid < to) {
+                    Chunk left = new Chunk(segment, from, mid, leafBytes);
+                    left.fork();
+                    Totals right = new Chunk(segment, mid, to, leafBytes).compute();
+                    return right.merge(left.join());
+                }
+            }
+            return scan();
+        }
+
+        /** Analyses every line of the range. */
+        private Totals scan() {
+            Totals totals = new Totals();
+            ByteBuffer view = segment.duplicate();
+            byte[] line = new byte[64 << 10];
+            int start = from;
+            for (int i = from; i <= to; i++) {
+                if (i < to && segment.get(i) != '\n') continue;
+                int length = i - start;
+                if (length > 0) {
+                    if (length > line.length) line = new byte[Math.max(length, line.length * 2)];
+                    view.position(start);
+                    view.get(line, 0, length);
+                    totals.addLine(line, length);
+                }
+                start = i + 1;
+            }
+            return totals;
+        }
+    }
+
+    /** Partial or final totals. */
+    static final class Totals {
+        long articles;
+        long malformed;
+        final Map<String, Group> bySource = new HashMap<>();
+        final Map<String, Group> byDay = new HashMap<>();
+
+        void addLine(byte[] line, int length) {
+            JsonNode json;
+            try {
+                json = MAPPER.readTree(line, 0, length);
+            } catch (IOException e) {
+                malformed++;
+                return;
+            }
+            if (json == null) return;
+            JsonNode list = json.get("articles");
+            if (list != null && list.isArray()) list.forEach(this::addArticle);
+            else if (json.has("title")) addArticle(json);
+        }
+
+        void addArticle(JsonNode article) {
+            String title = article.path("title").asText("");
+            String description = article.path("description").asText("");
+            String source = article.path("source").path("name").asText("Unknown Source");
+            String published = article.path("publishedAt").asText("");
+            String day = published.length() >= 10 ? published.substring(0, 10) : "unknown";
+
+            // same readability (of the title) and word filtering as the web application
+            double grade = ReadabilityCalculator.calculateFleschKincaidGrade(title);
+            double score = ReadabilityCalculator.calculateFleschReadingScore(title);
+            List<String> words = Statistics.filtering(Statistics.getWords(List.of(title, description)));
+
+            articles++;
+            bySource.computeIfAbsent(source, k -> new Group()).add(grade, score, words);
+            byDay.computeIfAbsent(day, k -> new Group()).add(grade, score, words);
+        }
+
+        Totals merge(Totals other) {
+            articles += other.articles;
+            malformed += other.malformed;
+            other.bySource.forEach((k, g) -> bySource.merge(k, g, Group::merge));
+            other.byDay.forEach((k, g) -> byDay.merge(k, g, Group::merge));
+            return this;
+        }
+    }
+
+    /** Totals for one source or one day. */
+    static final class Group {
+        long articles;
+        double sumGrade;
+        double sumScore;
+        final Map<String, Long> words = new HashMap<>();
+
+        void add(double grade, double score, List<String> articleWords) {
+            articles++;
+            sumGrade += grade;
+            sumScore += score;
+            for (String w : articleWords) words.merge(w, 1L, Long::sum);
+        }
+
+        Group merge(Group other) {
+            articles += other.articles;
+            sumGrade += other.sumGrade;
+            sumScore += other.sumScore;
+            other.words.forEach((w, n) -> words.merge(w, n, Long::sum));
+            return this;
+        }
+    }
+}
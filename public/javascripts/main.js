@@ -0,0 +1,7 @@
+// Tells the server the browser's time zone, so that publication times are shown in local time (see models.DisplayTime)
+(function () {
+    var zone = Intl.DateTimeFormat().resolvedOptions().timeZone;
+    if (zone && document.cookie.split("; ").indexOf("tz=" + zone) < 0) {
+        document.cookie = "tz=" + zone + "; path=/; max-age=31536000; SameSite=Lax";
+    }
+})();
@@ -0,0 +1,66 @@
+#!/usr/bin/env bash
+# Runs the training workload of `sbt appCds`: boots the staged app, exercises it, and lets the JVM write an AppCDS
+# archive of every class it loaded when it exits.
+#
+#   scripts/appcds-train.sh <stage dir> <archive file>
+#
+# NewsAPI is never called: the app runs in replay mode (Services.UpstreamArchive) over NOTILYTICS_TRAINING_ARCHIVE,
+# a directory recorded with newsapi.archive.mode=record. By default it is an empty directory, which replays as an
+# empty archive: searches find no articles, and the warm-up still runs the analysis and render code on its fixture
+# articles.
+set -euo pipefail
+
+STAGE=${1:?stage directory}
+ARCHIVE=${2:?archive file}
+PORT=${NOTILYTICS_TRAINING_PORT:-19000}
+WORK=$(mktemp -d)
+REPLAY=${NOTILYTICS_TRAINING_ARCHIVE:-$WORK/archive}
+LOG=$(dirname "$ARCHIVE")/training.log
+URL=http://127.0.0.1:$PORT
+
+mkdir -p "$(dirname "$ARCHIVE")" "$REPLAY"
+rm -f "$ARCHIVE"
+
+NOTILYTICS_NO_CDS=1 "$STAGE/bin/notilytics" \
+  -J-XX:ArchiveClassesAtExit="$ARCHIVE" \
+  -Dhttp.port=$PORT \
+  -Dpidfile.path=/dev/null \
+  -Dplay.http.secret.key="$(head -c 32 /dev/urandom | od -An -tx1 | tr -d ' \n')" \
+  -Dnewsapi.key=training \
+  -Dadmission.enabled=false \
+  -Dnewsapi.archive.mode=replay \
+  -Dnewsapi.archive.path="$REPLAY" \
+  -Deventlog.path="$WORK/logs" \
+  -Dwarmup.snapshot="$WORK/warmup-queries.txt" \
+  > "$LOG" 2>&1 &
+PID=$!
+trap 'kill $PID 2>/dev/null || true; rm -rf "$WORK"' EXIT
+
+# 200 from /ready once the warm-up is over
+for _ in $(seq 1 240); do
+  curl -fs -o /dev/null "$URL/ready" && break
+  kill -0 $PID 2>/dev/null || { echo "the application stopped, see $LOG" >&2; exit 1; }
+  sleep 0.5
+done
+curl -fs -o /dev/null "$URL/ready" || { echo "not ready after 2 minutes, see $LOG" >&2; exit 1; }
+
+for q in climate "interest rates" election "climate canada"; do
+  encoded=${q// /+}
+  curl -fs -o /dev/null "$URL/search?SearchInput=$encoded"
+  curl -fs -o /dev/null "$URL/search?SearchInput=$encoded&sortBy=relevancy&showSources=true&collapse=true"
+  curl -fs -o /dev/null "$URL/statistics/${q// /%20}"
+  curl -fs -o /dev/null "$URL/statistics/${q// /%20}?ngrams=true"
+done
+curl -fs -o /dev/null "$URL/search?SearchInput=news&filterValue=category:technology"
+curl -fs -o /dev/null "$URL/suggest?prefix=cl"
+curl -fs -o /dev/null "$URL/trending"
+curl -fs -o /dev/null "$URL/metrics"
+curl -fs -o /dev/null "$URL/"
+
+# the archive is written as the JVM exits
+kill -TERM $PID
+wait $PID || true
+trap 'rm -rf "$WORK"' EXIT
+
+[ -s "$ARCHIVE" ] || { echo "no archive written, see $LOG" >&2; exit 1; }
+echo "wrote $ARCHIVE ($(du -h "$ARCHIVE" | cut -f1))"
@@ -0,0 +1,42 @@
+#!/usr/bin/env bash
+# Runs NotiLytics in cluster mode as several JVMs on this machine (ports 9001, 9002, ...).
+#
+#   NEWSAPI_KEY=... scripts/cluster-local.sh [nodes]    start the nodes (default 3), Ctrl-C stops them all
+#
+# Each node logs to target/cluster/node-<port>.log. Kill one node to watch the others take over its
+# queries (cluster.nodes.live at /metrics), restart it to watch them hand the queries back.
+set -euo pipefail
+
+NODES=${1:-3}
+BASE_PORT=9001
+cd "$(dirname "$0")/.."
+
+: "${NEWSAPI_KEY:?set NEWSAPI_KEY}"
+SECRET=${NOTILYTICS_CLUSTER_SECRET:-$(head -c 16 /dev/urandom | od -An -tx1 | tr -d ' \n')}
+APP_SECRET=$(head -c 32 /dev/urandom | od -An -tx1 | tr -d ' \n')
+
+[ -x target/universal/stage/bin/notilytics ] || sbt stage
+mkdir -p target/cluster
+
+NODE_ARGS=()
+for i in $(seq 0 $((NODES - 1))); do
+  NODE_ARGS+=("-Dcluster.nodes.$i=http://127.0.0.1:$((BASE_PORT + i))")
+done
+
+PIDS=()
+trap 'kill "${PIDS[@]}" 2>/dev/null; wait' EXIT INT TERM
+for i in $(seq 0 $((NODES - 1))); do
+  PORT=$((BASE_PORT + i))
+  target/universal/stage/bin/notilytics \
+    -Dhttp.port=$PORT \
+    -Dpidfile.path=/dev/null \
+    -Dplay.http.secret.key="$APP_SECRET" \
+    -Dcluster.enabled=true \
+    -Dcluster.self=http://127.0.0.1:$PORT \
+    -Dcluster.secret="$SECRET" \
+    "${NODE_ARGS[@]}" \
+    > target/cluster/node-$PORT.log 2>&1 &
+  PIDS+=($!)
+  echo "node $PORT started (pid $!)"
+done
+wait
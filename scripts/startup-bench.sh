@@ -0,0 +1,66 @@
+#!/usr/bin/env bash
+# Startup benchmark: time from launch to the first successful search, and to /ready, with and without the AppCDS
+# archive written by `sbt appCds`. Runs alternate between the two so that machine noise hits both alike.
+#
+#   scripts/startup-bench.sh [runs]      (default 5 runs of each)
+#
+# Like the training run, the app replays NewsAPI from NOTILYTICS_TRAINING_ARCHIVE (by default an empty directory,
+# replayed as an empty archive), so results do not depend on the network.
+set -euo pipefail
+
+RUNS=${1:-5}
+PORT=${NOTILYTICS_BENCH_PORT:-19001}
+URL=http://127.0.0.1:$PORT
+cd "$(dirname "$0")/.."
+STAGE=target/universal/stage
+[ -f "$STAGE/lib/notilytics.jsa" ] || { echo "no AppCDS archive, run: sbt appCds" >&2; exit 1; }
+WORK=$(mktemp -d)
+REPLAY=${NOTILYTICS_TRAINING_ARCHIVE:-$WORK/archive}
+mkdir -p "$REPLAY"
+PID=
+trap '[ -n "$PID" ] && kill $PID 2>/dev/null; rm -rf "$WORK"' EXIT
+
+now_ms() { date +%s%3N; }
+
+# prints "<ms to first 200 from /search> <ms to 200 from /ready>"
+measure() {
+  local no_cds=$1 start search= ready=
+  start=$(now_ms)
+  NOTILYTICS_NO_CDS=$no_cds "$STAGE/bin/notilytics" \
+    -Dhttp.port=$PORT \
+    -Dpidfile.path=/dev/null \
+    -Dplay.http.secret.key="$(head -c 32 /dev/urandom | od -An -tx1 | tr -d ' \n')" \
+    -Dnewsapi.key=bench \
+    -Dadmission.enabled=false \
+    -Dnewsapi.archive.mode=replay \
+    -Dnewsapi.archive.path="$REPLAY" \
+    -Deventlog.path="$WORK/logs" \
+    -Dwarmup.snapshot="$WORK/warmup-queries.txt" \
+    > "$WORK/app.log" 2>&1 &
+  PID=$!
+  while [ -z "$ready" ]; do
+    kill -0 $PID 2>/dev/null || { echo "the application stopped:" >&2; tail "$WORK/app.log" >&2; exit 1; }
+    if [ -z "$search" ] && curl -fs -o /dev/null "$URL/search?SearchInput=climate"; then search=$(( $(now_ms) - start )); fi
+    if [ -n "$search" ] && curl -fs -o /dev/null "$URL/ready"; then ready=$(( $(now_ms) - start )); fi
+    [ -n "$ready" ] || sleep 0.05
+  done
+  kill -TERM $PID
+  wait $PID 2>/dev/null || true
+  PID=
+  echo "$search $ready"
+}
+
+median() { sort -n | awk '{ v[NR] = $1 } END { print (NR % 2) ? v[(NR + 1) / 2] : int((v[NR / 2] + v[NR / 2 + 1]) / 2) }'; }
+
+: > "$WORK/without"; : > "$WORK/with"
+for run in $(seq 1 "$RUNS"); do
+  measure 1 > "$WORK/run"; read -r s r < "$WORK/run"; echo "$s $r" >> "$WORK/without"
+  echo "run $run  without archive: first search ${s} ms, ready ${r} ms"
+  measure "" > "$WORK/run"; read -r s r < "$WORK/run"; echo "$s $r" >> "$WORK/with"
+  echo "run $run  with archive:    first search ${s} ms, ready ${r} ms"
+done
+
+for mode in without with; do
+  printf '%-8s archive: median first search %s ms, median ready %s ms\n' "$mode" \
+    "$(cut -d' ' -f1 "$WORK/$mode" | median)" "$(cut -d' ' -f2 "$WORK/$mode" | median)"
+done
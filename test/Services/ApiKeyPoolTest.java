@@ -0,0 +1,131 @@
+package Services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import models.Article;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import play.libs.ws.WSClient;
+import play.libs.ws.WSRequest;
+import play.libs.ws.WSResponse;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for ApiKeyPool, alone and behind Client with a stubbed WSClient.
+ */
+public class ApiKeyPoolTest {
+
+    private static final Config TWO_KEYS = ConfigFactory.parseString(
+            "newsapi.keys = [ { key = \"aaaa1111\", quota = 3, rate = 100 }, { key = \"bbbb2222\", quota = 2, rate = 100 } ]");
+
+    private Metrics metrics;
+    private ApiKeyPool pool;
+
+    @Before
+    public void setup() {
+        metrics = new Metrics();
+        pool = new ApiKeyPool(TWO_KEYS, metrics, Clock.fixed(Instant.parse("2025-11-04T12:00:00Z"), ZoneOffset.UTC));
+    }
+
+    @Test
+    public void testKeysArePickedByRemainingQuota() {
+        assertEquals("aaaa1111", pool.acquire().get()); // 3 left vs 2
+        assertEquals("aaaa1111", pool.acquire().get()); // 2 left vs 2, first wins ties
+        assertEquals("bbbb2222", pool.acquire().get()); // 1 left vs 2
+        assertTrue(pool.acquire().isPresent());
+        assertTrue(pool.acquire().isPresent());
+        assertFalse(pool.acquire().isPresent());       // 5 requests = both quotas
+        assertEquals(1L, metrics.snapshot().get("apikeys.exhausted"));
+        assertEquals(0L, metrics.snapshot().get("apikeys.key0.remaining"));
+        assertEquals(0L, metrics.snapshot().get("apikeys.key1.remaining"));
+        assertTrue(metrics.snapshot().keySet().stream().noneMatch(name -> name.contains("1111") || name.contains("2222")));
+    }
+
+    @Test
+    public void testRejectedKeyLeavesRotation() {
+        pool.report("aaaa1111", 429, Optional.of("60"));
+        assertEquals("bbbb2222", pool.acquire().get());
+        assertEquals("bbbb2222", pool.acquire().get());
+        assertFalse(pool.acquire().isPresent());
+        assertEquals(0, metrics.snapshot().get("apikeys.key0.available"));
+        assertEquals(1L, metrics.snapshot().get("apikeys.key0.rejected"));
+    }
+
+    @Test
+    public void testSingleKeyHasNoQuotaUnlessConfigured() {
+        Config unlimited = ConfigFactory.parseString("newsapi.key = \"solo\"\nnewsapi.rate = 1000");
+        ApiKeyPool single = new ApiKeyPool(unlimited, metrics, Clock.fixed(Instant.parse("2025-11-04T12:00:00Z"), ZoneOffset.UTC));
+        for (int i = 0; i < 500; i++) assertTrue(single.acquire().isPresent());
+        assertEquals(500L, metrics.snapshot().get("apikeys.key0.used"));
+    }
+
+    @Test
+    public void testKeyHasNoRateLimitUnlessConfigured() {
+        Config uncapped = ConfigFactory.parseString("newsapi.key = \"solo\"");
+        ApiKeyPool single = new ApiKeyPool(uncapped, metrics, Clock.fixed(Instant.parse("2025-11-04T12:00:00Z"), ZoneOffset.UTC));
+        for (int i = 0; i < 500; i++) assertTrue(single.acquire().isPresent());
+    }
+
+    @Test
+    public void testKeyOutOfQuotaSpendsNoRateToken() {
+        Config config = ConfigFactory.parseString(
+                "newsapi.keys = [ { key = \"aaaa1111\", quota = 1, rate = 1 }, { key = \"bbbb2222\", quota = 5, rate = 1 } ]");
+        ApiKeyPool two = new ApiKeyPool(config, new Metrics(), Clock.fixed(Instant.parse("2025-11-04T12:00:00Z"), ZoneOffset.UTC));
+        assertEquals("bbbb2222", two.acquire().get());
+        assertEquals("bbbb2222", two.acquire().get()); // burst of one second
+        assertEquals("aaaa1111", two.acquire().get()); // b is rate limited, its quota was given back
+        assertFalse(two.acquire().isPresent());
+    }
+
+    @Test
+    public void testRateLimitIsEnforced() {
+        Config slow = ConfigFactory.parseString("newsapi.key = \"solo\"\nnewsapi.quota = 1000\nnewsapi.rate = 1");
+        ApiKeyPool single = new ApiKeyPool(slow, new Metrics(), Clock.fixed(Instant.parse("2025-11-04T12:00:00Z"), ZoneOffset.UTC));
+        assertTrue(single.acquire().isPresent());
+        assertTrue(single.acquire().isPresent());   // burst of one second
+        assertFalse(single.acquire().isPresent());  // clock does not move
+    }
+
+    @Test
+    public void testClientRotatesToNextKeyOn429() throws Exception {
+        WSClient ws = Mockito.mock(WSClient.class);
+        WSRequest limited = stubRequest(429, "{}");
+        WSRequest ok = stubRequest(200, "{\"articles\":[{\"title\":\"T\",\"url\":\"u\",\"source\":{\"id\":null,\"name\":\"S\"},"
+                + "\"publishedAt\":\"2025-11-04T12:00:00Z\",\"description\":\"D\"}]}");
+        Mockito.when(ws.url(Mockito.contains("apiKey=aaaa1111"))).thenReturn(limited);
+        Mockito.when(ws.url(Mockito.contains("apiKey=bbbb2222"))).thenReturn(ok);
+
+        Config config = Mockito.mock(Config.class);
+        Client client = new Client(ws, new TrendingTerms(), new SourceCatalogue(), new UpstreamHedging(config, metrics), pool, new UpstreamArchive(), new EventLog());
+
+        List<Article> articles = client.clientRequest("https://newsapi.org/v2/everything?q=test").toCompletableFuture().get();
+
+        assertEquals(1, articles.size());
+        assertEquals("T", articles.get(0).getTitle());
+        Mockito.verify(ws).url("https://newsapi.org/v2/everything?q=test&apiKey=aaaa1111");
+        Mockito.verify(ws).url("https://newsapi.org/v2/everything?q=test&apiKey=bbbb2222");
+        assertEquals(1L, metrics.snapshot().get("apikeys.key0.rejected"));
+    }
+
+    private static WSRequest stubRequest(int status, String body) throws Exception {
+        WSRequest request = Mockito.mock(WSRequest.class);
+        WSResponse response = Mockito.mock(WSResponse.class);
+        Mockito.when(request.setRequestTimeout(Mockito.any(Duration.class))).thenReturn(request);
+        Mockito.when(request.get()).thenReturn(CompletableFuture.completedFuture(response));
+        Mockito.when(response.getStatus()).thenReturn(status);
+        Mockito.when(response.getSingleHeader("Retry-After")).thenReturn(Optional.empty());
+        Mockito.when(response.asJson()).thenReturn(new ObjectMapper().readTree(body));
+        return request;
+    }
+}
@@ -0,0 +1,41 @@
+package Services;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the bounded per-client rate limiter.
+ */
+public class ClientRateLimiterTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void testBurstThenSustainedRate() {
+        ClientRateLimiter limiter = new ClientRateLimiter(2, 3, 16);
+        long now = -5 * SECOND; // nanoTime can be negative
+        for (int i = 0; i < 3; i++) assertEquals(0, limiter.tryAcquire("a", now));
+        long wait = limiter.tryAcquire("a", now);
+        assertEquals(SECOND / 2, wait);
+        assertEquals(0, limiter.tryAcquire("a", now + wait));
+    }
+
+    @Test
+    public void testClientsAreLimitedSeparately() {
+        ClientRateLimiter limiter = new ClientRateLimiter(1, 1, 16);
+        assertEquals(0, limiter.tryAcquire("10.0.0.1", 0));
+        assertTrue(limiter.tryAcquire("10.0.0.1", 0) > 0);
+        assertEquals(0, limiter.tryAcquire("10.0.0.2", 0));
+    }
+
+    @Test
+    public void testIdleClientsFreeTheirSlots() {
+        // 4 slots for 100 clients: memory stays fixed, and once a client is idle its slot is reused
+        ClientRateLimiter limiter = new ClientRateLimiter(1, 1, 4);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0, limiter.tryAcquire("client" + i, i * 2 * SECOND));
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package Services;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the AIMD in-flight limit.
+ */
+public class ConcurrencyLimitTest {
+    private static final long TARGET = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    public void testAdmitsUpToLimitPlusHeadroom() {
+        ConcurrencyLimit limit = new ConcurrencyLimit(2, 1, 10, TARGET);
+        assertTrue(limit.tryAcquire(0));
+        assertTrue(limit.tryAcquire(0));
+        assertFalse(limit.tryAcquire(0));
+        assertTrue(limit.tryAcquire(1));
+        assertEquals(3, limit.inflight());
+    }
+
+    @Test
+    public void testFastResponsesRaiseTheLimit() {
+        ConcurrencyLimit limit = new ConcurrencyLimit(4, 1, 10, TARGET);
+        for (int i = 0; i < 20; i++) {
+            assertTrue(limit.tryAcquire(0));
+            limit.release(TARGET / 2, false, i);
+        }
+        assertTrue(limit.limit() > 4);
+        assertEquals(0, limit.inflight());
+    }
+
+    @Test
+    public void testSlowResponsesCutTheLimitOncePerInterval() {
+        ConcurrencyLimit limit = new ConcurrencyLimit(100, 1, 100, TARGET);
+        for (int i = 0; i < 10; i++) {
+            limit.tryAcquire(0);
+            limit.release(2 * TARGET, false, 0);
+        }
+        assertEquals(90, limit.limit());
+
+        limit.tryAcquire(0);
+        limit.release(0, true, 2 * TARGET);
+        assertEquals(81, limit.limit());
+    }
+}
@@ -0,0 +1,30 @@
+package Services;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for CountMinSketch.
+ */
+public class CountMinSketchTest {
+
+    @Test
+    public void testEstimatesNeverUndercount() {
+        CountMinSketch sketch = new CountMinSketch(4, 64);
+        for (int i = 0; i < 500; i++) sketch.add("term" + i, i % 7 + 1);
+        for (int i = 0; i < 500; i++) assertTrue(sketch.estimate("term" + i) >= i % 7 + 1);
+        sketch.add("term3", -4);
+        assertTrue(sketch.estimate("term3") >= 0);
+    }
+
+    @Test
+    public void testKeysWithTheSameStringHashDoNotShareEveryRow() {
+        // "Aa" and "BB" have the same String.hashCode()
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        CountMinSketch sketch = new CountMinSketch(4, 1024);
+        sketch.add("Aa", 100);
+        assertEquals(100, sketch.estimate("Aa"));
+        assertEquals(0, sketch.estimate("BB"));
+    }
+}
@@ -0,0 +1,78 @@
+package Services;
+
+import models.Article;
+import models.SimHash;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for SimHash fingerprints and DuplicateDetector clustering.
+ */
+public class DuplicateDetectorTest {
+
+    private static Article article(String title, String source, String description) {
+        return new Article(title, "https://" + source + "/story", source, "https://" + source, "2025-11-04, 12:00:00", 5, 5, description);
+    }
+
+    @Test
+    public void testIdenticalTextsShareFingerprint() {
+        long a = SimHash.fingerprint("Central bank raises interest rates again");
+        long b = SimHash.fingerprint("central bank raises INTEREST rates, again!");
+        assertEquals(0, SimHash.distance(a, b));
+        assertEquals(0L, SimHash.fingerprint(""));
+        assertEquals(0L, SimHash.fingerprint(null));
+    }
+
+    @Test
+    public void testSyndicatedCopiesAreClustered() {
+        String wire = "The central bank raised its benchmark interest rate by a quarter point on Wednesday, citing persistent inflation and a strong labour market";
+        List<Article> articles = Arrays.asList(
+                article("Central bank raises rates", "reuters.com", wire),
+                article("Team wins championship", "espn.com", "The home team won the championship after a dramatic overtime goal in front of a sold out crowd"),
+                article("Central bank raises rates", "yahoo.com", wire),
+                article("Central bank raises rates", "msn.com", wire));
+
+        List<List<Article>> clusters = DuplicateDetector.cluster(articles);
+
+        assertEquals(2, clusters.size());
+        assertEquals(3, clusters.get(0).size());
+        assertEquals("reuters.com", clusters.get(0).get(0).getSourceName());
+        assertEquals(1, clusters.get(1).size());
+    }
+
+    @Test
+    public void testCollapseKeepsFirstOfEachClusterInOrder() {
+        List<Article> articles = Arrays.asList(
+                article("Storm hits coast", "a.com", "A powerful storm made landfall overnight, cutting power to thousands of homes"),
+                article("Storm hits coast", "b.com", "A powerful storm made landfall overnight, cutting power to thousands of homes"),
+                article("New phone released", "c.com", "The company unveiled its latest phone with a larger screen and better camera"));
+
+        List<Article> collapsed = DuplicateDetector.collapse(articles);
+
+        assertEquals(2, collapsed.size());
+        assertEquals("a.com", collapsed.get(0).getSourceName());
+        assertEquals("c.com", collapsed.get(1).getSourceName());
+    }
+
+    @Test
+    public void testEmptyList() {
+        assertTrue(DuplicateDetector.cluster(Arrays.asList()).isEmpty());
+    }
+
+    @Test
+    public void testArticlesWithoutWordsAreNeverDuplicates() {
+        List<Article> articles = Arrays.asList(
+                article(null, "a.com", null),
+                article("", "b.com", ""),
+                article("東京で地震", "c.com", null),
+                article("Москва", "d.com", null));
+
+        assertEquals(0L, articles.get(0).getFingerprint()); // not the fingerprint of "null null"
+        assertEquals(4, DuplicateDetector.cluster(articles).size());
+        assertEquals(SimHash.fingerprint("Markets rally"), article("Markets rally", "e.com", null).getFingerprint());
+    }
+}
@@ -0,0 +1,116 @@
+package Services;
+
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class EventLogTest {
+
+    private static List<String> lines(Path dir, String file) throws Exception {
+        return Files.readAllLines(dir.resolve(file));
+    }
+
+    @Test
+    public void testEventsAreWrittenAsJsonLines() throws Exception {
+        Path dir = Files.createTempDirectory("events");
+        EventLog log = new EventLog(true, 16, dir, 1 << 20, 2, new Metrics());
+        log.event("search").with("query", "say \"hi\"").with("articles", 3).millis("resolveMs", 1_500_000).emit();
+        log.close();
+
+        List<String> lines = lines(dir, EventLog.FILE);
+        assertEquals(1, lines.size());
+        String line = lines.get(0);
+        assertTrue(line, line.startsWith("{\"time\":\""));
+        assertTrue(line, line.contains("\"event\":\"search\",\"query\":\"say \\\"hi\\\"\",\"articles\":3,\"resolveMs\":1.5,\"totalMs\":"));
+        assertTrue(line, line.endsWith("}"));
+    }
+
+    @Test
+    public void testFullRingDropsAndCounts() throws Exception {
+        Path dir = Files.createTempDirectory("events");
+        Metrics metrics = new Metrics();
+        EventLog log = new EventLog(true, 4, dir, 1 << 20, 2, metrics);
+        for (int i = 0; i < 10; i++) log.event("e").with("i", i).failed("boom").emit(); // failures are never sampled
+
+        assertEquals(4, log.drain());
+        assertEquals(6, metrics.counter("eventlog.dropped").sum());
+        log.event("e").emit(); // room again
+        assertEquals(1, log.drain());
+        log.close();
+        assertEquals(5, lines(dir, EventLog.FILE).size());
+    }
+
+    @Test
+    public void testNearlyFullRingSamples() throws Exception {
+        Metrics metrics = new Metrics();
+        EventLog log = new EventLog(true, 64, Files.createTempDirectory("events"), 1 << 20, 2, metrics);
+        for (int i = 0; i < 48; i++) log.event("e").emit();
+        for (int i = 0; i < 16; i++) log.event("e").emit();
+
+        long sampled = metrics.counter("eventlog.sampled").sum();
+        assertTrue("sampled " + sampled, sampled > 0);
+        assertEquals(64 - sampled, log.drain());
+        assertEquals(0, metrics.counter("eventlog.dropped").sum());
+        log.close();
+    }
+
+    @Test
+    public void testFilesAreRotated() throws Exception {
+        Path dir = Files.createTempDirectory("events");
+        Metrics metrics = new Metrics();
+        EventLog log = new EventLog(true, 16, dir, 200, 2, metrics);
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 3; i++) log.event("e").with("round", round).emit();
+            log.drain();
+        }
+        log.close();
+
+        assertTrue(metrics.counter("eventlog.rotations").sum() > 0);
+        assertTrue(Files.exists(dir.resolve(EventLog.FILE + ".1")));
+        assertTrue(Files.exists(dir.resolve(EventLog.FILE + ".2")));
+        assertFalse(Files.exists(dir.resolve(EventLog.FILE + ".3")));
+        assertTrue(Files.size(dir.resolve(EventLog.FILE)) <= 200);
+        assertTrue(lines(dir, EventLog.FILE).get(0).contains("\"round\":4"));
+    }
+
+    @Test
+    public void testConcurrentProducersLoseNothingWhileThereIsRoom() throws Exception {
+        Path dir = Files.createTempDirectory("events");
+        Metrics metrics = new Metrics();
+        EventLog log = new EventLog(true, 1 << 14, dir, 1 << 24, 1, metrics);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 1000; i++) log.event("e").with("id", thread * 1000 + i).failed("x").emit();
+            }));
+        }
+        threads.forEach(Thread::start);
+        int written = 0;
+        while (threads.stream().anyMatch(Thread::isAlive)) written += log.drain();
+        for (Thread t : threads) t.join();
+        log.close();
+
+        Set<String> ids = new HashSet<>();
+        for (String line : lines(dir, EventLog.FILE)) ids.add(line.replaceAll(".*\"id\":(\\d+).*", "$1"));
+        assertEquals(4000, ids.size());
+        assertEquals(4000, metrics.counter("eventlog.written").sum());
+        assertTrue(written <= 4000);
+    }
+
+    @Test
+    public void testDisabledLogKeepsNothing() {
+        Metrics metrics = new Metrics();
+        EventLog log = new EventLog(false, 4, Path.of("unused"), 100, 1, metrics);
+        log.event("e").with("a", "b").emit();
+
+        assertEquals(0, log.drain());
+    }
+}
@@ -0,0 +1,104 @@
+package Services;
+
+import com.typesafe.config.ConfigFactory;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the analysis and blocking pools and their metrics.
+ */
+public class ExecutionPoolsTest {
+
+    @Test
+    public void testAnalysisPoolReportsQueueDepthAndSaturation() throws Exception {
+        Metrics metrics = new Metrics();
+        ExecutionPools pools = new ExecutionPools(ConfigFactory.parseString("pools.analysis.parallelism = 1"), metrics);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        pools.analysis().execute(() -> {
+            started.countDown();
+            await(release);
+        });
+        pools.analysis().execute(() -> { });
+        pools.analysis().execute(() -> { });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertEquals(1, metrics.snapshot().get("pools.analysis.active"));
+        assertEquals(2, metrics.snapshot().get("pools.analysis.queue.depth"));
+        assertEquals(1.0, metrics.snapshot().get("pools.analysis.saturation").doubleValue(), 0.0);
+
+        release.countDown();
+        pools.shutdown();
+    }
+
+    @Test
+    public void testBlockingPoolLimitsConcurrency() throws Exception {
+        Metrics metrics = new Metrics();
+        ExecutionPools pools = new ExecutionPools(ConfigFactory.parseString("pools.blocking.maxConcurrency = 2"), metrics);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(10);
+        for (int i = 0; i < 10; i++) {
+            pools.blocking().execute(() -> {
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleep();
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(2, peak.get());
+        // the completion count is updated just after each task returns
+        for (int i = 0; i < 100 && metrics.snapshot().get("pools.blocking.completed").longValue() < 10; i++) sleep();
+        assertEquals(10L, metrics.snapshot().get("pools.blocking.completed"));
+        pools.shutdown();
+    }
+
+    @Test
+    public void testPlatformBlockingPoolRejectsBeyondItsQueue() throws Exception {
+        Metrics metrics = new Metrics();
+        ExecutionPools pools = new ExecutionPools(ConfigFactory.parseString(
+                "pools.blocking.maxConcurrency = 1\npools.blocking.maxQueued = 2"), metrics);
+        Assume.assumeTrue(metrics.snapshot().get("pools.blocking.virtual").intValue() == 0); // virtual threads are not pooled
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        pools.blocking().execute(() -> {
+            started.countDown();
+            await(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        pools.blocking().execute(() -> { });
+        pools.blocking().execute(() -> { });
+        try {
+            pools.blocking().execute(() -> { });
+            fail("a full queue should reject the task");
+        } catch (RejectedExecutionException expected) {
+            assertEquals(1L, metrics.snapshot().get("pools.blocking.rejected"));
+        }
+        release.countDown();
+        pools.shutdown();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(20);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package Services;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for consistent hashing of queries to nodes.
+ */
+public class HashRingTest {
+
+    @Test
+    public void testKeysSpreadEvenly() {
+        HashRing ring = new HashRing(List.of("http://a", "http://b", "http://c"), 128);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 30_000; i++) counts.merge(ring.owner("query " + i), 1, Integer::sum);
+        for (int c : counts.values()) assertTrue("unbalanced: " + counts, c > 7_000 && c < 13_000);
+    }
+
+    @Test
+    public void testAddingANodeOnlyMovesItsShare() {
+        HashRing three = new HashRing(List.of("http://a", "http://b", "http://c"), 128);
+        HashRing four = new HashRing(List.of("http://a", "http://b", "http://c", "http://d"), 128);
+        int moved = 0;
+        for (int i = 0; i < 10_000; i++) {
+            String before = three.owner("q" + i);
+            String after = four.owner("q" + i);
+            if (!before.equals(after)) {
+                moved++;
+                assertEquals("http://d", after);
+            }
+        }
+        assertTrue(moved > 1_500 && moved < 3_500);
+    }
+
+    @Test
+    public void testOwnershipIgnoresCaseAndSpacing() {
+        HashRing ring = new HashRing(List.of("http://a", "http://b"), 128);
+        assertEquals(ring.owner(HashRing.normalize("Climate  Change")), ring.owner(HashRing.normalize(" climate change")));
+        assertNull(new HashRing(List.of(), 128).owner("x"));
+    }
+}
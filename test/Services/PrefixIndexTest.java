@@ -0,0 +1,66 @@
+package Services;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the prefix index behind typeahead suggestions.
+ */
+public class PrefixIndexTest {
+
+    private static PrefixIndex index(int k, Object... queryScores) {
+        Map<String, Double> scored = new HashMap<>();
+        for (int i = 0; i < queryScores.length; i += 2) scored.put((String) queryScores[i], ((Number) queryScores[i + 1]).doubleValue());
+        return new PrefixIndex(scored, k);
+    }
+
+    @Test
+    public void testMostPopularQueriesForAPrefix() {
+        PrefixIndex index = index(3, "climate", 5, "climate change", 9, "cli", 1, "canada", 7, "bitcoin", 3, "clinton", 2);
+        assertEquals(List.of("climate change", "climate", "clinton"), index.lookup("cl", 10));
+        assertEquals(List.of("climate change", "climate"), index.lookup("climate", 10));
+        assertEquals(List.of("climate change"), index.lookup("climate ", 10));
+        assertEquals(List.of("climate change", "canada", "climate"), index.lookup("", 10));
+        assertEquals(List.of("climate change"), index.lookup("c", 1));
+        assertEquals(List.of("climate change", "climate", "clinton"), index.lookup("cli", 10)); // only the top 3 are kept
+        assertTrue(index.lookup("cx", 10).isEmpty());
+        assertTrue(index.lookup("climates", 10).isEmpty());
+        assertTrue(index.lookup("d", 10).isEmpty());
+        assertEquals(6, index.size());
+    }
+
+    @Test
+    public void testEmptyIndex() {
+        assertTrue(PrefixIndex.EMPTY.lookup("a", 10).isEmpty());
+        assertTrue(PrefixIndex.EMPTY.lookup("", 10).isEmpty());
+    }
+
+    @Test
+    public void testMatchesBruteForceOnRandomQueries() {
+        Random random = new Random(7);
+        Map<String, Double> scored = new HashMap<>();
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder q = new StringBuilder();
+            int length = 1 + random.nextInt(8);
+            for (int j = 0; j < length; j++) q.append("abc ".charAt(random.nextInt(4)));
+            scored.put(q.toString(), (double) random.nextInt(1000));
+        }
+        PrefixIndex index = new PrefixIndex(scored, 5);
+        for (String prefix : List.of("", "a", "ab", "b c", "cc", "abca", "c a b", " ")) {
+            List<String> expected = scored.entrySet().stream()
+                    .filter(e -> e.getKey().startsWith(prefix))
+                    .sorted(Map.Entry.<String, Double>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                    .limit(5)
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
+            assertEquals(prefix, expected, index.lookup(prefix, 5));
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package Services;
+
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.Assert.*;
+
+public class ProfilerTest {
+
+    @Test
+    public void testRecordingSummarizesStages() throws Exception {
+        Profiler profiler = new Profiler("default", Duration.ofMinutes(1));
+        CompletableFuture<Path> done = profiler.record(Duration.ofMillis(500)).toCompletableFuture();
+        for (int i = 0; i < 3; i++) {
+            StageEvent stage = StageEvent.start("parse");
+            Thread.sleep(2);
+            stage.end("q", 10);
+        }
+        StageEvent.start("render").end("q", 1);
+        Path file = done.join();
+
+        assertTrue(Files.size(file) > 0);
+        Map<String, Profiler.StageSummary> summary = profiler.summary().orElseThrow();
+        assertEquals(3, summary.get("parse").count);
+        assertTrue(summary.get("parse").p50Ms >= 2);
+        assertEquals(1, summary.get("render").count);
+        assertEquals("parse", summary.keySet().iterator().next()); // most total time first
+        profiler.close();
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    public void testOneRecordingAtATime() {
+        Profiler profiler = new Profiler("default", Duration.ofMinutes(1));
+        CompletableFuture<Path> first = profiler.record(Duration.ofMillis(200)).toCompletableFuture();
+        CompletableFuture<Path> second = profiler.record(Duration.ofMillis(200)).toCompletableFuture();
+
+        try {
+            second.join();
+            fail("a second recording was started");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        first.join();
+        profiler.close();
+    }
+
+    @Test
+    public void testNoSummaryBeforeARecording() {
+        assertFalse(new Profiler("default", Duration.ofMinutes(1)).summary().isPresent());
+    }
+}
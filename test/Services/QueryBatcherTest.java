@@ -0,0 +1,137 @@
+package Services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import models.Article;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import play.libs.ws.WSClient;
+import play.libs.ws.WSRequest;
+import play.libs.ws.WSResponse;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares batched and unbatched searches on recorded NewsAPI responses.
+ */
+public class QueryBatcherTest {
+
+    private static final String BASE = "https://newsapi.org/v2/everything?sortBy=publishedAt&pageSize=50";
+
+    private WSClient ws;
+    private Client client;
+
+    @Before
+    public void setup() {
+        ws = Mockito.mock(WSClient.class);
+        Mockito.when(ws.url(Mockito.anyString())).thenAnswer(inv -> recorded(inv.getArgument(0)));
+        Config keys = ConfigFactory.parseString("newsapi.key = \"test\"\nnewsapi.quota = 1000\nnewsapi.rate = 1000");
+        Metrics unused = new Metrics();
+        client = new Client(ws, new TrendingTerms(), new SourceCatalogue(), new UpstreamHedging(keys, unused), new ApiKeyPool(keys, unused), new UpstreamArchive(), new EventLog());
+    }
+
+    /** Serves the fixture recorded for the q parameter of the URL. */
+    private static WSRequest recorded(String url) throws Exception {
+        String fixture = url.contains("+OR+") ? "combined" : url.contains("bitcoin") ? "bitcoin" : "climate";
+        WSRequest request = Mockito.mock(WSRequest.class);
+        WSResponse response = Mockito.mock(WSResponse.class);
+        Mockito.when(request.setRequestTimeout(Mockito.any(Duration.class))).thenReturn(request);
+        Mockito.when(request.get()).thenReturn(CompletableFuture.completedFuture(response));
+        Mockito.when(response.getStatus()).thenReturn(200);
+        Mockito.when(response.getSingleHeader(Mockito.anyString())).thenReturn(Optional.empty());
+        Mockito.when(response.asJson()).thenReturn(new ObjectMapper().readTree(
+                Files.readAllBytes(Paths.get("test/resources/fixtures/batching/" + fixture + ".json"))));
+        return request;
+    }
+
+    private static List<String> urls(CompletionStage<List<Article>> articles) {
+        return articles.toCompletableFuture().join().stream().map(Article::getUrl).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testBatchedResultsMatchUnbatched() {
+        Metrics metrics = new Metrics();
+        QueryBatcher unbatched = new QueryBatcher(client, ConfigFactory.empty(), new Metrics());
+        QueryBatcher batched = new QueryBatcher(client,
+                ConfigFactory.parseString("newsapi.batching.enabled = true\nnewsapi.batching.window = 20ms"), metrics);
+
+        List<String> expectedClimate = urls(unbatched.search(BASE, "climate change"));
+        List<String> expectedBitcoin = urls(unbatched.search(BASE, "bitcoin"));
+
+        CompletionStage<List<Article>> climate = batched.search(BASE, "climate  change");
+        CompletionStage<List<Article>> bitcoin = batched.search(BASE, "bitcoin");
+        CompletionStage<List<Article>> again = batched.search(BASE, "bitcoin");
+
+        assertEquals(3, expectedClimate.size());
+        assertEquals(expectedClimate, urls(climate));
+        assertEquals(expectedBitcoin, urls(bitcoin));
+        assertEquals(expectedBitcoin, urls(again));
+        Mockito.verify(ws).url(Mockito.contains("pageSize=100&q=%28climate+change%29+OR+%28bitcoin%29"));
+        assertEquals(3L, metrics.snapshot().get("batching.queries"));
+        assertEquals(1L, metrics.snapshot().get("batching.upstream.calls"));
+        assertEquals(2L, metrics.snapshot().get("batching.upstream.calls.saved"));
+    }
+
+    @Test
+    public void testOnlyPlainQueriesAreBatched() {
+        assertTrue(QueryBatcher.isBatchable("climate change"));
+        assertFalse(QueryBatcher.isBatchable("\"climate change\""));
+        assertFalse(QueryBatcher.isBatchable("crypto OR bitcoin"));
+        assertFalse(QueryBatcher.isBatchable("-bitcoin"));
+    }
+
+    @Test
+    public void testCombineAndDemultiplex() {
+        assertEquals("(a b) OR (c)", QueryBatcher.combine(Arrays.asList("a b", "c")));
+        Article a = new Article("Climate talks", "u1", "S", "s", "2025-11-04, 12:00:00", 5, 5, "change ahead");
+        Article b = new Article("Climate", "u2", "S", "s", "2025-11-04, 12:00:00", 5, 5, "nothing");
+        assertEquals(Arrays.asList(a), QueryBatcher.demultiplex("climate change", Arrays.asList(a, b), 10));
+    }
+
+    @Test
+    public void testDemultiplexMatchesWholeWords() {
+        Article start = new Article("Season start delayed", "u1", "S", "s", "2025-11-04, 12:00:00", 5, 5, null);
+        Article art = new Article("Art fair opens", "u2", "S", "s", "2025-11-04, 12:00:00", 5, 5, "Modern art, mostly.");
+        assertEquals(Arrays.asList(art), QueryBatcher.demultiplex("art", Arrays.asList(start, art), 10));
+    }
+
+    @Test
+    public void testCombinedPageIsKeptWhole() throws Exception {
+        // 80 articles: the only "bitcoin" one comes after the 50 a single search keeps
+        StringBuilder json = new StringBuilder("{\"articles\":[");
+        for (int i = 0; i < 80; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"title\":\"").append(i == 70 ? "Bitcoin rallies" : "Climate story " + i)
+                    .append("\",\"url\":\"u").append(i).append("\",\"source\":{\"id\":null,\"name\":\"S\"},")
+                    .append("\"publishedAt\":\"2025-11-04T12:00:00Z\",\"description\":\"D\"}");
+        }
+        json.append("]}");
+        WSRequest request = Mockito.mock(WSRequest.class);
+        WSResponse response = Mockito.mock(WSResponse.class);
+        Mockito.when(request.setRequestTimeout(Mockito.any(Duration.class))).thenReturn(request);
+        Mockito.when(request.get()).thenReturn(CompletableFuture.completedFuture(response));
+        Mockito.when(response.getStatus()).thenReturn(200);
+        Mockito.when(response.getSingleHeader(Mockito.anyString())).thenReturn(Optional.empty());
+        Mockito.when(response.asJson()).thenReturn(new ObjectMapper().readTree(json.toString()));
+        Mockito.when(ws.url(Mockito.anyString())).thenReturn(request);
+
+        QueryBatcher batched = new QueryBatcher(client,
+                ConfigFactory.parseString("newsapi.batching.enabled = true\nnewsapi.batching.window = 20ms"), new Metrics());
+        CompletionStage<List<Article>> climate = batched.search(BASE, "climate");
+        CompletionStage<List<Article>> bitcoin = batched.search(BASE, "bitcoin");
+
+        assertEquals(Arrays.asList("u70"), urls(bitcoin));
+        assertEquals(50, urls(climate).size());
+    }
+}
@@ -0,0 +1,79 @@
+package Services;
+
+import models.Article;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for search canonicalization.
+ */
+public class QueryKeyTest {
+
+    private static Article article(String title) {
+        return new Article(title, "u", "S", "https://s.com", "2025-11-04, 12:00:00", 5, 5, "");
+    }
+
+    @Test
+    public void testSpellingsOfTheSameSearchShareAKey() {
+        QueryKey key = QueryKey.of("Climate Change", null, "publishedAt");
+        assertEquals("change climate", key.text());
+        assertEquals(key.key(), QueryKey.of("  climate,   CHANGE! ", null, null).key());
+        assertEquals(key.key(), QueryKey.of("change climate climate", "", "publishedAt").key());
+        assertTrue(key.isPlain());
+    }
+
+    @Test
+    public void testSiblingsAreOtherOrdersAndTheUnfilteredSearch() {
+        QueryKey key = QueryKey.of("climate", "language:fr", "publishedAt");
+        List<QueryKey> siblings = key.siblings();
+
+        assertEquals("fr", key.language());
+        assertEquals(5, siblings.size());
+        assertFalse(siblings.contains(key));
+        assertEquals(QueryKey.of("climate", "language:fr", "relevancy"), siblings.get(0));
+        assertTrue(siblings.contains(QueryKey.of("climate", null, "publishedAt")));
+        assertEquals(2, QueryKey.of("climate", null, "popularity").siblings().size());
+        assertTrue(QueryKey.of("climate", "country:ca", "publishedAt").siblings().isEmpty());
+    }
+
+    @Test
+    public void testFilterAndSortArePartOfTheKey() {
+        String key = QueryKey.of("climate", null, "publishedAt").key();
+        assertNotEquals(key, QueryKey.of("climate", "language:en", "publishedAt").key());
+        assertNotEquals(key, QueryKey.of("climate", null, "popularity").key());
+        assertEquals(QueryKey.of("climate", "Language:EN", null).key(), QueryKey.of("climate", "language:en", "publishedAt").key());
+    }
+
+    @Test
+    public void testOperatorQueriesKeepTheirText() {
+        QueryKey quoted = QueryKey.of("\"climate  change\"  AND   Canada", null, null);
+        assertFalse(quoted.isPlain());
+        assertEquals("\"climate change\" AND Canada", quoted.text());
+        assertNotEquals(quoted.key(), QueryKey.of("canada change climate", null, null).key());
+        assertFalse(QueryKey.of("climate -oil", null, null).isPlain());
+        assertTrue(QueryKey.of("covid-19", null, null).isPlain());
+        assertTrue(quoted.broader().isEmpty());
+    }
+
+    @Test
+    public void testBroaderSearchesAreSubsetsWithMostTermsFirst() {
+        List<String> broader = QueryKey.of("climate change canada", "language:en", null).broader().stream()
+                .map(QueryKey::text).collect(Collectors.toList());
+        assertEquals(List.of("canada change", "canada climate", "change climate", "canada", "change", "climate"), broader);
+        assertEquals("language:en", QueryKey.of("climate change", "language:en", null).broader().get(0).filter());
+        assertTrue(QueryKey.of("climate", null, null).broader().isEmpty());
+    }
+
+    @Test
+    public void testNarrowKeepsArticlesWithEveryTerm() {
+        List<Article> articles = List.of(article("Climate change hits Canada"), article("Climate summit"), article("Canada climate plan"));
+        List<Article> narrowed = QueryKey.of("Canada climate", null, null).narrow(articles, 10);
+        assertEquals(2, narrowed.size());
+        assertEquals("Climate change hits Canada", narrowed.get(0).getTitle());
+        assertEquals(1, QueryKey.of("Canada climate", null, null).narrow(articles, 1).size());
+    }
+}
@@ -0,0 +1,56 @@
+package Services;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for typeahead suggestions.
+ */
+public class QuerySuggestionsTest {
+
+    @Test
+    public void testOnlyRepeatedSearchesAreSuggestedAfterRebuild() {
+        QuerySuggestions suggestions = new QuerySuggestions(100, 2, Duration.ofHours(1), () -> 0L, new Metrics());
+        suggestions.record("Climate  Change");
+        suggestions.record("climate change");
+        suggestions.record("climate");
+        assertTrue(suggestions.suggest("cl", 10).isEmpty()); // not published yet
+
+        suggestions.rebuild();
+        assertEquals(List.of("climate change"), suggestions.suggest("CL", 10));
+        suggestions.record("climate");
+        suggestions.rebuild();
+        assertEquals(List.of("climate", "climate change"), suggestions.suggest("clim", 10)); // tied, alphabetical
+    }
+
+    @Test
+    public void testOldSearchesLoseToRecentOnes() {
+        AtomicLong now = new AtomicLong();
+        QuerySuggestions suggestions = new QuerySuggestions(100, 1, Duration.ofHours(1), now::get, new Metrics());
+        for (int i = 0; i < 3; i++) suggestions.record("bitcoin");
+        suggestions.rebuild();
+        now.set(Duration.ofHours(2).toMillis()); // 3 searches two half-lives ago weigh 0.75
+        suggestions.record("bitcoin etf");
+        suggestions.rebuild();
+        assertEquals(List.of("bitcoin etf", "bitcoin"), suggestions.suggest("bit", 10));
+
+        now.set(Duration.ofHours(20).toMillis());
+        suggestions.rebuild();
+        assertTrue(suggestions.suggest("bit", 10).isEmpty()); // forgotten
+    }
+
+    @Test
+    public void testCapacityKeepsTheMostPopular() {
+        Metrics metrics = new Metrics();
+        QuerySuggestions suggestions = new QuerySuggestions(2, 1, Duration.ofHours(1), () -> 0L, metrics);
+        for (String q : new String[]{"a", "b", "b", "c", "c", "c"}) suggestions.record(q);
+        suggestions.rebuild();
+        assertEquals(List.of("c", "b"), suggestions.suggest("", 10));
+        assertEquals(2, metrics.snapshot().get("suggest.queries"));
+    }
+}
@@ -0,0 +1,162 @@
+package Services;
+
+import models.Article;
+import models.StopWords;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RelatedArticlesTest {
+
+    private static final StopWords STOP_WORDS = StopWords.of(List.of("the", "for", "after", "again", "another", "more"));
+
+    private static Article article(String url, String title, String description) {
+        return new Article(title, url, "Source", "https://source.com", "2025-11-04, 12:00:00", 5, 5, description);
+    }
+
+    private static List<String> urls(List<Article> articles) {
+        List<String> urls = new ArrayList<>();
+        for (Article a : articles) urls.add(a.getUrl());
+        return urls;
+    }
+
+    private static final List<Article> CORPUS = List.of(
+            article("rates1", "Central bank raises interest rates", "Inflation pushes the central bank to raise rates again"),
+            article("rates2", "Mortgage costs climb after interest rates hike", "Homeowners face higher mortgage payments as rates rise"),
+            article("rates3", "Markets brace for another interest rates decision", "Investors expect the central bank to hold"),
+            article("football", "Local team wins football final", "Fans celebrate the championship in the city centre"),
+            article("storm", "Storm floods coastal towns", "Residents evacuate as the storm hits the coast"));
+
+    @Test
+    public void testMostSimilarArticlesComeFirst() {
+        RelatedArticles related = new RelatedArticles(100, STOP_WORDS, new Metrics());
+        related.add(CORPUS);
+
+        List<Article> result = related.related("rates1", 5);
+
+        assertEquals(List.of("rates3", "rates2"), urls(result)); // sharing "central bank" beats sharing "rise"
+    }
+
+    @Test
+    public void testScoresUseTheCurrentDocumentFrequencies() {
+        // articles indexed one by one, so each was indexed while its words had other document frequencies
+        String[] vocabulary = {"alpha", "bravo", "charlie", "delta", "echo", "foxtrot", "golf", "hotel", "india", "juliet", "kilo", "lima"};
+        Random random = new Random(7);
+        List<Article> corpus = new ArrayList<>();
+        RelatedArticles related = new RelatedArticles(100, StopWords.NONE, new Metrics());
+        for (int i = 0; i < 40; i++) {
+            StringBuilder text = new StringBuilder();
+            // the first words get ever more common as articles come
+            for (int w = 0; w < 4 + random.nextInt(6); w++) text.append(vocabulary[random.nextInt(Math.min(vocabulary.length, 3 + i / 4))]).append(' ');
+            Article a = article("a" + i, text.toString().trim(), "");
+            corpus.add(a);
+            related.add(List.of(a));
+        }
+
+        for (Article query : corpus.subList(0, 10)) {
+            Map<String, Double> cosines = cosines(corpus, query);
+            List<Double> expected = new ArrayList<>(cosines.values());
+            expected.sort(Comparator.reverseOrder());
+            List<Article> found = related.related(query.getUrl(), RelatedArticles.MAX_RESULTS);
+            assertEquals(Math.min(expected.size(), RelatedArticles.MAX_RESULTS), found.size());
+            for (int i = 0; i < found.size(); i++) {
+                assertEquals(query.getUrl() + " #" + i, expected.get(i), cosines.get(found.get(i).getUrl()), 1e-4); // ties may come in any order
+            }
+        }
+    }
+
+    /** The cosine similarity of each related article, computed from scratch as RelatedArticles defines it. */
+    private static Map<String, Double> cosines(List<Article> corpus, Article query) {
+        Map<String, Integer> df = new HashMap<>();
+        List<Map<String, Integer>> counts = new ArrayList<>();
+        for (Article a : corpus) {
+            Map<String, Integer> c = new HashMap<>();
+            for (String w : a.getTitle().split(" ")) if (w.length() > 2) c.merge(w, 1, Integer::sum);
+            counts.add(c);
+            c.keySet().forEach(w -> df.merge(w, 1, Integer::sum));
+        }
+        Map<String, Double> q = tfidf(counts.get(corpus.indexOf(query)), df, corpus.size());
+        Map<String, Double> scored = new HashMap<>();
+        for (int i = 0; i < corpus.size(); i++) {
+            Article a = corpus.get(i);
+            if (a == query || Long.bitCount(a.getFingerprint() ^ query.getFingerprint()) <= DuplicateDetector.MAX_DISTANCE) continue;
+            Map<String, Double> d = tfidf(counts.get(i), df, corpus.size());
+            double dot = 0;
+            for (Map.Entry<String, Double> e : q.entrySet()) dot += e.getValue() * d.getOrDefault(e.getKey(), 0.0);
+            double cosine = dot / (norm(q) * norm(d));
+            if (cosine >= RelatedArticles.MIN_SIMILARITY) scored.put(a.getUrl(), cosine);
+        }
+        return scored;
+    }
+
+    private static Map<String, Double> tfidf(Map<String, Integer> counts, Map<String, Integer> df, int n) {
+        Map<String, Double> v = new HashMap<>();
+        counts.forEach((w, c) -> v.put(w, (1 + Math.log(c)) * Math.log(1 + (double) n / df.get(w))));
+        return v;
+    }
+
+    private static double norm(Map<String, Double> v) {
+        return Math.sqrt(v.values().stream().mapToDouble(x -> x * x).sum());
+    }
+
+    @Test
+    public void testUnknownUrlIsNotFound() {
+        RelatedArticles related = new RelatedArticles(100, STOP_WORDS, new Metrics());
+        related.add(CORPUS);
+
+        assertNull(related.related("nowhere", 5));
+    }
+
+    @Test
+    public void testUnindexedArticleFindsIndexedOnes() {
+        RelatedArticles related = new RelatedArticles(100, STOP_WORDS, new Metrics());
+        related.add(CORPUS);
+
+        List<Article> result = related.related(article("new", "Storm warning for the coast", "More floods expected"), 5);
+
+        assertEquals(List.of("storm"), urls(result));
+    }
+
+    @Test
+    public void testSyndicatedCopiesAreLeftOut() {
+        RelatedArticles related = new RelatedArticles(100, STOP_WORDS, new Metrics());
+        related.add(CORPUS);
+        related.add(List.of(article("storm-copy", "Storm floods coastal towns", "Residents evacuate as the storm hits the coast")));
+
+        assertTrue(related.related("storm", 5).isEmpty());
+    }
+
+    @Test
+    public void testOldestArticlesAreEvictedPastCapacity() {
+        Metrics metrics = new Metrics();
+        RelatedArticles related = new RelatedArticles(2, STOP_WORDS, metrics);
+        related.add(CORPUS);
+        related.add(List.of(CORPUS.get(4))); // already indexed: skipped
+
+        assertEquals(2, related.size());
+        assertNull(related.related("rates1", 5));
+        assertEquals(3, metrics.counter("related.evicted").sum());
+        assertTrue(related.related("storm", 5).isEmpty());
+    }
+
+    @Test
+    public void testRenumberingKeepsResults() {
+        RelatedArticles related = new RelatedArticles(4, STOP_WORDS, new Metrics());
+        for (int round = 0; round < 5; round++) {
+            List<Article> batch = new ArrayList<>();
+            for (Article a : CORPUS) batch.add(article(a.getUrl() + round, a.getTitle() + " day" + round, a.getDescription()));
+            related.add(batch);
+        }
+
+        assertEquals(4, related.size());
+        // rates24, rates34, football4 and storm4 remain; only the two about rates share more than "day4"
+        assertEquals(List.of("rates34"), urls(related.related("rates24", 5)));
+    }
+}
@@ -0,0 +1,63 @@
+package Services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import models.NewsSource;
+import org.junit.Before;
+import org.junit.Test;
+import play.libs.Json;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for SourceCatalogue parsing and lookups.
+ */
+public class SourceCatalogueTest {
+
+    private SourceCatalogue catalogue;
+
+    @Before
+    public void setup() {
+        JsonNode json = Json.parse("{\"status\":\"ok\",\"sources\":["
+                + "{\"id\":\"bbc-news\",\"name\":\"BBC News\",\"description\":\"BBC\",\"url\":\"http://www.bbc.co.uk/news\",\"category\":\"general\",\"language\":\"en\",\"country\":\"gb\"},"
+                + "{\"id\":\"le-monde\",\"name\":\"Le Monde\",\"description\":\"LM\",\"url\":\"https://www.lemonde.fr\",\"category\":\"general\",\"language\":\"fr\",\"country\":\"fr\"},"
+                + "{\"id\":null,\"name\":\"No Id\"}]}");
+        catalogue = new SourceCatalogue();
+        catalogue.replace(SourceCatalogue.parse(json));
+    }
+
+    @Test
+    public void testParseSkipsSourcesWithoutId() {
+        assertEquals(2, catalogue.size());
+    }
+
+    @Test
+    public void testLookupsByIdNameAndDomain() {
+        assertEquals("BBC News", catalogue.byId("bbc-news").get().getName());
+        assertEquals("bbc-news", catalogue.byName("bbc  NEWS").get().getId());
+        assertEquals("bbc-news", catalogue.byName("B.B.C. News!").get().getId());
+        assertEquals("lemonde", SourceCatalogue.normalizeName("Le Monde"));
+        assertEquals("café24", SourceCatalogue.normalizeName("Café 24"));
+        assertEquals("le-monde", catalogue.byDomain("lemonde.fr").get().getId());
+        assertEquals("bbc-news", catalogue.byDomain("https://www.bbc.co.uk/news/world").get().getId());
+        assertFalse(catalogue.byId(null).isPresent());
+    }
+
+    @Test
+    public void testResolveTriesIdThenDomainThenName() {
+        assertEquals("fr", catalogue.resolve("Le-Monde").get().getLanguage());
+        assertEquals("le-monde", catalogue.resolve("www.lemonde.fr").get().getId());
+        assertEquals("bbc-news", catalogue.resolve("BBC News").get().getId());
+        assertFalse(catalogue.resolve("unknown source").isPresent());
+        assertFalse(catalogue.resolve(" ").isPresent());
+    }
+
+    @Test
+    public void testReplaceSwapsWholeCatalogue() {
+        catalogue.replace(List.of(new NewsSource("cnn", "CNN", "", "https://cnn.com", "general", "en", "us")));
+        assertEquals(1, catalogue.size());
+        assertFalse(catalogue.byId("bbc-news").isPresent());
+        assertTrue(catalogue.byDomain("cnn.com").isPresent());
+    }
+}
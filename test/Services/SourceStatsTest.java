@@ -0,0 +1,148 @@
+package Services;
+
+import models.Article;
+import models.QueryResult;
+import models.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for SourceStats, fed by a real result cache, with an inline writer and a manual clock.
+ */
+public class SourceStatsTest {
+    private static final long DAY = 24 * 60 * 60_000L;
+
+    private AtomicLong now;
+    private TieredQueryCache cache;
+    private SourceStats stats;
+
+    @Before
+    public void setup() {
+        now = new AtomicLong(1_700_000_000_000L);
+        Metrics metrics = new Metrics();
+        cache = new TieredQueryCache(2, 1 << 20, 64 << 10, metrics);
+        stats = new SourceStats(now::get, Runnable::run, metrics);
+        cache.addListener(stats);
+    }
+
+    private Article article(String source, String id, String title, long daysAgo) {
+        return new Article(title, "https://" + id + ".com/" + title.replace(' ', '-'), source, "https://" + id + ".com",
+                Instant.ofEpochMilli(now.get() - daysAgo * DAY), 0, 0, "", id, "en");
+    }
+
+    private static QueryResult result(String query, Article... articles) {
+        return QueryResult.analysed(query, "u", new ArrayList<>(List.of(articles)));
+    }
+
+    /** The count of a word over articles, as the statistics page counts it. */
+    private static Long count(String word, Article... articles) {
+        long n = 0;
+        for (Article a : articles) n += Statistics.getArticleCounter(a).getOrDefault(word, 0L);
+        return n;
+    }
+
+    @Test
+    public void testArticlesInSeveralResultsCountOnce() {
+        Article shared = article("BBC News", "bbc-news", "Climate summit opens", 0);
+        Article deal = article("BBC News", "bbc-news", "Climate deal agreed", 1);
+        cache.put("climate", result("climate", shared, deal));
+        cache.put("summit", result("summit", shared, article("Reuters", "reuters", "Summit climate talks", 2)));
+
+        SourceStats.Summary bbc = stats.summary("BBC News");
+        assertEquals(2, bbc.getArticles());
+        assertEquals(count("climate", shared, deal), bbc.getTopTerms().get("climate"));
+        assertSame(bbc, stats.summary("bbc-news")); // by id as well
+        assertEquals(2.0 / 7, bbc.getArticlesPerDay(), 1e-9);
+        assertEquals(1, stats.summary("reuters").getArticles());
+    }
+
+    @Test
+    public void testEvictedArticlesAreSubtracted() {
+        Article shared = article("BBC News", "bbc-news", "Climate summit opens", 0);
+        cache.put("climate", result("climate", shared, article("BBC News", "bbc-news", "Climate deal agreed", 1)));
+        cache.put("summit", result("summit", shared));
+
+        cache.remove("climate");
+        SourceStats.Summary bbc = stats.summary("bbc news");
+        assertEquals(1, bbc.getArticles());
+        assertEquals(count("climate", shared), bbc.getTopTerms().get("climate"));
+        assertNull(bbc.getTopTerms().get("deal"));
+
+        cache.remove("summit");
+        assertNull(stats.summary("BBC News"));
+        assertTrue(stats.leaderboard(10).isEmpty());
+    }
+
+    @Test
+    public void testReplacedResultKeepsItsCommonArticles() {
+        Article kept = article("BBC News", "bbc-news", "Markets rally", 0);
+        Article steady = article("BBC News", "bbc-news", "Markets steady", 0);
+        cache.put("markets", result("markets", kept, article("BBC News", "bbc-news", "Markets fall", 0)));
+        cache.put("markets", result("markets", kept, steady));
+
+        SourceStats.Summary bbc = stats.summary("BBC News");
+        assertEquals(2, bbc.getArticles());
+        assertEquals(count("markets", kept, steady), bbc.getTopTerms().get("markets"));
+        assertNull(bbc.getTopTerms().get("fall"));
+        assertEquals(count("steady", steady), bbc.getTopTerms().get("steady"));
+    }
+
+    @Test
+    public void testSummariesMatchARecount() {
+        // many results through a small cache: demotions, cold evictions and replacements
+        cache = new TieredQueryCache(1, 8 << 10, 4 << 10, new Metrics());
+        cache.addListener(stats);
+        String[] sources = {"BBC News", "Reuters", "CNN"};
+        for (int i = 0; i < 60; i++) {
+            List<Article> articles = new ArrayList<>();
+            for (int j = 0; j < 4; j++) {
+                int n = (i * 3 + j) % 25; // articles come back in several results
+                articles.add(article(sources[n % 3], "s" + n % 3, "Story number " + n + " about topic" + n % 4, n % 10));
+            }
+            cache.put("q" + i % 20, QueryResult.analysed("q" + i % 20, "u", articles));
+        }
+
+        List<Article> cached = new ArrayList<>();
+        List<String> urls = new ArrayList<>();
+        for (var e : cache.entrySet()) {
+            for (Article a : e.getValue().getArticles()) {
+                if (!urls.contains(a.getUrl())) {
+                    urls.add(a.getUrl());
+                    cached.add(a);
+                }
+            }
+        }
+        long total = 0;
+        for (SourceStats.Summary s : stats.leaderboard(10)) {
+            List<Article> own = cached.stream().filter(a -> a.getSourceName().equals(s.getSourceName())).toList();
+            assertEquals(own.size(), s.getArticles());
+            long recent = own.stream().filter(a -> a.getPublishedEpochMillis() > now.get() - 7 * DAY).count();
+            assertEquals(recent / 7.0, s.getArticlesPerDay(), 1e-9);
+            total += s.getArticles();
+        }
+        assertEquals(cached.size(), total);
+    }
+
+    @Test
+    public void testLeaderboardRanksByArticlesAndRatesFollowTheClock() {
+        cache.put("a", result("a", article("Reuters", "reuters", "One", 6), article("Reuters", "reuters", "Two", 6),
+                article("CNN", "cnn", "Three", 0)));
+
+        List<SourceStats.Summary> top = stats.leaderboard(10);
+        assertEquals("Reuters", top.get(0).getSourceName());
+        assertEquals("CNN", top.get(1).getSourceName());
+        assertEquals(1, stats.leaderboard(1).size());
+
+        now.addAndGet(2 * DAY); // Reuters' articles are now 8 days old
+        stats.leaderboard(10); // first read on a new day republishes
+        assertEquals(0.0, stats.summary("Reuters").getArticlesPerDay(), 1e-9);
+        assertEquals(1 / 7.0, stats.summary("CNN").getArticlesPerDay(), 1e-9);
+    }
+}
@@ -0,0 +1,149 @@
+package Services;
+
+import models.Article;
+import models.QueryResult;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the hot/cold result cache.
+ */
+public class TieredQueryCacheTest {
+
+    private static QueryResult result(String query, int articles) {
+        List<Article> list = new ArrayList<>();
+        for (int i = 0; i < articles; i++) {
+            list.add(new Article(query + " headline " + i, "https://news.com/" + query + "/" + i, "News", "https://news.com",
+                    "2025-11-04, 12:00:00", 5, 60, "About " + query));
+        }
+        return QueryResult.analysed(query, "u", list);
+    }
+
+    @Test
+    public void testOverflowIsDemotedAndStillReadable() {
+        Metrics metrics = new Metrics();
+        TieredQueryCache cache = new TieredQueryCache(2, 1 << 20, 64 << 10, metrics);
+        for (String q : new String[]{"a", "b", "c", "d"}) cache.put(q, result(q, 3));
+
+        assertEquals(2, cache.hotSize());
+        assertEquals(2, cache.coldSize());
+        assertEquals(4, cache.size());
+        QueryResult a = cache.get("a");
+        assertEquals("a", a.getQuery());
+        assertEquals("https://news.com/a/2", a.getArticles().get(2).getUrl());
+        assertEquals(1L, metrics.snapshot().get("cache.cold.hits"));
+        assertNull(cache.get("missing"));
+    }
+
+    @Test
+    public void testFrequentlyUsedColdEntryIsPromoted() {
+        Metrics metrics = new Metrics();
+        TieredQueryCache cache = new TieredQueryCache(1, 1 << 20, 64 << 10, metrics);
+        cache.put("popular", result("popular", 2));
+        cache.get("popular");
+        cache.get("popular");
+        cache.put("once", result("once", 2)); // pushes "popular" out
+
+        cache.get("popular");
+        assertEquals(1L, metrics.snapshot().get("cache.promotions"));
+        // "popular" is live again and "once" took its place in the cold tier
+        cache.get("popular");
+        assertEquals(3L, metrics.snapshot().get("cache.hot.hits"));
+        assertEquals(1, cache.coldSize());
+    }
+
+    @Test
+    public void testRarelyUsedColdEntryStaysCold() {
+        Metrics metrics = new Metrics();
+        TieredQueryCache cache = new TieredQueryCache(1, 1 << 20, 64 << 10, metrics);
+        cache.put("rare", result("rare", 2));
+        cache.put("busy", result("busy", 2));
+        cache.get("busy");
+        cache.get("busy");
+
+        assertEquals("rare", cache.get("rare").getQuery());
+        assertEquals(0L, metrics.snapshot().get("cache.promotions"));
+    }
+
+    @Test
+    public void testFullColdTierEvictsOldestEntries() {
+        Metrics metrics = new Metrics();
+        // one 4KB slab: a few small results fit
+        TieredQueryCache cache = new TieredQueryCache(1, 4 << 10, 4 << 10, metrics);
+        for (int i = 0; i < 20; i++) cache.put("q" + i, result("q" + i, 1));
+
+        assertTrue(metrics.snapshot().get("cache.cold.evictions").longValue() > 0);
+        assertFalse(cache.containsKey("q0"));
+        assertTrue(cache.containsKey("q18"));
+        assertEquals("q18", cache.get("q18").getQuery());
+        assertTrue(cache.coldBytesUsed() <= 4 << 10);
+    }
+
+    @Test
+    public void testPutReplacesColdCopyAndRemoveFreesIt() {
+        TieredQueryCache cache = new TieredQueryCache(1, 1 << 20, 64 << 10, new Metrics());
+        cache.put("a", result("a", 1));
+        cache.put("b", result("b", 1));
+        assertNull(cache.put("a", result("a", 3))); // the cold copy it replaces is not decoded
+        assertEquals(3, cache.get("a").getArticles().size());
+        assertEquals(1, cache.remove("b").getArticles().size());
+        assertEquals(0, cache.coldSize());
+        assertEquals(0, cache.coldBytesUsed());
+    }
+
+    @Test
+    public void testListenersAreToldWhenResultsLeaveTheCache() {
+        TieredQueryCache cache = new TieredQueryCache(1, 4 << 10, 4 << 10, new Metrics());
+        List<String> stored = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        cache.addListener(new TieredQueryCache.Listener() {
+            @Override
+            public void stored(String key, QueryResult result) {
+                stored.add(key);
+            }
+
+            @Override
+            public void removed(String key) {
+                removed.add(key);
+            }
+        });
+        for (int i = 0; i < 20; i++) cache.put("q" + i, result("q" + i, 1));
+        cache.get("q5"); // a demotion or promotion is not a removal
+
+        assertEquals(20, stored.size());
+        for (String key : removed) assertFalse(cache.containsKey(key));
+        assertEquals(20, removed.size() + cache.size());
+
+        cache.clear();
+        assertEquals(20, removed.size());
+    }
+
+    @Test
+    public void testLargerResultsTakeOverSlabsOfSmallerOnes() {
+        Metrics metrics = new Metrics();
+        // two 8KB slabs, first split into small chunks
+        TieredQueryCache cache = new TieredQueryCache(1, 16 << 10, 8 << 10, metrics);
+        for (int i = 0; i < 40; i++) cache.put("small" + i, result("small" + i, 1));
+        for (int i = 0; i < 4; i++) cache.put("large" + i, result("large" + i, 40));
+        cache.put("last", result("last", 1)); // pushes the last large result out
+
+        assertEquals(0L, metrics.snapshot().get("cache.cold.rejected"));
+        assertEquals(40, cache.get("large3").getArticles().size());
+        assertTrue(cache.coldBytesUsed() <= 16 << 10);
+    }
+
+    @Test
+    public void testEmptySlabsGoBackToThePool() {
+        SlabAllocator slabs = new SlabAllocator(4096, 4096);
+        long[] small = new long[8];
+        for (int i = 0; i < 8; i++) small[i] = slabs.allocate(500);
+        assertEquals(-1, slabs.allocate(3000)); // the only slab is split into 512-byte chunks
+        for (long chunk : small) slabs.free(chunk, 500);
+        assertTrue(slabs.allocate(3000) >= 0);
+        assertEquals(4096, slabs.usedBytes());
+    }
+}
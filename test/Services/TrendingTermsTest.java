@@ -0,0 +1,69 @@
+package Services;
+
+import models.Article;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for TrendingTerms, run with an inline writer and a manual clock.
+ */
+public class TrendingTermsTest {
+
+    private AtomicLong now;
+    private TrendingTerms trending;
+
+    @Before
+    public void setup() {
+        now = new AtomicLong(1_700_000_000_000L);
+        trending = new TrendingTerms(now::get, Runnable::run);
+    }
+
+    private static Article article(String title, String description) {
+        return new Article(title, "url", "Source", "https://source.com", "2025-11-04, 12:00:00", 5, 5, description);
+    }
+
+    @Test
+    public void testTopTermsAreRankedByCount() {
+        List<Article> articles = Arrays.asList(
+                article("Climate summit opens", "Leaders discuss climate policy"),
+                article("Climate protest", "Thousands march"));
+        trending.record(articles);
+
+        Map<String, Long> top = trending.top("15m");
+        assertEquals("climate", top.keySet().iterator().next());
+        assertEquals(Long.valueOf(3), top.get("climate"));
+        assertTrue(top.containsKey("summit"));
+        assertFalse(top.containsKey("of"));
+    }
+
+    @Test
+    public void testShortWindowExpiresBeforeLongWindow() {
+        trending.record(Arrays.asList(article("Bitcoin rallies", "Bitcoin price jumps")));
+
+        now.addAndGet(20 * 60_000L); // 20 minutes later
+        trending.top("15m"); // first read after the rollover republishes the snapshot
+
+        assertFalse(trending.top("15m").containsKey("bitcoin"));
+        assertEquals(Long.valueOf(2), trending.top("1h").get("bitcoin"));
+        assertEquals(Long.valueOf(2), trending.top("24h").get("bitcoin"));
+    }
+
+    @Test
+    public void testUnknownWindowReturnsNull() {
+        assertNull(trending.top("1y"));
+    }
+
+    @Test
+    public void testEmptyBatchIsIgnored() {
+        trending.record(Arrays.asList());
+        assertTrue(trending.top("1h").isEmpty());
+        assertEquals(0, trending.getDropped());
+    }
+}
@@ -0,0 +1,164 @@
+package Services;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import models.Article;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+import play.libs.Json;
+import play.libs.ws.WSClient;
+import play.libs.ws.WSRequest;
+import play.libs.ws.WSResponse;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the upstream record/replay archive.
+ */
+public class UpstreamArchiveTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static String text(ByteBuffer body) {
+        byte[] bytes = new byte[body.remaining()];
+        body.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testKeyDropsApiKeyAndSortsParameters() {
+        assertEquals("https://newsapi.org/v2/everything?q=climate&sortby=publishedat",
+                UpstreamArchive.key("https://newsapi.org/v2/everything?q=climate&sortby=publishedat&apiKey=secret"));
+        assertEquals(UpstreamArchive.key("https://NewsAPI.org/v2/everything?sortBy=x&q=a&apiKey=k1"),
+                UpstreamArchive.key("https://newsapi.org/v2/everything?q=a&apiKey=k2&sortBy=x"));
+    }
+
+    @Test
+    public void testRecordedResponsesReplayAfterReopening() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        UpstreamArchive recorder = new UpstreamArchive(UpstreamArchive.Mode.RECORD, dir, new Metrics(), Runnable::run);
+        recorder.record("https://newsapi.org/v2/everything?q=a&apiKey=k", "{\"articles\":[1]}".getBytes(StandardCharsets.UTF_8));
+        recorder.record("https://newsapi.org/v2/everything?q=b", "{\"articles\":[2]}".getBytes(StandardCharsets.UTF_8));
+        recorder.record("https://newsapi.org/v2/everything?q=a", "{\"articles\":[3]}".getBytes(StandardCharsets.UTF_8));
+        recorder.close();
+
+        Metrics metrics = new Metrics();
+        UpstreamArchive replay = new UpstreamArchive(UpstreamArchive.Mode.REPLAY, dir, metrics, Runnable::run);
+        assertEquals(2, replay.keys().size());
+        assertEquals("{\"articles\":[3]}", text(replay.replay("https://newsapi.org/v2/everything?q=a&apiKey=other").get()));
+        assertEquals("{\"articles\":[2]}", text(replay.replay("https://newsapi.org/v2/everything?q=b").get()));
+        assertFalse(replay.replay("https://newsapi.org/v2/everything?q=c").isPresent());
+        assertEquals(2L, metrics.snapshot().get("archive.replay.hits"));
+        assertEquals(1L, metrics.snapshot().get("archive.replay.misses"));
+        replay.close();
+    }
+
+    @Test
+    public void testRepliesAreSlicesOfOneMapping() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        UpstreamArchive recorder = new UpstreamArchive(UpstreamArchive.Mode.RECORD, dir, new Metrics(), Runnable::run);
+        for (int i = 0; i < 100; i++) recorder.record("https://x/" + i, ("body " + i).getBytes(StandardCharsets.UTF_8));
+        recorder.close();
+
+        UpstreamArchive replay = new UpstreamArchive(UpstreamArchive.Mode.REPLAY, dir, new Metrics(), Runnable::run);
+        for (int i = 0; i < 100; i++) {
+            ByteBuffer body = replay.replay("https://x/" + i).get();
+            assertTrue(body.isReadOnly());
+            assertEquals("body " + i, text(body));
+        }
+        replay.close();
+    }
+
+    @Test
+    public void testMissingArchiveReplaysAsEmpty() {
+        Metrics metrics = new Metrics();
+        UpstreamArchive replay = new UpstreamArchive(UpstreamArchive.Mode.REPLAY, folder.getRoot().toPath().resolve("none"), metrics, Runnable::run);
+        assertFalse(replay.replay("https://newsapi.org/v2/everything?q=a").isPresent());
+        assertEquals(1L, metrics.snapshot().get("archive.replay.misses"));
+        replay.close();
+    }
+
+    @Test
+    public void testRefreshesFromADateAreNotRecorded() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        UpstreamArchive recorder = new UpstreamArchive(UpstreamArchive.Mode.RECORD, dir, new Metrics(), Runnable::run);
+        recorder.record("https://newsapi.org/v2/everything?q=a", "full".getBytes(StandardCharsets.UTF_8));
+        recorder.record("https://newsapi.org/v2/everything?q=a&from=2025-11-04T12:00:00Z", "delta".getBytes(StandardCharsets.UTF_8));
+        recorder.record("https://newsapi.org/v2/everything?from=2025-11-04T12:00:00Z&q=a", "delta".getBytes(StandardCharsets.UTF_8));
+        assertEquals(1, recorder.keys().size());
+        recorder.close();
+    }
+
+    @Test
+    public void testUnindexedRecordsAreRecoveredAndTornTailDropped() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        UpstreamArchive recorder = new UpstreamArchive(UpstreamArchive.Mode.RECORD, dir, new Metrics(), Runnable::run);
+        recorder.record("https://x/a", "first".getBytes(StandardCharsets.UTF_8));
+        recorder.record("https://x/b", "second".getBytes(StandardCharsets.UTF_8));
+        recorder.close();
+
+        // lose the last index entry, then add half a record: as if the app stopped mid-write
+        try (FileChannel idx = FileChannel.open(dir.resolve("responses.idx"), StandardOpenOption.WRITE)) {
+            idx.truncate(12);
+        }
+        long intact = Files.size(dir.resolve("responses.dat"));
+        Files.write(dir.resolve("responses.dat"), new byte[]{0x4E, 0x4C, 0x52, 0x31, 0, 0}, StandardOpenOption.APPEND);
+
+        UpstreamArchive reopened = new UpstreamArchive(UpstreamArchive.Mode.RECORD, dir, new Metrics(), Runnable::run);
+        assertEquals("second", text(reopened.replay("https://x/b").get()));
+        assertEquals(intact, Files.size(dir.resolve("responses.dat")));
+        assertEquals(24, Files.size(dir.resolve("responses.idx")));
+        reopened.record("https://x/c", "third".getBytes(StandardCharsets.UTF_8));
+        reopened.close();
+
+        UpstreamArchive replay = new UpstreamArchive(UpstreamArchive.Mode.REPLAY, dir, new Metrics(), Runnable::run);
+        assertEquals("first", text(replay.replay("https://x/a").get()));
+        assertEquals("third", text(replay.replay("https://x/c").get()));
+        replay.close();
+    }
+
+    @Test
+    public void testClientRecordsThenReplaysWithoutCallingNewsApi() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        Config config = ConfigFactory.parseString("newsapi.key = \"k\"");
+        String body = "{\"articles\":[{\"title\":\"Rates fall\",\"url\":\"u1\",\"source\":{\"id\":null,\"name\":\"S\"},"
+                + "\"publishedAt\":\"2025-11-04T12:00:00Z\",\"description\":\"D\"}]}";
+        WSClient ws = Mockito.mock(WSClient.class);
+        WSRequest request = Mockito.mock(WSRequest.class);
+        WSResponse response = Mockito.mock(WSResponse.class);
+        Mockito.when(ws.url(Mockito.anyString())).thenReturn(request);
+        Mockito.when(request.setRequestTimeout(Mockito.any(Duration.class))).thenReturn(request);
+        Mockito.when(request.get()).thenReturn(CompletableFuture.completedFuture(response));
+        Mockito.when(response.getStatus()).thenReturn(200);
+        Mockito.when(response.asByteArray()).thenReturn(body.getBytes(StandardCharsets.UTF_8));
+        Mockito.when(response.asJson()).thenReturn(Json.parse(body));
+
+        Metrics metrics = new Metrics();
+        UpstreamArchive recorder = new UpstreamArchive(UpstreamArchive.Mode.RECORD, dir, metrics, Runnable::run);
+        new Client(ws, new TrendingTerms(), new SourceCatalogue(), new UpstreamHedging(config, metrics), new ApiKeyPool(config, metrics), recorder, new EventLog())
+                .clientRequest("https://newsapi.org/v2/everything?q=rates").toCompletableFuture().join();
+        recorder.close();
+        Mockito.verify(ws, Mockito.times(1)).url(Mockito.anyString());
+
+        UpstreamArchive replay = new UpstreamArchive(UpstreamArchive.Mode.REPLAY, dir, metrics, Runnable::run);
+        List<Article> articles = new Client(ws, new TrendingTerms(), new SourceCatalogue(), new UpstreamHedging(config, metrics),
+                new ApiKeyPool(config, metrics), replay, new EventLog()).clientRequest("https://newsapi.org/v2/everything?q=rates").toCompletableFuture().join();
+        replay.close();
+
+        assertEquals(1, articles.size());
+        assertEquals("Rates fall", articles.get(0).getTitle());
+        Mockito.verify(ws, Mockito.times(1)).url(Mockito.anyString());
+    }
+}
@@ -0,0 +1,152 @@
+package Services;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for UpstreamHedging with simulated upstream calls.
+ */
+public class UpstreamHedgingTest {
+
+    private Metrics metrics;
+    private UpstreamHedging hedging;
+
+    @Before
+    public void setup() {
+        Config config = ConfigFactory.parseString("newsapi.hedging.budget = 1.0\nnewsapi.timeout.max = 5s\nnewsapi.timeout.min = 100ms");
+        metrics = new Metrics();
+        hedging = new UpstreamHedging(config, metrics);
+    }
+
+    /** Fills the histogram with fast calls so that p95 becomes a few milliseconds. */
+    private void warmUp() {
+        for (int i = 0; i < 40; i++) {
+            hedging.execute(() -> CompletableFuture.completedFuture("ok")).toCompletableFuture().join();
+        }
+    }
+
+    private static CompletionStage<String> after(long millis, String value) {
+        return CompletableFuture.supplyAsync(() -> value, CompletableFuture.delayedExecutor(millis, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testTimeoutIsMaximumUntilLatenciesAreKnown() {
+        assertEquals(Duration.ofSeconds(5), hedging.timeout());
+        warmUp();
+        assertEquals(Duration.ofMillis(100), hedging.timeout());
+    }
+
+    @Test
+    public void testSlowPrimaryIsHedgedAndHedgeWins() {
+        warmUp();
+        AtomicInteger attempts = new AtomicInteger();
+        String result = hedging.execute(() -> attempts.incrementAndGet() == 1 ? after(2_000, "primary") : after(10, "hedge"))
+                .toCompletableFuture().join();
+
+        assertEquals("hedge", result);
+        assertEquals(2, attempts.get());
+        Map<String, Number> snapshot = metrics.snapshot();
+        assertEquals(1L, snapshot.get("upstream.hedges"));
+        assertEquals(1L, snapshot.get("upstream.hedges.won"));
+    }
+
+    @Test
+    public void testHedgesAreLimitedByBudget() {
+        Config config = ConfigFactory.parseString("newsapi.hedging.budget = 0.0");
+        Metrics m = new Metrics();
+        UpstreamHedging noBudget = new UpstreamHedging(config, m);
+        for (int i = 0; i < 40; i++) {
+            noBudget.execute(() -> CompletableFuture.completedFuture("ok")).toCompletableFuture().join();
+        }
+
+        AtomicInteger attempts = new AtomicInteger();
+        String result = noBudget.execute(() -> { attempts.incrementAndGet(); return after(100, "primary"); })
+                .toCompletableFuture().join();
+
+        assertEquals("primary", result);
+        assertEquals(1, attempts.get());
+        assertEquals(1L, m.snapshot().get("upstream.hedges.denied"));
+    }
+
+    @Test
+    public void testFailureIsReportedWhenNotHedged() {
+        CompletableFuture<String> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IllegalStateException("down"));
+        CompletableFuture<String> result = hedging.execute(() -> failed).toCompletableFuture();
+        assertTrue(result.isCompletedExceptionally());
+    }
+
+    @Test
+    public void testUnusableResponseNeverWins() {
+        warmUp();
+        AtomicInteger attempts = new AtomicInteger();
+        String result = hedging.execute(() -> attempts.incrementAndGet() == 1 ? after(300, "primary") : after(5, "429"),
+                        response -> !response.equals("429"))
+                .toCompletableFuture().join();
+
+        assertEquals("primary", result);
+        assertEquals(0L, metrics.snapshot().get("upstream.hedges.won"));
+        assertEquals(1L, metrics.snapshot().get("upstream.hedges.lost"));
+
+        // with no usable response, the unusable one is returned rather than a failure
+        assertEquals("429", hedging.execute(() -> after(5, "429"), response -> !response.equals("429"))
+                .toCompletableFuture().join());
+    }
+
+    @Test
+    public void testOnlyOneAttemptWinsWhenBothFinishTogether() throws Exception {
+        warmUp();
+        int runs = 50;
+        for (int i = 0; i < runs; i++) {
+            CompletableFuture<String> primary = new CompletableFuture<>();
+            CompletableFuture<String> second = new CompletableFuture<>();
+            AtomicInteger attempts = new AtomicInteger();
+            CompletableFuture<String> result = hedging.<String>execute(() -> attempts.incrementAndGet() == 1 ? primary : second)
+                    .toCompletableFuture();
+            while (attempts.get() < 2) Thread.onSpinWait();
+            CyclicBarrier start = new CyclicBarrier(2);
+            Thread a = new Thread(() -> { await(start); primary.complete("primary"); });
+            Thread b = new Thread(() -> { await(start); second.complete("hedge"); });
+            a.start();
+            b.start();
+            a.join();
+            b.join();
+            result.join();
+        }
+        Map<String, Number> snapshot = metrics.snapshot();
+        assertEquals((long) runs, snapshot.get("upstream.hedges.won").longValue() + snapshot.get("upstream.hedges.lost").longValue());
+    }
+
+    @Test
+    public void testTimedOutAttemptsRaiseTheTimeout() {
+        warmUp();
+        assertEquals(Duration.ofMillis(100), hedging.timeout());
+        for (int i = 0; i < 64; i++) {
+            CompletableFuture<String> attempt = hedging.<String>execute(() -> CompletableFuture.failedFuture(new TimeoutException()))
+                    .toCompletableFuture();
+            assertTrue(attempt.isCompletedExceptionally());
+        }
+        assertTrue(hedging.timeout().toMillis() > 100);
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
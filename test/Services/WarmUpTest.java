@@ -0,0 +1,45 @@
+package Services;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+
+public class WarmUpTest {
+
+    @Test
+    public void testSearchesQueriesThenReportsReady() {
+        Metrics metrics = new Metrics();
+        List<String> searched = new ArrayList<>();
+        WarmUp warmUp = new WarmUp(List.of("climate", "election", "broken", "slow"), query -> {
+            searched.add(query);
+            if (query.equals("broken")) return CompletableFuture.failedFuture(new IllegalStateException("upstream down"));
+            if (query.equals("slow")) return new CompletableFuture<>(); // never answers
+            return CompletableFuture.completedFuture(true);
+        }, Duration.ofMillis(50), Duration.ofSeconds(20), metrics);
+
+        assertFalse(warmUp.isReady());
+        assertEquals(0.0, warmUp.progress(), 0);
+        warmUp.run();
+
+        assertTrue(warmUp.isReady());
+        assertEquals(1.0, warmUp.progress(), 0);
+        assertEquals(List.of("climate", "election", "broken", "slow"), searched);
+        assertEquals(2, metrics.counter("warmup.queries.searched").sum());
+        assertEquals(2, metrics.counter("warmup.queries.failed").sum());
+        assertEquals(1, metrics.snapshot().get("warmup.ready").intValue());
+        assertTrue(metrics.snapshot().get("warmup.rounds").intValue() >= WarmUp.SETTLED_ROUNDS);
+    }
+
+    @Test
+    public void testUnsuccessfulSearchCountsAsFailed() {
+        Metrics metrics = new Metrics();
+        new WarmUp(List.of("nothing"), query -> CompletableFuture.completedFuture(false), Duration.ofSeconds(1), Duration.ZERO, metrics).run();
+
+        assertEquals(1, metrics.counter("warmup.queries.failed").sum());
+    }
+}
@@ -0,0 +1,182 @@
+package controllers;
+
+import Services.ApiKeyPool;
+import Services.Client;
+import Services.ClusterRouter;
+import Services.EventLog;
+import Services.ExecutionPools;
+import Services.Metrics;
+import Services.QueryBatcher;
+import Services.QueryKey;
+import Services.QuerySuggestions;
+import Services.RelatedArticles;
+import Services.SourceCatalogue;
+import Services.TieredQueryCache;
+import Services.TrendingTerms;
+import Services.UpstreamArchive;
+import Services.UpstreamHedging;
+import models.StopWords;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigException;
+import com.typesafe.config.ConfigFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import play.libs.ws.WSClient;
+import play.libs.ws.WSRequest;
+import play.libs.ws.WSResponse;
+import play.mvc.Result;
+
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static play.test.Helpers.*;
+
+/**
+ * Two in-process nodes in cluster mode, talking to each other through mocked WS calls.
+ */
+public class ClusterModeTest {
+    private static final List<String> NODES = List.of("http://node-a", "http://node-b");
+
+    private final Map<String, HomeController> nodes = new HashMap<>();
+    private final Map<String, ClusterRouter> routers = new HashMap<>();
+    /** Full (non-delta) NewsAPI calls. */
+    private final AtomicInteger fullFetches = new AtomicInteger();
+    /** Every URL asked for, nodes and NewsAPI. */
+    private final List<String> requested = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setup() {
+        for (String self : NODES) {
+            Config config = ConfigFactory.parseString(
+                    "newsapi.key = \"k\"\nnewsapi.quota = 1000\nnewsapi.rate = 1000\n"
+                            + "newsapi.url = \"https://newsapi.org/v2/everything?\"\nnewsapi.topheadlines.url = \"https://newsapi.org/v2/top-headlines?\"\n"
+                            + "cluster.enabled = true\ncluster.secret = \"s3cret\"\ncluster.self = \"" + self + "\"\n"
+                            + "cluster.nodes = [\"http://node-a\", \"http://node-b\"]");
+            Metrics metrics = new Metrics();
+            WSClient ws = Mockito.mock(WSClient.class);
+            Mockito.when(ws.url(Mockito.anyString())).thenAnswer(inv -> route(inv.getArgument(0)));
+            Client client = new Client(ws, new TrendingTerms(), new SourceCatalogue(), new UpstreamHedging(config, metrics), new ApiKeyPool(config, metrics), new UpstreamArchive(), new EventLog());
+            ClusterRouter router = new ClusterRouter(ws, config, metrics);
+            routers.put(self, router);
+            nodes.put(self, new HomeController(client, new QueryBatcher(client, config, metrics), new ExecutionPools(config, metrics),
+                    config, metrics, new TieredQueryCache(config, metrics), router,
+                    new QuerySuggestions(100, 2, Duration.ofHours(1), System::currentTimeMillis, metrics),
+                    new RelatedArticles(100, StopWords.NONE, metrics), new EventLog()));
+        }
+    }
+
+    /** Node URLs go to the node's controller, everything else to a fake NewsAPI. */
+    private WSRequest route(String url) throws Exception {
+        requested.add(url);
+        WSRequest request = Mockito.mock(WSRequest.class);
+        WSResponse response = Mockito.mock(WSResponse.class);
+        Mockito.when(request.setRequestTimeout(Mockito.any(Duration.class))).thenReturn(request);
+        Mockito.when(request.addHeader(Mockito.anyString(), Mockito.anyString())).thenReturn(request);
+        Mockito.when(response.getSingleHeader(Mockito.anyString())).thenReturn(Optional.empty());
+
+        String node = NODES.stream().filter(url::startsWith).findFirst().orElse(null);
+        if (node == null) {
+            Mockito.when(request.get()).thenAnswer(inv -> {
+                if (!url.contains("&from=")) fullFetches.incrementAndGet();
+                return CompletableFuture.completedFuture(response);
+            });
+            Mockito.when(response.getStatus()).thenReturn(200);
+            Mockito.when(response.asJson()).thenReturn(new ObjectMapper().readTree(
+                    "{\"articles\":[{\"title\":\"Bitcoin rallies\",\"url\":\"u1\",\"source\":{\"id\":null,\"name\":\"S\"},"
+                            + "\"publishedAt\":\"2025-11-04T12:00:00Z\",\"description\":\"D\"}]}"));
+        } else {
+            Mockito.when(request.get()).thenAnswer(inv -> !nodes.containsKey(node)
+                    ? CompletableFuture.failedFuture(new ConnectException(node + " is down"))
+                    : nodes.get(node).clusterResult(fakeRequest("GET", url.substring(node.length())).header(ClusterRouter.SECRET_HEADER, "s3cret").build())
+                    .thenApply(result -> {
+                        Mockito.when(response.getStatus()).thenReturn(result.status());
+                        Mockito.when(response.asByteArray()).thenReturn(contentAsBytes(result).toArray());
+                        return response;
+                    }));
+        }
+        return request;
+    }
+
+    @Test
+    public void testQueryIsFetchedOnceAcrossNodes() {
+        for (String self : NODES) {
+            Result result = nodes.get(self).search(fakeRequest("GET", "/search?SearchInput=bitcoin").build()).toCompletableFuture().join();
+            assertEquals(OK, result.status());
+            assertTrue(contentAsString(result).contains("Bitcoin rallies"));
+        }
+        // the second search was a refresh by the owner (only newer articles), not a second full fetch
+        assertEquals(1, fullFetches.get());
+        // both nodes can show statistics for it
+        for (String self : NODES) {
+            assertEquals(OK, nodes.get(self).stats(fakeRequest().build(), "bitcoin").toCompletableFuture().join().status());
+        }
+    }
+
+    @Test
+    public void testUnreachableOwnerIsBypassed() {
+        String owner = routers.get(NODES.get(0)).remoteOwner("bitcoin").orElse(NODES.get(0));
+        String other = NODES.stream().filter(n -> !n.equals(owner)).findFirst().get();
+        nodes.remove(owner); // the owner is down: calls to it fail
+
+        Result result = nodes.get(other).search(fakeRequest("GET", "/search?SearchInput=bitcoin").build()).toCompletableFuture().join();
+        assertEquals(OK, result.status());
+        assertEquals(List.of(other), routers.get(other).liveNodes());
+    }
+
+    @Test
+    public void testOwnerAnsweringAnErrorStaysInTheRing() throws Exception {
+        WSClient ws = Mockito.mock(WSClient.class);
+        WSRequest request = Mockito.mock(WSRequest.class);
+        WSResponse response = Mockito.mock(WSResponse.class);
+        Mockito.when(ws.url(Mockito.anyString())).thenReturn(request);
+        Mockito.when(request.addHeader(Mockito.anyString(), Mockito.anyString())).thenReturn(request);
+        Mockito.when(request.setRequestTimeout(Mockito.any(Duration.class))).thenReturn(request);
+        Mockito.when(request.get()).thenReturn(CompletableFuture.completedFuture(response));
+        Mockito.when(response.getStatus()).thenReturn(500);
+        ClusterRouter router = new ClusterRouter(ws, ConfigFactory.parseString("cluster.enabled = true\ncluster.secret = \"s3cret\"\n"
+                + "cluster.self = \"http://node-a\"\ncluster.nodes = [\"http://node-a\", \"http://node-b\"]"), new Metrics());
+
+        CompletableFuture<?> forwarded = router.fetch("http://node-b", "bitcoin", QueryKey.of("bitcoin", null, "publishedAt"), false)
+                .toCompletableFuture();
+        try {
+            forwarded.join();
+            fail("an error status must fail the call");
+        } catch (CompletionException e) {
+            assertEquals(500, ((ClusterRouter.NodeError) e.getCause()).getStatus());
+        }
+        assertEquals(NODES, router.liveNodes());
+    }
+
+    @Test
+    public void testOwnerBuildsTheNewsApiRequestItself() {
+        Result result = nodes.get(NODES.get(0)).clusterResult(fakeRequest("GET",
+                "/cluster/result?q=bitcoin&sort=publishedAt&url=http%3A%2F%2Fevil.example%2F%3F&base=http%3A%2F%2Fevil.example%2F%3F")
+                .header(ClusterRouter.SECRET_HEADER, "s3cret").build()).toCompletableFuture().join();
+        assertEquals(OK, result.status());
+        assertTrue(requested.stream().noneMatch(u -> u.contains("evil.example")));
+        assertTrue(requested.stream().anyMatch(u -> u.startsWith("https://newsapi.org/v2/everything?sortBy=publishedAt") && u.contains("q=bitcoin")));
+    }
+
+    @Test(expected = ConfigException.class)
+    public void testClusterModeNeedsASecret() {
+        new ClusterRouter(Mockito.mock(WSClient.class), ConfigFactory.parseString(
+                "cluster.enabled = true\ncluster.self = \"http://node-a\"\ncluster.nodes = [\"http://node-a\"]"), new Metrics());
+    }
+
+    @Test
+    public void testClusterRoutesNeedTheSecret() {
+        Result result = nodes.get(NODES.get(0)).clusterResult(fakeRequest("GET", "/cluster/result?q=a").build()).toCompletableFuture().join();
+        assertEquals(FORBIDDEN, result.status());
+    }
+}
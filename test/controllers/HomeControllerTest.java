@@ -1,6 +1,7 @@
 package controllers;
 
 import models.Article;
+import models.NewsSource;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -9,8 +10,25 @@ import play.mvc.Http;
 import play.mvc.Result;
 import com.typesafe.config.Config;
 import models.QueryResult;
+import models.StopWords;
+import Services.ApiKeyPool;
+import Services.Client;
+import Services.ClusterRouter;
+import Services.EventLog;
+import Services.ExecutionPools;
+import Services.Metrics;
+import Services.QueryBatcher;
+import Services.QueryKey;
+import Services.QuerySuggestions;
+import Services.RelatedArticles;
+import Services.SourceCatalogue;
+import Services.TieredQueryCache;
+import Services.TrendingTerms;
+import Services.UpstreamArchive;
+import Services.UpstreamHedging;
 
 import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.*;
 
@@ -24,8 +42,10 @@ public class HomeControllerTest {
     private WSRequest mockRequest;
     private WSResponse mockResponse;
     private Config mockConfig;
-    private Executor executor;
     private HomeController controller;
+    private QuerySuggestions suggestions;
+    private RelatedArticles related;
+    private SourceCatalogue sources;
 
     @Before
     public void setup() {
@@ -34,7 +54,6 @@ public class HomeControllerTest {
         mockRequest = Mockito.mock(WSRequest.class);
         mockResponse = Mockito.mock(WSResponse.class);
         mockConfig = Mockito.mock(Config.class);
-        executor = Executors.newSingleThreadExecutor();
 
         // --- Stub config values ---
         Mockito.when(mockConfig.getString("newsapi.key")).thenReturn("dummyKey");
@@ -55,7 +74,13 @@ public class HomeControllerTest {
         Mockito.when(mockRequest.get()).thenReturn(fakeFuture);
 
         // --- Instantiate controller ---
-        controller = new HomeController(mockWs, executor, mockConfig);
+        Metrics metrics = new Metrics();
+        suggestions = new QuerySuggestions(100, 2, Duration.ofHours(1), System::currentTimeMillis, metrics);
+        related = new RelatedArticles(100, StopWords.NONE, metrics);
+        sources = new SourceCatalogue();
+        Client client = new Client(mockWs, new TrendingTerms(), sources, new UpstreamHedging(mockConfig, metrics), new ApiKeyPool(mockConfig, metrics), new UpstreamArchive(), new EventLog());
+        controller = new HomeController(client, new QueryBatcher(client, mockConfig, metrics), new ExecutionPools(mockConfig, metrics), mockConfig, metrics,
+                new TieredQueryCache(mockConfig, metrics), new ClusterRouter(mockWs, mockConfig, metrics), suggestions, related, new EventLog());
     }
 
     /** Test that index() renders the welcome message correctly. */
@@ -115,7 +140,7 @@ public class HomeControllerTest {
         Http.Request fakeRequest = fakeRequest().build();
 
         // Call stats
-        Result result = controller.stats(fakeRequest, key);
+        Result result = controller.stats(fakeRequest, key).toCompletableFuture().join();
         // Verify results
         assertEquals(OK, result.status());
         String body = contentAsString(result);
@@ -124,4 +149,232 @@ public class HomeControllerTest {
         assertTrue(body.contains("title:4"));
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testStatCollapsesDuplicates() {
+        String key = "wire";
+        List<Article> dummyArticles = Arrays.asList(
+                new Article("Storm hits coast", "url1", "Source 1", "https://source1.com", "2025-11-04, 12:00:00", 5, 5, "Storm hits coast"),
+                new Article("Storm hits coast", "url2", "Source 2", "https://source2.com", "2025-11-04, 13:00:00", 5, 5, "Storm hits coast"),
+                new Article("Markets rally", "url3", "Source 3", "https://source3.com", "2025-11-04, 14:00:00", 5, 5, "Markets rally")
+        );
+        Map<String, QueryResult> testCache = new LinkedHashMap<>();
+        testCache.put(key, new QueryResult(key, dummyArticles, 5.0, 5.0));
+        controller.setCache(testCache);
+
+        Result result = controller.stats(fakeRequest().uri("/statistics/wire?collapse=true").build(), key).toCompletableFuture().join();
+
+        assertEquals(OK, result.status());
+        String body = contentAsString(result);
+        assertTrue(body.contains("2 articles have been taken into account"));
+        assertTrue(body.contains("storm:2"));
+    }
+
+    @Test
+    public void testRepeatedSearchOnlyFetchesNewerArticles() throws Exception {
+        Mockito.when(mockResponse.asJson()).thenReturn(new com.fasterxml.jackson.databind.ObjectMapper().readTree(
+                "{\"articles\":[{\"title\":\"Old story\",\"url\":\"u1\",\"source\":{\"id\":null,\"name\":\"S\"},"
+                        + "\"publishedAt\":\"2025-11-04T12:00:00Z\",\"description\":\"D\"}]}"));
+        Http.Request first = fakeRequest().method(GET).uri("/search?SearchInput=climate&sortBy=publishedAt").build();
+        controller.search(first).toCompletableFuture().join();
+
+        Http.Request second = fakeRequest().method(GET).uri("/search?SearchInput=climate&sortBy=publishedAt")
+                .session("queries", "climate").build();
+        Result result = controller.search(second).toCompletableFuture().join();
+
+        assertEquals(OK, result.status());
+        Mockito.verify(mockWs).url(Mockito.contains("&from=2025-11-04T12:00:00Z"));
+        assertEquals(1, controller.getCache().get(QueryKey.of("climate", null, "publishedAt").key()).getArticles().size());
+    }
+
+    @Test
+    public void testEquivalentSpellingsShareTheCachedResult() throws Exception {
+        Mockito.when(mockResponse.asJson()).thenReturn(new com.fasterxml.jackson.databind.ObjectMapper().readTree(
+                "{\"articles\":[{\"title\":\"Climate change talks\",\"url\":\"u1\",\"source\":{\"id\":null,\"name\":\"S\"},"
+                        + "\"publishedAt\":\"2025-11-04T12:00:00Z\",\"description\":\"D\"}]}"));
+        controller.search(fakeRequest().method(GET).uri("/search?SearchInput=Climate+Change&sortBy=publishedAt").build()).toCompletableFuture().join();
+        Result result = controller.search(fakeRequest().method(GET).uri("/search?SearchInput=change++climate&sortBy=publishedAt").build())
+                .toCompletableFuture().join();
+
+        assertEquals(OK, result.status());
+        // the second spelling found the first one's result and only asked for newer articles
+        Mockito.verify(mockWs).url(Mockito.contains("&from=2025-11-04T12:00:00Z"));
+        assertEquals(OK, controller.stats(fakeRequest().build(), "change  climate").toCompletableFuture().join().status());
+    }
+
+    @Test
+    public void testNarrowerSearchIsServedFromFreshBroaderResult() throws Exception {
+        Mockito.when(mockResponse.asJson()).thenReturn(new com.fasterxml.jackson.databind.ObjectMapper().readTree(
+                "{\"articles\":[{\"title\":\"Climate plan for Canada\",\"url\":\"u1\",\"source\":{\"id\":null,\"name\":\"S\"},"
+                        + "\"publishedAt\":\"2025-11-04T12:00:00Z\",\"description\":\"D\"},"
+                        + "{\"title\":\"Climate summit opens\",\"url\":\"u2\",\"source\":{\"id\":null,\"name\":\"S\"},"
+                        + "\"publishedAt\":\"2025-11-04T11:00:00Z\",\"description\":\"D\"}]}"));
+        controller.search(fakeRequest().method(GET).uri("/search?SearchInput=climate&sortBy=publishedAt").build()).toCompletableFuture().join();
+        Result result = controller.search(fakeRequest().method(GET).uri("/search?SearchInput=canada+climate&sortBy=publishedAt").build())
+                .toCompletableFuture().join();
+
+        assertEquals(OK, result.status());
+        Mockito.verify(mockWs, Mockito.times(1)).url(Mockito.anyString()); // only the broad search went upstream
+        QueryResult narrowed = controller.getCache().get(QueryKey.of("canada climate", null, "publishedAt").key());
+        assertEquals(1, narrowed.getArticles().size());
+        assertEquals("Climate plan for Canada", narrowed.getArticles().get(0).getTitle());
+    }
+
+    @Test
+    public void testNarrowerSearchNeedsACompleteBroaderResult() throws Exception {
+        StringBuilder page = new StringBuilder("{\"articles\":[");
+        for (int i = 0; i < HomeController.getMaxArticlesVisible(); i++) {
+            page.append(i == 0 ? "" : ",").append("{\"title\":\"Climate plan ").append(i).append(" for Canada\",\"url\":\"u").append(i)
+                    .append("\",\"source\":{\"id\":null,\"name\":\"S\"},\"publishedAt\":\"2025-11-04T12:00:00Z\",\"description\":\"D\"}");
+        }
+        Mockito.when(mockResponse.asJson()).thenReturn(new com.fasterxml.jackson.databind.ObjectMapper().readTree(page.append("]}").toString()));
+        controller.search(fakeRequest().method(GET).uri("/search?SearchInput=climate&sortBy=publishedAt").build()).toCompletableFuture().join();
+        controller.search(fakeRequest().method(GET).uri("/search?SearchInput=canada+climate&sortBy=publishedAt").build()).toCompletableFuture().join();
+
+        // a full page of "climate" may miss older articles about Canada: NewsAPI is asked
+        Mockito.verify(mockWs, Mockito.times(2)).url(Mockito.anyString());
+    }
+
+    @Test
+    public void testNewsApiGetsTheQueryAsTyped() {
+        controller.search(fakeRequest().method(GET).uri("/search?SearchInput=%20Climate++Change%20&sortBy=publishedAt").build()).toCompletableFuture().join();
+
+        Mockito.verify(mockWs).url(Mockito.contains("&q=Climate+Change&"));
+    }
+
+    @Test
+    public void testOtherOrderIsServedLocallyFromCompleteResult() throws Exception {
+        Mockito.when(mockResponse.asJson()).thenReturn(new com.fasterxml.jackson.databind.ObjectMapper().readTree(
+                "{\"articles\":[{\"title\":\"Older but relevant\",\"url\":\"u1\",\"source\":{\"id\":null,\"name\":\"S\"},"
+                        + "\"publishedAt\":\"2025-11-04T11:00:00Z\",\"description\":\"D\"},"
+                        + "{\"title\":\"Newer\",\"url\":\"u2\",\"source\":{\"id\":null,\"name\":\"S\"},"
+                        + "\"publishedAt\":\"2025-11-04T12:00:00Z\",\"description\":\"D\"}]}"));
+        controller.search(fakeRequest().method(GET).uri("/search?SearchInput=climate&sortBy=relevancy").build()).toCompletableFuture().join();
+        Result result = controller.search(fakeRequest().method(GET).uri("/search?SearchInput=climate&sortBy=publishedAt").build())
+                .toCompletableFuture().join();
+
+        assertEquals(OK, result.status());
+        Mockito.verify(mockWs, Mockito.times(1)).url(Mockito.anyString()); // NewsAPI sent every match the first time
+        QueryResult byDate = controller.getCache().get(QueryKey.of("climate", null, "publishedAt").key());
+        assertEquals("Newer", byDate.getArticles().get(0).getTitle());
+        assertEquals(2, byDate.getArticles().size());
+
+        // popularity order cannot be derived from the cached results
+        controller.search(fakeRequest().method(GET).uri("/search?SearchInput=climate&sortBy=popularity").build()).toCompletableFuture().join();
+        Mockito.verify(mockWs, Mockito.times(2)).url(Mockito.anyString());
+    }
+
+    @Test
+    public void testUpstreamErrorIsNotTakenForACompleteResult() {
+        Mockito.when(mockResponse.getStatus()).thenReturn(500);
+        Result failed = controller.search(fakeRequest().method(GET).uri("/search?SearchInput=climate&sortBy=relevancy").build())
+                .toCompletableFuture().join();
+
+        assertEquals(INTERNAL_SERVER_ERROR, failed.status());
+        assertNull(controller.getCache().get(QueryKey.of("climate", null, "relevancy").key()));
+
+        Mockito.when(mockResponse.getStatus()).thenReturn(200);
+        controller.search(fakeRequest().method(GET).uri("/search?SearchInput=climate&sortBy=publishedAt").build()).toCompletableFuture().join();
+        Mockito.verify(mockWs, Mockito.times(2)).url(Mockito.anyString()); // asked NewsAPI again, not answered from the error
+    }
+
+    @Test
+    public void testLanguageFilterIsServedLocallyFromCompleteResult() throws Exception {
+        sources.replace(Arrays.asList(new NewsSource("le-monde", "Le Monde", "", "https://lemonde.fr", "general", "fr", "fr"),
+                new NewsSource("bbc-news", "BBC News", "", "https://bbc.co.uk", "general", "en", "gb")));
+        Mockito.when(mockResponse.asJson()).thenReturn(new com.fasterxml.jackson.databind.ObjectMapper().readTree(
+                "{\"articles\":[{\"title\":\"Climat\",\"url\":\"u1\",\"source\":{\"id\":\"le-monde\",\"name\":\"Le Monde\"},"
+                        + "\"publishedAt\":\"2025-11-04T12:00:00Z\",\"description\":\"D\"},"
+                        + "{\"title\":\"Climate\",\"url\":\"u2\",\"source\":{\"id\":\"bbc-news\",\"name\":\"BBC News\"},"
+                        + "\"publishedAt\":\"2025-11-04T11:00:00Z\",\"description\":\"D\"}]}"));
+        controller.search(fakeRequest().method(GET).uri("/search?SearchInput=climate&sortBy=publishedAt").build()).toCompletableFuture().join();
+        controller.search(fakeRequest().method(GET).uri("/search?SearchInput=climate&sortBy=publishedAt&filterValue=language:fr").build())
+                .toCompletableFuture().join();
+
+        Mockito.verify(mockWs, Mockito.times(1)).url(Mockito.anyString());
+        QueryResult french = controller.getCache().get(QueryKey.of("climate", "language:fr", "publishedAt").key());
+        assertEquals(1, french.getArticles().size());
+        assertEquals("Climat", french.getArticles().get(0).getTitle());
+    }
+
+    @Test
+    public void testPublicationTimesAreShownInTheReadersZone() throws Exception {
+        Mockito.when(mockResponse.asJson()).thenReturn(new com.fasterxml.jackson.databind.ObjectMapper().readTree(
+                "{\"articles\":[{\"title\":\"Tokyo markets\",\"url\":\"u1\",\"source\":{\"id\":null,\"name\":\"S\"},"
+                        + "\"publishedAt\":\"2025-11-04T12:00:00Z\",\"description\":\"D\"}]}"));
+        Result local = controller.search(fakeRequest().method(GET).uri("/search?SearchInput=tokyo")
+                .cookie(Http.Cookie.builder("tz", "Asia/Tokyo").build()).build()).toCompletableFuture().join();
+        Result unknown = controller.search(fakeRequest().method(GET).uri("/search?SearchInput=tokyo").build()).toCompletableFuture().join();
+
+        assertTrue(contentAsString(local).contains("2025-11-04, 21:00:00"));
+        assertTrue(contentAsString(unknown).contains("2025-11-04, 07:00:00")); // Toronto by default
+        assertEquals(Instant.parse("2025-11-04T12:00:00Z"),
+                controller.getCache().get(QueryKey.of("tokyo", null, "publishedAt").key()).getArticles().get(0).getPublishedAt());
+    }
+
+    @Test
+    public void testSearchesWithArticlesFeedSuggestions() throws Exception {
+        controller.search(fakeRequest().method(GET).uri("/search?SearchInput=quiet").build()).toCompletableFuture().join();
+        controller.search(fakeRequest().method(GET).uri("/search?SearchInput=quiet").build()).toCompletableFuture().join();
+        Mockito.when(mockResponse.asJson()).thenReturn(new com.fasterxml.jackson.databind.ObjectMapper().readTree(
+                "{\"articles\":[{\"title\":\"Quebec votes\",\"url\":\"u1\",\"source\":{\"id\":null,\"name\":\"S\"},"
+                        + "\"publishedAt\":\"2025-11-04T12:00:00Z\",\"description\":\"D\"}]}"));
+        controller.search(fakeRequest().method(GET).uri("/search?SearchInput=Quebec").build()).toCompletableFuture().join();
+        controller.search(fakeRequest().method(GET).uri("/search?SearchInput=quebec").build()).toCompletableFuture().join();
+        suggestions.rebuild();
+
+        assertEquals(List.of("quebec"), suggestions.suggest("qu", 10)); // "quiet" found nothing
+    }
+
+    @Test
+    public void testWarmUpSearchesAreNotRecorded() throws Exception {
+        Metrics metrics = new Metrics();
+        TrendingTerms trending = new TrendingTerms(System::currentTimeMillis, Runnable::run);
+        Client client = new Client(mockWs, trending, sources, new UpstreamHedging(mockConfig, metrics), new ApiKeyPool(mockConfig, metrics), new UpstreamArchive(), new EventLog());
+        HomeController warming = new HomeController(client, new QueryBatcher(client, mockConfig, metrics), new ExecutionPools(mockConfig, metrics), mockConfig, metrics,
+                new TieredQueryCache(mockConfig, metrics), new ClusterRouter(mockWs, mockConfig, metrics), suggestions, related, new EventLog());
+        Mockito.when(mockResponse.asJson()).thenReturn(new com.fasterxml.jackson.databind.ObjectMapper().readTree(
+                "{\"articles\":[{\"title\":\"Quebec votes\",\"url\":\"u1\",\"source\":{\"id\":null,\"name\":\"S\"},"
+                        + "\"publishedAt\":\"2025-11-04T12:00:00Z\",\"description\":\"D\"}]}"));
+        for (int i = 0; i < 2; i++) {
+            warming.search(fakeRequest().method(GET).uri("/search?SearchInput=quebec").attr(HomeController.WARM_UP, true).build())
+                    .toCompletableFuture().join();
+        }
+        suggestions.rebuild();
+
+        assertNotNull(warming.getCache().get(QueryKey.of("quebec", null, "publishedAt").key())); // the cache is warm
+        assertEquals(List.of(), suggestions.suggest("qu", 10));
+        assertTrue(trending.top("1h").isEmpty());
+    }
+
+    @Test
+    public void testServedArticlesAreIndexedForRelatedCoverage() throws Exception {
+        Mockito.when(mockResponse.asJson()).thenReturn(new com.fasterxml.jackson.databind.ObjectMapper().readTree(
+                "{\"articles\":[{\"title\":\"Quebec votes on budget\",\"url\":\"u1\",\"source\":{\"id\":null,\"name\":\"S\"},"
+                        + "\"publishedAt\":\"2025-11-04T12:00:00Z\",\"description\":\"Budget vote\"},"
+                        + "{\"title\":\"Quebec budget passes\",\"url\":\"u2\",\"source\":{\"id\":null,\"name\":\"S\"},"
+                        + "\"publishedAt\":\"2025-11-04T11:00:00Z\",\"description\":\"Finance minister pleased\"}]}"));
+        controller.search(fakeRequest().method(GET).uri("/search?SearchInput=quebec").build()).toCompletableFuture().join();
+
+        assertEquals(2, related.size());
+        assertEquals("u2", related.related("u1", 5).get(0).getUrl());
+    }
+
+    @Test
+    public void testStatShowsPhrasesOnRequest() {
+        List<Article> dummyArticles = Arrays.asList(
+                new Article("Interest rates rise", "url1", "Source 1", "https://source1.com", "2025-11-04, 12:00:00", 5, 5, "Interest rates again"),
+                new Article("Markets and interest rates", "url2", "Source 2", "https://source2.com", "2025-11-04, 13:00:00", 5, 5, "Calm")
+        );
+        Map<String, QueryResult> testCache = new LinkedHashMap<>();
+        testCache.put("rates", new QueryResult("rates", dummyArticles, 5.0, 5.0));
+        controller.setCache(testCache);
+
+        Result result = controller.stats(fakeRequest().uri("/statistics/rates?ngrams=true").build(), "rates").toCompletableFuture().join();
+
+        assertEquals(OK, result.status());
+        String body = contentAsString(result);
+        assertTrue(body.contains("Phrases of 2 words:\ninterest rates:3\n"));
+        assertTrue(body.contains("rates:3"));
+    }
+}
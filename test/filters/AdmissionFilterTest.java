@@ -0,0 +1,90 @@
+package filters;
+
+import Services.Metrics;
+import Services.QueryKey;
+import Services.TieredQueryCache;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import models.QueryResult;
+import org.apache.pekko.stream.Materializer;
+import org.junit.Test;
+import org.mockito.Mockito;
+import play.mvc.Http;
+import play.mvc.Result;
+import play.mvc.Results;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+import static play.test.Helpers.fakeRequest;
+
+/**
+ * Unit tests for inbound admission control.
+ */
+public class AdmissionFilterTest {
+
+    private static AdmissionFilter filter(String settings, Metrics metrics, TieredQueryCache cache) {
+        Config config = ConfigFactory.parseString(settings);
+        return new AdmissionFilter(Mockito.mock(Materializer.class), config, metrics, cache);
+    }
+
+    private static Result call(AdmissionFilter filter, Function<Http.RequestHeader, CompletionStage<Result>> next, String uri) {
+        return filter.apply(next, fakeRequest("GET", uri).build()).toCompletableFuture().join();
+    }
+
+    @Test
+    public void testClientOverItsRateGets429WithRetryAfter() {
+        Metrics metrics = new Metrics();
+        AdmissionFilter filter = filter("admission.client.rate = 1\nadmission.client.burst = 2", metrics, new TieredQueryCache(4, 0, 1 << 20, metrics));
+        Function<Http.RequestHeader, CompletionStage<Result>> ok = rh -> CompletableFuture.completedFuture(Results.ok());
+
+        assertEquals(200, call(filter, ok, "/search?SearchInput=a").status());
+        assertEquals(200, call(filter, ok, "/search?SearchInput=b").status());
+        Result rejected = call(filter, ok, "/search?SearchInput=c");
+        assertEquals(429, rejected.status());
+        assertTrue(rejected.header("Retry-After").isPresent());
+        // monitoring is not limited
+        assertEquals(200, call(filter, ok, "/metrics").status());
+        assertEquals(1L, metrics.snapshot().get("admission.rejected.ratelimited"));
+    }
+
+    @Test
+    public void testClientsAreLimitedByTheirOwnAddress() {
+        Metrics metrics = new Metrics();
+        AdmissionFilter filter = filter("admission.client.rate = 1\nadmission.client.burst = 1", metrics, new TieredQueryCache(4, 0, 1 << 20, metrics));
+        Function<Http.RequestHeader, CompletionStage<Result>> ok = rh -> CompletableFuture.completedFuture(Results.ok());
+
+        // the address Play resolved through the trusted proxies, not the proxy's
+        assertEquals(200, filter.apply(ok, fakeRequest("GET", "/search?SearchInput=a").remoteAddress("203.0.113.1").build()).toCompletableFuture().join().status());
+        assertEquals(200, filter.apply(ok, fakeRequest("GET", "/search?SearchInput=a").remoteAddress("203.0.113.2").build()).toCompletableFuture().join().status());
+        assertEquals(429, filter.apply(ok, fakeRequest("GET", "/search?SearchInput=a").remoteAddress("203.0.113.1").build()).toCompletableFuture().join().status());
+    }
+
+    @Test
+    public void testOverloadShedsMissesBeforeCacheHits() {
+        Metrics metrics = new Metrics();
+        TieredQueryCache cache = new TieredQueryCache(4, 0, 1 << 20, metrics);
+        cache.put(QueryKey.of("Cached", null, null).key(), new QueryResult("Cached", new ArrayList<>(), 0, 0));
+        AdmissionFilter filter = filter("admission.client.rate = 1000\nadmission.client.burst = 1000\n"
+                + "admission.limit.initial = 2\nadmission.limit.min = 2", metrics, cache);
+        CompletableFuture<Result> pending = new CompletableFuture<>();
+        Function<Http.RequestHeader, CompletionStage<Result>> slow = rh -> pending;
+
+        CompletionStage<Result> first = filter.apply(slow, fakeRequest("GET", "/search?SearchInput=x").build());
+        CompletionStage<Result> second = filter.apply(slow, fakeRequest("GET", "/search?SearchInput=y").build());
+
+        Result shed = call(filter, slow, "/search?SearchInput=z");
+        assertEquals(503, shed.status());
+        assertEquals("1", shed.header("Retry-After").orElse(null));
+        // a cached query still gets in, whatever its spelling
+        assertFalse(filter.apply(slow, fakeRequest("GET", "/search?SearchInput=cached").build()).toCompletableFuture().isDone());
+
+        pending.complete(Results.ok());
+        assertEquals(200, first.toCompletableFuture().join().status());
+        assertEquals(200, second.toCompletableFuture().join().status());
+        assertEquals(0, metrics.snapshot().get("admission.inflight").intValue());
+    }
+}
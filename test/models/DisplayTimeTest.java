@@ -0,0 +1,50 @@
+package models;
+
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.ZoneId;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the display formatting of publication times.
+ */
+public class DisplayTimeTest {
+
+    @Test
+    public void testFormatsInTheReadersZone() {
+        Instant t = Instant.parse("2025-11-04T17:09:00Z");
+        assertEquals("2025-11-04, 12:09:00", DisplayTime.format(t, DisplayTime.DEFAULT_ZONE));
+        assertEquals("2025-11-04, 18:09:00", DisplayTime.format(t, ZoneId.of("Europe/Paris")));
+        assertEquals(DisplayTime.UNKNOWN, DisplayTime.format(null, ZoneId.of("Europe/Paris")));
+    }
+
+    @Test
+    public void testOffsetZonesAreFormattedWithoutBeingCached() {
+        Instant t = Instant.parse("2025-11-04T17:09:00Z");
+        DisplayTime.format(t, ZoneId.of("Europe/Paris"));
+        int cached = DisplayTime.cachedFormatters();
+        for (int seconds = 1; seconds <= 1000; seconds++) {
+            DisplayTime.format(t, DisplayTime.zone("+05:30:" + String.format("%02d", seconds % 60)));
+            DisplayTime.format(t, DisplayTime.zone("UTC+" + (1 + seconds % 17)));
+        }
+        assertEquals("2025-11-04, 22:39:00", DisplayTime.format(t, DisplayTime.zone("+05:30")));
+        assertEquals(cached, DisplayTime.cachedFormatters());
+    }
+
+    @Test
+    public void testInvalidOrMissingZoneFallsBackToDefault() {
+        assertEquals(ZoneId.of("Asia/Tokyo"), DisplayTime.zone("Asia/Tokyo"));
+        assertEquals(DisplayTime.DEFAULT_ZONE, DisplayTime.zone("Not/AZone"));
+        assertEquals(DisplayTime.DEFAULT_ZONE, DisplayTime.zone(null));
+    }
+
+    @Test
+    public void testDisplayedTimeReadsBack() {
+        Instant t = Instant.parse("2025-11-04T17:09:00Z");
+        assertEquals(t, DisplayTime.parse(DisplayTime.format(t, DisplayTime.DEFAULT_ZONE)));
+        assertNull(DisplayTime.parse("Unknown Date"));
+        assertNull(new Article("T", "u", "S", "s", "Unknown Date", 5, 5, "d").getPublishedAt());
+    }
+}
@@ -0,0 +1,76 @@
+package models;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for word and phrase counting.
+ */
+public class PhraseStatisticsTest {
+    private static final StopWords STOP = StopWords.of(List.of("the", "and", "for", "of", "were"));
+
+    private static Article article(String title, String description) {
+        return new Article(title, "u", "S", "https://s.com", "2025-11-04, 12:00:00", 5, 5, description);
+    }
+
+    @Test
+    public void testCountsWordsAndPhrasesWithoutStopWords() {
+        PhraseStatistics stats = PhraseStatistics.count(List.of(
+                article("Interest rates rise again", "The central bank raised interest rates."),
+                article("Markets fall as interest rates climb", "Stocks and bonds were hit by higher interest rates"),
+                article("Interest Rates: what next?", null)), STOP);
+
+        Map<String, Integer> words = stats.top(1, 3, 1);
+        assertEquals(List.of("interest", "rates", "rise"), List.copyOf(words.keySet()));
+        assertEquals(5, (int) words.get("interest"));
+        assertFalse(stats.top(1, 100, 1).containsKey("the"));
+        assertFalse(stats.top(1, 100, 1).containsKey("as")); // two letters
+
+        Map<String, Integer> bigrams = stats.top(2, 5, 2);
+        assertEquals(Map.of("interest rates", 5), bigrams);
+        assertTrue(stats.top(3, 5, 1).containsKey("central bank raised"));
+        assertTrue(stats.top(3, 5, 1).containsKey("interest rates rise"));
+    }
+
+    @Test
+    public void testStopWordsShortWordsAndPunctuationBreakPhrases() {
+        PhraseStatistics stats = PhraseStatistics.count(List.of(
+                article("Rate of inflation, prices up in March 2025", "Wages grew. Prices fell")), STOP);
+        Map<String, Integer> bigrams = stats.top(2, 10, 1);
+        assertFalse(bigrams.containsKey("rate inflation"));   // "of" in between
+        assertFalse(bigrams.containsKey("inflation prices")); // comma
+        assertFalse(bigrams.containsKey("grew prices"));      // full stop
+        assertFalse(bigrams.containsKey("prices march"));     // "up", "in"
+        assertEquals(Map.of("wages grew", 1, "prices fell", 1), bigrams);
+        assertEquals(0, stats.distinct(3));
+    }
+
+    @Test
+    public void testStopWordsIgnoreCaseAndPunctuation() {
+        assertTrue(STOP.contains("The"));
+        assertTrue(STOP.contains("and,"));
+        assertFalse(STOP.contains("then"));
+        assertEquals(5, STOP.size());
+        assertEquals(0, StopWords.loadResource("no-such-file.txt").size());
+    }
+
+    @Test
+    public void testLongIntMapGrowsAndCountsZeroKey() {
+        LongIntMap map = new LongIntMap(2);
+        for (long k = 0; k < 1000; k++) map.add(k * 0x9E3779B97F4A7C15L, (int) k % 7 + 1);
+        map.add(0, 1);
+        assertEquals(1000, map.size());
+        assertEquals(2, map.get(0));
+        assertEquals(3, map.get(2 * 0x9E3779B97F4A7C15L));
+        assertEquals(0, map.get(12345));
+        assertFalse(map.putIfAbsent(0, 9));
+        assertTrue(map.putIfAbsent(12345, 9));
+        int[] sum = {0};
+        map.forEach((k, v) -> sum[0] += v);
+        assertTrue(sum[0] > 1000);
+    }
+}
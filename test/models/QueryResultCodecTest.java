@@ -0,0 +1,65 @@
+package models;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the binary QueryResult encoding.
+ */
+public class QueryResultCodecTest {
+
+    @Test
+    public void testRoundTripKeepsEveryField() {
+        List<Article> articles = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            articles.add(new Article("Títle " + i + " – markets", "https://a.com/" + i, "Source " + i, "https://a.com",
+                    i == 1 ? null : Instant.parse("2025-11-04T17:00:00Z").plusSeconds(60 * i), i, 60 + i, i == 2 ? null : "Description " + i,
+                    i == 3 ? null : "source-" + i, i == 4 ? null : "en"));
+        }
+        QueryResult original = QueryResult.analysed("markets", "https://newsapi.org/v2/everything?q=markets", articles, true);
+
+        QueryResult decoded = QueryResultCodec.decode(ByteBuffer.wrap(QueryResultCodec.encode(original)));
+
+        assertEquals(original.getQuery(), decoded.getQuery());
+        assertEquals(original.getRequestUrl(), decoded.getRequestUrl());
+        assertEquals(original.getAvgGrade(), decoded.getAvgGrade(), 0.0);
+        assertEquals(original.getAvgScore(), decoded.getAvgScore(), 0.0);
+        assertEquals(original.getNewestPublishedAt(), decoded.getNewestPublishedAt());
+        assertEquals(original.getWordCounts(), decoded.getWordCounts());
+        assertTrue(decoded.isComplete());
+        assertEquals(articles.size(), decoded.getArticles().size());
+        for (int i = 0; i < articles.size(); i++) {
+            Article a = articles.get(i);
+            Article b = decoded.getArticles().get(i);
+            assertEquals(a.getTitle(), b.getTitle());
+            assertEquals(a.getUrl(), b.getUrl());
+            assertEquals(a.getSourceName(), b.getSourceName());
+            assertEquals(a.getSourceUrl(), b.getSourceUrl());
+            assertEquals(a.getPublishedAt(), b.getPublishedAt());
+            assertEquals(a.getKincaidGrade(), b.getKincaidGrade());
+            assertEquals(a.getReadingScore(), b.getReadingScore());
+            assertEquals(a.getDescription(), b.getDescription());
+            assertEquals(a.getFingerprint(), b.getFingerprint());
+            assertEquals(a.getPublishedEpochMillis(), b.getPublishedEpochMillis());
+            assertEquals(a.getSourceId(), b.getSourceId());
+            assertEquals(a.getLanguage(), b.getLanguage());
+        }
+
+        // running sums survive too: merging the decoded copy gives the same averages
+        List<Article> newer = Arrays.asList(new Article("Fresh news", "https://a.com/new", "S", "s", "2025-11-04, 13:00:00", 1, 1, "d"));
+        assertEquals(original.merge(newer, 5).getAvgGrade(), decoded.merge(newer, 5).getAvgGrade(), 1e-9);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTruncatedInputIsRejected() {
+        byte[] bytes = QueryResultCodec.encode(new QueryResult("q", new ArrayList<>(), 0, 0));
+        QueryResultCodec.decode(ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length - 2)));
+    }
+}
@@ -0,0 +1,94 @@
+package models;
+
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for QueryResult analysis and incremental merges.
+ */
+public class QueryResultTest {
+
+    private static Article article(int i, String title) {
+        return new Article(title, "url" + i, "Source", "https://source.com", String.format("2025-11-04, 12:%02d:00", i), 5, 5, "Description " + i);
+    }
+
+    @Test
+    public void testNewestPublishedAtIsParsedFromDisplayDates() {
+        QueryResult qr = QueryResult.analysed("q", "u", Arrays.asList(article(5, "A"), article(9, "B"), article(1, "C")));
+        // 12:09 in Toronto (EST on Nov 4th) is 17:09 UTC
+        assertEquals(Instant.parse("2025-11-04T17:09:00Z"), qr.getNewestPublishedAt());
+    }
+
+    @Test
+    public void testMergeMatchesFullAnalysis() {
+        List<Article> old = new ArrayList<>();
+        for (int i = 3; i >= 0; i--) old.add(article(i, "Markets fall sharply on rate fears " + i));
+        QueryResult cached = QueryResult.analysed("markets", "u", old);
+
+        List<Article> newer = Arrays.asList(article(5, "Markets rebound after strong earnings"), article(4, "Central banks hold rates"), old.get(0));
+        QueryResult merged = cached.merge(newer, 4);
+
+        List<Article> expectedArticles = Arrays.asList(newer.get(0), newer.get(1), old.get(0), old.get(1));
+        QueryResult full = QueryResult.analysed("markets", "u", expectedArticles);
+
+        assertEquals(expectedArticles, merged.getArticles());
+        assertEquals(full.getAvgGrade(), merged.getAvgGrade(), 1e-9);
+        assertEquals(full.getAvgScore(), merged.getAvgScore(), 1e-9);
+        assertEquals(full.getWordCounts(), merged.getWordCounts());
+        assertEquals("u", merged.getRequestUrl());
+        assertEquals(Instant.parse("2025-11-04T17:05:00Z"), merged.getNewestPublishedAt());
+    }
+
+    @Test
+    public void testMergeWithNothingNewReturnsSameResult() {
+        QueryResult cached = QueryResult.analysed("q", "u", Arrays.asList(article(1, "A title")));
+        assertSame(cached, cached.merge(Arrays.asList(article(1, "A title")), 50));
+    }
+
+    @Test
+    public void testSelectResortsByDateAndFiltersByLanguage() {
+        List<Article> byRelevance = Arrays.asList(
+                new Article("B", "u2", "S", "s", Instant.ofEpochMilli(2000), 5, 5, "", "s", "en"),
+                new Article("C", "u3", "S", "s", Instant.ofEpochMilli(3000), 5, 5, "", "s", "fr"),
+                new Article("A", "u1", "S", "s", Instant.ofEpochMilli(1000), 5, 5, "", "s", "en"));
+        QueryResult qr = QueryResult.analysed("q", "u", byRelevance, true);
+
+        assertEquals(byRelevance, qr.select(false, null));
+        assertEquals(Arrays.asList(byRelevance.get(1), byRelevance.get(0), byRelevance.get(2)), qr.select(true, null));
+        assertEquals(Arrays.asList(byRelevance.get(0), byRelevance.get(2)), qr.select(true, "en"));
+        assertEquals(Arrays.asList(byRelevance.get(1)), qr.select(false, "fr"));
+    }
+
+    @Test
+    public void testSelectNeedsEveryDateAndLanguage() {
+        QueryResult qr = QueryResult.analysed("q", "u", Arrays.asList(
+                new Article("A", "u1", "S", "s", null, 5, 5, "", null, "en"),
+                new Article("B", "u2", "S", "s", Instant.ofEpochMilli(1000), 5, 5, "", null, null)), true);
+
+        assertNull(qr.select(true, null));
+        assertNull(qr.select(false, "en"));
+        assertEquals(2, qr.select(false, null).size());
+    }
+
+    @Test
+    public void testMergeKeepsCompletenessOnlyWhenNothingFellOut() {
+        QueryResult cached = QueryResult.analysed("q", "u", Arrays.asList(article(2, "Two"), article(1, "One")), true);
+
+        assertTrue(cached.merge(Arrays.asList(article(3, "Three")), 5).isComplete());
+        assertFalse(cached.merge(Arrays.asList(article(3, "Three")), 2).isComplete());
+        assertFalse(QueryResult.analysed("q", "u", Arrays.asList(article(1, "One"))).merge(Arrays.asList(article(3, "Three")), 5).isComplete());
+    }
+
+    @Test
+    public void testWordCountsOfPlainConstructorMatchStatistics() {
+        QueryResult qr = new QueryResult("q", Arrays.asList(article(1, "Title one"), article(2, "title two")), 5.0, 5.0);
+        assertEquals(Long.valueOf(4), qr.getWordCounts().get("title"));
+        assertEquals(5.0, qr.getAvgGrade(), 0.0);
+    }
+}
@@ -0,0 +1,110 @@
+package models;
+
+import controllers.ReadabilityCalculator;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the scanning kernels against the regular expressions they replace, on both the scalar and the vector
+ * classifier (the latter only when jdk.incubator.vector is loaded).
+ */
+public class TextScanTest {
+    private static final String ALPHABET = "aeiouyAEIOUYbcdlLstrzZ'.!?  \t\n\r\u000b\f\u0001éçß-,;0";
+
+    private static int sentences(String text) {
+        if (text == null || text.trim().isEmpty()) return 0;
+        return ReadabilityCalculator.SENTENCE_PATTERN.split(text.trim()).length;
+    }
+
+    private static int words(String text) {
+        if (text == null || text.trim().isEmpty()) return 0;
+        return (int) ReadabilityCalculator.WORD_PATTERN.matcher(text).results().count();
+    }
+
+    private static int syllables(String text) {
+        if (text == null || text.trim().isEmpty()) return 0;
+        return ReadabilityCalculator.WORD_PATTERN.matcher(text).results()
+                .mapToInt(m -> ReadabilityCalculator.countSyllablesInWord(m.group())).sum();
+    }
+
+    private static List<String> statisticsWords(List<String> texts) {
+        return texts.stream()
+                .flatMap(sentence -> Arrays.stream(sentence.split(" ")))
+                .map(word -> word.replaceAll("[^\\p{L}]", "").toLowerCase())
+                .collect(Collectors.toList());
+    }
+
+    private static List<TextScan.Classifier> classifiers() {
+        List<TextScan.Classifier> classifiers = new ArrayList<>();
+        classifiers.add(TextScan.SCALAR);
+        if (TextScan.VECTOR != null) classifiers.add(TextScan.VECTOR);
+        return classifiers;
+    }
+
+    private static void assertSameAsPatterns(String text) {
+        for (TextScan.Classifier classifier : classifiers()) {
+            TextScan.Counts counts = TextScan.readability(text, classifier);
+            String label = "\"" + text + "\"";
+            assertEquals(label, sentences(text), counts.sentences);
+            assertEquals(label, words(text), counts.words);
+            assertEquals(label, syllables(text), counts.syllables);
+            assertEquals(label, statisticsWords(List.of(text)), TextScan.words(List.of(text), classifier));
+        }
+    }
+
+    @Test
+    public void testEdgeCasesMatchThePatterns() {
+        for (String text : List.of("", " ", "   ", "...", "Hi...", "...Hi", "a. . b", "a .", "a. b! c? ", "don't", "a'b'c", "'tis",
+                "rock'n'roll", "o'a", "x'le", "table", "Table.", "be", "the", "little", "ble", " a", "a  ", "a  b", "\ta\nb",
+                "café naïve", "𝔘nicode text", "\uD800 lone", "x\u0001. y", "e.g. U.S. policy", "ALL CAPS SHOUT!")) {
+            assertSameAsPatterns(text);
+        }
+        assertEquals(0, TextScan.readability(null).words);
+    }
+
+    @Test
+    public void testRandomTextsMatchThePatterns() {
+        Random random = new Random(7);
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder text = new StringBuilder();
+            int length = random.nextInt(i % 10 == 0 ? 700 : 150);
+            for (int j = 0; j < length; j++) text.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            assertSameAsPatterns(text.toString());
+        }
+    }
+
+    @Test
+    public void testRunsAcrossMaskWordsMatchThePatterns() {
+        // words, vowel groups and terminator runs crossing the 64-char mask words, and texts ending on a word edge
+        assertSameAsPatterns("a".repeat(63) + "e" + "x".repeat(64));
+        assertSameAsPatterns("word ".repeat(12) + "ends'", "b".repeat(128));
+        assertSameAsPatterns(".".repeat(70) + "  x" + "!".repeat(61));
+    }
+
+    private static void assertSameAsPatterns(String... texts) {
+        for (String text : texts) assertSameAsPatterns(text);
+        for (TextScan.Classifier classifier : classifiers()) {
+            assertEquals(statisticsWords(List.of(texts)), TextScan.words(List.of(texts), classifier));
+        }
+    }
+
+    @Test
+    public void testVectorClassifierIsUsedOnlyWhenEnabledAndLoaded() {
+        boolean loaded = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+        assertEquals(loaded, TextScan.VECTOR != null);
+        assertEquals(loaded && Boolean.getBoolean("notilytics.vector"), TextScan.isVectorized());
+    }
+
+    @Test
+    public void testStatisticsWordsAreUnchanged() {
+        List<String> texts = List.of("Markets rally, again!", " Leading space", "trailing spaces  ", "", "Émile's café");
+        assertEquals(statisticsWords(texts), Statistics.getWords(texts));
+    }
+}
@@ -0,0 +1,78 @@
+package tools;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the offline analytics over NewsAPI dumps.
+ */
+public class BatchAnalyticsTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static String article(int i, String source, String day) {
+        return "{\"source\":{\"id\":null,\"name\":\"" + source + "\"},\"title\":\"Markets rally as rates fall " + i + "\","
+                + "\"description\":\"Stocks climbed on Tuesday.\",\"url\":\"https://x.com/" + i + "\",\"publishedAt\":\"" + day + "T10:00:00Z\"}";
+    }
+
+    private Path dump() throws Exception {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            if (i % 10 == 0) {
+                // a whole NewsAPI response on one line
+                lines.add("{\"status\":\"ok\",\"articles\":[" + article(i, "Reuters", "2025-11-03") + "," + article(i + 1000, "BBC News", "2025-11-04") + "]}");
+            } else {
+                lines.add(article(i, i % 2 == 0 ? "Reuters" : "Le Monde, Paris", "2025-11-0" + (1 + i % 3)));
+            }
+        }
+        lines.add("{not json");
+        lines.add("");
+        Path file = folder.newFile("dump.ndjson").toPath();
+        Files.write(file, lines, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    @Test
+    public void testParallelChunksGiveTheSameTotals() throws Exception {
+        Path file = dump();
+        BatchAnalytics.Totals single = BatchAnalytics.analyse(List.of(file), 1, Long.MAX_VALUE);
+        BatchAnalytics.Totals parallel = BatchAnalytics.analyse(List.of(file), 4, 512);
+
+        assertEquals(220, single.articles);
+        assertEquals(1, single.malformed);
+        assertEquals(single.articles, parallel.articles);
+        assertEquals(single.malformed, parallel.malformed);
+        assertEquals(single.bySource.keySet(), parallel.bySource.keySet());
+        assertEquals(single.byDay.keySet(), parallel.byDay.keySet());
+        for (String source : single.bySource.keySet()) {
+            BatchAnalytics.Group a = single.bySource.get(source);
+            BatchAnalytics.Group b = parallel.bySource.get(source);
+            assertEquals(a.articles, b.articles);
+            assertEquals(a.sumGrade, b.sumGrade, 1e-6);
+            assertEquals(a.words, b.words);
+        }
+        assertEquals(Long.valueOf(20), single.bySource.get("BBC News").words.get("markets"));
+    }
+
+    @Test
+    public void testWritesCsvSummaries() throws Exception {
+        BatchAnalytics.Totals totals = BatchAnalytics.analyse(List.of(dump()), 2, 1024);
+        Path out = folder.newFolder("out").toPath();
+        BatchAnalytics.write(totals, out, 2);
+
+        List<String> sources = Files.readAllLines(out.resolve("sources.csv"));
+        assertEquals("source,articles,avg_grade,avg_score,top_words", sources.get(0));
+        assertTrue(sources.stream().anyMatch(l -> l.startsWith("\"Le Monde, Paris\",100,")));
+        List<String> days = Files.readAllLines(out.resolve("days.csv"));
+        assertEquals(5, days.size()); // header + November 1st to 4th
+    }
+}